@@ -34,6 +34,7 @@ import com.orientechnologies.common.util.OPair;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OCommandRequestAsynch;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.command.OCommandResultListener;
 import com.orientechnologies.orient.core.config.OContextConfiguration;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.config.OStorageConfiguration;
@@ -43,6 +44,7 @@ import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.ODatabaseException;
 import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.query.OQuery;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
@@ -50,6 +52,7 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.OSerializableStream;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerStringAbstract;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerAnyStreamable;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
 import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.ORawBuffer;
 import com.orientechnologies.orient.core.storage.OStorage;
@@ -369,6 +372,67 @@ public class OStorageRemote extends OStorageAbstract {
 		} while (true);
 	}
 
+	/**
+	 * Reads all the requested records with a single request. The records fetched by the fetch plan are put in the level-1 cache as
+	 * for readRecord().
+	 */
+	@Override
+	public List<ORawBuffer> readRecords(final ODatabaseRecord iDatabase, final List<ORecordId> iRids, final String iFetchPlan) {
+		checkConnection();
+
+		if (OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting)
+			// PENDING NETWORK OPERATION, CAN'T EXECUTE IT NOW
+			return null;
+
+		do {
+			try {
+
+				OChannelBinaryClient network = null;
+				try {
+
+					network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_LOAD_MULTI);
+					network.writeInt(iRids.size());
+					for (ORecordId rid : iRids)
+						network.writeRID(rid);
+					network.writeString(iFetchPlan != null ? iFetchPlan : "");
+
+				} finally {
+					endRequest(network);
+				}
+
+				try {
+					beginResponse(network);
+
+					final List<ORawBuffer> buffers = new ArrayList<ORawBuffer>(iRids.size());
+					for (int i = 0; i < iRids.size(); ++i) {
+						if (network.readByte() == 0)
+							buffers.add(null);
+						else
+							buffers.add(new ORawBuffer(network.readBytes(), network.readInt(), network.readByte()));
+					}
+
+					ORecordInternal<?> record;
+					while (network.readByte() == 2) {
+						record = (ORecordInternal<?>) readIdentifiable(network, iDatabase);
+
+						// PUT IN THE CLIENT LOCAL CACHE
+						iDatabase.getLevel1Cache().updateRecord(record);
+					}
+					return buffers;
+				} finally {
+					endResponse(network);
+				}
+
+			} catch (OException e) {
+				// PASS THROUGH
+				throw e;
+			} catch (Exception e) {
+				handleException("Error on read " + iRids.size() + " records", e);
+
+			}
+		} while (true);
+	}
+
 	public int updateRecord(final ORecordId iRid, final byte[] iContent, final int iVersion, final byte iRecordType) {
 		checkConnection();
 
@@ -608,6 +672,10 @@ public class OStorageRemote extends OStorageAbstract {
 		if (!(iCommand instanceof OSerializableStream))
 			throw new OCommandExecutionException("Can't serialize the command to being executed to the server side.");
 
+		final int fetchSize = clientConfiguration.getValueAsInteger(OGlobalConfiguration.NETWORK_BINARY_FETCH_SIZE);
+		if (fetchSize > 0 && iCommand instanceof OQuery<?>)
+			return commandWithCursor(iCommand, fetchSize);
+
 		OSerializableStream command = iCommand;
 		Object result = null;
 
@@ -637,6 +705,7 @@ public class OStorageRemote extends OStorageAbstract {
 						byte status;
 
 						// ASYNCH: READ ONE RECORD AT TIME
+						boolean listening = true;
 						while ((status = network.readByte()) > 0) {
 							final ORecordSchemaAware<?> record = (ORecordSchemaAware<?>) readIdentifiable(network, iCommand.getDatabase());
 							if (record == null)
@@ -644,15 +713,11 @@ public class OStorageRemote extends OStorageAbstract {
 
 							switch (status) {
 							case 1:
-								// PUT AS PART OF THE RESULT SET. INVOKE THE LISTENER
+								// PUT AS PART OF THE RESULT SET. INVOKE THE LISTENER. WHEN IT RETURNS FALSE THE REMAINING RECORDS ARE STILL READ
+								// BECAUSE THE CHANNEL COULD BE ALREADY CARRYING THE RESPONSES OF OTHER REQUESTS
 								try {
-									if (!aquery.getResultListener().result(record)) {
-										// EMPTY THE INPUT CHANNEL
-										while (network.in.available() > 0)
-											network.in.read();
-
-										break;
-									}
+									if (listening)
+										listening = aquery.getResultListener().result(record);
 								} catch (Throwable t) {
 									// ABSORBE ALL THE USER EXCEPTIONS
 									t.printStackTrace();
@@ -716,6 +781,203 @@ public class OStorageRemote extends OStorageAbstract {
 		return result;
 	}
 
+	/**
+	 * Executes the query through a server-side cursor receiving the records in pages of iFetchSize records. Asynchronous queries
+	 * pass the records to the listener page by page, while synchronous queries return a OStorageRemoteCursorList that fetches the
+	 * next pages only when it's browsed.
+	 */
+	protected Object commandWithCursor(final OCommandRequestText iCommand, final int iFetchSize) {
+		final ODatabaseRecord database = iCommand.getDatabase();
+		final List<OIdentifiable> firstPage = new ArrayList<OIdentifiable>();
+		int cursorId;
+		boolean more;
+
+		do {
+			OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting = true;
+
+			try {
+				OChannelBinaryClient network = null;
+				try {
+					network = beginRequest(OChannelBinaryProtocol.REQUEST_COMMAND);
+
+					network.writeByte((byte) 'c'); // CURSOR
+					network.writeBytes(OStreamSerializerAnyStreamable.INSTANCE.toStream(database, iCommand));
+					network.writeInt(iFetchSize);
+
+				} finally {
+					endRequest(network);
+				}
+
+				try {
+					beginResponse(network);
+
+					firstPage.clear();
+					cursorId = network.readInt();
+					more = readCursorPage(network, database, firstPage);
+					break;
+
+				} finally {
+					endResponse(network);
+				}
+
+			} catch (OException e) {
+				// PASS THROUGH
+				throw e;
+			} catch (Exception e) {
+				handleException("Error on executing command: " + iCommand, e);
+
+			} finally {
+				OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting = false;
+			}
+		} while (true);
+
+		if (iCommand instanceof OSQLSynchQuery<?> || !(iCommand instanceof OCommandRequestAsynch))
+			// SYNCHRONOUS: THE NEXT PAGES ARE FETCHED WHILE THE RESULT IS BROWSED
+			return new OStorageRemoteCursorList(this, database, cursorId, iFetchSize, firstPage, more);
+
+		// ASYNCHRONOUS: PASS THE RECORDS TO THE LISTENER. ONLY ONE PAGE AT A TIME IS KEPT IN MEMORY
+		final OCommandResultListener listener = iCommand.getResultListener();
+		final int sessionId = getSessionId();
+		List<OIdentifiable> page = firstPage;
+		try {
+			while (true) {
+				for (OIdentifiable record : page)
+					if (!listener.result(record))
+						return null;
+
+				if (!more)
+					return null;
+
+				page = new ArrayList<OIdentifiable>(iFetchSize);
+				more = fetchCursorPage(sessionId, cursorId, iFetchSize, database, page);
+			}
+		} finally {
+			if (more)
+				// THE LISTENER HAS INTERRUPTED THE BROWSING: RELEASE THE CURSOR
+				closeCursor(sessionId, cursorId);
+		}
+	}
+
+	/**
+	 * Fetches the next page of records from a server-side cursor.
+	 * 
+	 * @param iSessionId
+	 *          Session that opened the cursor
+	 * @param iRecords
+	 *          List where to append the records of the page
+	 * @return true if the cursor has more records, otherwise false. In this case the cursor has already been closed by the server
+	 */
+	public boolean fetchCursorPage(final int iSessionId, final int iCursorId, final int iFetchSize, final ODatabaseRecord iDatabase,
+			final List<OIdentifiable> iRecords) {
+		checkConnection();
+
+		final int currentSessionId = getSessionId();
+		setSessionId(iSessionId);
+		try {
+			final int pageStart = iRecords.size();
+
+			do {
+				try {
+					OChannelBinaryClient network = null;
+					try {
+						network = beginRequest(OChannelBinaryProtocol.REQUEST_CURSOR_FETCH);
+
+						network.writeInt(iCursorId);
+						network.writeInt(iFetchSize);
+
+					} finally {
+						endRequest(network);
+					}
+
+					try {
+						beginResponse(network);
+
+						while (iRecords.size() > pageStart)
+							iRecords.remove(iRecords.size() - 1);
+						return readCursorPage(network, iDatabase, iRecords);
+
+					} finally {
+						endResponse(network);
+					}
+
+				} catch (OException e) {
+					// PASS THROUGH
+					throw e;
+				} catch (Exception e) {
+					handleException("Error on fetching records from cursor #" + iCursorId, e);
+
+				}
+			} while (true);
+
+		} finally {
+			setSessionId(currentSessionId);
+		}
+	}
+
+	/**
+	 * Closes a server-side cursor not browsed until the end.
+	 */
+	public void closeCursor(final int iSessionId, final int iCursorId) {
+		checkConnection();
+
+		final int currentSessionId = getSessionId();
+		setSessionId(iSessionId);
+		try {
+			do {
+				try {
+					OChannelBinaryClient network = null;
+					try {
+						network = beginRequest(OChannelBinaryProtocol.REQUEST_CURSOR_CLOSE);
+
+						network.writeInt(iCursorId);
+
+					} finally {
+						endRequest(network);
+					}
+
+					try {
+						beginResponse(network);
+						return;
+					} finally {
+						endResponse(network);
+					}
+
+				} catch (OException e) {
+					// PASS THROUGH
+					throw e;
+				} catch (Exception e) {
+					handleException("Error on closing cursor #" + iCursorId, e);
+
+				}
+			} while (true);
+
+		} finally {
+			setSessionId(currentSessionId);
+		}
+	}
+
+	/**
+	 * Reads a page of records sent by a server-side cursor. The records of the result set are appended to iRecords, the records
+	 * loaded by the fetch plan are only put in the client cache.
+	 * 
+	 * @return true if the cursor has more records
+	 */
+	protected boolean readCursorPage(final OChannelBinaryClient network, final ODatabaseRecord iDatabase,
+			final List<OIdentifiable> iRecords) throws IOException {
+		byte status;
+		while ((status = network.readByte()) == 1 || status == 2) {
+			final OIdentifiable record = readIdentifiable(network, iDatabase);
+
+			if (record instanceof ORecord<?>)
+				iDatabase.getLevel1Cache().updateRecord((ORecordInternal<?>) record);
+
+			if (status == 1)
+				// PART OF THE RESULT SET
+				iRecords.add(record);
+		}
+		return status == 3;
+	}
+
 	public void commit(final OTransaction iTx) {
 		checkConnection();
 
@@ -1220,7 +1482,8 @@ public class OStorageRemote extends OStorageAbstract {
 	}
 
 	/**
-	 * Acquire a network channel from the pool. Don't lock the write stream since the connection usage is exclusive.
+	 * Acquire a network channel from the pool locking its write stream until endRequest() is called. The channel with less pending
+	 * responses is preferred. If all the channels are waiting for responses and the pool isn't full a new channel is created.
 	 * 
 	 * @param iCommand
 	 * @return
@@ -1232,28 +1495,42 @@ public class OStorageRemote extends OStorageAbstract {
 		if (debug)
 			System.out.println("-> req: " + getSessionId());
 
-		// FIND THE FIRST FREE CHANNEL AVAILABLE
+		// FIND THE FREE CHANNEL WITH LESS PENDING RESPONSES. REQUESTS ARE PIPELINED, SO A CHANNEL IS BUSY ONLY WHILE A REQUEST IS WRITTEN
 		synchronized (networkPool) {
-			final int beginCursor = networkPoolCursor;
-
 			while (network == null) {
 				if (networkPool.size() == 0)
 					throw new ONetworkProtocolException("Connection pool closed");
 
-				network = networkPool.get(networkPoolCursor);
-				if (network.getLockWrite().tryLock())
-					break;
+				for (int i = 0; i < networkPool.size(); ++i) {
+					final OChannelBinaryClient candidate = networkPool.get((networkPoolCursor + i) % networkPool.size());
 
-				network = null;
+					if (network != null && candidate.getPendingResponses() >= network.getPendingResponses())
+						continue;
 
-				networkPoolCursor++;
+					if (candidate.getLockWrite().tryLock()) {
+						if (network != null)
+							network.getLockWrite().unlock();
+						network = candidate;
+
+						if (network.getPendingResponses() == 0)
+							// IDLE CHANNEL: TAKE IT
+							break;
+					}
+				}
 
+				networkPoolCursor++;
 				if (networkPoolCursor >= networkPool.size())
 					// RESTART FROM THE FIRST ONE
 					networkPoolCursor = 0;
 
-				if (networkPoolCursor == beginCursor) {
-					// COMPLETE ROUND AND NOT FREE CONNECTIONS FOUND
+				if (network != null && network.getPendingResponses() > 0 && networkPool.size() < maxPool) {
+					// ALL THE CHANNELS ARE WAITING FOR RESPONSES: CREATE A NEW ONE TO AVOID TO QUEUE BEHIND SLOW REQUESTS
+					network.getLockWrite().unlock();
+					network = null;
+				}
+
+				if (network == null) {
+					// NO FREE CONNECTIONS FOUND
 
 					if (networkPool.size() < maxPool) {
 						// CREATE NEW CONNECTION
@@ -1267,7 +1544,7 @@ public class OStorageRemote extends OStorageAbstract {
 						if (debug)
 							System.out.println("-> req (waiting) : " + getSessionId());
 
-						final long startToWait = System.currentTimeMillis();
+						final long startToWait = OProfiler.getInstance().startChrono();
 						try {
 							networkPool.wait(5000);
 						} catch (InterruptedException e) {
@@ -1297,13 +1574,10 @@ public class OStorageRemote extends OStorageAbstract {
 			return;
 
 		try {
-			iNetwork.flush();
-			// } catch (IOException e) {
-			// IGNORE IT BECAUSE IT COULD BE CALLED AFTER A NETWORK ERROR TO RELEASE THE SOCKET
+			// FLUSH AND UNLOCK THE WRITE: OTHER REQUESTS CAN BE SENT BEFORE THE RESPONSE IS READ
+			iNetwork.endRequest();
 		} finally {
 
-			iNetwork.getLockWrite().unlock();
-
 			if (debug)
 				System.out.println("<- req: " + getSessionId());
 
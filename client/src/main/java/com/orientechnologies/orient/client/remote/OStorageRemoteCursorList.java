@@ -0,0 +1,148 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.client.remote;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+
+/**
+ * List of the records returned by a query executed through a server-side cursor. The records are fetched from the server a page
+ * at a time only when they are browsed. Calling size() or modifying the list fetches all the remaining pages. If the list isn't
+ * browsed until the end, call close() to release the cursor on the server, otherwise it will be closed by the server after
+ * network.binary.cursorTimeout ms.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public class OStorageRemoteCursorList extends AbstractList<OIdentifiable> {
+	private final OStorageRemote				storage;
+	private final ODatabaseRecord				database;
+	private final int										sessionId;
+	private final int										cursorId;
+	private final int										fetchSize;
+	private final List<OIdentifiable>		records;
+	private boolean											more;
+
+	public OStorageRemoteCursorList(final OStorageRemote iStorage, final ODatabaseRecord iDatabase, final int iCursorId,
+			final int iFetchSize, final List<OIdentifiable> iFirstPage, final boolean iMore) {
+		storage = iStorage;
+		database = iDatabase;
+		sessionId = iStorage.getSessionId();
+		cursorId = iCursorId;
+		fetchSize = iFetchSize;
+		records = iFirstPage;
+		more = iMore;
+	}
+
+	@Override
+	public OIdentifiable get(final int iIndex) {
+		while (iIndex >= records.size() && fetchNextPage())
+			;
+		return records.get(iIndex);
+	}
+
+	@Override
+	public int size() {
+		fetchAll();
+		return records.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		while (records.isEmpty() && fetchNextPage())
+			;
+		return records.isEmpty();
+	}
+
+	@Override
+	public OIdentifiable set(final int iIndex, final OIdentifiable iElement) {
+		get(iIndex);
+		return records.set(iIndex, iElement);
+	}
+
+	@Override
+	public void add(final int iIndex, final OIdentifiable iElement) {
+		fetchAll();
+		records.add(iIndex, iElement);
+	}
+
+	@Override
+	public OIdentifiable remove(final int iIndex) {
+		fetchAll();
+		return records.remove(iIndex);
+	}
+
+	/**
+	 * Returns an iterator that fetches the next page only when the records already received have been browsed.
+	 */
+	@Override
+	public Iterator<OIdentifiable> iterator() {
+		return new Iterator<OIdentifiable>() {
+			private int	next	= 0;
+
+			public boolean hasNext() {
+				while (next >= records.size())
+					if (!fetchNextPage())
+						return false;
+				return true;
+			}
+
+			public OIdentifiable next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return records.get(next++);
+			}
+
+			public void remove() {
+				fetchAll();
+				records.remove(--next);
+			}
+		};
+	}
+
+	/**
+	 * Closes the cursor on the server. The records not fetched yet are discarded.
+	 */
+	public void close() {
+		if (more) {
+			more = false;
+			storage.closeCursor(sessionId, cursorId);
+		}
+	}
+
+	public boolean isCursorOpen() {
+		return more;
+	}
+
+	protected void fetchAll() {
+		while (fetchNextPage())
+			;
+	}
+
+	protected boolean fetchNextPage() {
+		if (!more)
+			return false;
+
+		more = storage.fetchCursorPage(sessionId, cursorId, fetchSize, database, records);
+		return true;
+	}
+}
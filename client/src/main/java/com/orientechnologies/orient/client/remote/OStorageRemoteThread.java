@@ -143,6 +143,11 @@ public class OStorageRemoteThread implements OStorage {
 		return delegate.readRecord(iDatabase, iRid, iFetchPlan);
 	}
 
+	public List<ORawBuffer> readRecords(final ODatabaseRecord iDatabase, final List<ORecordId> iRids, final String iFetchPlan) {
+		delegate.setSessionId(sessionId);
+		return delegate.readRecords(iDatabase, iRids, iFetchPlan);
+	}
+
 	public int updateRecord(final ORecordId iRid, final byte[] iContent, final int iVersion, final byte iRecordType) {
 		delegate.setSessionId(sessionId);
 		return delegate.updateRecord(iRid, iContent, iVersion, iRecordType);
@@ -269,6 +269,68 @@ public abstract class OMVRBTree<K, V> extends AbstractMap<K, V> implements ONavi
 		}
 	}
 
+	/**
+	 * Returns the value to which the specified key is mapped like {@link #get(Object)}, but without using or updating the search
+	 * cursor of the tree (page index and last search). The only state touched is the one of the nodes, so more threads can call it
+	 * concurrently as long as no thread is changing the tree and the implementation loads the nodes in thread-safe way.
+	 * 
+	 * @param key
+	 *          Key to search
+	 * @return The value if found, otherwise null
+	 */
+	public V getConcurrent(final Object key) {
+		if (key == null || size == 0)
+			return null;
+
+		final long timer = OProfiler.getInstance().startChrono();
+
+		try {
+			OMVRBTreeEntry<K, V> p = getBestEntryPoint((K) key);
+			OMVRBTreeEntry<K, V> prevNode = null;
+			OMVRBTreeEntry<K, V> tmpNode;
+			int beginKey;
+			int endKey;
+			final Comparable<? super K> k = (Comparable<? super K>) key;
+
+			while (p != null && p.getSize() > 0) {
+				if (comparator != null) {
+					beginKey = comparator.compare((K) key, p.getKeyAt(0));
+					endKey = comparator.compare((K) key, p.getKeyAt(p.getSize() - 1));
+				} else {
+					beginKey = k.compareTo(p.getKeyAt(0));
+					endKey = k.compareTo(p.getKeyAt(p.getSize() - 1));
+				}
+
+				if (beginKey == 0)
+					// EXACT MATCH WITH THE FIRST KEY OF THE NODE
+					return p.getValueAt(0);
+
+				tmpNode = null;
+				if (beginKey < 0 && endKey < 0)
+					// MINOR THAN THE CURRENT: GET THE LEFT NODE
+					tmpNode = predecessor(p);
+				else if (beginKey > 0 && endKey > 0)
+					// MAJOR THAN THE CURRENT: GET THE RIGHT NODE
+					tmpNode = successor(p);
+
+				if (tmpNode != null && tmpNode != prevNode) {
+					prevNode = p;
+					p = tmpNode;
+					continue;
+				}
+
+				// SEARCH INSIDE THE NODE
+				final int index = p.indexOf(k);
+				return index >= 0 ? p.getValueAt(index) : null;
+			}
+
+			return null;
+
+		} finally {
+			OProfiler.getInstance().stopChrono("OMVRBTree.getConcurrent", timer);
+		}
+	}
+
 	public Comparator<? super K> comparator() {
 		return comparator;
 	}
@@ -357,6 +357,38 @@ public abstract class OMVRBTreeEntry<K, V> implements Map.Entry<K, V>, Comparabl
 		return null;
 	}
 
+	/**
+	 * Searches the key inside the node without changing the cursor of the tree (pageIndex, pageItemFound and pageItemComparator).
+	 * Since no tree state is touched, more threads can search the same node at the same time.
+	 * 
+	 * @param iKey
+	 *          Key to search
+	 * @return The position of the key if found, otherwise -(insertion point) - 1
+	 */
+	protected int indexOf(final Comparable<? super K> iKey) {
+		int low = 0;
+		int high = size - 1;
+		int cmp;
+
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+
+			if (tree.comparator != null)
+				cmp = tree.comparator.compare(getKeyAt(mid), (K) iKey);
+			else
+				cmp = ((Comparable<? super K>) getKeyAt(mid)).compareTo((K) iKey);
+
+			if (cmp < 0)
+				low = mid + 1;
+			else if (cmp > 0)
+				high = mid - 1;
+			else
+				return mid;
+		}
+
+		return -(low + 1);
+	}
+
 	protected void insert(final int iPosition, final K key, final V value) {
 		if (iPosition < size) {
 			// MOVE RIGHT TO MAKE ROOM FOR THE ITEM
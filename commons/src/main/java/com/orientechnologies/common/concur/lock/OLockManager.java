@@ -15,29 +15,52 @@
  */
 package com.orientechnologies.common.concur.lock;
 
-import java.util.HashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Manages the locks against resources. Resources are mapped by hash code on a fixed table of read/write locks (lock striping), so
+ * acquiring and releasing a lock never allocates and never passes through a global monitor. Two resources can share the same lock:
+ * this only reduces the concurrency between them since the locks are reentrant, but a thread holding a shared lock must not ask for
+ * an exclusive lock against another resource.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
 public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
 	public enum LOCK {
 		SHARED, EXCLUSIVE
 	}
 
-	protected long																	acquireTimeout;
-	protected HashMap<RESOURCE_TYPE, CountableLock>	map	= new HashMap<RESOURCE_TYPE, CountableLock>();
+	public static final int									DEFAULT_CONCURRENCY	= 1024;
 
-	@SuppressWarnings("serial")
-	protected static class CountableLock extends ReentrantReadWriteLock {
-		protected int	countLocks	= 0;
+	protected long													acquireTimeout;
+	protected final ReentrantReadWriteLock[]	locks;
+	protected final int											mask;
 
-		public CountableLock(final boolean iFair) {
-			super(false);
-		}
+	public OLockManager(final int iAcquireTimeout) {
+		this(iAcquireTimeout, DEFAULT_CONCURRENCY);
 	}
 
-	public OLockManager(final int iAcquireTimeout) {
+	/**
+	 * Creates a new lock manager.
+	 * 
+	 * @param iAcquireTimeout
+	 *          Default timeout in ms to acquire a lock. 0 means wait forever
+	 * @param iConcurrency
+	 *          Number of locks in the table, rounded to the next power of 2
+	 */
+	public OLockManager(final int iAcquireTimeout, final int iConcurrency) {
 		acquireTimeout = iAcquireTimeout;
+
+		int size = 1;
+		while (size < iConcurrency)
+			size <<= 1;
+
+		locks = new ReentrantReadWriteLock[size];
+		for (int i = 0; i < size; ++i)
+			locks[i] = new ReentrantReadWriteLock();
+		mask = size - 1;
 	}
 
 	public void acquireLock(final REQUESTER_TYPE iRequester, final RESOURCE_TYPE iResourceId, final LOCK iLockType) {
@@ -45,69 +68,47 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
 	}
 
 	public void acquireLock(final REQUESTER_TYPE iRequester, final RESOURCE_TYPE iResourceId, final LOCK iLockType, long iTimeout) {
-		CountableLock lock;
-		synchronized (map) {
-			lock = map.get(iResourceId);
-			if (lock == null) {
-				lock = new CountableLock(iTimeout > 0);
-				map.put(iResourceId, lock);
-			}
-			lock.countLocks++;
-		}
-		try {
-			if (iTimeout <= 0) {
-				if (iLockType == LOCK.SHARED)
-					lock.readLock().lock();
-				else
-					lock.writeLock().lock();
-			} else {
-				try {
-					if (iLockType == LOCK.SHARED) {
-						if (!lock.readLock().tryLock(iTimeout, TimeUnit.MILLISECONDS))
-							throw new OLockException("Timeout on acquiring resource '" + iResourceId + "' because is locked from another thread");
-					} else {
-						if (!lock.writeLock().tryLock(iTimeout, TimeUnit.MILLISECONDS))
-							throw new OLockException("Timeout on acquiring resource '" + iResourceId + "' because is locked from another thread");
-					}
-				} catch (InterruptedException e) {
-					throw new OLockException("Thread interrupted while waiting for resource '" + iResourceId + "'");
+		final ReentrantReadWriteLock lock = getLock(iResourceId);
+
+		if (iTimeout <= 0) {
+			if (iLockType == LOCK.SHARED)
+				lock.readLock().lock();
+			else
+				lock.writeLock().lock();
+		} else {
+			try {
+				if (iLockType == LOCK.SHARED) {
+					if (!lock.readLock().tryLock(iTimeout, TimeUnit.MILLISECONDS))
+						throw new OLockException("Timeout on acquiring resource '" + iResourceId + "' because is locked from another thread");
+				} else {
+					if (!lock.writeLock().tryLock(iTimeout, TimeUnit.MILLISECONDS))
+						throw new OLockException("Timeout on acquiring resource '" + iResourceId + "' because is locked from another thread");
 				}
+			} catch (InterruptedException e) {
+				throw new OLockException("Thread interrupted while waiting for resource '" + iResourceId + "'");
 			}
-		} catch (RuntimeException e) {
-			synchronized (map) {
-				lock.countLocks--;
-				if (lock.countLocks == 0)
-					map.remove(iResourceId);
-			}
-			throw e;
 		}
-
 	}
 
 	public void releaseLock(final REQUESTER_TYPE iRequester, final RESOURCE_TYPE iResourceId, final LOCK iLockType)
 			throws OLockException {
-		CountableLock lock;
-		synchronized (map) {
-			lock = map.get(iResourceId);
-			if (lock == null)
-				throw new OLockException("Error on releasing a non acquired lock by the requester '" + iRequester
-						+ "' against the resource: '" + iResourceId + "'");
-
-			lock.countLocks--;
-			if (lock.countLocks == 0)
-				map.remove(iResourceId);
-		}
-		if (iLockType == LOCK.SHARED)
-			lock.readLock().unlock();
-		else
-			lock.writeLock().unlock();
+		final ReentrantReadWriteLock lock = getLock(iResourceId);
 
+		try {
+			if (iLockType == LOCK.SHARED)
+				lock.readLock().unlock();
+			else
+				lock.writeLock().unlock();
+		} catch (IllegalMonitorStateException e) {
+			throw new OLockException("Error on releasing a non acquired lock by the requester '" + iRequester
+					+ "' against the resource: '" + iResourceId + "'", e);
+		}
 	}
 
+	/**
+	 * Does nothing: the locks are allocated once at creation time and released by their owners.
+	 */
 	public void clear() {
-		synchronized (map) {
-			map.clear();
-		}
 	}
 
 	public void setAcquireTimeout(long iAcquireTimeout) {
@@ -116,9 +117,18 @@ public class OLockManager<RESOURCE_TYPE, REQUESTER_TYPE> {
 
 	// For tests purposes.
 	public int getCountCurrentLocks() {
-		synchronized (map) {
-			return map.size();
-		}
+		int count = 0;
+		for (ReentrantReadWriteLock lock : locks)
+			if (lock.getReadLockCount() > 0 || lock.isWriteLocked())
+				count++;
+		return count;
 	}
 
+	protected ReentrantReadWriteLock getLock(final RESOURCE_TYPE iResourceId) {
+		// SPREAD THE HASH CODE TO USE ALSO THE HIGHER BITS (SAME FUNCTION OF java.util.HashMap)
+		int h = iResourceId.hashCode();
+		h ^= (h >>> 20) ^ (h >>> 12);
+		h ^= (h >>> 7) ^ (h >>> 4);
+		return locks[h & mask];
+	}
 }
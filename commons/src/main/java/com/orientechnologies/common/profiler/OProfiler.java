@@ -13,53 +13,61 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package com.orientechnologies.common.profiler;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Profiling utility class. Handles chronos (times), statistics and counters. By default it's used as Singleton but you can create
  * any instances you want for separate profiling contexts.
  * 
- * To start the recording use call startRecording(). By default record is turned off to avoid a run-time execution cost.
+ * To start the recording use call startRecording(). By default record is turned off to avoid a run-time execution cost.<br/>
+ * <br/>
+ * Updates are lock-free and don't allocate once the metric exists: counters are {@link OProfilerCounter} instances, chronos and
+ * statistics are {@link OProfilerHistogram} instances that provide also the percentiles. Chronos are measured in microseconds and
+ * reported in ms.
  * 
  * @author Luca Garulli
  * @copyrights Orient Technologies.com
  */
 public class OProfiler implements OProfilerMBean {
-	private long														recording	= -1;
-	private Map<String, Long>								counters;
-	private Map<String, OProfilerEntry>			chronos;
-	private Map<String, OProfilerEntry>			stats;
-	private Map<String, OProfilerHookValue>	hooks;
-	private Date														lastReset;
+	private static final long																CHRONO_UNIT	= 1000;
+
+	private volatile long																		recording		= -1;
+	private ConcurrentHashMap<String, OProfilerCounter>			counters;
+	private ConcurrentHashMap<String, OProfilerHistogram>		chronos;
+	private ConcurrentHashMap<String, OProfilerHistogram>		stats;
+	private ConcurrentHashMap<String, OProfilerHookValue>		hooks;
+	private volatile Date																		lastReset;
 
-	protected static final OProfiler				instance	= new OProfiler();
+	protected static final OProfiler												instance		= new OProfiler();
 
 	public interface OProfilerHookValue {
 		public Object getValue();
 	}
 
-	public class OProfilerEntry {
+	public static class OProfilerEntry {
 		public String	name		= null;
 		public long		items		= 0;
 		public long		last		= 0;
-		public long		min			= 999999999;
+		public long		min			= 0;
 		public long		max			= 0;
 		public long		average	= 0;
 		public long		total		= 0;
+		public float	p50			= 0;
+		public float	p99			= 0;
+		public float	p999		= 0;
 
 		@Override
 		public String toString() {
 			return "Chrono [average=" + average + ", items=" + items + ", last=" + last + ", max=" + max + ", min=" + min + ", name="
-					+ name + ", total=" + total + "]";
+					+ name + ", total=" + total + ", p50=" + p50 + ", p99=" + p99 + ", p999=" + p999 + "]";
 		}
 	}
 
@@ -86,15 +94,14 @@ public class OProfiler implements OProfilerMBean {
 		if (recording < 0)
 			return;
 
-		synchronized (counters) {
-			Long stat = counters.get(iStatName);
-
-			long oldValue = stat == null ? 0 : stat.longValue();
-
-			stat = new Long(oldValue + iPlus);
-
-			counters.put(iStatName, stat);
+		OProfilerCounter counter = counters.get(iStatName);
+		if (counter == null) {
+			counter = new OProfilerCounter();
+			final OProfilerCounter previous = counters.putIfAbsent(iStatName, counter);
+			if (previous != null)
+				counter = previous;
 		}
+		counter.add(iPlus);
 	}
 
 	// ----------------------------------------------------------------------------
@@ -111,14 +118,11 @@ public class OProfiler implements OProfilerMBean {
 		if (recording < 0)
 			return -1;
 
-		synchronized (counters) {
-			Long stat = counters.get(iStatName);
-
-			if (stat == null)
-				return -1;
+		final OProfilerCounter counter = counters.get(iStatName);
+		if (counter == null)
+			return -1;
 
-			return stat.longValue();
-		}
+		return counter.get();
 	}
 
 	/*
@@ -152,6 +156,41 @@ public class OProfiler implements OProfilerMBean {
 		return buffer.toString();
 	}
 
+	/**
+	 * Dumps all the values in a line oriented text format that can be scraped by monitoring tools: one line per value in the form
+	 * <code>orientdb_&lt;type&gt;{name="&lt;name&gt;"[,quantile="&lt;q&gt;"]} &lt;value&gt;</code>. Times are in ms.
+	 * 
+	 * @param iReset
+	 *          Resets the counters, chronos and statistics once dumped, so every dump contains only the values collected since the
+	 *          previous one
+	 */
+	public String dumpMetrics(final boolean iReset) {
+		final StringBuilder buffer = new StringBuilder();
+		if (recording < 0)
+			return buffer.toString();
+
+		for (String k : sortedKeys(counters)) {
+			final OProfilerCounter counter = counters.get(k);
+			if (counter != null)
+				appendMetric(buffer, "counter", k, null, iReset ? counter.getAndReset() : counter.get());
+		}
+
+		dumpMetrics(buffer, "stat", stats, 1, iReset);
+		dumpMetrics(buffer, "chrono", chronos, CHRONO_UNIT, iReset);
+
+		for (String k : sortedKeys(hooks)) {
+			final OProfilerHookValue hook = hooks.get(k);
+			final Object value = hook != null ? hook.getValue() : null;
+			if (value instanceof Number)
+				appendMetric(buffer, "hook", k, null, value);
+		}
+
+		if (iReset)
+			lastReset = new Date();
+
+		return buffer.toString();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -160,23 +199,14 @@ public class OProfiler implements OProfilerMBean {
 	public void reset() {
 		lastReset = new Date();
 
-		if (counters != null) {
-			synchronized (counters) {
-				counters.clear();
-			}
-		}
+		if (counters != null)
+			counters.clear();
 
-		if (chronos != null) {
-			synchronized (chronos) {
-				chronos.clear();
-			}
-		}
+		if (chronos != null)
+			chronos.clear();
 
-		if (stats != null) {
-			synchronized (stats) {
-				stats.clear();
-			}
-		}
+		if (stats != null)
+			stats.clear();
 	}
 
 	public long startChrono() {
@@ -184,11 +214,21 @@ public class OProfiler implements OProfilerMBean {
 		if (recording < 0)
 			return -1;
 
-		return System.currentTimeMillis();
+		return System.nanoTime();
 	}
 
+	/**
+	 * Stops the chrono started with {@link #startChrono()}.
+	 * 
+	 * @return The elapsed time in ms
+	 */
 	public long stopChrono(final String iName, final long iStartTime) {
-		return updateEntry(chronos, iName, System.currentTimeMillis() - iStartTime);
+		if (recording < 0 || iStartTime == -1)
+			return 0;
+
+		final long elapsed = (System.nanoTime() - iStartTime) / 1000;
+		updateEntry(chronos, iName, elapsed);
+		return elapsed / CHRONO_UNIT;
 	}
 
 	public long updateStat(final String iName, final long iValue) {
@@ -207,20 +247,16 @@ public class OProfiler implements OProfilerMBean {
 
 		final StringBuilder buffer = new StringBuilder();
 
-		synchronized (counters) {
-			buffer.append("DUMPING COUNTERS (last reset on: " + lastReset.toString() + ")...");
-
-			buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
-			buffer.append(String.format("\n%50s | Value                                                             |", "Name"));
-			buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
+		buffer.append("DUMPING COUNTERS (last reset on: " + lastReset.toString() + ")...");
 
-			final List<String> keys = new ArrayList<String>(counters.keySet());
-			Collections.sort(keys);
+		buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
+		buffer.append(String.format("\n%50s | Value                                                             |", "Name"));
+		buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
 
-			for (String k : keys) {
-				final Long stat = counters.get(k);
-				buffer.append(String.format("\n%-50s | %-65d |", k, stat));
-			}
+		for (String k : sortedKeys(counters)) {
+			final OProfilerCounter counter = counters.get(k);
+			if (counter != null)
+				buffer.append(String.format("\n%-50s | %-65d |", k, counter.get()));
 		}
 
 		buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
@@ -228,11 +264,12 @@ public class OProfiler implements OProfilerMBean {
 	}
 
 	public String dumpChronos() {
-		return dumpEntries(chronos, new StringBuilder("DUMPING CHRONOS (last reset on: " + lastReset.toString() + "). Times in ms..."));
+		return dumpEntries(chronos, CHRONO_UNIT, new StringBuilder("DUMPING CHRONOS (last reset on: " + lastReset.toString()
+				+ "). Times in ms..."));
 	}
 
 	public String dumpStats() {
-		return dumpEntries(stats, new StringBuilder("DUMPING STATISTICS (last reset on: " + lastReset.toString() + "). Times in ms..."));
+		return dumpEntries(stats, 1, new StringBuilder("DUMPING STATISTICS (last reset on: " + lastReset.toString() + "). Times in ms..."));
 	}
 
 	public String dumpHookValues() {
@@ -241,25 +278,22 @@ public class OProfiler implements OProfilerMBean {
 
 		final StringBuilder buffer = new StringBuilder();
 
-		synchronized (hooks) {
-			if (hooks.size() == 0)
-				return "";
-
-			buffer.append("HOOK VALUES:");
+		if (hooks.size() == 0)
+			return "";
 
-			buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
-			buffer.append(String.format("\n%50s | Value                                                             |", "Name"));
-			buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
+		buffer.append("HOOK VALUES:");
 
-			final List<String> keys = new ArrayList<String>(hooks.keySet());
-			Collections.sort(keys);
+		buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
+		buffer.append(String.format("\n%50s | Value                                                             |", "Name"));
+		buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
 
-			Object hookValue;
-			for (String k : keys) {
-				final OProfilerHookValue hook = hooks.get(k);
-				hookValue = hook.getValue();
-				buffer.append(String.format("\n%-50s | %-65s |", k, hookValue != null ? hookValue.toString() : "null"));
-			}
+		Object hookValue;
+		for (String k : sortedKeys(hooks)) {
+			final OProfilerHookValue hook = hooks.get(k);
+			if (hook == null)
+				continue;
+			hookValue = hook.getValue();
+			buffer.append(String.format("\n%-50s | %-65s |", k, hookValue != null ? hookValue.toString() : "null"));
 		}
 
 		buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
@@ -267,7 +301,8 @@ public class OProfiler implements OProfilerMBean {
 	}
 
 	public Object getHookValue(final String iName) {
-		return hooks.get(iName).getValue();
+		final OProfilerHookValue hook = hooks.get(iName);
+		return hook != null ? hook.getValue() : null;
 	}
 
 	/*
@@ -276,36 +311,18 @@ public class OProfiler implements OProfilerMBean {
 	 * @see com.orientechnologies.common.profiler.ProfileMBean#getStatistics()
 	 */
 	public String[] getCountersAsString() {
-		synchronized (counters) {
-			final String[] output = new String[counters.size()];
-			int i = 0;
-			for (Entry<String, Long> entry : counters.entrySet()) {
-				output[i++] = entry.getKey() + ": " + entry.getValue().toString();
-			}
-			return output;
-		}
+		final List<String> output = new ArrayList<String>();
+		for (Entry<String, OProfilerCounter> entry : counters.entrySet())
+			output.add(entry.getKey() + ": " + entry.getValue().get());
+		return output.toArray(new String[output.size()]);
 	}
 
 	public String[] getChronosAsString() {
-		synchronized (chronos) {
-			final String[] output = new String[chronos.size()];
-			int i = 0;
-			for (Entry<String, OProfilerEntry> entry : chronos.entrySet()) {
-				output[i++] = entry.getKey() + ": " + entry.getValue().toString();
-			}
-			return output;
-		}
+		return getEntriesAsString(chronos, CHRONO_UNIT);
 	}
 
 	public String[] getStatsAsString() {
-		synchronized (stats) {
-			final String[] output = new String[stats.size()];
-			int i = 0;
-			for (Entry<String, OProfilerEntry> entry : stats.entrySet()) {
-				output[i++] = entry.getKey() + ": " + entry.getValue().toString();
-			}
-			return output;
-		}
+		return getEntriesAsString(stats, 1);
 	}
 
 	public Date getLastReset() {
@@ -313,47 +330,29 @@ public class OProfiler implements OProfilerMBean {
 	}
 
 	public List<String> getCounters() {
-		synchronized (counters) {
-			final List<String> list = new ArrayList<String>(counters.keySet());
-			Collections.sort(list);
-			return list;
-		}
+		return sortedKeys(counters);
 	}
 
 	public List<String> getHooks() {
-		synchronized (hooks) {
-			final List<String> list = new ArrayList<String>(hooks.keySet());
-			Collections.sort(list);
-			return list;
-		}
+		return sortedKeys(hooks);
 	}
 
 	public List<String> getChronos() {
-		synchronized (chronos) {
-			final List<String> list = new ArrayList<String>(chronos.keySet());
-			Collections.sort(list);
-			return list;
-		}
+		return sortedKeys(chronos);
 	}
 
 	public List<String> getStats() {
-		synchronized (stats) {
-			final List<String> list = new ArrayList<String>(stats.keySet());
-			Collections.sort(list);
-			return list;
-		}
+		return sortedKeys(stats);
 	}
 
 	public OProfilerEntry getStat(final String iStatName) {
-		synchronized (stats) {
-			return stats.get(iStatName);
-		}
+		final OProfilerHistogram histogram = stats.get(iStatName);
+		return histogram != null ? histogram.snapshot(iStatName, 1, false) : null;
 	}
 
 	public OProfilerEntry getChrono(final String iChronoName) {
-		synchronized (chronos) {
-			return chronos.get(iChronoName);
-		}
+		final OProfilerHistogram histogram = chronos.get(iChronoName);
+		return histogram != null ? histogram.snapshot(iChronoName, CHRONO_UNIT, false) : null;
 	}
 
 	public boolean isRecording() {
@@ -375,81 +374,116 @@ public class OProfiler implements OProfilerMBean {
 	}
 
 	public void registerHookValue(final String iName, final OProfilerHookValue iHookValue) {
-		synchronized (hooks) {
-			hooks.put(iName, iHookValue);
-		}
+		hooks.put(iName, iHookValue);
 	}
 
 	public void unregisterHookValue(final String iName) {
-		synchronized (hooks) {
-			hooks.remove(iName);
-		}
+		hooks.remove(iName);
 	}
 
 	private void init() {
-		counters = new HashMap<String, Long>();
-		chronos = new HashMap<String, OProfilerEntry>();
-		stats = new HashMap<String, OProfilerEntry>();
-		hooks = new HashMap<String, OProfiler.OProfilerHookValue>();
+		counters = new ConcurrentHashMap<String, OProfilerCounter>();
+		chronos = new ConcurrentHashMap<String, OProfilerHistogram>();
+		stats = new ConcurrentHashMap<String, OProfilerHistogram>();
+		hooks = new ConcurrentHashMap<String, OProfiler.OProfilerHookValue>();
 
 		lastReset = new Date();
 	}
 
-	private synchronized long updateEntry(Map<String, OProfilerEntry> iValues, final String iName, final long iValue) {
+	private long updateEntry(final ConcurrentHashMap<String, OProfilerHistogram> iValues, final String iName, final long iValue) {
 		if (recording < 0)
 			return iValue;
 
-		synchronized (iValues) {
-			OProfilerEntry c = iValues.get(iName);
-
-			if (c == null) {
-				// CREATE NEW CHRONO
-				c = new OProfilerEntry();
-				iValues.put(iName, c);
-			}
-
-			c.name = iName;
-			c.items++;
-			c.last = iValue;
-			c.total += c.last;
-			c.average = c.total / c.items;
-
-			if (c.last < c.min)
-				c.min = c.last;
-
-			if (c.last > c.max)
-				c.max = c.last;
-
-			return c.last;
+		OProfilerHistogram histogram = iValues.get(iName);
+		if (histogram == null) {
+			// CREATE NEW ENTRY
+			histogram = new OProfilerHistogram();
+			final OProfilerHistogram previous = iValues.putIfAbsent(iName, histogram);
+			if (previous != null)
+				histogram = previous;
 		}
+
+		histogram.record(iValue);
+		return iValue;
 	}
 
-	private synchronized String dumpEntries(final Map<String, OProfilerEntry> iValues, final StringBuilder iBuffer) {
+	private String dumpEntries(final Map<String, OProfilerHistogram> iValues, final long iUnit, final StringBuilder iBuffer) {
 		// CHECK IF CHRONOS ARE ACTIVED
 		if (recording < 0)
 			return "<no recording>";
 
-		synchronized (iValues) {
-			if (iValues.size() == 0)
-				return "";
+		if (iValues.size() == 0)
+			return "";
 
-			OProfilerEntry c;
+		iBuffer.append(String.format("\n%50s +----------------------------------------------------------------------------------------------------+", ""));
+		iBuffer.append(String.format("\n%50s | %10s %10s %10s %10s %10s %10s %10s %10s %10s |", "Name", "last", "total", "min", "max",
+				"average", "items", "p50", "p99", "p999"));
+		iBuffer.append(String.format("\n%50s +----------------------------------------------------------------------------------------------------+", ""));
 
-			iBuffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
-			iBuffer.append(String.format("\n%50s | %10s %10s %10s %10s %10s %10s |", "Name", "last", "total", "min", "max", "average",
-					"items"));
-			iBuffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
+		OProfilerEntry c;
+		for (String k : sortedKeys(iValues)) {
+			final OProfilerHistogram histogram = iValues.get(k);
+			if (histogram == null)
+				continue;
 
-			final List<String> keys = new ArrayList<String>(iValues.keySet());
-			Collections.sort(keys);
+			c = histogram.snapshot(k, iUnit, false);
+			iBuffer.append(String.format("\n%-50s | %10d %10d %10d %10d %10d %10d %10.3f %10.3f %10.3f |", k, c.last, c.total, c.min,
+					c.max, c.average, c.items, c.p50, c.p99, c.p999));
+		}
+		iBuffer.append(String.format("\n%50s +----------------------------------------------------------------------------------------------------+", ""));
+		return iBuffer.toString();
+	}
+
+	private void dumpMetrics(final StringBuilder iBuffer, final String iType, final Map<String, OProfilerHistogram> iValues,
+			final long iUnit, final boolean iReset) {
+		for (String k : sortedKeys(iValues)) {
+			final OProfilerHistogram histogram = iValues.get(k);
+			if (histogram == null)
+				continue;
+
+			final OProfilerEntry c = histogram.snapshot(k, iUnit, iReset);
+			appendMetric(iBuffer, iType + "_items", k, null, c.items);
+			appendMetric(iBuffer, iType + "_total", k, null, c.total);
+			appendMetric(iBuffer, iType + "_min", k, null, c.min);
+			appendMetric(iBuffer, iType + "_max", k, null, c.max);
+			appendMetric(iBuffer, iType, k, "0.5", c.p50);
+			appendMetric(iBuffer, iType, k, "0.99", c.p99);
+			appendMetric(iBuffer, iType, k, "0.999", c.p999);
+		}
+	}
 
-			for (String k : keys) {
-				c = iValues.get(k);
-				iBuffer.append(String.format("\n%-50s | %10d %10d %10d %10d %10d %10d |", k, c.last, c.total, c.min, c.max, c.average,
-						c.items));
-			}
-			iBuffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
-			return iBuffer.toString();
+	private static void appendMetric(final StringBuilder iBuffer, final String iType, final String iName, final String iQuantile,
+			final Object iValue) {
+		iBuffer.append("orientdb_");
+		iBuffer.append(iType);
+		iBuffer.append("{name=\"");
+		for (int i = 0; i < iName.length(); ++i) {
+			final char c = iName.charAt(i);
+			if (c == '"' || c == '\\')
+				iBuffer.append('\\');
+			iBuffer.append(c == '\n' ? ' ' : c);
 		}
+		iBuffer.append('"');
+		if (iQuantile != null) {
+			iBuffer.append(",quantile=\"");
+			iBuffer.append(iQuantile);
+			iBuffer.append('"');
+		}
+		iBuffer.append("} ");
+		iBuffer.append(iValue);
+		iBuffer.append('\n');
+	}
+
+	private String[] getEntriesAsString(final Map<String, OProfilerHistogram> iValues, final long iUnit) {
+		final List<String> output = new ArrayList<String>();
+		for (Entry<String, OProfilerHistogram> entry : iValues.entrySet())
+			output.add(entry.getKey() + ": " + entry.getValue().snapshot(entry.getKey(), iUnit, false).toString());
+		return output.toArray(new String[output.size()]);
+	}
+
+	private static List<String> sortedKeys(final Map<String, ?> iMap) {
+		final List<String> keys = new ArrayList<String>(iMap.keySet());
+		Collections.sort(keys);
+		return keys;
 	}
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.profiler;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter optimized for many concurrent writers and few readers. The value is split in cells selected by the id of the updating
+ * thread, each cell on its own cache line, so concurrent updates rarely touch the same memory. Reading sums all the cells.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public class OProfilerCounter {
+	private static final int			PADDING	= 8;
+	private static final int			CELLS;
+	private final AtomicLongArray	cells		= new AtomicLongArray(CELLS * PADDING);
+
+	static {
+		final int cpus = Math.min(Runtime.getRuntime().availableProcessors(), 64);
+		int cells = 1;
+		while (cells < cpus)
+			cells <<= 1;
+		CELLS = cells;
+	}
+
+	public void add(final long iValue) {
+		cells.addAndGet(((int) Thread.currentThread().getId() & (CELLS - 1)) * PADDING, iValue);
+	}
+
+	public long get() {
+		long sum = 0;
+		for (int i = 0; i < CELLS; ++i)
+			sum += cells.get(i * PADDING);
+		return sum;
+	}
+
+	/**
+	 * Returns the current value and resets the counter. Updates executed concurrently are counted either in the returned value or
+	 * after the reset, never lost.
+	 */
+	public long getAndReset() {
+		long sum = 0;
+		for (int i = 0; i < CELLS; ++i)
+			sum += cells.getAndSet(i * PADDING, 0);
+		return sum;
+	}
+}
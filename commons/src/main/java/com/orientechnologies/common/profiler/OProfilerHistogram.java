@@ -0,0 +1,137 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.profiler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.orientechnologies.common.profiler.OProfiler.OProfilerEntry;
+
+/**
+ * Lock-free histogram of non negative values. Values up to 31 are counted exactly, bigger values are counted in log-linear buckets:
+ * every power of 2 is split in 16 buckets, so the error on percentiles is less than 6.25%. Recording a value never allocates and
+ * never locks: it increments one bucket and updates the striped totals.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public class OProfilerHistogram {
+	private static final int				SUB_BUCKETS	= 16;
+	private static final int				LINEAR			= SUB_BUCKETS * 2;
+	private static final int				BUCKETS			= LINEAR + (63 - 5) * SUB_BUCKETS;
+
+	private final AtomicLongArray		buckets			= new AtomicLongArray(BUCKETS);
+	private final OProfilerCounter	total				= new OProfilerCounter();
+	private final AtomicLong				min					= new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong				max					= new AtomicLong(Long.MIN_VALUE);
+	private volatile long						last;
+
+	public void record(long iValue) {
+		if (iValue < 0)
+			iValue = 0;
+
+		buckets.incrementAndGet(getBucket(iValue));
+		total.add(iValue);
+		last = iValue;
+
+		long current;
+		while (iValue < (current = min.get()) && !min.compareAndSet(current, iValue))
+			;
+		while (iValue > (current = max.get()) && !max.compareAndSet(current, iValue))
+			;
+	}
+
+	/**
+	 * Returns the values collected so far.
+	 * 
+	 * @param iName
+	 *          Name to assign to the returned entry
+	 * @param iUnit
+	 *          Divisor to convert the recorded values in the unit of the entry
+	 * @param iReset
+	 *          Resets the histogram once read
+	 */
+	public OProfilerEntry snapshot(final String iName, final long iUnit, final boolean iReset) {
+		final long[] counts = new long[BUCKETS];
+		long items = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			counts[i] = iReset ? buckets.getAndSet(i, 0) : buckets.get(i);
+			items += counts[i];
+		}
+
+		final OProfilerEntry entry = new OProfilerEntry();
+		entry.name = iName;
+		entry.items = items;
+
+		final long sum = iReset ? total.getAndReset() : total.get();
+		final long minValue = iReset ? min.getAndSet(Long.MAX_VALUE) : min.get();
+		final long maxValue = iReset ? max.getAndSet(Long.MIN_VALUE) : max.get();
+
+		if (items == 0)
+			return entry;
+
+		entry.total = sum / iUnit;
+		entry.average = sum / items / iUnit;
+		entry.last = last / iUnit;
+		entry.min = minValue / iUnit;
+		entry.max = maxValue / iUnit;
+		entry.p50 = getPercentile(counts, items, 0.5, minValue, maxValue) / (float) iUnit;
+		entry.p99 = getPercentile(counts, items, 0.99, minValue, maxValue) / (float) iUnit;
+		entry.p999 = getPercentile(counts, items, 0.999, minValue, maxValue) / (float) iUnit;
+		return entry;
+	}
+
+	protected static long getPercentile(final long[] iCounts, final long iItems, final double iPercentile, final long iMin,
+			final long iMax) {
+		final long target = Math.max(1, (long) Math.ceil(iItems * iPercentile));
+
+		long cumulative = 0;
+		for (int i = 0; i < iCounts.length; ++i) {
+			cumulative += iCounts[i];
+			if (cumulative >= target) {
+				// USE THE MIDDLE OF THE BUCKET, BUT NEVER OUT OF THE OBSERVED RANGE
+				final long value = getBucketLowerBound(i) + (getBucketUpperBound(i) - getBucketLowerBound(i)) / 2;
+				return Math.max(iMin, Math.min(iMax, value));
+			}
+		}
+		return iMax;
+	}
+
+	protected static int getBucket(final long iValue) {
+		if (iValue < LINEAR)
+			return (int) iValue;
+
+		// KEEP THE 5 MOST SIGNIFICANT BITS: THE FIRST IS ALWAYS 1, THE OTHERS SELECT THE SUB-BUCKET
+		final int shift = 63 - Long.numberOfLeadingZeros(iValue) - 4;
+		return LINEAR + (shift - 1) * SUB_BUCKETS + (int) ((iValue >>> shift) - SUB_BUCKETS);
+	}
+
+	protected static long getBucketLowerBound(final int iBucket) {
+		if (iBucket < LINEAR)
+			return iBucket;
+
+		final int k = iBucket - LINEAR;
+		return (long) (k % SUB_BUCKETS + SUB_BUCKETS) << (k / SUB_BUCKETS + 1);
+	}
+
+	protected static long getBucketUpperBound(final int iBucket) {
+		if (iBucket < LINEAR)
+			return iBucket;
+
+		final int k = iBucket - LINEAR;
+		return ((long) (k % SUB_BUCKETS + SUB_BUCKETS + 1) << (k / SUB_BUCKETS + 1)) - 1;
+	}
+}
@@ -34,6 +34,15 @@ public interface OProfilerMBean {
 
 	public String dumpChronos();
 
+	// ----------------------------------------------------------------------------
+	/**
+	 * Dumps counters, statistics and chronos with their percentiles in a line oriented format suitable for scraping.
+	 * 
+	 * @param iReset
+	 *          Resets the values once dumped
+	 */
+	public String dumpMetrics(boolean iReset);
+
 	public String[] getCountersAsString();
 
 	public String[] getChronosAsString();
@@ -16,8 +16,6 @@
 package com.orientechnologies.orient.core.cache;
 
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
 
 import com.orientechnologies.common.concur.resource.OSharedResourceAbstract;
 import com.orientechnologies.common.log.OLogManager;
@@ -37,7 +35,7 @@ import com.orientechnologies.orient.core.record.ORecordInternal;
 public abstract class OAbstractRecordCache extends OSharedResourceAbstract {
 	protected boolean				enabled	= true;
 	protected int						maxSize;
-	protected ORecordCache	entries;
+	protected ORecordCacheMap	entries;
 
 	protected Listener			watchDogListener;
 	protected String				profilerPrefix;
@@ -49,11 +47,21 @@ public abstract class OAbstractRecordCache extends OSharedResourceAbstract {
 	 *          Maximum number of elements for the cache
 	 */
 	public OAbstractRecordCache(final String iProfilerPrefix, final int iMaxSize) {
+		this(iProfilerPrefix, iMaxSize, new ORecordCache(iMaxSize, iMaxSize > -1 ? iMaxSize + 1 : 1000, 0.75f));
+	}
+
+	/**
+	 * Create the cache using the entries passed.
+	 * 
+	 * @param iMaxSize
+	 *          Maximum number of elements for the cache
+	 * @param iEntries
+	 *          Container of the cached records
+	 */
+	protected OAbstractRecordCache(final String iProfilerPrefix, final int iMaxSize, final ORecordCacheMap iEntries) {
 		profilerPrefix = iProfilerPrefix;
 		maxSize = iMaxSize;
-
-		final int initialSize = maxSize > -1 ? maxSize + 1 : 1000;
-		entries = new ORecordCache(maxSize, initialSize, 0.75f);
+		entries = iEntries;
 	}
 
 	public boolean isEnabled() {
@@ -89,18 +97,9 @@ public abstract class OAbstractRecordCache extends OSharedResourceAbstract {
 			return;
 
 		acquireExclusiveLock();
-		final Set<ORID> toRemove = new HashSet<ORID>();
 		try {
-			for (ORID entry : entries.keySet()) {
-				if (entry.getClusterId() == clusterId) {
-					toRemove.add(entry);
-				}
-			}
-			for (ORID ridToRemove : toRemove) {
-				entries.remove(ridToRemove);
-			}
+			entries.removeCluster(clusterId);
 		} finally {
-			toRemove.clear();
 			releaseExclusiveLock();
 		}
 	}
@@ -16,14 +16,18 @@
 package com.orientechnologies.orient.core.cache;
 
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.common.profiler.OProfiler.OProfilerHookValue;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.storage.OStorage;
 
 /**
- * Per database cache of documents.
+ * Per storage cache of documents shared by all the databases. Entries are kept in a {@link ORecordCacheConcurrent} instance that
+ * handles its own locks, so the shared/exclusive lock of the cache is never acquired.
  * 
  * @author Luca Garulli
  * 
@@ -31,15 +35,20 @@ import com.orientechnologies.orient.core.storage.OStorage;
 public class OLevel2RecordCache extends OAbstractRecordCache {
 
 	@SuppressWarnings("unused")
-	final private OStorage	storage;
-	private STRATEGY				strategy;
+	final private OStorage								storage;
+	private STRATEGY											strategy;
+	private final ORecordCacheConcurrent	concurrentEntries;
+	private final AtomicLong							hits		= new AtomicLong();
+	private final AtomicLong							misses	= new AtomicLong();
 
 	public enum STRATEGY {
 		POP_RECORD, COPY_RECORD
 	}
 
 	public OLevel2RecordCache(final OStorage iStorage) {
-		super("storage." + iStorage.getName(), OGlobalConfiguration.CACHE_LEVEL2_SIZE.getValueAsInteger());
+		super("storage." + iStorage.getName(), OGlobalConfiguration.CACHE_LEVEL2_SIZE.getValueAsInteger(), new ORecordCacheConcurrent(
+				OGlobalConfiguration.CACHE_LEVEL2_SIZE.getValueAsInteger()));
+		concurrentEntries = (ORecordCacheConcurrent) entries;
 		storage = iStorage;
 		setStrategy(OGlobalConfiguration.CACHE_LEVEL2_STRATEGY.getValueAsInteger());
 	}
@@ -54,28 +63,21 @@ public class OLevel2RecordCache extends OAbstractRecordCache {
 		if (!enabled)
 			return;
 
-		acquireExclusiveLock();
-		try {
+		for (ORecordInternal<?> record : iValues) {
+			if (record == null || record.isDirty() || record.getIdentity().isNew())
+				continue;
 
-			for (ORecordInternal<?> record : iValues) {
-				if (record == null || record.isDirty() || record.getIdentity().isNew())
+			if (record.isPinned()) {
+				final ORecordInternal<?> prevEntry = entries.get(record.getIdentity());
+				if (prevEntry != null && prevEntry.getVersion() >= record.getVersion())
+					// UPDATE ONLY RECORDS NOT PRESENT OR WITH VERSION HIGHER THAN CURRENT
 					continue;
 
-				if (record.isPinned()) {
-					final ORecordInternal<?> prevEntry = entries.get(record.getIdentity());
-					if (prevEntry != null && prevEntry.getVersion() >= record.getVersion())
-						// UPDATE ONLY RECORDS NOT PRESENT OR WITH VERSION HIGHER THAN CURRENT
-						continue;
+				record.detach();
+				concurrentEntries.putIfNewer(record.getIdentity(), record);
 
-					record.detach();
-					entries.put(record.getIdentity(), record);
-
-				} else
-					entries.remove(record.getIdentity());
-			}
-
-		} finally {
-			releaseExclusiveLock();
+			} else
+				entries.remove(record.getIdentity());
 		}
 	}
 
@@ -84,27 +86,21 @@ public class OLevel2RecordCache extends OAbstractRecordCache {
 			// PRECONDITIONS
 			return;
 
-		acquireExclusiveLock();
-		try {
-			if (iRecord.isPinned()) {
-				final ORecordInternal<?> prevEntry = entries.get(iRecord.getIdentity());
-				if (prevEntry != null && prevEntry.getVersion() >= iRecord.getVersion())
-					// TRY TO UPDATE AN OLD RECORD, DISCARD IT
-					return;
-
-				if ((iRecord.getDatabase() == null || iRecord.getDatabase().isClosed())) {
-					// DB CLOSED: MAKE THE RECORD INSTANCE AS REUSABLE AFTER A DETACH
-					iRecord.detach();
-					entries.put(iRecord.getIdentity(), iRecord);
-				} else
-					// DB OPEN: SAVES A COPY TO AVOID CHANGES IF THE SAME RECORD INSTANCE IS USED AGAIN
-					entries.put(iRecord.getIdentity(), (ORecordInternal<?>) iRecord.flatCopy());
-			} else
-				entries.remove(iRecord.getIdentity());
+		if (iRecord.isPinned()) {
+			final ORecordInternal<?> prevEntry = entries.get(iRecord.getIdentity());
+			if (prevEntry != null && prevEntry.getVersion() >= iRecord.getVersion())
+				// TRY TO UPDATE AN OLD RECORD, DISCARD IT
+				return;
 
-		} finally {
-			releaseExclusiveLock();
-		}
+			if ((iRecord.getDatabase() == null || iRecord.getDatabase().isClosed())) {
+				// DB CLOSED: MAKE THE RECORD INSTANCE AS REUSABLE AFTER A DETACH
+				iRecord.detach();
+				concurrentEntries.putIfNewer(iRecord.getIdentity(), iRecord);
+			} else
+				// DB OPEN: SAVES A COPY TO AVOID CHANGES IF THE SAME RECORD INSTANCE IS USED AGAIN
+				concurrentEntries.putIfNewer(iRecord.getIdentity(), (ORecordInternal<?>) iRecord.flatCopy());
+		} else
+			entries.remove(iRecord.getIdentity());
 	}
 
 	/**
@@ -122,22 +118,49 @@ public class OLevel2RecordCache extends OAbstractRecordCache {
 			// PRECONDITIONS
 			return null;
 
-		acquireExclusiveLock();
-		try {
-			final ORecordInternal<?> record = entries.remove(iRID);
-			if (record == null || record.isDirty())
-				// NULL OR DIRTY RECORD: IGNORE IT
-				return null;
+		// REMOVE IT IN BOTH THE STRATEGIES: THIS GUARANTEES THAT THE SAME INSTANCE IS NEVER RETURNED TO TWO DATABASES
+		final ORecordInternal<?> record = entries.remove(iRID);
+		if (record == null || record.isDirty()) {
+			// NULL OR DIRTY RECORD: IGNORE IT
+			misses.incrementAndGet();
+			return null;
+		}
 
-			if (strategy == STRATEGY.COPY_RECORD)
-				// PUT BACK A CLONE (THIS UPDATE ALSO THE LRU)
-				entries.put(iRID, (ORecordInternal<?>) record.flatCopy());
+		if (strategy == STRATEGY.COPY_RECORD)
+			// PUT BACK A CLONE UNLESS A NEWER VERSION HAS BEEN PUT IN THE MEANWHILE
+			concurrentEntries.putIfNewer(iRID, (ORecordInternal<?>) record.flatCopy());
 
-			return record;
+		hits.incrementAndGet();
+		return record;
+	}
 
-		} finally {
-			releaseExclusiveLock();
-		}
+	@Override
+	public void setMaxSize(final int iMaxSize) {
+		super.setMaxSize(iMaxSize);
+		concurrentEntries.setMaxSize(iMaxSize);
+	}
+
+	@Override
+	public void startup() {
+		super.startup();
+
+		OProfiler.getInstance().registerHookValue(profilerPrefix + ".cache.hits", new OProfilerHookValue() {
+			public Object getValue() {
+				return hits.get();
+			}
+		});
+
+		OProfiler.getInstance().registerHookValue(profilerPrefix + ".cache.misses", new OProfilerHookValue() {
+			public Object getValue() {
+				return misses.get();
+			}
+		});
+
+		OProfiler.getInstance().registerHookValue(profilerPrefix + ".cache.evictions", new OProfilerHookValue() {
+			public Object getValue() {
+				return concurrentEntries.getEvictions();
+			}
+		});
 	}
 
 	public STRATEGY getStrategy() {
@@ -152,6 +175,25 @@ public class OLevel2RecordCache extends OAbstractRecordCache {
 		strategy = STRATEGY.values()[iStrategy];
 	}
 
+	/**
+	 * Entries are thread-safe: no lock is needed.
+	 */
+	@Override
+	protected void acquireSharedLock() {
+	}
+
+	@Override
+	protected void releaseSharedLock() {
+	}
+
+	@Override
+	protected void acquireExclusiveLock() {
+	}
+
+	@Override
+	protected void releaseExclusiveLock() {
+	}
+
 	@Override
 	public String toString() {
 		return "STORAGE level2 cache records=" + getSize() + ", maxSize=" + maxSize;
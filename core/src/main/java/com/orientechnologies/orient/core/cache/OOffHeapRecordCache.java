@@ -0,0 +1,306 @@
+/*
+ * Copyright 1999-2011 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.common.profiler.OProfiler.OProfilerHookValue;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+
+/**
+ * Cache of serialized records kept out of the Java heap, so it doesn't weigh on the garbage collector and it's not cleared by the
+ * memory watch dog. The content is written as a circular log in direct buffers (slabs) allocated on demand up to the configured
+ * size: when full the oldest records are overwritten. Only the index (RID -> address) lives in the heap.<br/>
+ * <br/>
+ * Entries are validated against the physical position of the record: a cached content is returned only if version and data
+ * position are the same. Deleted records must be freed explicitly since the cluster position can be reused.<br/>
+ * <br/>
+ * Entry structure:<br/>
+ * +---------+----------+-------------+---------+<br/>
+ * | CLUSTER | POSITION | SIZE ...... | CONTENT |<br/>
+ * | 2 bytes | 8 bytes  | 4 bytes ... | N bytes |<br/>
+ * +---------+----------+-------------+---------+<br/>
+ * SIZE = -1 means the rest of the slab is empty.<br/>
+ * <br/>
+ * Direct buffers are limited by the JVM setting -XX:MaxDirectMemorySize.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OOffHeapRecordCache {
+	private static final int				HEADER_SIZE				= 2 + 8 + 4;
+	private static final int				DEF_SLAB_SIZE			= 16 * 1024 * 1024;
+
+	private final long							maxSize;
+	private final int								slabSize;
+	private final ByteBuffer[]			slabs;
+	private final Map<ORID, OEntry>	index							= new HashMap<ORID, OEntry>();
+	private final ReadWriteLock			lock							= new ReentrantReadWriteLock();
+
+	// ABSOLUTE ADDRESSES: THE POSITION IN THE SLABS IS ADDRESS % MAX SIZE
+	private long										head							= 0;
+	private long										tail							= 0;
+
+	private final AtomicLong				hits							= new AtomicLong();
+	private final AtomicLong				misses						= new AtomicLong();
+	private long										evictions					= 0;
+
+	private static class OEntry {
+		private final long	address;
+		private final int		size;
+		private final int		version;
+		private final byte	recordType;
+		private final int		dataSegment;
+		private final long	dataPosition;
+
+		public OEntry(final long iAddress, final int iSize, final OPhysicalPosition iPPos) {
+			address = iAddress;
+			size = iSize;
+			version = iPPos.version;
+			recordType = iPPos.type;
+			dataSegment = iPPos.dataSegment;
+			dataPosition = iPPos.dataPosition;
+		}
+
+		public boolean isValid(final OPhysicalPosition iPPos) {
+			return version == iPPos.version && dataPosition == iPPos.dataPosition && dataSegment == iPPos.dataSegment
+					&& recordType == iPPos.type;
+		}
+	}
+
+	/**
+	 * Creates the cache.
+	 * 
+	 * @param iProfilerPrefix
+	 *          Prefix of the profiler hooks
+	 * @param iMaxSize
+	 *          Maximum memory in bytes. It's rounded down to the slab size
+	 */
+	public OOffHeapRecordCache(final String iProfilerPrefix, final long iMaxSize) {
+		slabSize = (int) Math.min(DEF_SLAB_SIZE, iMaxSize);
+		slabs = new ByteBuffer[(int) (iMaxSize / slabSize)];
+		maxSize = (long) slabs.length * slabSize;
+
+		OProfiler.getInstance().registerHookValue(iProfilerPrefix + ".offHeapCache.hits", new OProfilerHookValue() {
+			public Object getValue() {
+				return hits.get();
+			}
+		});
+
+		OProfiler.getInstance().registerHookValue(iProfilerPrefix + ".offHeapCache.misses", new OProfilerHookValue() {
+			public Object getValue() {
+				return misses.get();
+			}
+		});
+
+		OProfiler.getInstance().registerHookValue(iProfilerPrefix + ".offHeapCache.evictions", new OProfilerHookValue() {
+			public Object getValue() {
+				return evictions;
+			}
+		});
+
+		OProfiler.getInstance().registerHookValue(iProfilerPrefix + ".offHeapCache.used", new OProfilerHookValue() {
+			public Object getValue() {
+				return getUsedMemory();
+			}
+		});
+	}
+
+	/**
+	 * Returns the cached content of the record only if it's still the one pointed by the physical position.
+	 * 
+	 * @return The record content if found, otherwise null
+	 */
+	public ORawBuffer getRecord(final ORID iRid, final OPhysicalPosition iPPos) {
+		lock.readLock().lock();
+		try {
+			final OEntry entry = index.get(iRid);
+			if (entry == null || !entry.isValid(iPPos)) {
+				misses.incrementAndGet();
+				return null;
+			}
+
+			final byte[] content = new byte[entry.size];
+			final ByteBuffer buffer = slabs[getSlab(entry.address)].duplicate();
+			buffer.position(getSlabOffset(entry.address) + HEADER_SIZE);
+			buffer.get(content);
+
+			hits.incrementAndGet();
+			return new ORawBuffer(content, entry.version, entry.recordType);
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Caches the content of the record. Records bigger than the slab size are ignored.
+	 */
+	public void updateRecord(final ORID iRid, final OPhysicalPosition iPPos, final byte[] iContent) {
+		if (iContent == null)
+			return;
+
+		final int totalSize = HEADER_SIZE + iContent.length;
+		if (totalSize > slabSize)
+			return;
+
+		lock.writeLock().lock();
+		try {
+			final int slabOffset = getSlabOffset(head);
+			if (slabOffset + totalSize > slabSize) {
+				// NOT ENOUGH SPACE IN THE CURRENT SLAB: SKIP TO THE NEXT ONE
+				final int padding = slabSize - slabOffset;
+				makeRoom(padding);
+				if (padding >= HEADER_SIZE)
+					slabs[getSlab(head)].putInt(slabOffset + 2 + 8, -1);
+				head += padding;
+			}
+
+			makeRoom(totalSize);
+
+			final int slab = getSlab(head);
+			if (slabs[slab] == null)
+				slabs[slab] = ByteBuffer.allocateDirect(slabSize);
+
+			final ByteBuffer buffer = slabs[slab].duplicate();
+			buffer.position(getSlabOffset(head));
+			buffer.putShort((short) iRid.getClusterId());
+			buffer.putLong(iRid.getClusterPosition());
+			buffer.putInt(iContent.length);
+			buffer.put(iContent);
+
+			index.put(iRid.copy(), new OEntry(head, iContent.length, iPPos));
+			head += totalSize;
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void freeRecord(final ORID iRid) {
+		lock.writeLock().lock();
+		try {
+			index.remove(iRid);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void freeCluster(final int iClusterId) {
+		lock.writeLock().lock();
+		try {
+			final List<ORID> toRemove = new ArrayList<ORID>();
+			for (ORID rid : index.keySet())
+				if (rid.getClusterId() == iClusterId)
+					toRemove.add(rid);
+
+			for (ORID rid : toRemove)
+				index.remove(rid);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes all the entries and frees the memory.
+	 */
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			index.clear();
+			for (int i = 0; i < slabs.length; ++i)
+				slabs[i] = null;
+			head = 0;
+			tail = 0;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public int getSize() {
+		lock.readLock().lock();
+		try {
+			return index.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long getUsedMemory() {
+		lock.readLock().lock();
+		try {
+			return head - tail;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Overwrites the oldest entries until there is enough space after the head.
+	 */
+	private void makeRoom(final int iSize) {
+		while (head + iSize - tail > maxSize) {
+			final ByteBuffer slab = slabs[getSlab(tail)];
+			final int slabOffset = getSlabOffset(tail);
+
+			if (slabSize - slabOffset < HEADER_SIZE) {
+				// NO SPACE FOR AN ENTRY: SKIP TO THE NEXT SLAB
+				tail += slabSize - slabOffset;
+				continue;
+			}
+
+			final int size = slab.getInt(slabOffset + 2 + 8);
+			if (size == -1) {
+				// EMPTY UNTIL THE END OF THE SLAB
+				tail += slabSize - slabOffset;
+				continue;
+			}
+
+			// REMOVE THE ENTRY FROM THE INDEX ONLY IF IT POINTS TO THIS COPY
+			final ORecordId rid = new ORecordId(slab.getShort(slabOffset), slab.getLong(slabOffset + 2));
+			final OEntry entry = index.get(rid);
+			if (entry != null && entry.address == tail) {
+				index.remove(rid);
+				evictions++;
+			}
+
+			tail += HEADER_SIZE + size;
+		}
+	}
+
+	private int getSlab(final long iAddress) {
+		return (int) ((iAddress % maxSize) / slabSize);
+	}
+
+	private int getSlabOffset(final long iAddress) {
+		return (int) ((iAddress % maxSize) % slabSize);
+	}
+}
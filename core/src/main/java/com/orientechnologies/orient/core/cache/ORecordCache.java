@@ -15,20 +15,22 @@
  */
 package com.orientechnologies.orient.core.cache;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 
 /**
- * Cache of records.
+ * Cache of records. It's not synchronized: the owner must guarantee the exclusive access.
  * 
  * @author Luca Garulli
  * 
  */
 @SuppressWarnings("serial")
-public class ORecordCache extends LinkedHashMap<ORID, ORecordInternal<?>> {
+public class ORecordCache extends LinkedHashMap<ORID, ORecordInternal<?>> implements ORecordCacheMap {
 	private int	maxSize;
 
 	public ORecordCache(final int maxSize, final int initialCapacity, final float loadFactor) {
@@ -70,4 +72,14 @@ public class ORecordCache extends LinkedHashMap<ORID, ORecordInternal<?>> {
 		for (ORID rid : ridToRemove)
 			remove(rid);
 	}
+
+	public void removeCluster(final int iClusterId) {
+		final List<ORID> toRemove = new ArrayList<ORID>();
+		for (ORID rid : keySet())
+			if (rid.getClusterId() == iClusterId)
+				toRemove.add(rid);
+
+		for (ORID rid : toRemove)
+			remove(rid);
+	}
 }
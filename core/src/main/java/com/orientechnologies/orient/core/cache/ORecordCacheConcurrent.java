@@ -0,0 +1,284 @@
+/*
+ * Copyright 1999-2011 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+
+/**
+ * Thread-safe cache of records. Lookups don't lock. Updates lock only the segment the RID belongs to. Every segment keeps its
+ * entries in a ring swept by a GCLOCK hand: a hit increments a small usage counter, the hand decrements it and evicts the first
+ * entry found at zero, so frequently used records survive scans. Each segment indexes also its RIDs per cluster to free a cluster
+ * without browsing the whole cache.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class ORecordCacheConcurrent implements ORecordCacheMap {
+	private static final int												DEF_SEGMENTS	= 16;
+	private static final int												MAX_USAGE			= 3;
+
+	private final ConcurrentHashMap<ORID, OCacheEntry>	map;
+	private final OSegment[]												segments;
+	private final AtomicLong												evictions			= new AtomicLong();
+
+	private static class OCacheEntry {
+		private final ORID									rid;
+		private volatile ORecordInternal<?>	record;
+		private volatile int								usage;
+		private int													ringPosition;
+
+		public OCacheEntry(final ORID iRID, final ORecordInternal<?> iRecord) {
+			rid = iRID;
+			record = iRecord;
+		}
+	}
+
+	private static class OSegment {
+		private final List<OCacheEntry>				ring			= new ArrayList<OCacheEntry>();
+		private final Map<Integer, Set<ORID>>	clusters	= new HashMap<Integer, Set<ORID>>();
+		private int														hand			= 0;
+		private int														maxSize;
+	}
+
+	public ORecordCacheConcurrent(final int iMaxSize) {
+		this(iMaxSize, DEF_SEGMENTS);
+	}
+
+	/**
+	 * Creates the cache.
+	 * 
+	 * @param iMaxSize
+	 *          Maximum number of records, -1 means unlimited
+	 * @param iSegments
+	 *          Number of segments, namely the concurrent updates allowed
+	 */
+	public ORecordCacheConcurrent(final int iMaxSize, final int iSegments) {
+		map = new ConcurrentHashMap<ORID, OCacheEntry>(iMaxSize > -1 ? iMaxSize + 1 : 1000, 0.75f, iSegments);
+		segments = new OSegment[iSegments];
+		for (int i = 0; i < iSegments; ++i)
+			segments[i] = new OSegment();
+		setMaxSize(iMaxSize);
+	}
+
+	public ORecordInternal<?> get(final Object iRID) {
+		final OCacheEntry entry = map.get(iRID);
+		if (entry == null)
+			return null;
+
+		// CHECK BEFORE TO WRITE TO AVOID TO INVALIDATE THE CPU CACHES AT EVERY HIT
+		if (entry.usage < MAX_USAGE)
+			entry.usage++;
+		return entry.record;
+	}
+
+	public ORecordInternal<?> put(final ORID iRID, final ORecordInternal<?> iRecord) {
+		final OSegment segment = getSegment(iRID);
+		synchronized (segment) {
+			return putInSegment(segment, iRID, iRecord);
+		}
+	}
+
+	/**
+	 * Puts the record only if not present or if the cached one has a lower version.
+	 * 
+	 * @return true if the record has been put, otherwise false
+	 */
+	public boolean putIfNewer(final ORID iRID, final ORecordInternal<?> iRecord) {
+		final OSegment segment = getSegment(iRID);
+		synchronized (segment) {
+			final OCacheEntry entry = map.get(iRID);
+			if (entry != null && entry.record.getVersion() >= iRecord.getVersion())
+				return false;
+
+			putInSegment(segment, iRID, iRecord);
+			return true;
+		}
+	}
+
+	public ORecordInternal<?> remove(final Object iRID) {
+		final OSegment segment = getSegment(iRID);
+		synchronized (segment) {
+			final OCacheEntry entry = map.remove(iRID);
+			if (entry == null)
+				return null;
+
+			removeFromSegment(segment, entry);
+			return entry.record;
+		}
+	}
+
+	public boolean containsKey(final Object iRID) {
+		return map.containsKey(iRID);
+	}
+
+	public int size() {
+		return map.size();
+	}
+
+	public void clear() {
+		for (OSegment segment : segments)
+			synchronized (segment) {
+				for (OCacheEntry entry : segment.ring)
+					map.remove(entry.rid);
+				segment.ring.clear();
+				segment.clusters.clear();
+				segment.hand = 0;
+			}
+	}
+
+	public Collection<ORecordInternal<?>> values() {
+		final List<ORecordInternal<?>> result = new ArrayList<ORecordInternal<?>>(map.size());
+		for (OCacheEntry entry : map.values())
+			result.add(entry.record);
+		return result;
+	}
+
+	public void removeEldestItems(final int iThreshold) {
+		final int segmentThreshold = iThreshold / segments.length;
+		for (OSegment segment : segments)
+			synchronized (segment) {
+				while (segment.ring.size() > segmentThreshold)
+					if (!evict(segment))
+						break;
+			}
+	}
+
+	public void removeCluster(final int iClusterId) {
+		for (OSegment segment : segments)
+			synchronized (segment) {
+				final Set<ORID> rids = segment.clusters.remove(iClusterId);
+				if (rids != null)
+					for (ORID rid : rids) {
+						final OCacheEntry entry = map.remove(rid);
+						if (entry != null)
+							removeFromRing(segment, entry);
+					}
+			}
+	}
+
+	public void setMaxSize(final int iMaxSize) {
+		// ROUND UP TO NOT LOSE ENTRIES WITH SMALL CACHES
+		final int segmentMaxSize = iMaxSize > -1 ? (iMaxSize + segments.length - 1) / segments.length : -1;
+		for (OSegment segment : segments)
+			synchronized (segment) {
+				segment.maxSize = segmentMaxSize;
+			}
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	private OSegment getSegment(final Object iRID) {
+		// SPREAD THE HASH CODE SINCE RIDS OF THE SAME CLUSTER DIFFER ONLY IN THE LOWER BITS
+		int h = iRID.hashCode();
+		h ^= (h >>> 20) ^ (h >>> 12);
+		h ^= (h >>> 7) ^ (h >>> 4);
+		return segments[(h & 0x7fffffff) % segments.length];
+	}
+
+	private ORecordInternal<?> putInSegment(final OSegment iSegment, final ORID iRID, final ORecordInternal<?> iRecord) {
+		OCacheEntry entry = map.get(iRID);
+		if (entry != null) {
+			// UPDATE THE RECORD IN PLACE
+			final ORecordInternal<?> previous = entry.record;
+			entry.record = iRecord;
+			if (entry.usage < MAX_USAGE)
+				entry.usage++;
+			return previous;
+		}
+
+		if (iSegment.maxSize > -1)
+			while (iSegment.ring.size() >= iSegment.maxSize)
+				if (!evict(iSegment))
+					// ALL THE RECORDS ARE DIRTY: GO OVER THE LIMIT
+					break;
+
+		entry = new OCacheEntry(iRID, iRecord);
+		entry.ringPosition = iSegment.ring.size();
+		iSegment.ring.add(entry);
+		map.put(iRID, entry);
+
+		Set<ORID> clusterRids = iSegment.clusters.get(iRID.getClusterId());
+		if (clusterRids == null) {
+			clusterRids = new HashSet<ORID>();
+			iSegment.clusters.put(iRID.getClusterId(), clusterRids);
+		}
+		clusterRids.add(iRID);
+
+		return null;
+	}
+
+	/**
+	 * Moves the hand of the segment until an entry with usage counter at zero is found, decrementing the counters on the way.
+	 * 
+	 * @return true if an entry has been evicted, false if all the entries are dirty
+	 */
+	private boolean evict(final OSegment iSegment) {
+		final List<OCacheEntry> ring = iSegment.ring;
+		for (int i = ring.size() * (MAX_USAGE + 1); i > 0; --i) {
+			if (iSegment.hand >= ring.size())
+				iSegment.hand = 0;
+
+			final OCacheEntry entry = ring.get(iSegment.hand);
+			if (entry.usage > 0)
+				entry.usage--;
+			else if (!entry.record.isDirty()) {
+				// FOUND: THE LAST ENTRY TAKES ITS PLACE, SO THE HAND DOESN'T MOVE
+				map.remove(entry.rid);
+				removeFromSegment(iSegment, entry);
+				evictions.incrementAndGet();
+				return true;
+			}
+
+			iSegment.hand++;
+		}
+		return false;
+	}
+
+	private void removeFromSegment(final OSegment iSegment, final OCacheEntry iEntry) {
+		removeFromRing(iSegment, iEntry);
+
+		final Set<ORID> clusterRids = iSegment.clusters.get(iEntry.rid.getClusterId());
+		if (clusterRids != null) {
+			clusterRids.remove(iEntry.rid);
+			if (clusterRids.isEmpty())
+				iSegment.clusters.remove(iEntry.rid.getClusterId());
+		}
+	}
+
+	/**
+	 * Removes the entry in O(1) by moving the last one in its place.
+	 */
+	private void removeFromRing(final OSegment iSegment, final OCacheEntry iEntry) {
+		final OCacheEntry last = iSegment.ring.remove(iSegment.ring.size() - 1);
+		if (last != iEntry) {
+			iSegment.ring.set(iEntry.ringPosition, last);
+			last.ringPosition = iEntry.ringPosition;
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 1999-2011 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.cache;
+
+import java.util.Collection;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+
+/**
+ * Entries of a record cache.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public interface ORecordCacheMap {
+	public ORecordInternal<?> get(Object iRID);
+
+	public ORecordInternal<?> put(ORID iRID, ORecordInternal<?> iRecord);
+
+	public ORecordInternal<?> remove(Object iRID);
+
+	public boolean containsKey(Object iRID);
+
+	public int size();
+
+	public void clear();
+
+	public Collection<ORecordInternal<?>> values();
+
+	/**
+	 * Removes the less used entries until the size is down the threshold.
+	 */
+	public void removeEldestItems(int iThreshold);
+
+	/**
+	 * Removes all the entries of a cluster.
+	 */
+	public void removeCluster(int iClusterId);
+}
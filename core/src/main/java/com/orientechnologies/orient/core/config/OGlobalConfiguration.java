@@ -56,6 +56,23 @@ public enum OGlobalConfiguration {
 
 	STORAGE_LOCK_TIMEOUT("storage.record.lockTimeout", "Maximum timeout in milliseconds to lock a shared record", Integer.class, 5000),
 
+	STORAGE_LOCK_CONCURRENCY("storage.record.lockConcurrency",
+			"Number of locks the records are distributed on by hash code. Bigger values reduce the contention but use more memory",
+			Integer.class, 1024),
+
+	STORAGE_COMPACTION_ENABLED(
+			"storage.compaction.enabled",
+			"Runs a background compactor for every local storage: it moves the records to close the holes of the data segments and cuts the free tail of the files while the database is in use",
+			Boolean.class, false),
+
+	STORAGE_COMPACTION_STEP_SIZE("storage.compaction.stepSize",
+			"Maximum bytes of records moved by the compactor in a step. Every step holds the storage's exclusive lock", Integer.class,
+			65536),
+
+	STORAGE_COMPACTION_INTERVAL("storage.compaction.interval",
+			"Pause in ms between two steps of the compactor. stepSize/interval is the I/O budget given to the compaction", Integer.class,
+			100),
+
 	// CACHE
 	CACHE_LEVEL1_ENABLED("cache.level1.enabled", "Uses the level-1 cache", Boolean.class, true),
 
@@ -65,6 +82,10 @@ public enum OGlobalConfiguration {
 
 	CACHE_LEVEL2_SIZE("cache.level2.size", "Size of the cache that keep the record in memory", Integer.class, -1),
 
+	CACHE_OFFHEAP_SIZE("cache.offHeap.size",
+			"Maximum memory in bytes of the off-heap cache of serialized records of local storages, 0 = disabled (default). It's not part of the heap but it's limited by -XX:MaxDirectMemorySize",
+			Long.class, 0),
+
 	CACHE_LEVEL2_STRATEGY("cache.level2.strategy",
 			"Strategy to use when a database asks for a record: 0 = pop the record, 1 = copy the record", Integer.class, 0,
 			new OConfigurationChangeCallback() {
@@ -84,12 +105,33 @@ public enum OGlobalConfiguration {
 
 	DB_VALIDATION("db.validation", "Enables or disables the validation against records", Boolean.class, true),
 
+	DB_DOCUMENT_FORMAT("db.document.format",
+			"Format used to write the documents: 'csv' or 'binary'. Documents are always read in the format they have been written",
+			String.class, "csv"),
+
 	// TRANSACTIONS
 	TX_USE_LOG("tx.useLog", "Transactions use log file to store temporary data to being rollbacked in case of crash", Boolean.class,
 			false),
 
 	TX_COMMIT_SYNCH("tx.commit.synch", "Synchronizes the storage after transaction commit", Boolean.class, false),
 
+	TX_COMMIT_GROUP("tx.commit.group",
+			"Groups concurrent transaction commits to synchronize the storage and clear the TX log once per batch", Boolean.class, false),
+
+	TX_COMMIT_GROUP_MAX_SIZE("tx.commit.group.maxSize", "Maximum number of transactions committed in a single group commit batch",
+			Integer.class, 64),
+
+	TX_COMMIT_GROUP_MAX_WAIT("tx.commit.group.maxWait",
+			"Maximum time in ms to wait for other transactions to join a group commit batch before to flush it", Integer.class, 5),
+
+	TX_REDO_LOG("tx.redoLog.enabled",
+			"Writes the committed records in an append-only redo log: commits force only the log and the storage is synchronized at checkpoint time",
+			Boolean.class, false),
+
+	TX_REDO_LOG_CHECKPOINT_SIZE("tx.redoLog.checkpointSize",
+			"Size in bytes of the redo log that triggers a background checkpoint: the storage is synchronized and the log is emptied", Long.class,
+			67108864),
+
 	// GRAPH
 	BLUEPRINTS_TX_MODE("blueprints.graph.txMode",
 			"Transaction mode used in TinkerPop Blueprints implementation. 0 = Automatic (default), 1 = Manual", Integer.class, 0),
@@ -115,9 +157,37 @@ public enum OGlobalConfiguration {
 			"Multiplicand factor to apply to entry-points list (parameter mvrbtree.entrypoints) to determine if needs of optimization",
 			Float.class, 1.0f),
 
+	MVRBTREE_POSTING_LIST_PAGE_SIZE("mvrbtree.postingListPageSize",
+			"Maximum number of RIDs per page of the values of not unique and full-text indexes. Bigger values are split in pages saved as separate records",
+			Integer.class, 1024),
+
 	// COLLECTIONS
 	LAZYSET_WORK_ON_STREAM("lazyset.workOnStream", "Upon add avoid to unmarshall set", Boolean.class, true),
 
+	LAZYSET_PREFETCH_SIZE("lazyset.prefetchSize",
+			"Number of linked records loaded with a single request while iterating a lazy collection of a remote database. 0 = disabled",
+			Integer.class, 50),
+
+	// QUERY
+	QUERY_ORDERBY_MAX_IN_MEMORY("query.orderBy.maxInMemory",
+			"Maximum number of records kept in memory by ORDER BY without LIMIT before to spill the sorted records to temporary files. -1 means no limit",
+			Integer.class, 100000),
+
+	QUERY_PARALLEL_SCAN_THREADS("query.parallelScan.threads",
+			"Number of partitions of the clusters scanned in parallel by the queries without indexes. 0 or 1 means disabled, -1 means as many as the available processors. Can be forced per query using the PARALLEL keyword",
+			Integer.class, 0),
+
+	QUERY_PARALLEL_SCAN_MIN_RECORDS("query.parallelScan.minRecords",
+			"Minimum number of records of the target clusters to use the parallel scan when enabled by query.parallelScan.threads",
+			Long.class, 10000),
+
+	QUERY_PARALLEL_SCAN_PARTITION_SIZE("query.parallelScan.partitionSize",
+			"Number of cluster positions read by every partition of the parallel scan", Integer.class, 5000),
+
+	QUERY_INDEX_INTERSECTION_MIN_SIZE("query.indexIntersection.minSize",
+			"Minimum number of records selected by the indexed conditions in AND already resolved to intersect them with the next indexed condition. Smaller results are filtered by the remaining conditions after loading the records",
+			Integer.class, 100),
+
 	// FILE
 	FILE_LOCK("file.lock", "Locks files when used. Default is false for local connections and true when runs as Server",
 			boolean.class, true),
@@ -132,6 +202,11 @@ public enum OGlobalConfiguration {
 			"Max distance in bytes between holes to execute the defrag of them. Set it to -1 to use dynamic size. Pay attention that is db is huge, then moving blocks to defrag could be expensive",
 			Integer.class, 32768),
 
+	FILE_SEGMENT_MAX_SIZE(
+			"file.segment.fileMaxSize",
+			"Max size of every file of the data and cluster segments created by new databases. Files can be bigger than 2Gb, but databases using them can't be opened by previous releases",
+			String.class, "500Mb"),
+
 	FILE_MMAP_STRATEGY(
 			"file.mmap.strategy",
 			"Strategy to use with memory mapped files. 0 = USE MMAP ALWAYS, 1 = USE MMAP ON WRITES OR ON READ JUST WHEN THE BLOCK POOL IS FREE, 2 = USE MMAP ON WRITES OR ON READ JUST WHEN THE BLOCK IS ALREADY AVAILABLE, 3 = USE MMAP ONLY IF BLOCK IS ALREADY AVAILABLE, 4 = NEVER USE MMAP",
@@ -164,6 +239,15 @@ public enum OGlobalConfiguration {
 				}
 			}),
 
+	FILE_MMAP_BUFFER_POOL(
+			"file.mmap.bufferPool",
+			"Implementation of the memory mapped buffer pool: 0 = single list sorted by usage under a global lock, 1 = per-file block tables with CLOCK eviction and lock-free lookups (default). Changing it closes all the memory mapped files",
+			Integer.class, 1, new OConfigurationChangeCallback() {
+				public void change(final Object iCurrentValue, final Object iNewValue) {
+					OMMapManager.setBufferPool((Integer) iNewValue);
+				}
+			}),
+
 	FILE_MMAP_FORCE_DELAY("file.mmap.forceDelay",
 			"Delay time in ms to wait for another force flush of the memory mapped block to the disk", Integer.class, 10),
 
@@ -183,11 +267,25 @@ public enum OGlobalConfiguration {
 	NETWORK_SOCKET_RETRY_DELAY("network.retryDelay", "Number of ms the client wait to reconnect to the server in case of failure",
 			Integer.class, 500),
 
+	NETWORK_SELECTOR_ENABLED("network.selector.enabled",
+			"Waits for the requests of idle connections using a NIO selector and serves them with a bounded pool of worker threads, instead of using a thread per connection",
+			Boolean.class, false),
+
+	NETWORK_SELECTOR_WORKERS("network.selector.workers",
+			"Maximum number of worker threads serving the requests when network.selector.enabled is true", Integer.class, 32),
+
 	NETWORK_BINARY_MAX_CONTENT_LENGTH("network.binary.maxLength", "TCP/IP max content length in bytes of BINARY requests",
 			Integer.class, 100000),
 
 	NETWORK_BINARY_DEBUG("network.binary.debug", "Debug mode: print all the incoming data on binary channel", Boolean.class, false),
 
+	NETWORK_BINARY_FETCH_SIZE("network.binary.fetchSize",
+			"Number of records fetched per page by the remote queries through server-side cursors. 0 = receive the whole result at once",
+			Integer.class, 0),
+
+	NETWORK_BINARY_CURSOR_TIMEOUT("network.binary.cursorTimeout", "Timeout in ms to close a server-side cursor not used by the client",
+			Integer.class, 300000),
+
 	NETWORK_HTTP_MAX_CONTENT_LENGTH("network.http.maxLength", "TCP/IP max content length in bytes of HTTP requests", Integer.class,
 			100000),
 
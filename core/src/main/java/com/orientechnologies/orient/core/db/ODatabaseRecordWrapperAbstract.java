@@ -276,6 +276,10 @@ public abstract class ODatabaseRecordWrapperAbstract<DB extends ODatabaseRecord>
 		return (DBTYPE) underlying.checkSecurity(iResourceGeneric, iOperation, iResourcesSpecific);
 	}
 
+	public <DBTYPE extends ODatabaseRecord> DBTYPE checkClusterSecurity(final int iOperation, final int iClusterId) {
+		return (DBTYPE) underlying.checkClusterSecurity(iOperation, iClusterId);
+	}
+
 	public <DBTYPE extends ODatabaseComplex<?>> DBTYPE registerHook(final ORecordHook iHookImpl) {
 		underlying.registerHook(iHookImpl);
 		return (DBTYPE) this;
@@ -38,6 +38,7 @@ import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
 import com.orientechnologies.orient.core.fetch.OFetchHelper;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.intent.OIntent;
+import com.orientechnologies.orient.core.metadata.security.OUserPermissions;
 import com.orientechnologies.orient.core.storage.ORawBuffer;
 import com.orientechnologies.orient.core.storage.OStorage;
 
@@ -307,22 +308,27 @@ public class ODatabaseRaw implements ODatabase {
 	}
 
 	public int addCluster(final String iClusterName, final OStorage.CLUSTER_TYPE iType) {
+		OUserPermissions.invalidateAll();
 		return storage.addCluster(iClusterName, iType);
 	}
 
 	public int addLogicalCluster(final String iClusterName, final int iPhyClusterContainerId) {
+		OUserPermissions.invalidateAll();
 		return storage.addCluster(iClusterName, OStorage.CLUSTER_TYPE.LOGICAL, iPhyClusterContainerId);
 	}
 
 	public int addPhysicalCluster(final String iClusterName, final String iClusterFileName, final int iStartSize) {
+		OUserPermissions.invalidateAll();
 		return storage.addCluster(iClusterName, OStorage.CLUSTER_TYPE.PHYSICAL, iClusterFileName, iStartSize);
 	}
 
 	public boolean dropCluster(final String iClusterName) {
+		OUserPermissions.invalidateAll();
 		return storage.dropCluster(iClusterName);
 	}
 
 	public boolean dropCluster(int iClusterId) {
+		OUserPermissions.invalidateAll();
 		return storage.dropCluster(iClusterId);
 	}
 
@@ -128,6 +128,18 @@ public interface ODatabaseRecord extends ODatabaseComplex<ORecordInternal<?>> {
 	 */
 	public <DB extends ODatabaseRecord> DB checkSecurity(String iResourceGeneric, int iOperation, Object... iResourcesSpecific);
 
+	/**
+	 * Checks if the operation against a cluster is allowed for the current user. It's the same of calling checkSecurity(
+	 * ODatabaseSecurityResources.CLUSTER, iOperation, getClusterNameById(iClusterId)) but the permission is resolved by cluster id.
+	 * 
+	 * @param iOperation
+	 *          Operation to execute against the cluster
+	 * @param iClusterId
+	 *          Cluster id
+	 * @return The Database instance itself giving a "fluent interface". Useful to call multiple methods in chain.
+	 */
+	public <DB extends ODatabaseRecord> DB checkClusterSecurity(int iOperation, int iClusterId);
+
 	/**
 	 * Tells if validation of record is active. Default is true.
 	 * 
@@ -304,21 +304,17 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
 
 	@Override
 	public long countClusterElements(final int[] iClusterIds) {
-		String name;
-		for (int i = 0; i < iClusterIds.length; ++i) {
-			name = getClusterNameById(iClusterIds[i]);
-			checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, name);
-		}
+		for (int i = 0; i < iClusterIds.length; ++i)
+			checkClusterSecurity(ORole.PERMISSION_READ, iClusterIds[i]);
 
 		return super.countClusterElements(iClusterIds);
 	}
 
 	@Override
 	public long countClusterElements(final int iClusterId) {
-		final String name = getClusterNameById(iClusterId);
-		checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, name);
+		checkClusterSecurity(ORole.PERMISSION_READ, iClusterId);
 		setCurrentDatabaseinThreadLocal();
-		return super.countClusterElements(name);
+		return super.countClusterElements(getClusterNameById(iClusterId));
 	}
 
 	@Override
@@ -335,6 +331,10 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
 
 	public <DB extends ODatabaseRecord> DB checkSecurity(final String iResource, final int iOperation) {
 		if (user != null) {
+			if (user.getPermissions(this).allow(iResource, iOperation))
+				return (DB) this;
+
+			// DENIED: CHECK AGAINST THE ROLES TO RAISE THE SECURITY EXCEPTION
 			try {
 				user.allow(iResource, iOperation);
 			} catch (OSecurityAccessException e) {
@@ -354,6 +354,10 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
 			final Object... iResourcesSpecific) {
 
 		if (user != null) {
+			if (user.getPermissions(this).allow(iResourceGeneric, iOperation, iResourcesSpecific))
+				return (DB) this;
+
+			// DENIED: CHECK AGAINST THE ROLES TO RAISE THE SECURITY EXCEPTION
 			try {
 				final StringBuilder keyBuffer = new StringBuilder();
 
@@ -401,6 +405,10 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
 			final Object iResourceSpecific) {
 
 		if (user != null) {
+			if (user.getPermissions(this).allow(iResourceGeneric, iOperation, iResourceSpecific))
+				return (DB) this;
+
+			// DENIED: CHECK AGAINST THE ROLES TO RAISE THE SECURITY EXCEPTION
 			try {
 				final StringBuilder keyBuffer = new StringBuilder();
 
@@ -442,6 +450,13 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
 		return (DB) this;
 	}
 
+	public <DB extends ODatabaseRecord> DB checkClusterSecurity(final int iOperation, final int iClusterId) {
+		if (user != null && !user.getPermissions(this).allowCluster(iClusterId, iOperation))
+			// DENIED OR UNKNOWN CLUSTER: CHECK BY NAME
+			checkSecurity(ODatabaseSecurityResources.CLUSTER, iOperation, getClusterNameById(iClusterId));
+		return (DB) this;
+	}
+
 	public <RET extends ORecordInternal<?>> RET executeReadRecord(final ORecordId iRid, ORecordInternal<?> iRecord,
 			final String iFetchPlan, final boolean iIgnoreCache) {
 		checkOpeness();
@@ -449,7 +464,7 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
 		setCurrentDatabaseinThreadLocal();
 
 		try {
-			checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, getClusterNameById(iRid.getClusterId()));
+			checkClusterSecurity(ORole.PERMISSION_READ, iRid.getClusterId());
 
 			// SEARCH IN LOCAL TX
 			ORecordInternal<?> record = getTransaction().getRecord(iRid);
@@ -609,7 +624,7 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
 		if (!rid.isValid())
 			return;
 
-		checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_DELETE, getClusterNameById(rid.clusterId));
+		checkClusterSecurity(ORole.PERMISSION_DELETE, rid.clusterId);
 
 		setCurrentDatabaseinThreadLocal();
 
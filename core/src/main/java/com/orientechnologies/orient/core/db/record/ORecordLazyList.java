@@ -15,10 +15,12 @@
  */
 package com.orientechnologies.orient.core.db.record;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
+import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.ORecordMultiValueHelper.MULTIVALUE_CONTENT_TYPE;
@@ -29,6 +31,8 @@ import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.storage.ORawBuffer;
+import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 
 /**
  * Lazy implementation of ArrayList. It's bound to a source ORecord object to keep track of changes. This avoid to call the
@@ -115,8 +119,35 @@ public class ORecordLazyList extends ORecordTrackedList implements ORecordLazyMu
 	@Override
 	public Iterator<OIdentifiable> iterator() {
 		lazyLoad(false);
-		return new OLazyRecordIterator(sourceRecord, ODatabaseRecordThreadLocal.INSTANCE.get(), recordType, super.iterator(),
-				autoConvertToRecord);
+		final ODatabaseRecord db = ODatabaseRecordThreadLocal.INSTANCE.get();
+
+		if (!isPrefetchEnabled(db))
+			return new OLazyRecordIterator(sourceRecord, db, recordType, super.iterator(), autoConvertToRecord);
+
+		// LOAD THE LINKED RECORDS IN BATCHES WHILE ITERATING
+		final Iterator<OIdentifiable> subIterator = new Iterator<OIdentifiable>() {
+			private final Iterator<OIdentifiable>	underlying	= ORecordLazyList.super.iterator();
+			private int														pos					= 0;
+			private int														prefetched	= 0;
+
+			public boolean hasNext() {
+				return underlying.hasNext();
+			}
+
+			public OIdentifiable next() {
+				if (pos >= prefetched)
+					prefetched = prefetch(db, pos);
+				pos++;
+				return underlying.next();
+			}
+
+			public void remove() {
+				underlying.remove();
+				pos--;
+				prefetched--;
+			}
+		};
+		return new OLazyRecordIterator(sourceRecord, db, recordType, subIterator, autoConvertToRecord);
 	}
 
 	@Override
@@ -264,6 +295,10 @@ public class ORecordLazyList extends ORecordTrackedList implements ORecordLazyMu
 			// PRECONDITIONS
 			return;
 
+		if (isPrefetchEnabled(database))
+			for (int i = 0; i < size();)
+				i = prefetch(database, i);
+
 		for (int i = 0; i < size(); ++i) {
 			try {
 				convertLink2Record(i);
@@ -330,6 +365,60 @@ public class ORecordLazyList extends ORecordTrackedList implements ORecordLazyMu
 		}
 	}
 
+	private boolean isPrefetchEnabled(final ODatabaseRecord iDatabase) {
+		return autoConvertToRecord && !ridOnly && iDatabase != null && !(iDatabase.getStorage() instanceof OStorageEmbedded)
+				&& iDatabase.getLevel1Cache().isEnabled() && OGlobalConfiguration.LAZYSET_PREFETCH_SIZE.getValueAsInteger() > 1;
+	}
+
+	/**
+	 * Loads with a single request the linked records not in cache, or in cache but not loaded yet, starting from the requested
+	 * position, up to lazyset.prefetchSize records. The records are put in the level-1 cache, where the conversion from link to
+	 * record finds them.
+	 * 
+	 * @param iFrom
+	 *          Position of the first item to prefetch
+	 * @return The position of the first item not covered by the prefetch
+	 */
+	private int prefetch(final ODatabaseRecord iDatabase, final int iFrom) {
+		final int prefetchSize = OGlobalConfiguration.LAZYSET_PREFETCH_SIZE.getValueAsInteger();
+
+		final List<ORecordId> rids = new ArrayList<ORecordId>();
+		final List<ORecordInternal<?>> cached = new ArrayList<ORecordInternal<?>>();
+		int i = iFrom;
+		for (; i < super.size() && rids.size() < prefetchSize; ++i) {
+			final OIdentifiable o = super.get(i);
+			if (o instanceof ORecordId && ((ORecordId) o).isValid() && !((ORecordId) o).isNew()) {
+				final ORecordInternal<?> record = iDatabase.getLevel1Cache().findRecord((ORecordId) o);
+				if (record == null || record.getInternalStatus() == ORecordElement.STATUS.NOT_LOADED) {
+					rids.add((ORecordId) o);
+					cached.add(record);
+				}
+			}
+		}
+
+		if (rids.size() < 2)
+			// NOTHING TO GAIN: LET THE CONVERSION LOAD IT
+			return i;
+
+		final List<ORawBuffer> buffers = iDatabase.getStorage().readRecords(iDatabase, rids, null);
+		if (buffers == null)
+			return i;
+
+		for (int k = 0; k < buffers.size(); ++k) {
+			final ORawBuffer buffer = buffers.get(k);
+			if (buffer == null)
+				continue;
+
+			ORecordInternal<?> record = cached.get(k);
+			if (record == null || record.getRecordType() != buffer.recordType)
+				record = Orient.instance().getRecordFactoryManager().newInstance(iDatabase, buffer.recordType);
+
+			record.fill(iDatabase, rids.get(k), buffer.version, buffer.buffer, false);
+			iDatabase.getLevel1Cache().updateRecord(record);
+		}
+		return i;
+	}
+
 	/**
 	 * Convert the item requested from record to link.
 	 * 
@@ -0,0 +1,108 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Key of the indexes bound to more properties. The keys are compared field by field in the order of the properties. A key with less
+ * fields (a prefix) is minor than all the keys starting with it, unless it's created as upper bound: in this case it's major. This
+ * allows to browse all the keys starting with a prefix as a range between the prefix and its upper bound.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+@SuppressWarnings("unchecked")
+public class OCompositeKey implements Comparable<OCompositeKey> {
+	private final List<Object>	keys;
+	private final boolean				upperBound;
+
+	public OCompositeKey(final List<?> iKeys) {
+		this(iKeys, false);
+	}
+
+	/**
+	 * Creates a new key.
+	 * 
+	 * @param iKeys
+	 *          Values of the fields. Null values are allowed
+	 * @param iUpperBound
+	 *          true to create a key major of all the keys starting with it, to be used as the upper bound of a range
+	 */
+	public OCompositeKey(final List<?> iKeys, final boolean iUpperBound) {
+		keys = Collections.unmodifiableList(new ArrayList<Object>(iKeys));
+		upperBound = iUpperBound;
+	}
+
+	public List<Object> getKeys() {
+		return keys;
+	}
+
+	public boolean isUpperBound() {
+		return upperBound;
+	}
+
+	public int compareTo(final OCompositeKey iOther) {
+		final int size = Math.min(keys.size(), iOther.keys.size());
+
+		for (int i = 0; i < size; ++i) {
+			final Object key = keys.get(i);
+			final Object otherKey = iOther.keys.get(i);
+
+			final int result;
+			if (key == null)
+				result = otherKey == null ? 0 : -1;
+			else if (otherKey == null)
+				result = 1;
+			else
+				result = ((Comparable<Object>) key).compareTo(otherKey);
+
+			if (result != 0)
+				return result;
+		}
+
+		if (keys.size() == iOther.keys.size())
+			return upperBound == iOther.upperBound ? 0 : upperBound ? 1 : -1;
+
+		// ONE KEY IS THE PREFIX OF THE OTHER ONE
+		if (keys.size() < iOther.keys.size())
+			return upperBound ? 1 : -1;
+		return iOther.upperBound ? -1 : 1;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof OCompositeKey))
+			return false;
+
+		final OCompositeKey other = (OCompositeKey) obj;
+		return upperBound == other.upperBound && keys.equals(other.keys);
+	}
+
+	@Override
+	public int hashCode() {
+		return keys.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return keys.toString();
+	}
+}
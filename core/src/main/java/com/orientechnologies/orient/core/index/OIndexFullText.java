@@ -18,7 +18,6 @@ package com.orientechnologies.orient.core.index;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ORecordElement;
-import com.orientechnologies.orient.core.db.record.ORecordLazySet;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
@@ -96,7 +95,7 @@ public class OIndexFullText extends OIndexMultiValues {
 
 				if (refs == null)
 					// WORD NOT EXISTS: CREATE THE KEYWORD CONTAINER THE FIRST TIME THE WORD IS FOUND
-					refs = new ORecordLazySet(configuration.getDatabase()).setRidOnly(true);
+					refs = createValues();
 
 				// ADD THE CURRENT DOCUMENT AS REF FOR THAT WORD
 				refs.add(iSingleValue);
@@ -130,9 +129,9 @@ public class OIndexFullText extends OIndexMultiValues {
                 if (recs != null && !recs.isEmpty()) {
                     if (recs.remove(value)) {
                         if(recs.isEmpty())
-                            map.remove(iKey);
+                            deleteValues(map.remove(word));
                         else
-                            map.put(iKey, recs);
+                            map.put(word, recs);
                         removed = true;
                     }
                 }
@@ -38,8 +38,10 @@ import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ORecordElement;
+import com.orientechnologies.orient.core.db.record.ORecordLazySet;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.orientechnologies.orient.core.memory.OLowMemoryException;
 import com.orientechnologies.orient.core.memory.OMemoryWatchDog.Listener;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.ORecord;
@@ -170,15 +172,7 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceExternal
 	}
 
 	public boolean contains(final Object iKey) {
-
-		acquireExclusiveLock();
-		try {
-
-			return map.containsKey(iKey);
-
-		} finally {
-			releaseExclusiveLock();
-		}
+		return getConcurrent(iKey) != null;
 	}
 
 	/**
@@ -340,25 +334,90 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceExternal
 
 	public Iterator<Entry<Object, T>> iterator() {
 
-		acquireExclusiveLock();
+		acquireSharedLock();
 		try {
 
 			return map.entrySet().iterator();
 
 		} finally {
-			releaseExclusiveLock();
+			releaseSharedLock();
+		}
+	}
+
+	/**
+	 * Copies under the shared lock the values of at most iMaxKeys keys following iFromKey, in ascending or descending order. The
+	 * caller can browse the copy without holding the lock while other threads change the index.
+	 * 
+	 * @param iFromKey
+	 *          Last key already browsed (excluded), null to start from the first key in the requested order
+	 * @param iAscending
+	 *          true to browse the keys in ascending order, false for descending
+	 * @param iMaxKeys
+	 *          Maximum number of keys to copy
+	 * @param iValues
+	 *          Collection where the values are copied
+	 * @return The last key copied, or null if there are no more keys
+	 */
+	public Object getValuesAfter(final Object iFromKey, final boolean iAscending, final int iMaxKeys,
+			final Collection<OIdentifiable> iValues) {
+
+		acquireSharedLock();
+		try {
+
+			Entry<Object, T> entry;
+			if (iFromKey == null)
+				entry = iAscending ? map.firstEntry() : map.lastEntry();
+			else
+				entry = iAscending ? map.higherEntry(iFromKey) : map.lowerEntry(iFromKey);
+
+			Object lastKey = null;
+			for (int i = 0; entry != null && i < iMaxKeys; ++i) {
+				lastKey = entry.getKey();
+
+				final T value = entry.getValue();
+				if (value instanceof ORecordLazySet) {
+					// COPY ONLY THE RIDS: NO RECORD IS LOADED UNDER THE LOCK
+					for (Iterator<OIdentifiable> it = ((ORecordLazySet) value).rawIterator(); it.hasNext();)
+						iValues.add(it.next());
+				} else if (value instanceof Collection<?>) {
+					for (Object id : (Collection<?>) value)
+						iValues.add((OIdentifiable) id);
+				} else
+					iValues.add((OIdentifiable) value);
+
+				entry = iAscending ? map.higherEntry(lastKey) : map.lowerEntry(lastKey);
+			}
+			return lastKey;
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
+	/**
+	 * Returns an iterator over the entries in descending order of the keys.
+	 */
+	public Iterator<Entry<Object, T>> inverseIterator() {
+
+		acquireSharedLock();
+		try {
+
+			return map.descendingMap().entrySet().iterator();
+
+		} finally {
+			releaseSharedLock();
 		}
 	}
 
 	public Iterable<Object> keys() {
 
-		acquireExclusiveLock();
+		acquireSharedLock();
 		try {
 
 			return map.keySet();
 
 		} finally {
-			releaseExclusiveLock();
+			releaseSharedLock();
 		}
 	}
 
@@ -420,7 +479,7 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceExternal
 			return this;
 
 		} finally {
-			releaseSharedLock();
+			releaseExclusiveLock();
 		}
 	}
 
@@ -643,6 +702,37 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceExternal
 		}
 	}
 
+	/**
+	 * Looks up a key under the shared lock, so concurrent lookups don't block each other: the search doesn't use the cursor of the
+	 * tree and the nodes are lazy loaded under the tree's monitor. If the tree needs to free memory before loading further nodes the
+	 * lookup is retried under the exclusive lock, where the optimization can run.
+	 * 
+	 * @param iKey
+	 *          Key to search
+	 * @return The value if found, otherwise null
+	 */
+	protected T getConcurrent(final Object iKey) {
+		acquireSharedLock();
+		try {
+
+			return map.getConcurrent(iKey);
+
+		} catch (OLowMemoryException e) {
+			// RETRY IT UNDER EXCLUSIVE LOCK
+		} finally {
+			releaseSharedLock();
+		}
+
+		acquireExclusiveLock();
+		try {
+
+			return map.get(iKey);
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
 	protected void checkForKeyType(final Object iKey) {
 		if (keyType == null) {
 			// RECOGNIZE THE KEY TYPE AT RUN-TIME
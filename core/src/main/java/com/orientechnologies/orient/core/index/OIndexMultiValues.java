@@ -33,9 +33,11 @@ import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerListRID;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerPostingList;
 
 /**
- * Abstract index implementation that supports multi-values for the same key.
+ * Abstract index implementation that supports multi-values for the same key. Values are stored as OIndexPostingList. Indexes
+ * created before the posting lists keep storing the values as ORecordLazySet.
  * 
  * @author Luca Garulli
  * 
@@ -50,14 +52,12 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 		acquireExclusiveLock();
 		try {
 
-			final ORecordLazySet values = (ORecordLazySet) map.get(iKey);
-			if (values != null)
-				values.setDatabase(ODatabaseRecordThreadLocal.INSTANCE.get());
+			final Set<OIdentifiable> values = map.get(iKey);
 
 			if (values == null)
 				return ORecordLazySet.EMPTY_SET;
 
-			return values;
+			return setDatabase(values);
 
 		} finally {
 			releaseExclusiveLock();
@@ -74,7 +74,7 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 			Set<OIdentifiable> values = map.get(iKey);
 
 			if (values == null)
-				values = new ORecordLazySet(configuration.getDatabase()).setRidOnly(true);
+				values = createValues();
 
 			if (!iSingleValue.getIdentity().isValid())
 				((ORecord<?>) iSingleValue).save();
@@ -97,7 +97,7 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 			final Set<OIdentifiable> recs = get(iKey);
 			if (recs.remove(iValue)) {
 				if (recs.isEmpty())
-					map.remove(iKey);
+					deleteValues(map.remove(iKey));
 				else
 					map.put(iKey, recs);
 				return true;
@@ -109,6 +109,49 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 		}
 	}
 
+	@Override
+	public boolean remove(final Object iKey) {
+
+		acquireExclusiveLock();
+		try {
+
+			final Set<OIdentifiable> values = map.remove(iKey);
+			deleteValues(values);
+			return values != null;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	@Override
+	public OIndex<Set<OIdentifiable>> clear() {
+
+		acquireExclusiveLock();
+		try {
+
+			deleteAllValues();
+			return super.clear();
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	@Override
+	public OIndexInternal<Set<OIdentifiable>> delete() {
+
+		acquireExclusiveLock();
+		try {
+
+			deleteAllValues();
+			return super.delete();
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
 	public int remove(final OIdentifiable iRecord) {
 
 		acquireExclusiveLock();
@@ -303,7 +346,7 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 	public OIndexMultiValues create(String iName, OType iKeyType, ODatabaseRecord iDatabase, String iClusterIndexName,
 			int[] iClusterIdsToIndex, OProgressListener iProgressListener, boolean iAutomatic) {
 		return (OIndexMultiValues) super.create(iName, iKeyType, iDatabase, iClusterIndexName, iClusterIdsToIndex, iProgressListener,
-				iAutomatic, OStreamSerializerListRID.INSTANCE);
+				iAutomatic, OStreamSerializerPostingList.INSTANCE);
 	}
 
 	public Collection<OIdentifiable> getValues(final Collection<?> iKeys) {
@@ -314,14 +357,12 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 		acquireExclusiveLock();
 		try {
 			for (final Object key : sortedKeys) {
-				final ORecordLazySet values = (ORecordLazySet) map.get(key);
-				if (values != null)
-					values.setDatabase(ODatabaseRecordThreadLocal.INSTANCE.get());
+				final Set<OIdentifiable> values = map.get(key);
 
 				if (values == null)
 					continue;
 
-				result.addAll(values);
+				result.addAll(setDatabase(values));
 			}
 		} finally {
 			releaseExclusiveLock();
@@ -337,13 +378,11 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 		acquireExclusiveLock();
 		try {
 			for (final Object key : sortedKeys) {
-				final ORecordLazySet values = (ORecordLazySet) map.get(key);
-				if (values != null)
-					values.setDatabase(ODatabaseRecordThreadLocal.INSTANCE.get());
+				final Set<OIdentifiable> values = map.get(key);
 
 				if (values == null)
 					continue;
-				for (final OIdentifiable value : values) {
+				for (final OIdentifiable value : setDatabase(values)) {
 					final ODocument document = new ODocument();
 					document.field("key", key);
 					document.field("rid", value.getIdentity());
@@ -356,4 +395,38 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 		}
 		return result;
 	}
+
+	/**
+	 * Creates the container of the values of a new key.
+	 */
+	protected Set<OIdentifiable> createValues() {
+		if (map.getValueSerializer() == OStreamSerializerListRID.INSTANCE)
+			return new ORecordLazySet(configuration.getDatabase()).setRidOnly(true);
+
+		return new OIndexPostingList(configuration.getDatabase(), configuration.getDatabase().getClusterIdByName(map.getClusterName()));
+	}
+
+	/**
+	 * Deletes the pages of the posting list of a removed key.
+	 */
+	protected void deleteValues(final Set<OIdentifiable> iValues) {
+		if (iValues instanceof OIndexPostingList)
+			((OIndexPostingList) iValues).delete();
+	}
+
+	private void deleteAllValues() {
+		if (map.getValueSerializer() == OStreamSerializerListRID.INSTANCE)
+			return;
+
+		for (Set<OIdentifiable> values : map.values())
+			deleteValues(values);
+	}
+
+	private Set<OIdentifiable> setDatabase(final Set<OIdentifiable> iValues) {
+		if (iValues instanceof OIndexPostingList)
+			((OIndexPostingList) iValues).setDatabase(ODatabaseRecordThreadLocal.INSTANCE.get());
+		else if (iValues instanceof ORecordLazySet)
+			((ORecordLazySet) iValues).setDatabase(ODatabaseRecordThreadLocal.INSTANCE.get());
+		return iValues;
+	}
 }
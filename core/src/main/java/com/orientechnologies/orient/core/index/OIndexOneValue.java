@@ -45,15 +45,7 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
 	}
 
 	public OIdentifiable get(final Object iKey) {
-
-		acquireExclusiveLock();
-		try {
-
-			return map.get(iKey);
-
-		} finally {
-			releaseExclusiveLock();
-		}
+		return getConcurrent(iKey);
 	}
 
 	public int remove(final OIdentifiable iRecord) {
@@ -236,15 +228,10 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
         Collections.sort(sortedKeys);
 
         final Set<OIdentifiable> result = new HashSet<OIdentifiable>();
-        acquireExclusiveLock();
-        try {
-            for (final Object key : sortedKeys) {
-                final OIdentifiable val = map.get(key);
-                if (val != null)
-                    result.add(val);
-            }
-        } finally {
-            releaseExclusiveLock();
+        for (final Object key : sortedKeys) {
+            final OIdentifiable val = getConcurrent(key);
+            if (val != null)
+                result.add(val);
         }
         return result;
     }
@@ -254,20 +241,15 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
         Collections.sort(sortedKeys);
 
         final Set<ODocument> result = new HashSet<ODocument>();
-        acquireExclusiveLock();
-        try {
-            for (final Object key : sortedKeys) {
-                final OIdentifiable val = map.get(key);
-                if (val != null) {
-                    final ODocument document = new ODocument();
-					document.field("key", key);
-					document.field("rid", val.getIdentity());
-					document.unsetDirty();
-					result.add(document);
-                }
+        for (final Object key : sortedKeys) {
+            final OIdentifiable val = getConcurrent(key);
+            if (val != null) {
+                final ODocument document = new ODocument();
+                document.field("key", key);
+                document.field("rid", val.getIdentity());
+                document.unsetDirty();
+                result.add(document);
             }
-        } finally {
-            releaseExclusiveLock();
         }
 		return result;
 	}
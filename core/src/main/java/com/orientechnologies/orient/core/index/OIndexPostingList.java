@@ -0,0 +1,526 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ORecordBytes;
+import com.orientechnologies.orient.core.serialization.OMemoryOutputStream;
+
+/**
+ * Posting list of the RIDs bound to a key of a not unique or full-text index. RIDs are kept sorted and split in pages of at most
+ * mvrbtree.postingListPageSize entries. Each page is encoded as cluster/position deltas in varint format. While the list fits in one
+ * page, the page is embedded in the tree node, then every page is stored as a separate record in the index cluster and the node
+ * keeps only the header: the first RID of each page (used as skip pointer), the number of entries and the page record id.<br/>
+ * <br/>
+ * Adding or removing a RID loads and rewrites only the page containing it. Iteration streams the pages one by one without keeping
+ * them in memory. The page directory instead is not paged: it stays in the tree node and is read and rewritten as a whole, so its
+ * cost grows with size / mvrbtree.postingListPageSize. Raise the page size for keys bound to millions of RIDs.<br/>
+ * <br/>
+ * Stream format: cluster-id + 1 (varint) | size (varint) | pages (varint) | for each page: entries (varint) | first cluster (zig-zag
+ * varint) | first position (zig-zag varint) | 0 + length (varint) + content for embedded pages or 1 + record id (varint, varint)
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OIndexPostingList extends AbstractSet<OIdentifiable> {
+	private static final byte			PAGE_EMBEDDED	= 0;
+	private static final byte			PAGE_RECORD		= 1;
+
+	private ODatabaseRecord				database;
+	private int										clusterId;
+	private int										size;
+	private final int							pageSize;
+	private final List<OPage>			pages					= new ArrayList<OPage>();
+	private final List<ORecordBytes>	deletedPages	= new ArrayList<ORecordBytes>();
+
+	private static final class OPage {
+		private int						count;
+		private int						firstCluster;
+		private long					firstPosition;
+		private ORecordBytes	record;
+		private byte[]				stream;
+		private int[]					clusters;
+		private long[]				positions;
+		private boolean				dirty;
+	}
+
+	public OIndexPostingList(final ODatabaseRecord iDatabase, final int iClusterId) {
+		database = iDatabase;
+		clusterId = iClusterId;
+		pageSize = OGlobalConfiguration.MVRBTREE_POSTING_LIST_PAGE_SIZE.getValueAsInteger();
+	}
+
+	/**
+	 * Creates the posting list by reading its header. Pages are loaded lazily.
+	 */
+	public OIndexPostingList(final ODatabaseRecord iDatabase, final byte[] iStream) {
+		this(iDatabase, -1);
+
+		final int[] cursor = new int[1];
+		clusterId = (int) readVarLong(iStream, cursor) - 1;
+		size = (int) readVarLong(iStream, cursor);
+
+		final int totalPages = (int) readVarLong(iStream, cursor);
+		for (int i = 0; i < totalPages; ++i) {
+			final OPage page = new OPage();
+			page.count = (int) readVarLong(iStream, cursor);
+			page.firstCluster = (int) readZigZag(iStream, cursor);
+			page.firstPosition = readZigZag(iStream, cursor);
+
+			if (iStream[cursor[0]++] == PAGE_EMBEDDED) {
+				final int length = (int) readVarLong(iStream, cursor);
+				page.stream = new byte[length];
+				System.arraycopy(iStream, cursor[0], page.stream, 0, length);
+				cursor[0] += length;
+			} else {
+				final int pageClusterId = (int) readVarLong(iStream, cursor);
+				final long pageClusterPosition = readVarLong(iStream, cursor);
+				page.record = new ORecordBytes(database, new ORecordId(pageClusterId, pageClusterPosition));
+			}
+
+			pages.add(page);
+		}
+	}
+
+	/**
+	 * Writes the header of the posting list. Modified pages stored as separate records are saved and the removed pages are deleted.
+	 */
+	public byte[] toStream() {
+		final OMemoryOutputStream out = new OMemoryOutputStream();
+		writeVarLong(out, clusterId + 1);
+		writeVarLong(out, size);
+		writeVarLong(out, pages.size());
+
+		for (OPage page : pages) {
+			writeVarLong(out, page.count);
+			writeZigZag(out, page.firstCluster);
+			writeZigZag(out, page.firstPosition);
+
+			if (page.dirty || page.stream == null && page.record == null)
+				page.stream = encode(page.clusters, page.positions, page.count);
+
+			if (page.record == null && pages.size() == 1) {
+				// SINGLE PAGE: EMBED IT IN THE TREE NODE
+				out.write(PAGE_EMBEDDED);
+				writeVarLong(out, page.stream.length);
+				out.write(page.stream, 0, page.stream.length);
+				if (page.clusters != null)
+					page.stream = null;
+			} else {
+				if (page.dirty || page.record == null)
+					savePage(page);
+
+				out.write(PAGE_RECORD);
+				writeVarLong(out, page.record.getIdentity().getClusterId());
+				writeVarLong(out, page.record.getIdentity().getClusterPosition());
+			}
+			page.dirty = false;
+		}
+
+		deleteRemovedPages();
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Deletes all the pages stored as separate records. Called when the key is removed from the index.
+	 */
+	public void delete() {
+		clear();
+		deleteRemovedPages();
+	}
+
+	public OIndexPostingList setDatabase(final ODatabaseRecord iDatabase) {
+		database = iDatabase;
+		return this;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public boolean contains(final Object iValue) {
+		if (!(iValue instanceof OIdentifiable) || pages.isEmpty())
+			return false;
+
+		final ORID rid = ((OIdentifiable) iValue).getIdentity();
+		final OPage page = loadPage(findPage(rid.getClusterId(), rid.getClusterPosition()));
+		return search(page, rid.getClusterId(), rid.getClusterPosition()) > -1;
+	}
+
+	@Override
+	public boolean add(final OIdentifiable iValue) {
+		final ORID rid = iValue.getIdentity();
+		final int cluster = rid.getClusterId();
+		final long position = rid.getClusterPosition();
+
+		if (pages.isEmpty()) {
+			final OPage page = new OPage();
+			page.clusters = new int[8];
+			page.positions = new long[8];
+			pages.add(page);
+		}
+
+		final int pageIndex = findPage(cluster, position);
+		final OPage page = loadPage(pageIndex);
+
+		int pos = search(page, cluster, position);
+		if (pos > -1)
+			return false;
+
+		pos = -(pos + 1);
+
+		if (page.count == page.clusters.length) {
+			final int newLength = page.clusters.length * 2;
+			final int[] newClusters = new int[newLength];
+			final long[] newPositions = new long[newLength];
+			System.arraycopy(page.clusters, 0, newClusters, 0, page.count);
+			System.arraycopy(page.positions, 0, newPositions, 0, page.count);
+			page.clusters = newClusters;
+			page.positions = newPositions;
+		}
+
+		System.arraycopy(page.clusters, pos, page.clusters, pos + 1, page.count - pos);
+		System.arraycopy(page.positions, pos, page.positions, pos + 1, page.count - pos);
+		page.clusters[pos] = cluster;
+		page.positions[pos] = position;
+		page.count++;
+		page.dirty = true;
+		size++;
+
+		if (pos == 0) {
+			page.firstCluster = cluster;
+			page.firstPosition = position;
+		}
+
+		if (page.count > pageSize)
+			splitPage(pageIndex);
+
+		return true;
+	}
+
+	@Override
+	public boolean remove(final Object iValue) {
+		if (!(iValue instanceof OIdentifiable) || pages.isEmpty())
+			return false;
+
+		final ORID rid = ((OIdentifiable) iValue).getIdentity();
+
+		final int pageIndex = findPage(rid.getClusterId(), rid.getClusterPosition());
+		final OPage page = loadPage(pageIndex);
+
+		final int pos = search(page, rid.getClusterId(), rid.getClusterPosition());
+		if (pos < 0)
+			return false;
+
+		System.arraycopy(page.clusters, pos + 1, page.clusters, pos, page.count - pos - 1);
+		System.arraycopy(page.positions, pos + 1, page.positions, pos, page.count - pos - 1);
+		page.count--;
+		page.dirty = true;
+		size--;
+
+		if (page.count == 0) {
+			pages.remove(pageIndex);
+			if (page.record != null)
+				deletedPages.add(page.record);
+		} else if (pos == 0) {
+			page.firstCluster = page.clusters[0];
+			page.firstPosition = page.positions[0];
+		}
+
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		for (OPage page : pages)
+			if (page.record != null)
+				deletedPages.add(page.record);
+		pages.clear();
+		size = 0;
+	}
+
+	/**
+	 * Browses the RIDs in order. Pages not yet loaded are decoded on the fly and not kept in memory.
+	 */
+	@Override
+	public Iterator<OIdentifiable> iterator() {
+		return new Iterator<OIdentifiable>() {
+			private int			pageIndex	= -1;
+			private int			pos;
+			private int			count;
+			private int[]		clusters;
+			private long[]	positions;
+
+			public boolean hasNext() {
+				while (pos >= count) {
+					if (pageIndex + 1 >= pages.size())
+						return false;
+
+					final OPage page = pages.get(++pageIndex);
+					if (page.clusters != null) {
+						clusters = page.clusters;
+						positions = page.positions;
+					} else {
+						final byte[] stream = readPage(page);
+						clusters = new int[page.count];
+						positions = new long[page.count];
+						decode(stream, clusters, positions);
+					}
+					count = page.count;
+					pos = 0;
+				}
+				return true;
+			}
+
+			public OIdentifiable next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				final ORecordId rid = new ORecordId(clusters[pos], positions[pos]);
+				pos++;
+				return rid;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException("remove");
+			}
+		};
+	}
+
+	/**
+	 * Returns the RIDs without loading the records. Since the posting list contains only RIDs it's the same of iterator().
+	 */
+	public Iterator<OIdentifiable> rawIterator() {
+		return iterator();
+	}
+
+	public int getPages() {
+		return pages.size();
+	}
+
+	/**
+	 * Finds the page that could contain the RID by using the first RID of each page as skip pointer.
+	 */
+	private int findPage(final int iClusterId, final long iClusterPosition) {
+		int low = 0;
+		int high = pages.size() - 1;
+		int result = 0;
+
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final OPage page = pages.get(mid);
+
+			if (compare(page.firstCluster, page.firstPosition, iClusterId, iClusterPosition) <= 0) {
+				result = mid;
+				low = mid + 1;
+			} else
+				high = mid - 1;
+		}
+		return result;
+	}
+
+	private static int search(final OPage iPage, final int iClusterId, final long iClusterPosition) {
+		int low = 0;
+		int high = iPage.count - 1;
+
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final int cmp = compare(iPage.clusters[mid], iPage.positions[mid], iClusterId, iClusterPosition);
+
+			if (cmp < 0)
+				low = mid + 1;
+			else if (cmp > 0)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -(low + 1);
+	}
+
+	private static int compare(final int iCluster1, final long iPosition1, final int iCluster2, final long iPosition2) {
+		if (iCluster1 != iCluster2)
+			return iCluster1 < iCluster2 ? -1 : 1;
+		if (iPosition1 != iPosition2)
+			return iPosition1 < iPosition2 ? -1 : 1;
+		return 0;
+	}
+
+	private void splitPage(final int iPageIndex) {
+		final OPage page = pages.get(iPageIndex);
+
+		final int half = page.count / 2;
+		final int moved = page.count - half;
+
+		final OPage newPage = new OPage();
+		newPage.clusters = new int[Math.max(moved * 2, 8)];
+		newPage.positions = new long[newPage.clusters.length];
+		System.arraycopy(page.clusters, half, newPage.clusters, 0, moved);
+		System.arraycopy(page.positions, half, newPage.positions, 0, moved);
+		newPage.count = moved;
+		newPage.firstCluster = newPage.clusters[0];
+		newPage.firstPosition = newPage.positions[0];
+		newPage.dirty = true;
+
+		page.count = half;
+		page.dirty = true;
+
+		pages.add(iPageIndex + 1, newPage);
+	}
+
+	private OPage loadPage(final int iPageIndex) {
+		final OPage page = pages.get(iPageIndex);
+		if (page.clusters == null) {
+			final byte[] stream = readPage(page);
+			page.clusters = new int[Math.max(page.count, 8)];
+			page.positions = new long[page.clusters.length];
+			decode(stream, page.clusters, page.positions);
+			page.stream = null;
+		}
+		return page;
+	}
+
+	private byte[] readPage(final OPage iPage) {
+		if (iPage.stream != null)
+			return iPage.stream;
+
+		OProfiler.getInstance().updateCounter("OIndexPostingList.loadPage", +1);
+
+		iPage.record.setDatabase(getDatabase());
+		iPage.record.reload();
+		return iPage.record.toStream();
+	}
+
+	private void savePage(final OPage iPage) {
+		OProfiler.getInstance().updateCounter("OIndexPostingList.savePage", +1);
+
+		final ODatabaseRecord db = getDatabase();
+		if (iPage.record == null)
+			iPage.record = new ORecordBytes(db);
+		else
+			iPage.record.setDatabase(db);
+
+		iPage.record.setDirty();
+		iPage.record.fromStream(iPage.stream);
+		iPage.record.save(db.getClusterNameById(clusterId));
+
+		// CONTENT IS NOW IN THE RECORD
+		if (iPage.clusters != null)
+			iPage.stream = null;
+	}
+
+	private void deleteRemovedPages() {
+		if (deletedPages.isEmpty())
+			return;
+
+		final ODatabaseRecord db = getDatabase();
+		for (ORecordBytes record : deletedPages) {
+			record.setDatabase(db);
+			record.delete();
+		}
+		deletedPages.clear();
+	}
+
+	private ODatabaseRecord getDatabase() {
+		final ODatabaseRecord db = ODatabaseRecordThreadLocal.INSTANCE.get();
+		return db != null ? db : database;
+	}
+
+	private static byte[] encode(final int[] iClusters, final long[] iPositions, final int iCount) {
+		final OMemoryOutputStream out = new OMemoryOutputStream(iCount * 3 + 8);
+		writeVarLong(out, iCount);
+
+		int prevCluster = 0;
+		long prevPosition = 0;
+		for (int i = 0; i < iCount; ++i) {
+			writeZigZag(out, iClusters[i] - prevCluster);
+			if (i == 0 || iClusters[i] != prevCluster)
+				writeZigZag(out, iPositions[i]);
+			else
+				writeVarLong(out, iPositions[i] - prevPosition);
+
+			prevCluster = iClusters[i];
+			prevPosition = iPositions[i];
+		}
+		return out.toByteArray();
+	}
+
+	private static void decode(final byte[] iStream, final int[] iClusters, final long[] iPositions) {
+		final int[] cursor = new int[1];
+		final int count = (int) readVarLong(iStream, cursor);
+
+		int cluster = 0;
+		long position = 0;
+		for (int i = 0; i < count; ++i) {
+			final int clusterDelta = (int) readZigZag(iStream, cursor);
+			if (i == 0 || clusterDelta != 0) {
+				cluster += clusterDelta;
+				position = readZigZag(iStream, cursor);
+			} else
+				position += readVarLong(iStream, cursor);
+
+			iClusters[i] = cluster;
+			iPositions[i] = position;
+		}
+	}
+
+	private static void writeZigZag(final OMemoryOutputStream iOutput, final long iValue) {
+		writeVarLong(iOutput, (iValue << 1) ^ (iValue >> 63));
+	}
+
+	private static void writeVarLong(final OMemoryOutputStream iOutput, long iValue) {
+		while ((iValue & ~0x7FL) != 0) {
+			iOutput.write((int) ((iValue & 0x7F) | 0x80));
+			iValue >>>= 7;
+		}
+		iOutput.write((int) iValue);
+	}
+
+	private static long readZigZag(final byte[] iStream, final int[] iCursor) {
+		final long value = readVarLong(iStream, iCursor);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static long readVarLong(final byte[] iStream, final int[] iCursor) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = iStream[iCursor[0]++];
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+}
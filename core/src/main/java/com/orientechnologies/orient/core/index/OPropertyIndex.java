@@ -15,7 +15,10 @@
  */
 package com.orientechnologies.orient.core.index;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 
 import com.orientechnologies.common.listener.OProgressListener;
 import com.orientechnologies.common.log.OLogManager;
@@ -34,7 +37,7 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
 public class OPropertyIndex implements OIndexCallback {
 	protected String						indexName;
 	protected String[]					fields;
-	protected static final char	FIELD_SEPARATOR	= '+';
+	public static final char		FIELD_SEPARATOR	= '+';
 
 	public OPropertyIndex(final ODatabaseRecord iDatabase, final OClass iClass, final String[] iFields, final String iType,
 			final OType iKeyType, final OProgressListener iProgressListener) {
@@ -63,7 +66,7 @@ public class OPropertyIndex implements OIndexCallback {
 
 	public void checkEntry(final ODocument iRecord) {
 		// GENERATE THE KEY
-		final Object key = generateKey(iRecord);
+		final Object key = generateKey(iRecord, null);
 
 		final OIndexInternal<?> idx = getUnderlying().getInternal();
 
@@ -83,26 +86,85 @@ public class OPropertyIndex implements OIndexCallback {
 	}
 
 	public Object getDocumentValueToIndex(ODocument iDocument) {
-		return generateKey(iDocument);
+		return generateKey(iDocument, null);
 	}
 
-	private Object generateKey(final ODocument iRecord) {
+	/**
+	 * Returns the key of the document before the changes of the fields passed as parameter.
+	 * 
+	 * @param iDocument
+	 *          Document to index
+	 * @param iDirtyFields
+	 *          Changed fields
+	 */
+	public Object getOriginalDocumentValueToIndex(final ODocument iDocument, final String[] iDirtyFields) {
+		return generateKey(iDocument, iDirtyFields);
+	}
+
+	public String[] getFields() {
+		return fields;
+	}
+
+	public boolean isComposite() {
+		return fields.length > 1;
+	}
+
+	/**
+	 * Tells if the index on multiple fields was created with the old key format, where the field values were concatenated in a
+	 * string separated by '+'. Only the first key is checked since all the keys are in the same format. Such indexes are rebuilt
+	 * by {@link com.orientechnologies.orient.core.metadata.OMetadata#load()}.
+	 */
+	public boolean hasLegacyKeys() {
+		if (!isComposite())
+			return false;
+
+		final OIndex<?> idx = getUnderlying();
+		if (idx == null)
+			return false;
+
+		final Iterator<Object> keys = idx.keys().iterator();
+		return keys.hasNext() && !(keys.next() instanceof OCompositeKey);
+	}
+
+	/**
+	 * Tells if the index is bound to the field passed as parameter.
+	 */
+	public boolean containsField(final String iFieldName) {
+		for (String f : fields)
+			if (f.equals(iFieldName))
+				return true;
+		return false;
+	}
+
+	private Object generateKey(final ODocument iRecord, final String[] iDirtyFields) {
 		if (fields.length == 1)
 			// ONE-FIELD KEY
-			return iRecord.field(fields[0]);
+			return getFieldValue(iRecord, fields[0], iDirtyFields);
 
 		// MULTI KEY USED IN COMPOSED PROPERTY INDEXES
-		StringBuilder buffer = new StringBuilder();
+		final List<Object> keys = new ArrayList<Object>(fields.length);
+		boolean allNull = true;
 		for (String f : fields) {
-			if (buffer.length() > 0)
-				buffer.append(FIELD_SEPARATOR);
-
-			if (f == null)
-				buffer.append('-');
-			else
-				buffer.append(iRecord.field(f));
+			final Object value = getFieldValue(iRecord, f, iDirtyFields);
+			if (value != null)
+				allNull = false;
+			keys.add(value);
 		}
-		return buffer.toString();
+
+		if (allNull)
+			// NOTHING TO INDEX
+			return null;
+
+		return new OCompositeKey(keys);
+	}
+
+	private Object getFieldValue(final ODocument iRecord, final String iFieldName, final String[] iDirtyFields) {
+		if (iDirtyFields != null)
+			for (String f : iDirtyFields)
+				if (f.equals(iFieldName))
+					return iRecord.getOriginalValue(iFieldName);
+
+		return iRecord.field(iFieldName);
 	}
 
 	@Override
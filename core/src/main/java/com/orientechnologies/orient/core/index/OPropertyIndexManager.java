@@ -56,6 +56,15 @@ public class OPropertyIndexManager extends ODocumentHookAbstract {
 				}
 			}
 		}
+
+		final OClass cls = iRecord.getSchemaClass();
+		if (cls != null)
+			for (OPropertyIndex index : cls.getCompositeIndexes()) {
+				final Object key = index.getDocumentValueToIndex(iRecord);
+				if (key != null)
+					index.getUnderlying().put(key, iRecord.placeholder());
+			}
+
 		return false;
 	}
 
@@ -99,6 +108,8 @@ public class OPropertyIndexManager extends ODocumentHookAbstract {
 			}
 		}
 
+		updateCompositeIndexes(iRecord);
+
 		if (iRecord.isTrackingChanges()) {
 			iRecord.setTrackingChanges(false);
 			iRecord.setTrackingChanges(true);
@@ -163,6 +174,15 @@ public class OPropertyIndexManager extends ODocumentHookAbstract {
 			}
 		}
 
+		final OClass cls = iRecord.getSchemaClass();
+		if (cls != null)
+			for (OPropertyIndex index : cls.getCompositeIndexes()) {
+				// REMOVE THE ENTRY OF THE ORIGINAL VALUES
+				final Object key = index.getOriginalDocumentValueToIndex(iRecord, iRecord.getDirtyFields());
+				if (key != null)
+					index.getUnderlying().remove(key, iRecord);
+			}
+
 		if (iRecord.isTrackingChanges()) {
 			iRecord.setTrackingChanges(false);
 			iRecord.setTrackingChanges(true);
@@ -182,6 +202,46 @@ public class OPropertyIndexManager extends ODocumentHookAbstract {
 			if (index != null)
 				index.checkEntry(iRecord);
 		}
+
+		for (OPropertyIndex compositeIndex : cls.getCompositeIndexes())
+			compositeIndex.checkEntry(iRecord);
+	}
+
+	/**
+	 * Updates the indexes bound to more properties when at least one of their fields has been changed.
+	 */
+	protected void updateCompositeIndexes(final ODocument iRecord) {
+		final OClass cls = iRecord.getSchemaClass();
+		if (cls == null)
+			return;
+
+		final String[] dirtyFields = iRecord.getDirtyFields();
+		if (dirtyFields.length == 0)
+			return;
+
+		for (OPropertyIndex index : cls.getCompositeIndexes()) {
+			boolean changed = false;
+			for (String f : dirtyFields)
+				if (index.containsField(f)) {
+					changed = true;
+					break;
+				}
+
+			if (!changed)
+				continue;
+
+			final Object originalKey = index.getOriginalDocumentValueToIndex(iRecord, dirtyFields);
+			final Object key = index.getDocumentValueToIndex(iRecord);
+
+			if (originalKey == null ? key == null : originalKey.equals(key))
+				continue;
+
+			final OIndex<?> underlying = index.getUnderlying();
+			if (originalKey != null)
+				underlying.remove(originalKey, iRecord);
+			if (key != null)
+				underlying.put(key, iRecord.placeholder());
+		}
 	}
 
 	protected Map<OProperty, Object> getIndexedProperties(final ODocument iRecord) {
@@ -16,8 +16,11 @@
 package com.orientechnologies.orient.core.metadata;
 
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.Callable;
 
+import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.profiler.OProfiler;
 import com.orientechnologies.orient.core.db.ODatabase;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
@@ -25,6 +28,8 @@ import com.orientechnologies.orient.core.index.OIndexManager;
 import com.orientechnologies.orient.core.index.OIndexManagerProxy;
 import com.orientechnologies.orient.core.index.OIndexManagerRemote;
 import com.orientechnologies.orient.core.index.OIndexManagerShared;
+import com.orientechnologies.orient.core.index.OPropertyIndex;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OSchema;
 import com.orientechnologies.orient.core.metadata.schema.OSchemaProxy;
 import com.orientechnologies.orient.core.metadata.schema.OSchemaShared;
@@ -55,6 +60,9 @@ public class OMetadata {
 
 			if (schemaClusterId == -1 || database.countClusterElements(OStorage.CLUSTER_INTERNAL_NAME) == 0)
 				return;
+
+			if (database.getStorage() instanceof OStorageEmbedded)
+				upgradeLegacyIndexes();
 		} finally {
 			OProfiler.getInstance().stopChrono("OMetadata.load", timer);
 		}
@@ -137,6 +145,22 @@ public class OMetadata {
 
 	}
 
+	/**
+	 * Rebuilds the indexes on multiple fields still using the old key format, where the field values were concatenated in a string
+	 * separated by '+'. Executed at open once the schema is loaded, since the composite keys can't be mixed with the old ones in the
+	 * same tree. Once rebuilt the check costs the lookup of the first key per index.
+	 */
+	private void upgradeLegacyIndexes() {
+		final Set<String> checked = new HashSet<String>();
+		for (OClass cls : schema.getClasses())
+			for (OPropertyIndex index : cls.getCompositeIndexes())
+				if (checked.add(index.toString()) && index.hasLegacyKeys()) {
+					OLogManager.instance().warn(this, "Index '%s' uses the old key format for multiple fields: rebuilding it...", index);
+					final long records = index.getUnderlying().rebuild();
+					OLogManager.instance().info(this, "Index '%s' rebuilt with %d records", index, records);
+				}
+	}
+
 	/**
 	 * Reloads the internal objects.
 	 */
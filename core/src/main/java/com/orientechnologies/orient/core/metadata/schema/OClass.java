@@ -19,6 +19,9 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.Iterator;
 
+import com.orientechnologies.orient.core.index.OPropertyIndex;
+import com.orientechnologies.orient.core.metadata.schema.OProperty.INDEX_TYPE;
+
 /**
  * Schema class
  * 
@@ -46,6 +49,24 @@ public interface OClass extends Comparable<OClass> {
 
 	public Collection<OProperty> getIndexedProperties();
 
+	/**
+	 * Creates an index bound to more properties. The keys are the values of the fields in the same order as the parameters, so the
+	 * index is used also by queries with equality conditions against the first fields only.
+	 * 
+	 * @param iType
+	 *          UNIQUE or NOTUNIQUE
+	 * @param iFields
+	 *          Fields to index, at least two
+	 * @return The new index
+	 * @see OProperty#createIndex(INDEX_TYPE)
+	 */
+	public OPropertyIndex createIndex(INDEX_TYPE iType, String... iFields);
+
+	/**
+	 * Returns the indexes bound to more properties of this class and its super classes.
+	 */
+	public Collection<OPropertyIndex> getCompositeIndexes();
+
 	public OProperty getProperty(final String iPropertyName);
 
 	public OProperty createProperty(final String iPropertyName, final OType iType);
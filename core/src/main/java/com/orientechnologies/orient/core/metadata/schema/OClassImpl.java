@@ -35,10 +35,14 @@ import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.ORecordElement;
 import com.orientechnologies.orient.core.exception.OSchemaException;
+import com.orientechnologies.orient.core.index.OPropertyIndex;
+import com.orientechnologies.orient.core.metadata.schema.OProperty.INDEX_TYPE;
 import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityResources;
 import com.orientechnologies.orient.core.metadata.security.ORole;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 import com.orientechnologies.orient.core.type.ODocumentWrapperNoClass;
 
 /**
@@ -62,6 +66,7 @@ public class OClassImpl extends ODocumentWrapperNoClass implements OClass {
 	protected List<OClass>						baseClasses;
 	protected float										overSize		= 0f;
 	protected String									shortName;
+	protected List<OPropertyIndex>		compositeIndexes	= new ArrayList<OPropertyIndex>();
 
 	/**
 	 * Constructor used in unmarshalling.
@@ -236,6 +241,44 @@ public class OClassImpl extends ODocumentWrapperNoClass implements OClass {
 		return (Collection<OProperty>) (indexedProps != null ? indexedProps : Collections.emptyList());
 	}
 
+	public OPropertyIndex createIndex(final INDEX_TYPE iType, final String... iFields) {
+		getDatabase().checkSecurity(ODatabaseSecurityResources.SCHEMA, ORole.PERMISSION_UPDATE);
+
+		if (iFields == null || iFields.length < 2)
+			throw new OSchemaException("Indexes on class " + name + " need at least two fields: use OProperty.createIndex() instead");
+
+		if (iType != INDEX_TYPE.UNIQUE && iType != INDEX_TYPE.NOTUNIQUE)
+			throw new OSchemaException("Index type " + iType + " is not supported on multiple fields");
+
+		for (OPropertyIndex idx : compositeIndexes)
+			if (Arrays.equals(idx.getFields(), iFields))
+				throw new OSchemaException("Class " + name + " already has the index on fields " + Arrays.toString(iFields));
+
+		final OPropertyIndex index = new OPropertyIndex(getDatabase(), this, iFields, iType.toString(), null);
+		compositeIndexes.add(index);
+		saveInternal();
+		return index;
+	}
+
+	public Collection<OPropertyIndex> getCompositeIndexes() {
+		Collection<OPropertyIndex> indexes = null;
+
+		OClassImpl currentClass = this;
+
+		do {
+			if (!currentClass.compositeIndexes.isEmpty()) {
+				if (indexes == null)
+					indexes = new ArrayList<OPropertyIndex>();
+				indexes.addAll(currentClass.compositeIndexes);
+			}
+
+			currentClass = (OClassImpl) currentClass.getSuperClass();
+
+		} while (currentClass != null);
+
+		return (Collection<OPropertyIndex>) (indexes != null ? indexes : Collections.emptyList());
+	}
+
 	public OProperty getProperty(final String iPropertyName) {
 		OClassImpl currentClass = this;
 		OProperty p = null;
@@ -305,6 +348,8 @@ public class OClassImpl extends ODocumentWrapperNoClass implements OClass {
 		if (prop == null)
 			throw new OSchemaException("Property '" + iPropertyName + "' not found in class " + name + "'");
 
+		owner.onPropertyDropped(prop);
+
 		prop.dropIndex();
 
 		fixedSize -= prop.getType().size;
@@ -379,6 +424,17 @@ public class OClassImpl extends ODocumentWrapperNoClass implements OClass {
 			prop.fromStream();
 			properties.put(prop.getName().toLowerCase(), prop);
 		}
+
+		// READ INDEXES ON MULTIPLE FIELDS
+		compositeIndexes.clear();
+		final Collection<String> storedIndexes = document.field("compositeIndexes");
+		if (storedIndexes != null)
+			for (String fields : storedIndexes) {
+				final OPropertyIndex index = new OPropertyIndex(getDatabase(), this, OStringSerializerHelper.split(fields,
+						OPropertyIndex.FIELD_SEPARATOR).toArray(new String[0]));
+				if (index.getUnderlying() != null)
+					compositeIndexes.add(index);
+			}
 	}
 
 	@Override
@@ -399,6 +455,20 @@ public class OClassImpl extends ODocumentWrapperNoClass implements OClass {
 			}
 			document.field("properties", props, OType.EMBEDDEDSET);
 
+			if (!compositeIndexes.isEmpty()) {
+				final Set<String> indexes = new HashSet<String>();
+				for (OPropertyIndex idx : compositeIndexes) {
+					final StringBuilder fields = new StringBuilder();
+					for (String f : idx.getFields()) {
+						if (fields.length() > 0)
+							fields.append(OPropertyIndex.FIELD_SEPARATOR);
+						fields.append(f);
+					}
+					indexes.add(fields.toString());
+				}
+				document.field("compositeIndexes", indexes, OType.EMBEDDEDSET);
+			}
+
 			if (superClass != null)
 				document.field("superClass", superClass.getName());
 
@@ -715,6 +785,10 @@ public class OClassImpl extends ODocumentWrapperNoClass implements OClass {
 
 		final OPropertyImpl prop = new OPropertyImpl(this, iName, iType);
 
+		if (getDatabase().getStorage() instanceof OStorageEmbedded)
+			// ASSIGN THE ID ONLY WHERE THE SCHEMA IS SAVED
+			prop.setIdInternal(owner.nextPropertyId());
+
 		properties.put(lowerName, prop);
 		fixedSize += iType.size;
 
@@ -34,6 +34,12 @@ public interface OProperty extends Comparable<OProperty> {
 
 	public String getName();
 
+	/**
+	 * Returns the id of the property, unique in the whole schema, or -1 if not assigned. The id is used by the binary record format in
+	 * place of the property name.
+	 */
+	public int getId();
+
 	public OProperty setName(String iName);
 
 	public OType getType();
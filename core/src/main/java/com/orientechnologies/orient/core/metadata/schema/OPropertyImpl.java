@@ -42,6 +42,7 @@ import java.util.Locale;
 public class OPropertyImpl extends ODocumentWrapperNoClass implements OProperty {
 	private OClassImpl				owner;
 
+	private int								id			= -1;
 	private String						name;
 	private OType							type;
 
@@ -83,6 +84,14 @@ public class OPropertyImpl extends ODocumentWrapperNoClass implements OProperty
 		return name;
 	}
 
+	public int getId() {
+		return id;
+	}
+
+	public void setIdInternal(final int iId) {
+		id = iId;
+	}
+
 	public String getFullName() {
 		return owner.getName() + "." + name;
 	}
@@ -513,6 +522,8 @@ public class OPropertyImpl extends ODocumentWrapperNoClass implements OProperty
 	@Override
 	public void fromStream() {
 		name = document.field("name");
+		if (document.field("id") != null)
+			id = (Integer) document.field("id");
 		if (document.field("type") != null)
 			type = OType.getById(((Integer) document.field("type")).byteValue());
 
@@ -539,6 +550,7 @@ public class OPropertyImpl extends ODocumentWrapperNoClass implements OProperty
 
 		try {
 			document.field("name", name);
+			document.field("id", id > -1 ? id : null);
 			document.field("type", type.id);
 			document.field("mandatory", mandatory);
 			document.field("notNull", notNull);
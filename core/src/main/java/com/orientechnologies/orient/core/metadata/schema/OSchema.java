@@ -61,6 +61,27 @@ public interface OSchema {
 
 	public OClass getOrCreateClass(final String iClassName);
 
+	/**
+	 * Returns the property by its id.
+	 * 
+	 * @param iPropertyId
+	 *          Id of the property, unique in the whole schema
+	 * @return The property if any, otherwise null
+	 * @see OProperty#getId()
+	 */
+	public OProperty getPropertyById(final int iPropertyId);
+
+	/**
+	 * Returns the name of the property by its id. Dropped properties are resolved too, since records stored before the drop still
+	 * contain them.
+	 * 
+	 * @param iPropertyId
+	 *          Id of the property, unique in the whole schema
+	 * @return The property name if any, otherwise null
+	 * @see #getPropertyById(int)
+	 */
+	public String getPropertyNameById(final int iPropertyId);
+
 	public Collection<OClass> getClasses();
 
 	public void create();
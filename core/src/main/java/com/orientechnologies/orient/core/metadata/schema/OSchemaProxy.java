@@ -125,6 +125,16 @@ public class OSchemaProxy extends OProxedResource<OSchemaShared> implements OSch
 		return delegate.getClass(iClassName);
 	}
 
+	public OProperty getPropertyById(final int iPropertyId) {
+		setCurrentDatabaseInThreadLocal();
+		return delegate.getPropertyById(iPropertyId);
+	}
+
+	public String getPropertyNameById(final int iPropertyId) {
+		setCurrentDatabaseInThreadLocal();
+		return delegate.getPropertyNameById(iPropertyId);
+	}
+
 	public Collection<OClass> getClasses() {
 		setCurrentDatabaseInThreadLocal();
 		return delegate.getClasses();
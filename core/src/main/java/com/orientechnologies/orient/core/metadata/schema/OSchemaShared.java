@@ -53,6 +53,10 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 	public static final int					CURRENT_VERSION_NUMBER	= 4;
 	protected Map<String, OClass>		classes									= new HashMap<String, OClass>();
 	private OSharedResourceExternal	lock										= new OSharedResourceExternal();
+	private int											nextPropertyId					= 0;
+	private volatile OProperty[]		propertiesById;
+	// NAMES OF THE DROPPED PROPERTIES: THE RECORDS STORED BEFORE THE DROP CAN STILL REFER TO THEM BY ID
+	private final Map<Integer, String>	droppedProperties				= new HashMap<Integer, String>();
 
 	public OSchemaShared(final int schemaClusterId) {
 		super(new ODocument());
@@ -328,6 +332,9 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 					property.dropIndex();
 			}
 
+			for (OProperty property : cls.declaredProperties())
+				onPropertyDropped(property);
+
 			classes.remove(key);
 
 		} finally {
@@ -369,6 +376,78 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 		return getClass(iClass.getSimpleName());
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.orientechnologies.orient.core.metadata.schema.OSchema#getPropertyById(int)
+	 */
+	public OProperty getPropertyById(final int iPropertyId) {
+		OProperty[] props = propertiesById;
+		if (props == null) {
+			// BUILD THE INDEX OF THE PROPERTIES BY ID
+			lock.acquireSharedLock();
+			try {
+				int maxId = -1;
+				for (OClass c : classes.values())
+					for (OProperty p : c.declaredProperties())
+						if (p.getId() > maxId)
+							maxId = p.getId();
+
+				props = new OProperty[maxId + 1];
+				for (OClass c : classes.values())
+					for (OProperty p : c.declaredProperties())
+						if (p.getId() > -1)
+							props[p.getId()] = p;
+			} finally {
+				lock.releaseSharedLock();
+			}
+			propertiesById = props;
+		}
+
+		return iPropertyId > -1 && iPropertyId < props.length ? props[iPropertyId] : null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.orientechnologies.orient.core.metadata.schema.OSchema#getPropertyNameById(int)
+	 */
+	public String getPropertyNameById(final int iPropertyId) {
+		final OProperty prop = getPropertyById(iPropertyId);
+		if (prop != null)
+			return prop.getName();
+
+		lock.acquireSharedLock();
+		try {
+			return droppedProperties.get(iPropertyId);
+		} finally {
+			lock.releaseSharedLock();
+		}
+	}
+
+	/**
+	 * Returns a new property id. Ids are never reused, even after the property has been dropped.
+	 */
+	public int nextPropertyId() {
+		propertiesById = null;
+		return nextPropertyId++;
+	}
+
+	/**
+	 * Keeps the name of a dropped property, to resolve its id in the records stored before, and invalidates the index of the
+	 * properties by id.
+	 */
+	public void onPropertyDropped(final OProperty iProperty) {
+		lock.acquireExclusiveLock();
+		try {
+			if (iProperty.getId() > -1)
+				droppedProperties.put(iProperty.getId(), iProperty.getName());
+			propertiesById = null;
+		} finally {
+			lock.releaseExclusiveLock();
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -455,6 +534,25 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 				cls.setSuperClassInternal(superClass);
 			}
 		}
+
+		// READ THE NAMES OF THE DROPPED PROPERTIES, IF ANY
+		droppedProperties.clear();
+		final Map<String, String> dropped = document.field("droppedProperties");
+		if (dropped != null)
+			for (Map.Entry<String, String> entry : dropped.entrySet())
+				droppedProperties.put(Integer.valueOf(entry.getKey()), entry.getValue());
+
+		// READ THE COUNTER OF THE PROPERTY IDS, OR COMPUTE IT IF MISSED
+		propertiesById = null;
+		if (document.field("nextPropertyId") != null)
+			nextPropertyId = (Integer) document.field("nextPropertyId");
+		else {
+			nextPropertyId = 0;
+			for (OClass c : classes.values())
+				for (OProperty p : c.declaredProperties())
+					if (p.getId() >= nextPropertyId)
+						nextPropertyId = p.getId() + 1;
+		}
 	}
 
 	/**
@@ -473,6 +571,12 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 				cc.add(((OClassImpl) c).toStream());
 			}
 			document.field("classes", cc, OType.EMBEDDEDSET);
+			document.field("nextPropertyId", nextPropertyId);
+
+			final Map<String, String> dropped = new HashMap<String, String>();
+			for (Map.Entry<Integer, String> entry : droppedProperties.entrySet())
+				dropped.put(entry.getKey().toString(), entry.getValue());
+			document.field("droppedProperties", dropped, OType.EMBEDDEDMAP);
 
 		} finally {
 			document.setInternalStatus(ORecordElement.STATUS.LOADED);
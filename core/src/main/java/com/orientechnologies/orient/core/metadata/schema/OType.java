@@ -392,6 +392,13 @@ public enum OType {
 		return null;
 	}
 
+	/**
+	 * Returns the unique id of the type, used by the binary formats.
+	 */
+	public int getId() {
+		return id;
+	}
+
 	public Class<?> getDefaultJavaType() {
 		return javaTypes.length > 0 ? javaTypes[0] : null;
 	}
@@ -132,6 +132,7 @@ public class ORole extends ODocumentWrapper {
 	public void addRule(final String iResource, final int iOperation) {
 		rules.put(iResource, (byte) iOperation);
 		document.field("rules", rules);
+		OUserPermissions.invalidateAll();
 	}
 
 	/**
@@ -150,6 +151,7 @@ public class ORole extends ODocumentWrapper {
 
 		rules.put(iResource, currentValue);
 		document.field("rules", rules);
+		OUserPermissions.invalidateAll();
 	}
 
 	/**
@@ -176,6 +178,7 @@ public class ORole extends ODocumentWrapper {
 
 		rules.put(iResource, currentValue);
 		document.field("rules", rules);
+		OUserPermissions.invalidateAll();
 	}
 
 	public String getName() {
@@ -189,6 +192,7 @@ public class ORole extends ODocumentWrapper {
 	public ORole setMode(final ALLOW_MODES iMode) {
 		this.mode = iMode;
 		document.field("mode", mode == ALLOW_MODES.ALLOW_ALL_BUT ? STREAM_ALLOW : STREAM_DENY);
+		OUserPermissions.invalidateAll();
 		return this;
 	}
 
@@ -41,7 +41,8 @@ public class OUser extends ODocumentWrapper {
 	}
 
 	// AVOID THE INVOCATION OF SETTER
-	protected Set<ORole>	roles	= new HashSet<ORole>();
+	protected Set<ORole>							roles	= new HashSet<ORole>();
+	protected volatile OUserPermissions	permissions;
 
 	/**
 	 * Constructor used in unmarshalling.
@@ -142,6 +143,23 @@ public class OUser extends ODocumentWrapper {
 		return false;
 	}
 
+	/**
+	 * Returns the permissions of the user compiled from all its roles. The matrix is compiled at the first call and every time the
+	 * security settings change.
+	 * 
+	 * @param iDatabase
+	 *          Database used to resolve the cluster ids
+	 * @return The compiled permissions
+	 */
+	public OUserPermissions getPermissions(final ODatabaseRecord iDatabase) {
+		OUserPermissions current = permissions;
+		if (current == null || !current.isValid()) {
+			current = new OUserPermissions(this, iDatabase);
+			permissions = current;
+		}
+		return current;
+	}
+
 	public boolean checkPassword(final String iPassword) {
 		return OSecurityManager.instance().check(iPassword, (String) document.field("password"));
 	}
@@ -185,6 +203,8 @@ public class OUser extends ODocumentWrapper {
 		if (iRole != null)
 			roles.add(iRole);
 
+		OUserPermissions.invalidateAll();
+
 		final HashSet<ODocument> persistentRoles = new HashSet<ODocument>();
 		for (ORole r : roles) {
 			persistentRoles.add(r.toStream());
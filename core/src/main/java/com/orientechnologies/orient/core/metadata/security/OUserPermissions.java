@@ -0,0 +1,212 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.metadata.security;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+
+/**
+ * Immutable permission matrix of a user compiled from the rules of all its roles. Every resource is resolved once to a mask of the
+ * allowed operations, so the checks made by the database on each record operation don't need to build the resource key nor to
+ * browse the roles. Cluster permissions are also compiled in an array indexed by cluster id.<br/>
+ * <br/>
+ * The matrix is invalidated globally every time a role, a user or the cluster list changes: the user compiles a new one at the next
+ * check.
+ * 
+ * @author Luca Garulli
+ * @see OUser#getPermissions(ODatabaseRecord)
+ */
+public class OUserPermissions {
+	// BIT SET WHEN AT LEAST ONE ROLE HAS A RULE FOR THE RESOURCE. THE LOWER 16 BITS ARE THE ALLOWED OPERATIONS (BIT N = OPERATION N)
+	private static final int												RULE_DEFINED	= 1 << 16;
+	private static final int												ALL_ALLOWED		= 0xFFFF;
+
+	private static final AtomicLong									version				= new AtomicLong();
+
+	private final long															compiledVersion;
+	private final int																defaultMask;
+	private final Map<String, Integer>							resources			= new HashMap<String, Integer>();
+	private final Map<String, Map<String, Integer>>	generics			= new HashMap<String, Map<String, Integer>>();
+	private final int[]															clusters;
+
+	public OUserPermissions(final OUser iUser, final ODatabaseRecord iDatabase) {
+		compiledVersion = version.get();
+
+		int mask = 0;
+		for (ORole r : iUser.getRoles())
+			if (r.getMode() == ORole.ALLOW_MODES.ALLOW_ALL_BUT)
+				mask = ALL_ALLOWED;
+		defaultMask = mask;
+
+		for (ORole r : iUser.getRoles())
+			for (String resource : r.getRules().keySet())
+				if (!resources.containsKey(resource))
+					compile(iUser, resource);
+
+		// COMPILE THE CLUSTER PERMISSIONS BY ID
+		int maxId = -1;
+		for (String name : iDatabase.getClusterNames())
+			maxId = Math.max(maxId, iDatabase.getClusterIdByName(name));
+
+		clusters = new int[maxId + 1];
+		for (int i = 0; i < clusters.length; ++i)
+			clusters[i] = getMask(ODatabaseSecurityResources.CLUSTER, ODatabaseSecurityResources.ALL);
+
+		for (String name : iDatabase.getClusterNames()) {
+			final int id = iDatabase.getClusterIdByName(name);
+			if (id > -1) {
+				final int specific = getMask(ODatabaseSecurityResources.CLUSTER, name);
+				if ((specific & RULE_DEFINED) > 0)
+					clusters[id] = specific;
+			}
+		}
+	}
+
+	/**
+	 * Invalidates all the compiled permissions. Called when roles, users or clusters change.
+	 */
+	public static void invalidateAll() {
+		version.incrementAndGet();
+	}
+
+	public boolean isValid() {
+		return compiledVersion == version.get();
+	}
+
+	/**
+	 * Checks if the operation against the resource is allowed.
+	 * 
+	 * @return true if allowed, otherwise false
+	 */
+	public boolean allow(final String iResource, final int iOperation) {
+		final Integer mask = resources.get(iResource);
+		return isAllowed(mask != null ? mask.intValue() : defaultMask, iOperation);
+	}
+
+	/**
+	 * Checks if the operation against the specific resource is allowed. If no rule is defined for it, the generic rule
+	 * (&lt;resource&gt;.*) is used.
+	 * 
+	 * @return true if allowed, otherwise false
+	 */
+	public boolean allow(final String iResourceGeneric, final int iOperation, final Object iResourceSpecific) {
+		if (iResourceSpecific != null) {
+			final int mask = getMask(iResourceGeneric, iResourceSpecific.toString());
+			if ((mask & RULE_DEFINED) > 0)
+				return isAllowed(mask, iOperation);
+		}
+
+		return isAllowed(getMask(iResourceGeneric, ODatabaseSecurityResources.ALL), iOperation);
+	}
+
+	/**
+	 * Checks if the operation against all the specific resources is allowed. If no rule is defined for any of them, the generic rule
+	 * (&lt;resource&gt;.*) is used.
+	 * 
+	 * @return true if allowed, otherwise false
+	 */
+	public boolean allow(final String iResourceGeneric, final int iOperation, final Object... iResourcesSpecific) {
+		boolean ruleFound = false;
+		for (Object target : iResourcesSpecific) {
+			if (target != null) {
+				final int mask = getMask(iResourceGeneric, target.toString());
+				if ((mask & RULE_DEFINED) > 0) {
+					ruleFound = true;
+					if (!isAllowed(mask, iOperation))
+						return false;
+				}
+			}
+		}
+
+		if (!ruleFound)
+			return isAllowed(getMask(iResourceGeneric, ODatabaseSecurityResources.ALL), iOperation);
+
+		return true;
+	}
+
+	/**
+	 * Checks if the operation against the cluster is allowed.
+	 * 
+	 * @return true if allowed, false if denied or if the cluster is unknown to this matrix
+	 */
+	public boolean allowCluster(final int iClusterId, final int iOperation) {
+		if (iClusterId < 0 || iClusterId >= clusters.length)
+			return false;
+		return isAllowed(clusters[iClusterId], iOperation);
+	}
+
+	private int getMask(final String iResourceGeneric, final String iResourceSpecific) {
+		final Map<String, Integer> specifics = generics.get(iResourceGeneric);
+		if (specifics != null) {
+			final Integer mask = specifics.get(iResourceSpecific);
+			if (mask != null)
+				return mask.intValue();
+		}
+		return defaultMask;
+	}
+
+	private void compile(final OUser iUser, final String iResource) {
+		int mask = 0;
+		for (ORole r : iUser.getRoles()) {
+			final Byte access = r.getRules().get(iResource);
+			if (access != null) {
+				mask |= RULE_DEFINED;
+				final int bits = access.byteValue() & 0xFF;
+				for (int op = 0; op < 16; ++op)
+					if ((bits & op) == op)
+						mask |= 1 << op;
+			} else if (r.getMode() == ORole.ALLOW_MODES.ALLOW_ALL_BUT)
+				mask |= ALL_ALLOWED;
+		}
+
+		final Integer value = Integer.valueOf(mask);
+		resources.put(iResource, value);
+
+		// INDEX THE RESOURCE UNDER EVERY GENERIC/SPECIFIC SPLIT TO MATCH THE KEY <GENERIC>.<SPECIFIC> WITHOUT CONCATENATING IT
+		for (int pos = iResource.indexOf('.'); pos > -1; pos = iResource.indexOf('.', pos + 1)) {
+			final String generic = iResource.substring(0, pos);
+			Map<String, Integer> specifics = generics.get(generic);
+			if (specifics == null) {
+				specifics = new HashMap<String, Integer>();
+				generics.put(generic, specifics);
+			}
+			specifics.put(iResource.substring(pos + 1), value);
+		}
+	}
+
+	private static boolean isAllowed(final int iMask, final int iOperation) {
+		if (iOperation < 0 || iOperation > 15)
+			return false;
+		return (iMask & (1 << iOperation)) > 0;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder buffer = new StringBuilder();
+		for (Entry<String, Integer> entry : resources.entrySet()) {
+			if (buffer.length() > 0)
+				buffer.append(", ");
+			buffer.append(entry.getKey());
+			buffer.append('=');
+			buffer.append(Integer.toHexString(entry.getValue().intValue()));
+		}
+		return buffer.toString();
+	}
+}
@@ -21,7 +21,7 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.security.OSecurityManager;
 
 /**
- * Encrypt the password using the SHA-256 algorithm.
+ * Encrypt the password using the SHA-256 algorithm and invalidates the compiled permissions when users or roles change.
  * 
  * @author Luca Garulli
  */
@@ -37,6 +37,27 @@ public class OUserTrigger extends ODocumentHookAbstract {
 		return encodePassword(iDocument);
 	}
 
+	@Override
+	public boolean onRecordAfterCreate(final ODocument iDocument) {
+		return invalidatePermissions(iDocument);
+	}
+
+	@Override
+	public boolean onRecordAfterUpdate(final ODocument iDocument) {
+		return invalidatePermissions(iDocument);
+	}
+
+	@Override
+	public boolean onRecordAfterDelete(final ODocument iDocument) {
+		return invalidatePermissions(iDocument);
+	}
+
+	private boolean invalidatePermissions(final ODocument iDocument) {
+		if ("OUser".equals(iDocument.getClassName()) || "ORole".equals(iDocument.getClassName()))
+			OUserPermissions.invalidateAll();
+		return false;
+	}
+
 	private boolean encodePassword(final ODocument iDocument) {
 		if ("OUser".equals(iDocument.getClassName())) {
 			if (iDocument.field("name") == null)
@@ -28,6 +28,7 @@ import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
 import com.orientechnologies.orient.core.serialization.serializer.record.OSerializationThreadLocal;
 
 @SuppressWarnings({ "unchecked", "serial" })
@@ -156,10 +157,17 @@ public abstract class ORecordSchemaAwareAbstract<T> extends ORecordAbstract<T> i
 			return;
 
 		_status = ORecordElement.STATUS.UNMARSHALLING;
-		_recordFormat.fromStream(_database, _source, this);
+		getSourceFormat().fromStream(_database, _source, this);
 		_status = ORecordElement.STATUS.LOADED;
 	}
 
+	/**
+	 * Returns the serializer to use to unmarshall the current content. By default is the record format.
+	 */
+	protected ORecordSerializer getSourceFormat() {
+		return _recordFormat;
+	}
+
 	protected void setClass(final OClass iClass) {
 		_clazz = iClass;
 	}
@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.ORecordElement;
 import com.orientechnologies.orient.core.db.record.ORecordLazyMultiValue;
@@ -45,7 +46,10 @@ import com.orientechnologies.orient.core.record.ORecordAbstract;
 import com.orientechnologies.orient.core.record.ORecordSchemaAwareAbstract;
 import com.orientechnologies.orient.core.serialization.OBase64Utils;
 import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerPartial;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerDocument2Binary;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
 
 /**
@@ -62,11 +66,15 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 	protected boolean															_trackingChanges	= true;
 	protected boolean															_ordered					= true;
 	protected boolean															_lazyLoad					= true;
+	protected int																	_partialReads			= 0;
 
 	protected List<WeakReference<ORecordElement>>	_owners						= null;
 
 	private static final String[]									EMPTY_STRINGS			= new String[] {};
 
+	// AFTER THIS NUMBER OF FIELDS READ FROM THE SOURCE THE ENTIRE RECORD IS UNMARSHALLED
+	private static final int											PARTIAL_READS_MAX	= 3;
+
 	/**
 	 * Internal constructor used on unmarshalling.
 	 */
@@ -421,6 +429,11 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 			return null;
 
 		checkForLoading();
+
+		final Object partialValue = partialField(iFieldName);
+		if (partialValue != ORecordSerializerPartial.NOT_PARTIAL)
+			return (RET) partialValue;
+
 		checkForFields();
 
 		if (_fieldValues.size() == 0)
@@ -450,7 +463,9 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 		if (_lazyLoad && value instanceof ORID && t != OType.LINK && _database != null) {
 			// CREATE THE DOCUMENT OBJECT IN LAZY WAY
 			value = (RET) _database.load((ORID) value);
-			_fieldValues.put(iFieldName, value);
+			if (_fieldValues != null)
+				// CACHE IT ONLY IF UNMARSHALLED: A PARTIAL READ DOESN'T LOAD THE FIELDS
+				_fieldValues.put(iFieldName, value);
 		}
 
 		// CHECK FOR CONVERSION
@@ -464,7 +479,8 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 
 			if (newValue != null) {
 				// VALUE CHANGED: SET THE NEW ONE
-				_fieldValues.put(iFieldName, newValue);
+				if (_fieldValues != null)
+					_fieldValues.put(iFieldName, newValue);
 				value = (RET) newValue;
 			}
 		}
@@ -872,6 +888,7 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 		_fieldValues = null;
 		_fieldTypes = null;
 		_fieldOriginalValues = null;
+		_partialReads = 0;
 		return (ODocument) super.fromStream(iRecordBuffer);
 	}
 
@@ -914,9 +931,11 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 	 */
 	@Override
 	public ODocument reset() {
-		super.reset();
+		// DISCARD THE CONTENT FIRST, OTHERWISE SETTING THE RECORD AS DIRTY WOULD UNMARSHALL IT
+		_source = null;
 		if (_fieldValues != null)
 			_fieldValues.clear();
+		super.reset();
 		return this;
 	}
 
@@ -996,7 +1015,57 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 	@Override
 	protected void setup() {
 		super.setup();
-		_recordFormat = ORecordSerializerFactory.instance().getFormat(ORecordSerializerSchemaAware2CSV.NAME);
+		_recordFormat = ORecordSerializerFactory.instance().getFormat(
+				"ORecordDocument2" + OGlobalConfiguration.DB_DOCUMENT_FORMAT.getValueAsString());
+		if (_recordFormat == null)
+			_recordFormat = ORecordSerializerFactory.instance().getFormat(ORecordSerializerSchemaAware2CSV.NAME);
+	}
+
+	/**
+	 * Documents are always read in the format they have been written, regardless of the current setting.
+	 */
+	@Override
+	protected ORecordSerializer getSourceFormat() {
+		if (ORecordSerializerDocument2Binary.isBinary(_source))
+			return ORecordSerializerDocument2Binary.INSTANCE;
+		else if (_recordFormat instanceof ORecordSerializerDocument2Binary)
+			return ORecordSerializerFactory.instance().getFormat(ORecordSerializerSchemaAware2CSV.NAME);
+		return _recordFormat;
+	}
+
+	/**
+	 * Reads a single field directly from the source if the record hasn't been unmarshalled yet and the format supports it.
+	 * 
+	 * @return The field value or {@link ORecordSerializerPartial#NOT_PARTIAL} if the entire record must be unmarshalled
+	 */
+	protected Object partialField(final String iFieldName) {
+		if (_status == ORecordElement.STATUS.LOADED && _source != null && _partialReads < PARTIAL_READS_MAX
+				&& (_fieldValues == null || _fieldValues.size() == 0) && iFieldName.charAt(0) != '@' && iFieldName.indexOf('.') == -1
+				&& iFieldName.indexOf('[') == -1) {
+			final ORecordSerializer format = getSourceFormat();
+			if (format instanceof ORecordSerializerPartial) {
+				_partialReads++;
+				return ((ORecordSerializerPartial) format).fieldFromStream(this, _source, iFieldName);
+			}
+		}
+		return ORecordSerializerPartial.NOT_PARTIAL;
+	}
+
+	/**
+	 * Returns the schema class. If the format supports it the class is read from the source without unmarshalling the fields.
+	 */
+	@Override
+	public OClass getSchemaClass() {
+		if (_clazz == null && _status == ORecordElement.STATUS.LOADED && _source != null
+				&& (_fieldValues == null || _fieldValues.size() == 0)) {
+			final ORecordSerializer format = getSourceFormat();
+			if (format instanceof ORecordSerializerPartial) {
+				setClassNameIfExists(((ORecordSerializerPartial) format).classNameFromStream(_source));
+				if (_clazz != null)
+					return _clazz;
+			}
+		}
+		return super.getSchemaClass();
 	}
 
 	/**
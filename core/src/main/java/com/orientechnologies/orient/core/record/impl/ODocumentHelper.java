@@ -51,6 +51,7 @@ import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerPartial;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerStringAbstract;
 
 /**
@@ -375,10 +376,18 @@ public class ODocumentHelper {
 				return ((ODocument) iCurrent.getRecord()).fieldNames();
 
 			throw new IllegalArgumentException("Document attribute '" + iFieldName + "' not supported");
-		} else
+		} else {
 			// RETURN A FIELD
-			((ODocument) iCurrent.getRecord()).checkForFields();
-		return ((ODocument) iCurrent.getRecord())._fieldValues.get(iFieldName);
+			final ODocument doc = (ODocument) iCurrent.getRecord();
+
+			// TRY TO READ THE FIELD WITHOUT UNMARSHALLING THE ENTIRE RECORD
+			final Object value = doc.partialField(iFieldName);
+			if (value != ORecordSerializerPartial.NOT_PARTIAL)
+				return value;
+
+			doc.checkForFields();
+			return doc._fieldValues.get(iFieldName);
+		}
 	}
 
 	@SuppressWarnings("unchecked")
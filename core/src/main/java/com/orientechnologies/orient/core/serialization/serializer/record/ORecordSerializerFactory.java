@@ -19,6 +19,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerDocument2Binary;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerJSON;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
 
@@ -32,6 +33,7 @@ public class ORecordSerializerFactory {
 		defaultRecordFormat = new ORecordSerializerRaw();
 
 		implementations.put(ORecordSerializerSchemaAware2CSV.NAME, new ORecordSerializerSchemaAware2CSV());
+		implementations.put(ORecordSerializerDocument2Binary.NAME, ORecordSerializerDocument2Binary.INSTANCE);
 		implementations.put(ORecordSerializerJSON.NAME, new ORecordSerializerJSON());
 		implementations.put(ORecordSerializerRaw.NAME, defaultRecordFormat);
 	}
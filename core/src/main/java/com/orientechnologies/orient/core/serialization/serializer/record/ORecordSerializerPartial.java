@@ -0,0 +1,55 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record;
+
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Record serializer able to read single fields and the class name directly from the serialized content, without unmarshalling the
+ * entire record.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public interface ORecordSerializerPartial extends ORecordSerializer {
+	/**
+	 * Returned by {@link #fieldFromStream(ODocument, byte[], String)} when the field can't be read without unmarshalling the entire
+	 * record.
+	 */
+	public static final Object	NOT_PARTIAL	= new Object();
+
+	/**
+	 * Reads a single field from the serialized content. Only simple types are read: for the others {@link #NOT_PARTIAL} is returned
+	 * and the entire record must be unmarshalled.
+	 * 
+	 * @param iRecord
+	 *          Document owner of the content
+	 * @param iSource
+	 *          Serialized content of the record
+	 * @param iFieldName
+	 *          Name of the field to read
+	 * @return The field value, null if not found, or {@link #NOT_PARTIAL} if the field must be read by unmarshalling the entire
+	 *         record
+	 */
+	public Object fieldFromStream(ODocument iRecord, byte[] iSource, String iFieldName);
+
+	/**
+	 * Reads only the class name from the serialized content.
+	 * 
+	 * @return The class name if any, otherwise null
+	 */
+	public String classNameFromStream(byte[] iSource);
+}
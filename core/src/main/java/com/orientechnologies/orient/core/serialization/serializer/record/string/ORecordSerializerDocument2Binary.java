@@ -15,253 +15,548 @@
  */
 package com.orientechnologies.orient.core.serialization.serializer.record.string;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 
-import com.orientechnologies.common.log.OLogManager;
-import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
-import com.orientechnologies.orient.core.exception.ODatabaseException;
+import com.orientechnologies.orient.core.exception.OSerializationException;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
-import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.ORecordInternal;
-import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.record.impl.ODocument;
-import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+import com.orientechnologies.orient.core.serialization.OMemoryOutputStream;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerPartial;
+import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 
-public class ORecordSerializerDocument2Binary implements ORecordSerializer {
-	public static final String	NAME	= "ORecordDocument2binary";
+/**
+ * Compact binary format for documents. The record starts with a header containing, for each field, the property id (or the name
+ * if the field has no property in the schema), the encoding of the value and its offset in the data area. This allows to read a
+ * single field without unmarshalling the entire record (see {@link #fieldFromStream(ODocument, byte[], String)}).<br/>
+ * <br/>
+ * Format:<br/>
+ * <code>
+ * 0x00 (magic byte, never the first byte of a CSV record) | version<br/>
+ * class-name-length (varint, 0 = no class) | class-name<br/>
+ * fields (varint) | header-size (varint)<br/>
+ * for each field: key (varint, (property-id &lt;&lt; 1) | 1 or (name-length &lt;&lt; 1) followed by the name) | encoding (byte) | offset (varint)<br/>
+ * data
+ * </code><br/>
+ * <br/>
+ * Simple types are encoded natively: integers and datetimes as zig-zag varints, strings as UTF-8. Dates and complex types such as
+ * collections, maps and embedded documents are encoded in CSV format. Property ids are written only against embedded storages,
+ * where the schema is saved, while remote clients write the names.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public class ORecordSerializerDocument2Binary implements ORecordSerializerPartial {
+	public static final String														NAME					= "ORecordDocument2binary";
+	public static final ORecordSerializerDocument2Binary	INSTANCE			= new ORecordSerializerDocument2Binary();
+
+	public static final byte															MAGIC					= 0;
+	public static final byte															VERSION				= 1;
+
+	private static final int															ENCODING_NULL	= 0;
+	private static final int															ENCODING_CSV	= 0x40;
+
+	private static final class OCursor {
+		private final byte[]	buffer;
+		private int						position;
 
-	protected ORecordSchemaAware<?> newObject(ODatabaseRecord iDatabase, String iClassName) throws InstantiationException,
-			IllegalAccessException {
-		return new ODocument(iDatabase);
+		private OCursor(final byte[] iBuffer, final int iPosition) {
+			buffer = iBuffer;
+			position = iPosition;
+		}
 	}
 
-	public ORecordInternal<?> fromStream(ODatabaseRecord iDatabase, byte[] iSource) {
-		// TODO: HANDLE FACTORIES
-		return fromStream(iDatabase, iSource, null);
+	/**
+	 * Tells if the record content has been written with this format.
+	 */
+	public static boolean isBinary(final byte[] iSource) {
+		return iSource != null && iSource.length > 1 && iSource[0] == MAGIC;
 	}
 
-	public ORecordInternal<?> fromStream(ODatabaseRecord iDatabase, byte[] iSource, ORecordInternal<?> iRecord) {
-		ODocument record = (ODocument) iRecord;
-		ODatabaseDocument database = (ODatabaseDocument) iDatabase;
+	public ORecordInternal<?> fromStream(final ODatabaseRecord iDatabase, final byte[] iSource, final ORecordInternal<?> iRecord) {
+		final long timer = OProfiler.getInstance().startChrono();
+
+		final ODocument record = iRecord != null ? (ODocument) iRecord : new ODocument(iDatabase);
+
+		try {
+			final OCursor cursor = readVersion(iSource);
+
+			record.setClassNameIfExists(readClassName(cursor));
+
+			final int fields = readVarInt(cursor);
+			final int headerSize = readVarInt(cursor);
+			final int dataBegin = cursor.position + headerSize;
+
+			String fieldName;
+			int encoding;
+			OCursor value;
+			for (int i = 0; i < fields; ++i) {
+				fieldName = readFieldName(iDatabase, cursor);
+				encoding = cursor.buffer[cursor.position++];
+				value = new OCursor(iSource, dataBegin + readVarInt(cursor));
+
+				if (encoding == ENCODING_CSV) {
+					final int length = readVarInt(value);
+					ORecordSerializerSchemaAware2CSV.INSTANCE.fieldsFromString(iDatabase, record, Collections.singletonList(fieldName
+							+ ORecordSerializerSchemaAware2CSV.FIELD_VALUE_SEPARATOR
+							+ (length > 0 ? OBinaryProtocol.bytes2string(iSource, value.position, length) : "")));
+				} else
+					record.field(fieldName, readValue(encoding, value));
+			}
+		} finally {
+			OProfiler.getInstance().stopChrono("ORecordSerializerDocument2Binary.fromStream", timer);
+		}
 
-		if (iRecord == null)
-			record = new ODocument(database);
+		return record;
+	}
 
-		ByteArrayInputStream stream = null;
-		DataInputStream in = null;
+	/**
+	 * Reads a single field browsing only the header of the record. Fields encoded in CSV format are not read: in this case
+	 * {@link #NOT_PARTIAL} is returned and the entire record must be unmarshalled.
+	 */
+	public Object fieldFromStream(final ODocument iRecord, final byte[] iSource, final String iFieldName) {
+		final long timer = OProfiler.getInstance().startChrono();
 
 		try {
-			stream = new ByteArrayInputStream(iSource);
-			in = new DataInputStream(stream);
+			final OCursor cursor = readVersion(iSource);
 
-			// UNMARSHALL ALL THE PROPERTIES
-			Object value;
-			int length;
-			byte[] buffer;
-			for (OProperty p : record.getSchemaClass().properties()) {
-				value = null;
-
-				switch (p.getType()) {
-				case BINARY:
-					length = in.readInt();
-					if (length >= 0) {
-						// != NULL
-						buffer = new byte[length];
-						in.readFully(buffer);
-						value = buffer;
-					}
-					break;
-				case BOOLEAN:
-					value = in.readBoolean();
-					break;
-				case DATE:
-				case DATETIME:
-					long date = in.readLong();
-					if (date > -1)
-						value = new Date(date);
-					break;
-				case DOUBLE:
-					value = in.readDouble();
-					break;
-				case EMBEDDED:
-					length = in.readInt();
-					if (length >= 0) {
-						// != NULL
-						buffer = new byte[length];
-						in.readFully(buffer);
-						value = new ODocument(database, p.getLinkedClass().getName()).fromStream(buffer);
-					}
-					break;
-				case EMBEDDEDLIST:
-					break;
-				case EMBEDDEDSET:
-					break;
-				case FLOAT:
-					value = in.readFloat();
-					break;
-				case INTEGER:
-					value = in.readInt();
-					break;
-				case LINK:
-					value = new ORecordId(in.readInt(), in.readInt());
-					break;
-				case LINKLIST:
-					break;
-				case LINKSET:
-					break;
-				case LONG:
-					value = in.readLong();
-					break;
-				case SHORT:
-					value = in.readShort();
-					break;
-				case STRING:
-					value = in.readUTF();
-					break;
-				}
-				record.field(p.getName(), value);
+			final String className = readClassName(cursor);
+
+			// SEARCH THE PROPERTY ID, IF ANY
+			int propertyId = -1;
+			final OSchema schema = iRecord.getDatabase() != null ? iRecord.getDatabase().getMetadata().getSchema() : null;
+			if (className != null && schema != null) {
+				final OClass cls = schema.getClass(className);
+				final OProperty prop = cls != null ? cls.getProperty(iFieldName) : null;
+				if (prop != null && prop.getName().equals(iFieldName))
+					propertyId = prop.getId();
 			}
-		} catch (Exception e) {
-			OLogManager.instance().error(this, "Error on unmarshalling object in binary format: " + record.getIdentity(), e);
 
-		} finally {
-			try {
-				if (stream != null)
-					stream.close();
+			final byte[] name = OBinaryProtocol.string2bytes(iFieldName);
+
+			final int fields = readVarInt(cursor);
+			final int headerSize = readVarInt(cursor);
+			final int dataBegin = cursor.position + headerSize;
+
+			int key;
+			boolean found;
+			for (int i = 0; i < fields; ++i) {
+				key = readVarInt(cursor);
 
-				if (in != null)
-					in.close();
-			} catch (IOException e) {
+				if ((key & 1) == 1)
+					// THE ID CAN BELONG TO A DROPPED PROPERTY WITH THE SAME NAME
+					found = (key >>> 1) == propertyId || schema != null && iFieldName.equals(schema.getPropertyNameById(key >>> 1));
+				else {
+					found = (key >>> 1) == name.length && equals(iSource, cursor.position, name);
+					cursor.position += key >>> 1;
+				}
+
+				if (found) {
+					final int encoding = cursor.buffer[cursor.position++];
+					if (encoding == ENCODING_CSV)
+						return NOT_PARTIAL;
+
+					return readValue(encoding, new OCursor(iSource, dataBegin + readVarInt(cursor)));
+				}
+
+				// JUMP THE ENCODING AND THE OFFSET
+				cursor.position++;
+				readVarInt(cursor);
 			}
+
+			// NOT FOUND
+			return null;
+
+		} finally {
+			OProfiler.getInstance().stopChrono("ORecordSerializerDocument2Binary.fieldFromStream", timer);
 		}
+	}
 
-		return iRecord;
+	public String classNameFromStream(final byte[] iSource) {
+		return readClassName(readVersion(iSource));
 	}
 
-	public byte[] toStream(final ODatabaseRecord iDatabase, final ORecordInternal<?> iRecord, boolean iOnlyDelta) {
-		ODocument record = (ODocument) iRecord;
+	public byte[] toStream(final ODatabaseRecord iDatabase, final ORecordInternal<?> iRecord, final boolean iOnlyDelta) {
+		if (iOnlyDelta || ((ODocument) iRecord).hasOwners())
+			// THE DELTA AND THE EMBEDDED DOCUMENTS ARE SUPPORTED ONLY BY THE CSV FORMAT
+			return ORecordSerializerSchemaAware2CSV.INSTANCE.toStream(iDatabase, iRecord, iOnlyDelta);
 
-		ByteArrayOutputStream stream = null;
-		DataOutputStream out = null;
+		final long timer = OProfiler.getInstance().startChrono();
 
 		try {
-			stream = new ByteArrayOutputStream();
-			out = new DataOutputStream(stream);
+			final ODocument record = (ODocument) iRecord;
+			final OClass cls = record.getSchemaClass();
+			final boolean useIds = cls != null && iDatabase != null && iDatabase.getStorage() instanceof OStorageEmbedded;
+
+			final String[] fieldNames = record.fieldNames();
+
+			final OMemoryOutputStream header = new OMemoryOutputStream(fieldNames.length * 4);
+			final OMemoryOutputStream data = new OMemoryOutputStream();
 
-			// MARSHALL ALL THE PROPERTIES
+			int fields = 0;
+			OProperty prop;
+			OType type;
 			Object value;
-			byte[] buffer;
-			for (OProperty p : record.getSchemaClass().properties()) {
-				value = record.field(p.getName());
-
-				switch (p.getType()) {
-				case BINARY:
-					if (value == null)
-						// NULL: WRITE -1 AS LENGTH
-						out.writeInt(-1);
-					else {
-						buffer = (byte[]) value;
-						out.writeInt(buffer.length);
-						out.write(buffer);
-					}
-					break;
-				case BOOLEAN:
-					out.writeBoolean(value != null);
-					if (value != null)
-						out.writeBoolean((Boolean) value);
-					break;
-				case DATE:
-				case DATETIME:
-					out.writeLong(value != null ? ((Date) value).getTime() : -1);
-					break;
-				case DOUBLE:
-					out.writeBoolean(value != null);
-					if (value != null)
-						out.writeDouble((Double) value);
-					break;
-				case EMBEDDED:
-					if (value == null)
-						// NULL: WRITE -1 AS LENGTH
-						out.writeInt(-1);
+			int encoding;
+			for (String fieldName : fieldNames) {
+				value = record.rawField(fieldName);
+				prop = cls != null ? cls.getProperty(fieldName) : null;
+				type = prop != null ? prop.getType() : record.fieldType(fieldName);
+
+				if (type == OType.TRANSIENT)
+					// TRANSIENT FIELD
+					continue;
+
+				final int offset = data.size();
+
+				if (value == null)
+					encoding = ENCODING_NULL;
+				else {
+					if (type == null)
+						type = getNativeType(value);
+
+					if (type != null && writeValue(data, type, value))
+						encoding = type.getId() + 1;
 					else {
-						buffer = ((ORecordInternal<?>) value).toStream();
-						out.writeInt(buffer.length);
-						out.write(buffer);
-					}
-					break;
-				case EMBEDDEDLIST:
-					break;
-				case EMBEDDEDSET:
-					break;
-				case FLOAT:
-					out.writeBoolean(value != null);
-					if (value != null)
-						out.writeFloat((Float) value);
-					break;
-				case INTEGER:
-					out.writeBoolean(value != null);
-					if (value != null)
-						out.writeInt((Integer) value);
-					break;
-				case LINK:
-					out.writeBoolean(value != null);
-					if (value != null) {
-						if (!(value instanceof ORecord<?>))
-							throw new ODatabaseException("Invalid property value in '" + p.getName() + "': found " + value.getClass()
-									+ " while it was expected a ORecord");
-
-						ORID rid = ((ORecord<?>) value).getIdentity();
-						out.writeInt(rid.getClusterId());
-						out.writeLong(rid.getClusterPosition());
+						// COMPLEX TYPE: WRITE IT IN CSV FORMAT
+						final StringBuilder buffer = new StringBuilder();
+						if (ORecordSerializerSchemaAware2CSV.INSTANCE.fieldsToString(record, new String[] { fieldName }, buffer, iDatabase,
+								new HashSet<Integer>()) == 0)
+							// TRANSIENT FIELD
+							continue;
+
+						// REMOVE THE FIELD NAME: IT'S ALREADY IN THE HEADER
+						buffer.delete(0, fieldName.length() + 1);
+
+						final byte[] content = OBinaryProtocol.string2bytes(buffer.toString());
+						writeVarInt(data, content.length);
+						data.write(content, 0, content.length);
+						encoding = ENCODING_CSV;
 					}
-					break;
-				case LINKLIST:
-					break;
-				case LINKSET:
-					break;
-				case LONG:
-					out.writeBoolean(value != null);
-					if (value != null)
-						out.writeLong((Long) value);
-					break;
-				case SHORT:
-					out.writeBoolean(value != null);
-					if (value != null)
-						out.writeShort((Short) value);
-					break;
-				case STRING:
-					out.writeBoolean(value != null);
-					if (value != null)
-						out.writeUTF((String) value);
-					break;
 				}
-			}
-			return stream.toByteArray();
-		} catch (Exception e) {
-			OLogManager.instance().error(this, "Error on marshalling object in binary format: " + iRecord.getIdentity(), e);
-		} finally {
-			try {
-				if (stream != null)
-					stream.close();
 
-				if (out != null)
-					out.close();
-			} catch (IOException e) {
+				if (useIds && prop != null && prop.getId() > -1 && prop.getName().equals(fieldName))
+					writeVarInt(header, (prop.getId() << 1) | 1);
+				else {
+					final byte[] name = OBinaryProtocol.string2bytes(fieldName);
+					writeVarInt(header, name.length << 1);
+					header.write(name, 0, name.length);
+				}
+				header.write(encoding);
+				writeVarInt(header, offset);
+				fields++;
 			}
+
+			final int headerSize = header.size();
+			final int dataSize = data.size();
+
+			final OMemoryOutputStream output = new OMemoryOutputStream(headerSize + dataSize + 16);
+			output.write(MAGIC);
+			output.write(VERSION);
+
+			if (cls != null) {
+				final byte[] className = OBinaryProtocol.string2bytes(cls.getStreamableName());
+				writeVarInt(output, className.length);
+				output.write(className, 0, className.length);
+			} else
+				writeVarInt(output, 0);
+
+			writeVarInt(output, fields);
+			writeVarInt(output, headerSize);
+			output.write(header.getByteArray(), 0, headerSize);
+			output.write(data.getByteArray(), 0, dataSize);
+
+			// APPEND ZEROES IF NEEDED TO AVOID FRAGMENTATION, LIKE THE CSV FORMAT
+			final int newSize;
+			if (record.getSize() > output.size())
+				newSize = record.getSize();
+			else if (cls != null && cls.getOverSize() > 0)
+				newSize = (int) (output.size() * cls.getOverSize());
+			else
+				newSize = output.size();
+
+			for (int b = output.size(); b < newSize; ++b)
+				output.write(0);
+
+			return output.toByteArray();
+
+		} finally {
+			OProfiler.getInstance().stopChrono("ORecordSerializerDocument2Binary.toStream", timer);
 		}
-		return null;
 	}
 
 	@Override
 	public String toString() {
 		return NAME;
 	}
+
+	/**
+	 * Returns the type of the values encoded natively, otherwise null.
+	 */
+	protected OType getNativeType(final Object iValue) {
+		if (iValue instanceof String)
+			return OType.STRING;
+		else if (iValue instanceof Integer)
+			return OType.INTEGER;
+		else if (iValue instanceof Long)
+			return OType.LONG;
+		else if (iValue instanceof Boolean)
+			return OType.BOOLEAN;
+		else if (iValue instanceof Date)
+			return OType.DATETIME;
+		else if (iValue instanceof Float)
+			return OType.FLOAT;
+		else if (iValue instanceof Double)
+			return OType.DOUBLE;
+		else if (iValue instanceof Short)
+			return OType.SHORT;
+		else if (iValue instanceof Byte)
+			return OType.BYTE;
+		else if (iValue instanceof byte[])
+			return OType.BINARY;
+		else if (iValue instanceof ORID)
+			return OType.LINK;
+		return null;
+	}
+
+	/**
+	 * Writes the value natively if the type is simple and the value is of the expected class.
+	 * 
+	 * @return true if written, false if the value must be written in CSV format
+	 */
+	protected boolean writeValue(final OMemoryOutputStream iOutput, final OType iType, final Object iValue) {
+		switch (iType) {
+		case BOOLEAN:
+			if (!(iValue instanceof Boolean))
+				return false;
+			iOutput.write(((Boolean) iValue).booleanValue() ? 1 : 0);
+			return true;
+
+		case BYTE:
+			if (!(iValue instanceof Byte))
+				return false;
+			iOutput.write(((Byte) iValue).byteValue());
+			return true;
+
+		case SHORT:
+			if (!(iValue instanceof Short))
+				return false;
+			writeVarLong(iOutput, zigZag(((Short) iValue).longValue()));
+			return true;
+
+		case INTEGER:
+			if (!(iValue instanceof Integer))
+				return false;
+			writeVarLong(iOutput, zigZag(((Integer) iValue).longValue()));
+			return true;
+
+		case LONG:
+			if (!(iValue instanceof Long))
+				return false;
+			writeVarLong(iOutput, zigZag(((Long) iValue).longValue()));
+			return true;
+
+		case FLOAT:
+			if (!(iValue instanceof Float))
+				return false;
+			iOutput.write(OBinaryProtocol.int2bytes(Float.floatToIntBits(((Float) iValue).floatValue())), 0, 4);
+			return true;
+
+		case DOUBLE:
+			if (!(iValue instanceof Double))
+				return false;
+			iOutput.write(OBinaryProtocol.long2bytes(Double.doubleToLongBits(((Double) iValue).doubleValue())), 0, 8);
+			return true;
+
+		case DATETIME:
+			if (!(iValue instanceof Date))
+				return false;
+			writeVarLong(iOutput, zigZag(((Date) iValue).getTime()));
+			return true;
+
+		case STRING: {
+			if (!(iValue instanceof String))
+				return false;
+			final byte[] content = OBinaryProtocol.string2bytes((String) iValue);
+			writeVarInt(iOutput, content.length);
+			iOutput.write(content, 0, content.length);
+			return true;
+		}
+
+		case BINARY: {
+			if (!(iValue instanceof byte[]))
+				return false;
+			final byte[] content = (byte[]) iValue;
+			writeVarInt(iOutput, content.length);
+			iOutput.write(content, 0, content.length);
+			return true;
+		}
+
+		case LINK: {
+			if (!(iValue instanceof ORID) || !((ORID) iValue).isPersistent())
+				// RECORDS AND TEMPORARY LINKS ARE RESOLVED BY THE CSV FORMAT
+				return false;
+			final ORID rid = (ORID) iValue;
+			writeVarInt(iOutput, rid.getClusterId());
+			writeVarLong(iOutput, rid.getClusterPosition());
+			return true;
+		}
+		}
+
+		return false;
+	}
+
+	protected Object readValue(final int iEncoding, final OCursor iCursor) {
+		if (iEncoding == ENCODING_NULL)
+			return null;
+
+		final OType type = OType.getById((byte) (iEncoding - 1));
+		if (type == null)
+			throw new OSerializationException("Invalid encoding " + iEncoding + " found in binary record");
+
+		final byte[] buffer = iCursor.buffer;
+
+		switch (type) {
+		case BOOLEAN:
+			return buffer[iCursor.position] == 1;
+
+		case BYTE:
+			return buffer[iCursor.position];
+
+		case SHORT:
+			return (short) unZigZag(readVarLong(iCursor));
+
+		case INTEGER:
+			return (int) unZigZag(readVarLong(iCursor));
+
+		case LONG:
+			return unZigZag(readVarLong(iCursor));
+
+		case FLOAT:
+			return Float.intBitsToFloat(OBinaryProtocol.bytes2int(buffer, iCursor.position));
+
+		case DOUBLE:
+			return Double.longBitsToDouble(OBinaryProtocol.bytes2long(buffer, iCursor.position));
+
+		case DATETIME:
+			return new Date(unZigZag(readVarLong(iCursor)));
+
+		case STRING: {
+			final int length = readVarInt(iCursor);
+			return OBinaryProtocol.bytes2string(buffer, iCursor.position, length);
+		}
+
+		case BINARY: {
+			final int length = readVarInt(iCursor);
+			final byte[] content = new byte[length];
+			System.arraycopy(buffer, iCursor.position, content, 0, length);
+			return content;
+		}
+
+		case LINK:
+			return new ORecordId(readVarInt(iCursor), readVarLong(iCursor));
+		}
+
+		throw new OSerializationException("Type " + type + " can't be read from binary record");
+	}
+
+	private OCursor readVersion(final byte[] iSource) {
+		if (!isBinary(iSource))
+			throw new OSerializationException("Record content is not in binary format");
+
+		if (iSource[1] != VERSION)
+			throw new OSerializationException("Binary record format version " + iSource[1] + " is not supported. Supported version is "
+					+ VERSION);
+
+		return new OCursor(iSource, 2);
+	}
+
+	private String readClassName(final OCursor iCursor) {
+		final int length = readVarInt(iCursor);
+		if (length == 0)
+			return null;
+
+		final String className = OBinaryProtocol.bytes2string(iCursor.buffer, iCursor.position, length);
+		iCursor.position += length;
+		return className;
+	}
+
+	private String readFieldName(final ODatabaseRecord iDatabase, final OCursor iCursor) {
+		final int key = readVarInt(iCursor);
+
+		if ((key & 1) == 0) {
+			// NAME
+			final int length = key >>> 1;
+			final String name = OBinaryProtocol.bytes2string(iCursor.buffer, iCursor.position, length);
+			iCursor.position += length;
+			return name;
+		}
+
+		// PROPERTY ID
+		final int propertyId = key >>> 1;
+		// DROPPED PROPERTIES ARE RESOLVED TOO: THE RECORD CAN BE OLDER THAN THE DROP
+		String name = iDatabase.getMetadata().getSchema().getPropertyNameById(propertyId);
+		if (name == null) {
+			// THE PROPERTY COULD HAVE BEEN CREATED BY ANOTHER CLIENT: RELOAD THE SCHEMA AND RETRY
+			iDatabase.getMetadata().getSchema().reload();
+			name = iDatabase.getMetadata().getSchema().getPropertyNameById(propertyId);
+			if (name == null)
+				throw new OSerializationException("Property with id " + propertyId + " was not found in schema");
+		}
+		return name;
+	}
+
+	private static boolean equals(final byte[] iBuffer, final int iOffset, final byte[] iValue) {
+		for (int i = 0; i < iValue.length; ++i)
+			if (iBuffer[iOffset + i] != iValue[i])
+				return false;
+		return true;
+	}
+
+	private static long zigZag(final long iValue) {
+		return (iValue << 1) ^ (iValue >> 63);
+	}
+
+	private static long unZigZag(final long iValue) {
+		return (iValue >>> 1) ^ -(iValue & 1);
+	}
+
+	private static void writeVarInt(final OMemoryOutputStream iOutput, final int iValue) {
+		writeVarLong(iOutput, iValue & 0xFFFFFFFFL);
+	}
+
+	private static void writeVarLong(final OMemoryOutputStream iOutput, long iValue) {
+		while ((iValue & ~0x7FL) != 0) {
+			iOutput.write((int) ((iValue & 0x7F) | 0x80));
+			iValue >>>= 7;
+		}
+		iOutput.write((int) iValue);
+	}
+
+	private static int readVarInt(final OCursor iCursor) {
+		return (int) readVarLong(iCursor);
+	}
+
+	private static long readVarLong(final OCursor iCursor) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = iCursor.buffer[iCursor.position++];
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
 }
@@ -37,9 +37,11 @@ import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerPartial;
 
-public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstract {
+public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstract implements ORecordSerializerPartial {
 	public static final String														NAME			= "ORecordDocument2csv";
 	public static final ORecordSerializerSchemaAware2CSV	INSTANCE	= new ORecordSerializerSchemaAware2CSV();
 
@@ -69,14 +71,63 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
 			} else
 				iMarshalledRecords.add(identityRecord);
 
-		final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.get();
-
 		if (!iOnlyDelta && record.getSchemaClass() != null) {
 			// MARSHALL THE CLASSNAME
 			iOutput.append(record.getSchemaClass().getStreamableName());
 			iOutput.append(OStringSerializerHelper.CLASS_SEPARATOR);
 		}
 
+		final String[] fieldNames = iOnlyDelta && record.isTrackingChanges() ? record.getDirtyFields() : record.fieldNames();
+
+		// MARSHALL ALL THE FIELDS OR DELTA IF TRACKING IS ENABLED
+		fieldsToString(record, fieldNames, iOutput, iObjHandler, iMarshalledRecords);
+
+		if (iMarshalledRecords != null)
+			iMarshalledRecords.remove(identityRecord);
+
+		// GET THE OVERSIZE IF ANY
+		final float overSize;
+		if (record.getSchemaClass() != null)
+			// GET THE CONFIGURED OVERSIZE SETTED PER CLASS
+			overSize = record.getSchemaClass().getOverSize();
+		else
+			overSize = 0;
+
+		// APPEND BLANKS IF NEEDED
+		final int newSize;
+		if (record.hasOwners())
+			// EMBEDDED: GET REAL SIZE
+			newSize = iOutput.length();
+		else if (record.getSize() == iOutput.length())
+			// IDENTICAL! DO NOTHING
+			newSize = record.getSize();
+		else if (record.getSize() > iOutput.length()) {
+			// APPEND EXTRA SPACES TO FILL ALL THE AVAILABLE SPACE AND AVOID FRAGMENTATION
+			newSize = record.getSize();
+		} else if (overSize > 0) {
+			// APPEND EXTRA SPACES TO GET A LARGER iOutput
+			newSize = (int) (iOutput.length() * overSize);
+		} else
+			// NO OVERSIZE
+			newSize = iOutput.length();
+
+		if (newSize > iOutput.length())
+			for (int b = iOutput.length(); b < newSize; ++b)
+				iOutput.append(' ');
+
+		return iOutput;
+	}
+
+	/**
+	 * Marshalls the fields passed as parameter as &lt;name&gt;:&lt;value&gt; pairs separated by commas, determining the type of
+	 * each field by the schema, the forced type or its content. Transient fields are skipped.
+	 * 
+	 * @return The number of fields written
+	 */
+	public int fieldsToString(final ODocument record, final String[] fieldNames, final StringBuilder iOutput,
+			final OUserObject2RecordHandler iObjHandler, final Set<Integer> iMarshalledRecords) {
+		final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.get();
+
 		OProperty prop;
 		OType type;
 		OClass linkedClass;
@@ -84,9 +135,6 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
 		String fieldClassName;
 		int i = 0;
 
-		final String[] fieldNames = iOnlyDelta && record.isTrackingChanges() ? record.getDirtyFields() : record.fieldNames();
-
-		// MARSHALL ALL THE FIELDS OR DELTA IF TRACKING IS ENABLED
 		for (String fieldName : fieldNames) {
 			Object fieldValue = record.rawField(fieldName);
 			if (i > 0)
@@ -239,46 +287,13 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
 
 			iOutput.append(fieldName);
 			iOutput.append(FIELD_VALUE_SEPARATOR);
-			fieldToStream((ODocument) iRecord, iRecord.getDatabase(), iOutput, iObjHandler, type, linkedClass, linkedType, fieldName,
+			fieldToStream(record, record.getDatabase(), iOutput, iObjHandler, type, linkedClass, linkedType, fieldName,
 					fieldValue, iMarshalledRecords, true);
 
 			i++;
 		}
 
-		if (iMarshalledRecords != null)
-			iMarshalledRecords.remove(identityRecord);
-
-		// GET THE OVERSIZE IF ANY
-		final float overSize;
-		if (record.getSchemaClass() != null)
-			// GET THE CONFIGURED OVERSIZE SETTED PER CLASS
-			overSize = record.getSchemaClass().getOverSize();
-		else
-			overSize = 0;
-
-		// APPEND BLANKS IF NEEDED
-		final int newSize;
-		if (record.hasOwners())
-			// EMBEDDED: GET REAL SIZE
-			newSize = iOutput.length();
-		else if (record.getSize() == iOutput.length())
-			// IDENTICAL! DO NOTHING
-			newSize = record.getSize();
-		else if (record.getSize() > iOutput.length()) {
-			// APPEND EXTRA SPACES TO FILL ALL THE AVAILABLE SPACE AND AVOID FRAGMENTATION
-			newSize = record.getSize();
-		} else if (overSize > 0) {
-			// APPEND EXTRA SPACES TO GET A LARGER iOutput
-			newSize = (int) (iOutput.length() * overSize);
-		} else
-			// NO OVERSIZE
-			newSize = iOutput.length();
-
-		if (newSize > iOutput.length())
-			for (int b = iOutput.length(); b < newSize; ++b)
-				iOutput.append(' ');
-
-		return iOutput;
+		return i;
 	}
 
 	private String getClassName(final Object iValue) {
@@ -324,6 +339,17 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
 
 		final List<String> fields = OStringSerializerHelper.smartSplit(iContent, OStringSerializerHelper.RECORD_SEPARATOR);
 
+		fieldsFromString(iDatabase, record, fields);
+
+		return iRecord;
+	}
+
+	/**
+	 * Unmarshalls the fields passed as parameter as &lt;name&gt;:&lt;value&gt; pairs, determining the type of each field by the
+	 * schema, the forced type or its content, and sets them in the document.
+	 */
+	public void fieldsFromString(final ODatabaseRecord iDatabase, final ODocument record, final List<String> fields) {
+		int pos;
 		String field;
 		String fieldName = null;
 		String fieldValue;
@@ -409,9 +435,9 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
 
 					if (type == OType.EMBEDDEDLIST || type == OType.EMBEDDEDSET || type == OType.EMBEDDEDMAP || type == OType.EMBEDDED)
 						// SAVE THE TYPE AS EMBEDDED
-						record.field(fieldName, fieldFromStream(iRecord, type, linkedClass, linkedType, fieldName, fieldValue), type);
+						record.field(fieldName, fieldFromStream(record, type, linkedClass, linkedType, fieldName, fieldValue), type);
 					else
-						record.field(fieldName, fieldFromStream(iRecord, type, linkedClass, linkedType, fieldName, fieldValue));
+						record.field(fieldName, fieldFromStream(record, type, linkedClass, linkedType, fieldName, fieldValue));
 
 					if (uncertainType)
 						record.setFieldType(fieldName, null);
@@ -421,7 +447,160 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
 						fieldName, field);
 			}
 		}
+	}
 
-		return iRecord;
+	/**
+	 * Reads a single field scanning the content up to the field without unmarshalling the others. Only simple types are read:
+	 * links, embedded documents, collections and maps return {@link #NOT_PARTIAL}.
+	 */
+	public Object fieldFromStream(final ODocument iRecord, final byte[] iSource, final String iFieldName) {
+		if (iSource == null)
+			return null;
+
+		final int max = iSource.length;
+		final byte[] name = OBinaryProtocol.string2bytes(iFieldName);
+
+		// JUMP THE CLASS NAME IF ANY
+		final int classSeparator = getClassSeparator(iSource);
+		int i = classSeparator > -1 ? classSeparator + 1 : 0;
+
+		int fieldEnd;
+		while (i < max) {
+			// JUMP THE BLANKS BEFORE THE FIELD NAME
+			while (i < max && (iSource[i] & 0xFF) <= ' ')
+				i++;
+
+			fieldEnd = getFieldEnd(iSource, i, max);
+
+			if (i + name.length < fieldEnd && iSource[i + name.length] == FIELD_VALUE_SEPARATOR && equals(iSource, i, name)) {
+				// FOUND: REMOVE THE TRAILING BLANKS OF THE VALUE
+				final int valueBegin = i + name.length + 1;
+				int valueEnd = fieldEnd;
+				while (valueEnd > valueBegin && (iSource[valueEnd - 1] & 0xFF) <= ' ')
+					valueEnd--;
+
+				if (valueEnd == valueBegin)
+					return null;
+
+				final String className = classSeparator > -1 ? classNameFromStream(iSource) : null;
+				return fieldFromString(iRecord, className, iFieldName,
+						OBinaryProtocol.bytes2string(iSource, valueBegin, valueEnd - valueBegin));
+			}
+
+			i = fieldEnd + 1;
+		}
+
+		// NOT FOUND
+		return null;
+	}
+
+	public String classNameFromStream(final byte[] iSource) {
+		final int classSeparator = getClassSeparator(iSource);
+		if (classSeparator == -1)
+			return null;
+
+		int begin = 0;
+		while (begin < classSeparator && (iSource[begin] & 0xFF) <= ' ')
+			begin++;
+
+		return OBinaryProtocol.bytes2string(iSource, begin, classSeparator - begin);
+	}
+
+	/**
+	 * Unmarshalls a single value of simple type determining its type by the schema or its content.
+	 * 
+	 * @return The value or {@link #NOT_PARTIAL} if the value isn't a simple type
+	 */
+	protected Object fieldFromString(final ODocument iRecord, final String iClassName, final String iFieldName,
+			final String iFieldValue) {
+		OType type = null;
+
+		// SEARCH FOR A CONFIGURED PROPERTY
+		if (iClassName != null && iRecord.getDatabase() != null) {
+			final OClass cls = iRecord.getDatabase().getMetadata().getSchema().getClass(iClassName);
+			final OProperty prop = cls != null ? cls.getProperty(iFieldName) : null;
+			if (prop != null)
+				type = prop.getType();
+		}
+
+		if (type == null) {
+			// SCHEMA PROPERTY NOT FOUND FOR THIS FIELD: DETERMINE THE TYPE FROM ITS CONTENT
+			final char first = iFieldValue.charAt(0);
+			if (iFieldValue.length() > 1 && first == '"' && iFieldValue.charAt(iFieldValue.length() - 1) == '"')
+				type = OType.STRING;
+			else if (first == OStringSerializerHelper.COLLECTION_BEGIN || first == OStringSerializerHelper.MAP_BEGIN
+					|| first == OStringSerializerHelper.PARENTHESIS_BEGIN || first == OStringSerializerHelper.LINK)
+				return NOT_PARTIAL;
+			else if (iFieldValue.equals("true") || iFieldValue.equals("false"))
+				type = OType.BOOLEAN;
+			else
+				type = getType(iFieldValue);
+		}
+
+		switch (type) {
+		case BOOLEAN:
+		case BYTE:
+		case SHORT:
+		case INTEGER:
+		case LONG:
+		case FLOAT:
+		case DOUBLE:
+		case DATE:
+		case DATETIME:
+		case STRING:
+			return fieldFromStream(iRecord, type, null, null, iFieldName, iFieldValue);
+		}
+
+		return NOT_PARTIAL;
+	}
+
+	/**
+	 * Returns the position of the class separator if any, otherwise -1. The class name is present only before the first field.
+	 */
+	private static int getClassSeparator(final byte[] iSource) {
+		for (int i = 0; i < iSource.length; ++i)
+			if (iSource[i] == OStringSerializerHelper.ENTRY_SEPARATOR)
+				return -1;
+			else if (iSource[i] == OStringSerializerHelper.DOCUMENT_ATTRIB)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Returns the position of the separator after the field, jumping strings, collections, maps and embedded documents.
+	 */
+	private static int getFieldEnd(final byte[] iSource, final int iBegin, final int iMax) {
+		boolean insideString = false;
+		boolean encodeMode = false;
+		int depth = 0;
+		byte c;
+
+		for (int i = iBegin; i < iMax; ++i) {
+			c = iSource[i];
+
+			if (!insideString) {
+				if (c == OStringSerializerHelper.COLLECTION_BEGIN || c == OStringSerializerHelper.PARENTHESIS_BEGIN
+						|| c == OStringSerializerHelper.MAP_BEGIN)
+					depth++;
+				else if (c == OStringSerializerHelper.COLLECTION_END || c == OStringSerializerHelper.PARENTHESIS_END
+						|| c == OStringSerializerHelper.MAP_END)
+					depth--;
+				else if (c == '"' && !encodeMode)
+					insideString = true;
+				else if (c == OStringSerializerHelper.RECORD_SEPARATOR && depth == 0)
+					return i;
+			} else if (c == '"' && !encodeMode)
+				insideString = false;
+
+			encodeMode = c == '\\' && !encodeMode;
+		}
+		return iMax;
+	}
+
+	private static boolean equals(final byte[] iBuffer, final int iOffset, final byte[] iValue) {
+		for (int i = 0; i < iValue.length; ++i)
+			if (iBuffer[iOffset + i] != iValue[i])
+				return false;
+		return true;
 	}
 }
@@ -47,6 +47,9 @@ public class OStreamSerializerFactory {
 			else if (iName.equals(OStreamSerializerListRID.NAME))
 				return OStreamSerializerListRID.INSTANCE;
 
+			else if (iName.equals(OStreamSerializerPostingList.NAME))
+				return OStreamSerializerPostingList.INSTANCE;
+
 			throw new OConfigurationException("Stream Serializer '" + iName + "' not registered");
 
 		} catch (Exception e) {
@@ -16,14 +16,24 @@
 package com.orientechnologies.orient.core.serialization.serializer.stream;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.index.OCompositeKey;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerStringAbstract;
 
+/**
+ * Serializes the index keys as literals. Composite keys are written as the list of their literals prefixed by the
+ * {@link #COMPOSITE_KEY} marker byte, that can't be the first byte of any literal.
+ */
 public class OStreamSerializerLiteral implements OStreamSerializer {
-	public static final String										NAME			= "li";
+	public static final String										NAME					= "li";
+	private static final String										NULL					= "null";
+	private static final byte											COMPOSITE_KEY	= 0;
 
 	public static final OStreamSerializerLiteral	INSTANCE	= new OStreamSerializerLiteral();
 
@@ -32,6 +42,15 @@ public class OStreamSerializerLiteral implements OStreamSerializer {
 	}
 
 	public Object fromStream(final ODatabaseRecord iDatabase, final byte[] iStream) throws IOException {
+		if (iStream.length > 0 && iStream[0] == COMPOSITE_KEY) {
+			final String value = OBinaryProtocol.bytes2string(iStream, 1, iStream.length - 1);
+			final List<Object> keys = new ArrayList<Object>();
+			for (String item : OStringSerializerHelper.smartSplit(value.substring(1, value.length() - 1),
+					OStringSerializerHelper.RECORD_SEPARATOR))
+				keys.add(NULL.equals(item) ? null : ORecordSerializerStringAbstract.getTypeValue(item));
+			return new OCompositeKey(keys);
+		}
+
 		return ORecordSerializerStringAbstract.getTypeValue(OBinaryProtocol.bytes2string(iStream));
 	}
 
@@ -40,7 +59,26 @@ public class OStreamSerializerLiteral implements OStreamSerializer {
 			return null;
 
 		final StringBuilder buffer = new StringBuilder();
-		ORecordSerializerStringAbstract.fieldTypeToString(buffer, iDatabase, OType.getTypeByClass(iObject.getClass()), iObject);
+
+		if (iObject instanceof OCompositeKey) {
+			buffer.append((char) COMPOSITE_KEY);
+			buffer.append(OStringSerializerHelper.COLLECTION_BEGIN);
+			boolean first = true;
+			for (Object key : ((OCompositeKey) iObject).getKeys()) {
+				if (first)
+					first = false;
+				else
+					buffer.append(OStringSerializerHelper.RECORD_SEPARATOR);
+
+				if (key == null)
+					buffer.append(NULL);
+				else
+					ORecordSerializerStringAbstract.fieldTypeToString(buffer, iDatabase, OType.getTypeByClass(key.getClass()), key);
+			}
+			buffer.append(OStringSerializerHelper.COLLECTION_END);
+		} else
+			ORecordSerializerStringAbstract.fieldTypeToString(buffer, iDatabase, OType.getTypeByClass(iObject.getClass()), iObject);
+
 		return OBinaryProtocol.string2bytes(buffer.toString());
 	}
 }
@@ -17,28 +17,37 @@ package com.orientechnologies.orient.core.sql;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import com.orientechnologies.common.parser.OStringParser;
 import com.orientechnologies.common.profiler.OProfiler;
 import com.orientechnologies.common.util.OPair;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ORecordLazySet;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.OQueryParsingException;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.OCompositeKey;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexFullText;
+import com.orientechnologies.orient.core.index.OIndexMVRBTreeAbstract;
 import com.orientechnologies.orient.core.index.OIndexNotUnique;
 import com.orientechnologies.orient.core.index.OIndexUnique;
+import com.orientechnologies.orient.core.index.OPropertyIndex;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.metadata.schema.OType;
@@ -48,11 +57,11 @@ import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.record.impl.ODocument;
-import com.orientechnologies.orient.core.record.impl.ODocumentHelper;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilter;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterItem;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemAbstract;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemField;
 import com.orientechnologies.orient.core.sql.functions.OSQLFunctionRuntime;
 import com.orientechnologies.orient.core.sql.operator.OIndexReuseType;
@@ -66,6 +75,8 @@ import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajorEquals;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinor;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinorEquals;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorNotEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorTraverse;
+import com.orientechnologies.orient.core.sql.operator.OQueryTargetOperator;
 import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
 import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
 import com.orientechnologies.orient.core.storage.ORecordBrowsingListener;
@@ -74,7 +85,8 @@ import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 /**
  * Executes the SQL SELECT statement. the parse() method compiles the query and builds the meta information needed by the execute().
  * If the query contains the ORDER BY clause, the results are temporary collected internally, then ordered and finally returned all
- * together to the listener.
+ * together to the listener. With the LIMIT clause only the best LIMIT records are kept, otherwise big result sets are sorted on
+ * disk. See {@link OSQLOrderBy}.
  * 
  * @author Luca Garulli
  */
@@ -91,7 +103,9 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 	public static final String											KEYWORD_RANGE					= "RANGE";
 	public static final String											KEYWORD_RANGE_FIRST		= "FIRST";
 	public static final String											KEYWORD_RANGE_LAST		= "LAST";
+	public static final String											KEYWORD_PARALLEL			= "PARALLEL";
 	private static final String											KEYWORD_FROM_2FIND		= " " + KEYWORD_FROM + " ";
+	private static final int												INDEX_ORDERED_CHUNK_SIZE	= 100;
 
 	private static ORecordId												FIRST									= new ORecordId();
 	private static ORecordId												LAST									= new ORecordId();
@@ -101,11 +115,14 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 	private Map<String, Object>											projections						= null;
 	private List<OPair<String, String>>							orderedFields;
 	private List<OIdentifiable>											tempResult;
+	private OSQLOrderBy															orderBy;
+	private boolean																	indexOrdered					= false;
 	private int																			resultCount;
 	private ORecordId																rangeFrom							= FIRST;
 	private ORecordId																rangeTo								= LAST;
 	private Object																	flattenTarget;
 	private boolean																	anyFunctionAggregates	= false;
+	private int																			parallel							= 0;
 
 	private static final class OSearchInIndexTriple {
 		private OQueryOperator	indexOperator;
@@ -148,15 +165,19 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 			return this;
 
 		int endPosition = text.length();
-		int endP = textUpperCase.indexOf(" " + OCommandExecutorSQLSelect.KEYWORD_ORDER_BY, currentPos);
+		int endP = indexOfKeyword(KEYWORD_ORDER_BY, currentPos);
 		if (endP > -1 && endP < endPosition)
 			endPosition = endP;
 
-		endP = textUpperCase.indexOf(" " + OCommandExecutorSQLSelect.KEYWORD_RANGE, currentPos);
+		endP = indexOfKeyword(KEYWORD_RANGE, currentPos);
 		if (endP > -1 && endP < endPosition)
 			endPosition = endP;
 
-		endP = textUpperCase.indexOf(" " + OCommandExecutorSQLSelect.KEYWORD_LIMIT, currentPos);
+		endP = indexOfKeyword(KEYWORD_LIMIT, currentPos);
+		if (endP > -1 && endP < endPosition)
+			endPosition = endP;
+
+		endP = indexOfKeyword(KEYWORD_PARALLEL, currentPos);
 		if (endP > -1 && endP < endPosition)
 			endPosition = endP;
 
@@ -183,6 +204,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 						parseRange(word);
 					else if (w.equals(KEYWORD_LIMIT))
 						parseLimit(word);
+					else if (w.equals(KEYWORD_PARALLEL))
+						parseParallel(word);
 				}
 			}
 		}
@@ -196,6 +219,10 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		// TODO: SUPPORT MULTIPLE CLASSES LIKE A SQL JOIN
 		compiledFilter.bindParameters(iArgs);
 
+		if (orderedFields != null && flattenTarget == null && !anyFunctionAggregates)
+			// ORDER THE RECORDS WHILE THEY ARE FOUND
+			orderBy = new OSQLOrderBy(database, orderedFields, projections, getOrderByLimit());
+
 		if (compiledFilter.getTargetClasses() != null)
 			searchInClasses();
 		else if (compiledFilter.getTargetClusters() != null)
@@ -208,13 +235,25 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 			throw new OQueryParsingException("No source found in query: specify class, clusters or single records");
 
 		applyFlatten();
-		processResult();
-		applyOrderBy();
 
-		if (tempResult != null) {
-			for (OIdentifiable d : tempResult)
-				if (d != null)
-					request.getResultListener().result(d);
+		if (orderedFields != null && flattenTarget != null && tempResult != null && !anyFunctionAggregates) {
+			// ORDER THE FLATTENED RECORDS
+			orderBy = new OSQLOrderBy(database, orderedFields, projections, getOrderByLimit());
+			for (OIdentifiable id : tempResult)
+				orderBy.add(id);
+			tempResult = null;
+		}
+
+		if (orderBy != null)
+			fetchOrderedResult();
+		else {
+			processResult();
+
+			if (tempResult != null) {
+				for (OIdentifiable d : tempResult)
+					if (d != null && !request.getResultListener().result(d))
+						break;
+			}
 		}
 
 		if (request instanceof OSQLSynchQuery)
@@ -233,22 +272,28 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 	protected boolean addResult(final OIdentifiable iRecord) {
 		resultCount++;
 
-		final OIdentifiable recordCopy = iRecord instanceof ORecord<?> ? ((ORecord<?>) iRecord).copy() : iRecord.getIdentity().copy();
+		if (orderBy != null)
+			// ORDER BY CLAUSE: THE RECORD IS COPIED ONLY IF IT'S A CANDIDATE
+			orderBy.add(iRecord);
+		else {
+			final OIdentifiable recordCopy = iRecord instanceof ORecord<?> ? ((ORecord<?>) iRecord).copy() : iRecord.getIdentity().copy();
 
-		if (orderedFields != null || flattenTarget != null) {
-			// ORDER BY CLAUSE: COLLECT ALL THE RECORDS AND ORDER THEM AT THE END
-			if (tempResult == null)
-				tempResult = new ArrayList<OIdentifiable>();
+			if (flattenTarget != null) {
+				// FLATTEN: COLLECT ALL THE RECORDS AND EXTRACT THEM AT THE END
+				if (tempResult == null)
+					tempResult = new ArrayList<OIdentifiable>();
 
-			tempResult.add(recordCopy);
-		} else {
-			// CALL THE LISTENER NOW
-			final OIdentifiable res = applyProjections(recordCopy);
-			if (res != null && request.getResultListener() != null)
-				request.getResultListener().result(res);
+				tempResult.add(recordCopy);
+			} else {
+				// CALL THE LISTENER NOW
+				final OIdentifiable res = applyProjections(recordCopy);
+				if (res != null && request.getResultListener() != null && !request.getResultListener().result(res))
+					// THE LISTENER DOESN'T WANT MORE RESULTS
+					return false;
+			}
 		}
 
-		if (orderedFields == null && limit > -1 && resultCount >= limit || request.getLimit() > -1 && resultCount >= request.getLimit())
+		if ((orderedFields == null || indexOrdered) && (limit > -1 && resultCount >= limit || request.getLimit() > -1 && resultCount >= request.getLimit()))
 			// BREAK THE EXECUTION
 			return false;
 
@@ -283,7 +328,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 			fieldName = word.toString();
 
 			currentPos = OSQLHelper.nextWord(text, textUpperCase, currentPos, word, true);
-			if (currentPos == -1 || word.toString().equals(KEYWORD_LIMIT))
+			if (currentPos == -1 || word.toString().equals(KEYWORD_LIMIT) || word.toString().equals(KEYWORD_PARALLEL))
 				// END/NEXT CLAUSE: SET AS ASC BY DEFAULT
 				fieldOrdering = KEYWORD_ASC;
 			else {
@@ -321,6 +366,10 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		if (word.toString().equals(KEYWORD_RANGE))
 			// GO BACK
 			currentPos -= KEYWORD_RANGE.length();
+
+		if (word.toString().equals(KEYWORD_PARALLEL))
+			// GO BACK
+			currentPos -= KEYWORD_PARALLEL.length();
 	}
 
 	protected void parseRange(final StringBuilder word) {
@@ -337,7 +386,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		if (newPos == -1)
 			return;
 
-		if (!word.toString().equalsIgnoreCase("LIMIT")) {
+		if (!word.toString().equalsIgnoreCase(KEYWORD_LIMIT) && !word.toString().equalsIgnoreCase(KEYWORD_PARALLEL)) {
 			rangeTo = extractRangeBound(word.toString());
 			currentPos = newPos;
 		}
@@ -394,83 +443,358 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		return limit;
 	}
 
-	private boolean searchForIndexes(final List<ORecord<?>> iResultSet, final OClass iSchemaClass) {
-		final List<OSearchInIndexTriple> searchInIndexTriples = new LinkedList<OSearchInIndexTriple>();
-		analyzeQueryBranch(iSchemaClass, compiledFilter.getRootCondition(), searchInIndexTriples);
+	/**
+	 * Finds the keyword as a whole word outside string literals, so a field name or a value starting with it (like 'parallelism') is
+	 * not taken as the beginning of the clause.
+	 * 
+	 * @param iKeyword
+	 *          Keyword to find in upper case
+	 * @param iFromPosition
+	 *          Position to start from
+	 * @return the position of the white space before the keyword, or -1 if not found
+	 */
+	protected int indexOfKeyword(final String iKeyword, final int iFromPosition) {
+		char stringDelimiter = ' ';
+		boolean inString = false;
+
+		for (int i = Math.max(iFromPosition, 0); i < textUpperCase.length(); ++i) {
+			final char c = textUpperCase.charAt(i);
+
+			if (inString) {
+				if (c == '\\')
+					// SKIP THE ESCAPED CHARACTER
+					++i;
+				else if (c == stringDelimiter)
+					inString = false;
+			} else if (c == '\'' || c == '"') {
+				inString = true;
+				stringDelimiter = c;
+			} else if (Character.isWhitespace(c) && textUpperCase.startsWith(iKeyword, i + 1)) {
+				final int end = i + 1 + iKeyword.length();
+				if (end == textUpperCase.length() || Character.isWhitespace(textUpperCase.charAt(end)))
+					return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Parses the parallel keyword followed by the optional number of partitions to scan in parallel. If the number is missed all the
+	 * available processors are used.
+	 * 
+	 * @param word
+	 *          StringBuilder to parse
+	 * @throws OCommandSQLParsingException
+	 *           if the number of partitions is not valid
+	 */
+	protected void parseParallel(final StringBuilder word) throws OCommandSQLParsingException {
+		parallel = -1;
+
+		final int newPos = OSQLHelper.nextWord(text, textUpperCase, currentPos, word, true);
+		if (newPos == -1 || word.toString().equals(KEYWORD_ORDER) || word.toString().equals(KEYWORD_RANGE)
+				|| word.toString().equals(KEYWORD_LIMIT))
+			// NO NUMBER: THE NEXT WORD WILL BE PARSED BY THE CALLER
+			return;
+
+		currentPos = newPos;
+		try {
+			parallel = Integer.parseInt(word.toString());
+		} catch (Exception e) {
+			throw new OCommandSQLParsingException("Invalid PARALLEL value setted to '" + word
+					+ "' but it should be a valid integer. Example: PARALLEL 4", text, currentPos);
+		}
+	}
 
-		if (searchInIndexTriples.isEmpty())
+	private boolean searchForIndexes(final List<ORecord<?>> iResultSet, final OClass iSchemaClass) {
+		final Set<ORID> rids = searchInIndexBranch(iSchemaClass, compiledFilter.getRootCondition());
+		if (rids == null)
 			return false;
 
-		for (final OSearchInIndexTriple indexTriple : searchInIndexTriples) {
-			final OIndex<?> idx = indexTriple.index.getInternal();
-			final OQueryOperator operator = indexTriple.indexOperator;
-			final Object key = indexTriple.key;
+		for (ORID rid : rids)
+			fillResultSet(iResultSet, rid);
+		return true;
+	}
 
-			final boolean indexCanBeUsedInEqualityOperators = (idx instanceof OIndexUnique || idx instanceof OIndexNotUnique);
+	/**
+	 * Resolves a branch of the WHERE condition using only the indexes, without loading any record. The equality conditions in AND are
+	 * matched against the indexes on more properties, then the other indexed conditions are resolved starting from the point lookups
+	 * and intersected until the result is small enough (see {@link OGlobalConfiguration#QUERY_INDEX_INTERSECTION_MIN_SIZE}). The RIDs
+	 * of the conditions in OR are merged only if all of them can be resolved by indexes.
+	 * 
+	 * @param iSchemaClass
+	 *          Schema class
+	 * @param iCondition
+	 *          Branch to resolve
+	 * @return The RIDs of the candidate records, that could be more than the records matching the condition, or null if the branch
+	 *         can't be resolved using indexes
+	 */
+	private Set<ORID> searchInIndexBranch(final OClass iSchemaClass, final OSQLFilterCondition iCondition) {
+		if (iCondition == null)
+			return null;
 
-			if (indexCanBeUsedInEqualityOperators && operator instanceof OQueryOperatorBetween) {
-				final Object[] betweenKeys = (Object[]) key;
-				fillSearchIndexResultSet(iResultSet,
-						indexTriple.index.getValuesBetween(OSQLHelper.getValue(betweenKeys[0]), OSQLHelper.getValue(betweenKeys[2])));
-				return true;
-			}
+		final OQueryOperator operator = iCondition.getOperator();
+		if (operator == null) {
+			if (iCondition.getLeft() instanceof OSQLFilterCondition && iCondition.getRight() == null)
+				return searchInIndexBranch(iSchemaClass, (OSQLFilterCondition) iCondition.getLeft());
+			return null;
+		}
 
-			if ((indexCanBeUsedInEqualityOperators && operator instanceof OQueryOperatorEquals) || idx instanceof OIndexFullText
-					&& operator instanceof OQueryOperatorContainsText) {
-				fillSearchIndexResultSet(iResultSet, indexTriple.index.get(key));
-				return true;
-			}
+		final OIndexReuseType indexReuseType = operator.getIndexReuseType(iCondition.getLeft(), iCondition.getRight());
+		if (indexReuseType.equals(OIndexReuseType.ANY_INDEX)) {
+			// AND: INTERSECT THE RESULTS OF ALL THE INDEXED CONDITIONS
+			final List<OSQLFilterCondition> conditions = new ArrayList<OSQLFilterCondition>();
+			collectAndConditions(iCondition, conditions);
 
-			if (indexCanBeUsedInEqualityOperators && operator instanceof OQueryOperatorMajor) {
-				fillSearchIndexResultSet(iResultSet, idx.getValuesMajor(key, false));
-				return true;
-			}
+			Set<ORID> result = searchInCompositeIndexes(iSchemaClass, conditions, 2);
 
-			if (indexCanBeUsedInEqualityOperators && operator instanceof OQueryOperatorMajorEquals) {
-				fillSearchIndexResultSet(iResultSet, idx.getValuesMajor(key, true));
-				return true;
+			// RESOLVE THE POINT LOOKUPS BEFORE THE RANGES, THAT USUALLY SELECT MORE RECORDS
+			Collections.sort(conditions, new Comparator<OSQLFilterCondition>() {
+				public int compare(final OSQLFilterCondition iCondition1, final OSQLFilterCondition iCondition2) {
+					return getIndexLookupCost(iCondition1) - getIndexLookupCost(iCondition2);
+				}
+			});
+
+			final int minSizeToIntersect = OGlobalConfiguration.QUERY_INDEX_INTERSECTION_MIN_SIZE.getValueAsInteger();
+			for (OSQLFilterCondition c : conditions) {
+				if (result != null && result.size() < minSizeToIntersect)
+					// SELECTIVE ENOUGH: THE REMAINING CONDITIONS ARE EVALUATED AGAINST THE LOADED RECORDS
+					break;
+
+				final Set<ORID> conditionResult = searchInIndexBranch(iSchemaClass, c);
+				if (conditionResult != null)
+					result = result == null ? conditionResult : intersect(result, conditionResult);
 			}
 
-			if (indexCanBeUsedInEqualityOperators && operator instanceof OQueryOperatorMinor) {
-				fillSearchIndexResultSet(iResultSet, idx.getValuesMinor(key, false));
-				return true;
+			return result;
+
+		} else if (indexReuseType.equals(OIndexReuseType.BOTH_INDEXES)) {
+			// OR: MERGE THE RESULTS ONLY IF BOTH THE CONDITIONS ARE INDEXED
+			if (!(iCondition.getLeft() instanceof OSQLFilterCondition) || !(iCondition.getRight() instanceof OSQLFilterCondition))
+				return null;
+
+			final Set<ORID> left = searchInIndexBranch(iSchemaClass, (OSQLFilterCondition) iCondition.getLeft());
+			if (left == null)
+				return null;
+
+			final Set<ORID> right = searchInIndexBranch(iSchemaClass, (OSQLFilterCondition) iCondition.getRight());
+			if (right == null)
+				return null;
+
+			OProfiler.getInstance().updateCounter("Query.indexUnion", 1);
+
+			left.addAll(right);
+			return left;
+
+		} else if (indexReuseType.equals(OIndexReuseType.INDEX_METHOD)) {
+			final List<OSearchInIndexTriple> searchInIndexTriples = new ArrayList<OSearchInIndexTriple>(1);
+			if (!searchIndexedProperty(iSchemaClass, iCondition, iCondition.getLeft(), searchInIndexTriples))
+				searchIndexedProperty(iSchemaClass, iCondition, iCondition.getRight(), searchInIndexTriples);
+
+			if (!searchInIndexTriples.isEmpty()) {
+				final Set<ORID> result = searchInIndex(searchInIndexTriples.get(0));
+				if (result != null)
+					return result;
 			}
 
-			if (indexCanBeUsedInEqualityOperators && operator instanceof OQueryOperatorMinorEquals) {
-				fillSearchIndexResultSet(iResultSet, idx.getValuesMinor(key, true));
-				return true;
+			// TRY WITH THE FIRST FIELD OF THE INDEXES ON MORE PROPERTIES
+			final List<OSQLFilterCondition> conditions = new ArrayList<OSQLFilterCondition>(1);
+			conditions.add(iCondition);
+			return searchInCompositeIndexes(iSchemaClass, conditions, 1);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Collects the conditions of a chain of AND, also inside parenthesis.
+	 */
+	private void collectAndConditions(final OSQLFilterCondition iCondition, final List<OSQLFilterCondition> iConditions) {
+		final OQueryOperator operator = iCondition.getOperator();
+
+		if (operator == null && iCondition.getLeft() instanceof OSQLFilterCondition && iCondition.getRight() == null)
+			collectAndConditions((OSQLFilterCondition) iCondition.getLeft(), iConditions);
+
+		else if (operator != null
+				&& operator.getIndexReuseType(iCondition.getLeft(), iCondition.getRight()).equals(OIndexReuseType.ANY_INDEX)) {
+			if (iCondition.getLeft() instanceof OSQLFilterCondition)
+				collectAndConditions((OSQLFilterCondition) iCondition.getLeft(), iConditions);
+			if (iCondition.getRight() instanceof OSQLFilterCondition)
+				collectAndConditions((OSQLFilterCondition) iCondition.getRight(), iConditions);
+
+		} else
+			iConditions.add(iCondition);
+	}
+
+	/**
+	 * Searches the index on more properties that matches the longest prefix of fields with the equality conditions passed. The
+	 * conditions resolved by the index are removed from the list.
+	 * 
+	 * @param iSchemaClass
+	 *          Schema class
+	 * @param iConditions
+	 *          Conditions in AND
+	 * @param iMinPrefix
+	 *          Minimum number of fields to match
+	 * @return The RIDs found or null if no index matches
+	 */
+	private Set<ORID> searchInCompositeIndexes(final OClass iSchemaClass, final List<OSQLFilterCondition> iConditions,
+			final int iMinPrefix) {
+		final Collection<OPropertyIndex> indexes = iSchemaClass.getCompositeIndexes();
+		if (indexes.isEmpty())
+			return null;
+
+		// COLLECT THE EQUALITY CONDITIONS BY FIELD NAME
+		final Map<String, OSQLFilterCondition> equalities = new HashMap<String, OSQLFilterCondition>();
+		final Map<String, Object> values = new HashMap<String, Object>();
+		for (OSQLFilterCondition c : iConditions) {
+			if (!(c.getOperator() instanceof OQueryOperatorEquals))
+				continue;
+
+			final Object field;
+			final Object value;
+			if (c.getLeft() instanceof OSQLFilterItemField && !(c.getRight() instanceof OSQLFilterItemField)) {
+				field = c.getLeft();
+				value = OSQLHelper.getValue(c.getRight());
+			} else if (c.getRight() instanceof OSQLFilterItemField && !(c.getLeft() instanceof OSQLFilterItemField)) {
+				field = c.getRight();
+				value = OSQLHelper.getValue(c.getLeft());
+			} else
+				continue;
+
+			if (value == null || ((OSQLFilterItemField) field).hasChainOperators())
+				continue;
+
+			equalities.put(((OSQLFilterItemField) field).getRoot(), c);
+			values.put(((OSQLFilterItemField) field).getRoot(), value);
+		}
+
+		// FIND THE INDEX WITH THE LONGEST PREFIX
+		OPropertyIndex bestIndex = null;
+		int bestPrefix = iMinPrefix - 1;
+		for (OPropertyIndex index : indexes) {
+			int prefix = 0;
+			for (String f : index.getFields()) {
+				if (!equalities.containsKey(f))
+					break;
+				prefix++;
 			}
 
-			if (indexCanBeUsedInEqualityOperators && operator instanceof OQueryOperatorIn) {
-				fillSearchIndexResultSet(iResultSet, idx.getValues((List<?>) key));
-				return true;
+			if (prefix > bestPrefix) {
+				bestIndex = index;
+				bestPrefix = prefix;
 			}
 		}
-		return false;
+
+		if (bestIndex == null)
+			return null;
+
+		final List<Object> keys = new ArrayList<Object>(bestPrefix);
+		for (int i = 0; i < bestPrefix; ++i) {
+			final String f = bestIndex.getFields()[i];
+			final OProperty prop = iSchemaClass.getProperty(f);
+			keys.add(prop != null ? OType.convert(values.get(f), prop.getType().getDefaultJavaType()) : values.get(f));
+			iConditions.remove(equalities.get(f));
+		}
+
+		OProfiler.getInstance().updateCounter("Query.compositeIndexUsage", 1);
+
+		final OIndex<?> index = bestIndex.getUnderlying();
+		if (bestPrefix == bestIndex.getFields().length)
+			return toRIDs(index.get(new OCompositeKey(keys)));
+
+		// PREFIX: BROWSE ALL THE KEYS STARTING WITH IT
+		return toRIDs(index.getValuesBetween(new OCompositeKey(keys), new OCompositeKey(keys, true)));
 	}
 
-	private void analyzeQueryBranch(final OClass iSchemaClass, final OSQLFilterCondition iCondition,
-			final List<OSearchInIndexTriple> iSearchInIndexTriples) {
-		if (iCondition == null)
-			return;
+	/**
+	 * Executes the search against the index of a property.
+	 * 
+	 * @return The RIDs found or null if the operator can't be executed against the index
+	 */
+	private Set<ORID> searchInIndex(final OSearchInIndexTriple iIndexTriple) {
+		final OIndex<?> idx = iIndexTriple.index.getInternal();
+		final OQueryOperator operator = iIndexTriple.indexOperator;
+		final Object key = iIndexTriple.key;
 
-		final OQueryOperator operator = iCondition.getOperator();
-		if (operator == null)
-			if (iCondition.getLeft() != null && iCondition.getRight() == null) {
-				analyzeQueryBranch(iSchemaClass, (OSQLFilterCondition) iCondition.getLeft(), iSearchInIndexTriples);
-				return;
-			} else {
-				return;
-			}
+		final boolean indexCanBeUsedInEqualityOperators = (idx instanceof OIndexUnique || idx instanceof OIndexNotUnique);
 
-		final OIndexReuseType indexReuseType = operator.getIndexReuseType(iCondition.getLeft(), iCondition.getRight());
-		if (indexReuseType.equals(OIndexReuseType.ANY_INDEX)) {
-			analyzeQueryBranch(iSchemaClass, (OSQLFilterCondition) iCondition.getLeft(), iSearchInIndexTriples);
-			analyzeQueryBranch(iSchemaClass, (OSQLFilterCondition) iCondition.getRight(), iSearchInIndexTriples);
-		} else if (indexReuseType.equals(OIndexReuseType.INDEX_METHOD)) {
-			if (!searchIndexedProperty(iSchemaClass, iCondition, iCondition.getLeft(), iSearchInIndexTriples))
-				searchIndexedProperty(iSchemaClass, iCondition, iCondition.getRight(), iSearchInIndexTriples);
+		if (indexCanBeUsedInEqualityOperators && operator instanceof OQueryOperatorBetween) {
+			final Object[] betweenKeys = (Object[]) key;
+			return toRIDs(iIndexTriple.index.getValuesBetween(OSQLHelper.getValue(betweenKeys[0]),
+					OSQLHelper.getValue(betweenKeys[2])));
 		}
+
+		if ((indexCanBeUsedInEqualityOperators && operator instanceof OQueryOperatorEquals) || idx instanceof OIndexFullText
+				&& operator instanceof OQueryOperatorContainsText)
+			return toRIDs(iIndexTriple.index.get(key));
+
+		if (indexCanBeUsedInEqualityOperators && operator instanceof OQueryOperatorMajor)
+			return toRIDs(idx.getValuesMajor(key, false));
+
+		if (indexCanBeUsedInEqualityOperators && operator instanceof OQueryOperatorMajorEquals)
+			return toRIDs(idx.getValuesMajor(key, true));
+
+		if (indexCanBeUsedInEqualityOperators && operator instanceof OQueryOperatorMinor)
+			return toRIDs(idx.getValuesMinor(key, false));
+
+		if (indexCanBeUsedInEqualityOperators && operator instanceof OQueryOperatorMinorEquals)
+			return toRIDs(idx.getValuesMinor(key, true));
+
+		if (indexCanBeUsedInEqualityOperators && operator instanceof OQueryOperatorIn)
+			return toRIDs(idx.getValues((List<?>) key));
+
+		return null;
+	}
+
+	/**
+	 * Extracts the RIDs from the result of an index without loading the records.
+	 */
+	private Set<ORID> toRIDs(final Object iIndexResult) {
+		final Set<ORID> result = new LinkedHashSet<ORID>();
+
+		if (iIndexResult instanceof Collection<?>) {
+			final Iterator<OIdentifiable> it = iIndexResult instanceof ORecordLazySet ? ((ORecordLazySet) iIndexResult).rawIterator()
+					: ((Collection<OIdentifiable>) iIndexResult).iterator();
+			while (it.hasNext())
+				result.add(it.next().getIdentity());
+
+		} else if (iIndexResult != null)
+			result.add(((OIdentifiable) iIndexResult).getIdentity());
+
+		return result;
+	}
+
+	/**
+	 * Intersects two RID sets keeping the smallest one.
+	 */
+	private Set<ORID> intersect(final Set<ORID> iResult1, final Set<ORID> iResult2) {
+		OProfiler.getInstance().updateCounter("Query.indexIntersection", 1);
+
+		if (iResult1.size() <= iResult2.size()) {
+			iResult1.retainAll(iResult2);
+			return iResult1;
+		}
+
+		iResult2.retainAll(iResult1);
+		return iResult2;
+	}
+
+	/**
+	 * Returns the relative cost of resolving a condition against the indexes: point lookups first, then ranges and at last the other
+	 * branches.
+	 */
+	private static int getIndexLookupCost(final OSQLFilterCondition iCondition) {
+		final OQueryOperator operator = iCondition.getOperator();
+		if (operator instanceof OQueryOperatorEquals || operator instanceof OQueryOperatorIn
+				|| operator instanceof OQueryOperatorContainsText)
+			return 0;
+
+		if (operator instanceof OQueryOperatorBetween || operator instanceof OQueryOperatorMajor
+				|| operator instanceof OQueryOperatorMajorEquals || operator instanceof OQueryOperatorMinor
+				|| operator instanceof OQueryOperatorMinorEquals)
+			return 1;
+
+		return 2;
 	}
 
 	/**
@@ -543,29 +867,6 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		return false;
 	}
 
-	/**
-	 * Copies or loads by their {@link ORID}s records that are returned from property index in {@link #searchIndexedProperty} method
-	 * to the search result.
-	 * 
-	 * @param resultSet
-	 *          Search result.
-	 * @param indexResultSet
-	 *          Result of index search.
-	 */
-	private void fillSearchIndexResultSet(final List<ORecord<?>> resultSet, final Object indexResult) {
-		if (indexResult != null) {
-			if (indexResult instanceof Collection<?>) {
-				Collection<OIdentifiable> indexResultSet = (Collection<OIdentifiable>) indexResult;
-				if (indexResultSet.size() > 0)
-					for (OIdentifiable o : indexResultSet)
-						fillResultSet(resultSet, o);
-
-			} else
-				fillResultSet(resultSet, (OIdentifiable) indexResult);
-
-		}
-	}
-
 	private void fillResultSet(final List<ORecord<?>> resultSet, OIdentifiable o) {
 		if (rangeFrom != FIRST && o.getIdentity().compareTo(rangeFrom) <= 0)
 			return;
@@ -573,7 +874,9 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		if (rangeTo != LAST && o.getIdentity().compareTo(rangeTo) > 0)
 			return;
 
-		resultSet.add(o.getRecord());
+		final ORecord<?> record = o.getRecord();
+		if (record != null)
+			resultSet.add(record);
 	}
 
 	protected boolean filter(final ORecordInternal<?> iRecord) {
@@ -690,6 +993,22 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 	}
 
 	private void scanEntireClusters(final int[] clusterIds) {
+		final int parallelism = getParallelism(clusterIds);
+		if (parallelism > 1) {
+			OProfiler.getInstance().updateCounter("Query.parallelScan", +1);
+			((OStorageEmbedded) database.getStorage()).browseParallel(clusterIds, new ORecordBrowsingListener() {
+				public boolean foreach(final ORecordInternal<?> iRecord) {
+					// EVALUATE AGAINST THE DATABASE INSTANCE OF THE WORKER THREAD
+					return compiledFilter.evaluate(iRecord.getDatabase(), (ORecordSchemaAware<?>) iRecord);
+				}
+			}, new ORecordBrowsingListener() {
+				public boolean foreach(final ORecordInternal<?> iRecord) {
+					return addResult(iRecord);
+				}
+			}, database, parallelism);
+			return;
+		}
+
 		final ORecordId realRangeFrom = getRealRange(clusterIds, rangeFrom);
 		final ORecordId realRangeTo = getRealRange(clusterIds, rangeTo);
 
@@ -697,6 +1016,45 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 				(ORecordInternal<?>) database.newInstance(), false);
 	}
 
+	/**
+	 * Returns the number of partitions to scan in parallel, or 0 if the clusters must be browsed sequentially. The parallel scan is
+	 * used only outside transactions, without RANGE and when the filter can be evaluated without loading other records.
+	 */
+	private int getParallelism(final int[] clusterIds) {
+		int threads = parallel != 0 ? parallel : OGlobalConfiguration.QUERY_PARALLEL_SCAN_THREADS.getValueAsInteger();
+		if (threads < 0)
+			threads = Runtime.getRuntime().availableProcessors();
+
+		if (threads < 2 || rangeFrom != FIRST || rangeTo != LAST || database.getTransaction().isActive()
+				|| !isParallelizable(compiledFilter.getRootCondition()))
+			return 0;
+
+		if (parallel == 0
+				&& database.countClusterElements(clusterIds) < OGlobalConfiguration.QUERY_PARALLEL_SCAN_MIN_RECORDS.getValueAsLong())
+			// TOO FEW RECORDS
+			return 0;
+
+		return threads;
+	}
+
+	/**
+	 * Checks if a filter item can be evaluated by concurrent threads: chains of fields, functions and operators that load other
+	 * records are excluded.
+	 */
+	private boolean isParallelizable(final Object iItem) {
+		if (iItem instanceof OSQLFilterCondition) {
+			final OSQLFilterCondition condition = (OSQLFilterCondition) iItem;
+			if (condition.getOperator() instanceof OQueryOperatorTraverse || condition.getOperator() instanceof OQueryTargetOperator)
+				return false;
+			return isParallelizable(condition.getLeft()) && isParallelizable(condition.getRight());
+		}
+
+		if (iItem instanceof OSQLFilterItemAbstract)
+			return !((OSQLFilterItemAbstract) iItem).hasChainOperators();
+
+		return !(iItem instanceof OSQLFunctionRuntime);
+	}
+
 	private ORecordId getRealRange(final int[] clusterIds, final ORecordId iRange) {
 		if (iRange == FIRST)
 			// COMPUTE THE REAL RANGE BASED ON CLUSTERS: GET THE FIRST POSITION
@@ -707,12 +1065,31 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		return iRange;
 	}
 
-	private void applyOrderBy() {
-		if (orderedFields == null)
-			return;
+	/**
+	 * Returns the lower limit between the LIMIT keyword and the limit of the request, or -1 if none is set.
+	 */
+	private int getOrderByLimit() {
+		final int requestLimit = request.getLimit();
+		if (limit > 0 && (requestLimit <= 0 || limit < requestLimit))
+			return limit;
+		return requestLimit > 0 ? requestLimit : -1;
+	}
 
-		ODocumentHelper.sort(getResult(), orderedFields);
-		orderedFields.clear();
+	/**
+	 * Sends the ordered records to the listener applying the projections. The projections are applied only now, to the returned
+	 * records.
+	 */
+	private void fetchOrderedResult() {
+		try {
+			for (Iterator<OIdentifiable> it = orderBy.iterator(); it.hasNext();) {
+				final OIdentifiable res = applyProjections(it.next());
+				if (res != null && request.getResultListener() != null && !request.getResultListener().result(res))
+					break;
+			}
+		} finally {
+			orderBy.close();
+			orderBy = null;
+		}
 	}
 
 	/**
@@ -793,7 +1170,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 
 		// CHECK PERMISSION TO ACCESS TO ALL THE CONFIGURED CLUSTERS
 		for (int clusterId : clusterIds)
-			database.checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, database.getClusterNameById(clusterId));
+			database.checkClusterSecurity(ORole.PERMISSION_READ, clusterId);
 
 		final List<ORecord<?>> resultSet = new ArrayList<ORecord<?>>();
 		if (searchForIndexes(resultSet, cls)) {
@@ -807,11 +1184,106 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 						break;
 				}
 			}
-		} else
+		} else if (!searchInIndexOrdered(cls, clusterIds))
 			// NO INDEXES: SCAN THE ENTIRE CLUSTER
 			scanEntireClusters(clusterIds);
 	}
 
+	/**
+	 * Browses the records following the index of the ORDER BY field, so the results are returned already ordered and the execution
+	 * stops as soon as the LIMIT is reached. The index is used only if the order is by a single field with an automatic UNIQUE or
+	 * NOTUNIQUE index on a property of simple type.<br/>
+	 * <br/>
+	 * Records with the field null are not indexed: in DESC order they are searched at the end only if the LIMIT has not been reached
+	 * yet. In ASC order they would be the first ones, so the index is used only if the index is UNIQUE and contains all the records
+	 * of the class.
+	 * 
+	 * @return true if the index has been used, otherwise false
+	 */
+	private boolean searchInIndexOrdered(final OClass iSchemaClass, final int[] iClusterIds) {
+		if (orderBy == null || orderedFields.size() != 1 || rangeFrom != FIRST || rangeTo != LAST
+				|| database.getTransaction().isActive())
+			return false;
+
+		final String fieldName = orderedFields.get(0).getKey();
+		final boolean descending = KEYWORD_DESC.equals(orderedFields.get(0).getValue());
+
+		if (projections != null && projections.containsKey(fieldName)) {
+			// THE ORDER IS BY AN ALIAS: ACCEPT IT ONLY IF IT'S THE FIELD ITSELF
+			final Object projection = projections.get(fieldName);
+			if (!(projection instanceof OSQLFilterItemField) || !fieldName.equals(((OSQLFilterItemField) projection).getRoot()))
+				return false;
+		}
+
+		final OProperty prop = iSchemaClass.getProperty(fieldName);
+		if (prop == null || !prop.isIndexed() || prop.getType().isComplex())
+			return false;
+
+		final OIndex<?> index = prop.getIndex().getUnderlying();
+		if (!index.isAutomatic() || !(index.getInternal() instanceof OIndexMVRBTreeAbstract<?>)
+				|| !(index.getInternal() instanceof OIndexUnique || index.getInternal() instanceof OIndexNotUnique))
+			return false;
+
+		final OIndexMVRBTreeAbstract<?> idx = (OIndexMVRBTreeAbstract<?>) index.getInternal();
+
+		if (!descending) {
+			// ASC: THE NULL VALUES ARE THE FIRST ONES. CHECK THERE ARE NOT RECORDS OUT OF THE INDEX
+			if (!(idx instanceof OIndexUnique)
+					|| (iSchemaClass.getSuperClass() != null && iSchemaClass.getSuperClass().getProperty(fieldName) == prop)
+					|| idx.getSize() != database.countClusterElements(iClusterIds))
+				return false;
+		}
+
+		OProfiler.getInstance().updateCounter("Query.indexOrderedUsage", 1);
+
+		// THE RECORDS ARE ALREADY ORDERED
+		orderBy.close();
+		orderBy = null;
+		indexOrdered = true;
+
+		final Set<Integer> clusterIds = new HashSet<Integer>();
+		for (int clusterId : iClusterIds)
+			clusterIds.add(clusterId);
+
+		// COPY THE ENTRIES A CHUNK AT A TIME UNDER THE INDEX LOCK, THEN LOAD THE RECORDS WITHOUT HOLDING IT
+		final List<OIdentifiable> ids = new ArrayList<OIdentifiable>();
+		Object lastKey = null;
+		do {
+			ids.clear();
+			lastKey = idx.getValuesAfter(lastKey, !descending, INDEX_ORDERED_CHUNK_SIZE, ids);
+
+			for (OIdentifiable id : ids)
+				if (!browseIndexedRecord(id, clusterIds))
+					return true;
+		} while (lastKey != null);
+
+		if (descending) {
+			// LIMIT NOT REACHED: ADD THE RECORDS WITH THE FIELD NULL
+			((OStorageEmbedded) database.getStorage()).browse(iClusterIds, getRealRange(iClusterIds, FIRST),
+					getRealRange(iClusterIds, LAST), new ORecordBrowsingListener() {
+						public boolean foreach(final ORecordInternal<?> iRecord) {
+							if (((ODocument) iRecord).field(fieldName) != null)
+								return true;
+							return OCommandExecutorSQLSelect.this.foreach(iRecord);
+						}
+					}, (ORecordInternal<?>) database.newInstance(), false);
+		}
+
+		return true;
+	}
+
+	private boolean browseIndexedRecord(final OIdentifiable iId, final Set<Integer> iClusterIds) {
+		if (!iClusterIds.contains(iId.getIdentity().getClusterId()))
+			// RECORD OF ANOTHER CLASS
+			return true;
+
+		final ORecordInternal<?> record = database.load(iId.getIdentity());
+		if (record == null)
+			return true;
+
+		return foreach(record);
+	}
+
 	private void searchInClusters() {
 		final int[] clusterIds;
 		String firstCluster = compiledFilter.getTargetClusters().keySet().iterator().next();
@@ -920,7 +1392,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 				final Entry<Object, Object> current = it.next();
 
 				if (current.getValue() instanceof Collection<?>)
-					for (Iterator<OIdentifiable> collIt = ((ORecordLazySet) current.getValue()).rawIterator(); collIt.hasNext();)
+					for (Iterator<OIdentifiable> collIt = current.getValue() instanceof ORecordLazySet ? ((ORecordLazySet) current
+							.getValue()).rawIterator() : ((Collection<OIdentifiable>) current.getValue()).iterator(); collIt.hasNext();)
 						addResult(createIndexEntryAsDocument(current.getKey(), collIt.next().getIdentity()));
 				else
 					addResult(createIndexEntryAsDocument(current.getKey(), (OIdentifiable) current.getValue()));
@@ -976,22 +1449,9 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		} else if (tempResult != null) {
 			final List<OIdentifiable> newResult = new ArrayList<OIdentifiable>();
 
-			int limitIndex = 0;
 			// TEMP RESULT: RETURN ALL THE RECORDS AT THE END
-			for (OIdentifiable doc : tempResult) {
-				// CALL THE LISTENER
-				if (orderedFields != null && limit > 0) {
-					if (limitIndex < limit) {
-						limitIndex++;
-						newResult.add(applyProjections(doc));
-					} else
-						// LIMIT REACHED
-						break;
-
-				} else {
-					newResult.add(applyProjections(doc));
-				}
-			}
+			for (OIdentifiable doc : tempResult)
+				newResult.add(applyProjections(doc));
 
 			tempResult.clear();
 			tempResult = newResult;
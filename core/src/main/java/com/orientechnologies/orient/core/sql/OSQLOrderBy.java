@@ -0,0 +1,429 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.common.util.OPair;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemField;
+import com.orientechnologies.orient.core.sql.functions.OSQLFunctionRuntime;
+
+/**
+ * Collects the results of a SELECT with the ORDER BY clause and returns them ordered.<br/>
+ * <br/>
+ * With a LIMIT only the best LIMIT records are kept in a bounded heap (top-K): the memory used is proportional to the limit and only
+ * the records that enter the heap are copied. Without LIMIT the records are sorted in memory up to query.orderBy.maxInMemory items,
+ * then each sorted run is spilled to a temporary file and all the runs are merged at the end.<br/>
+ * <br/>
+ * The sort keys are computed only once per record. A key is the value of the field or, if the name is a projection alias, the value
+ * of the projection, so the projections can be applied at the end only to the returned records.
+ * 
+ * @author Luca Garulli
+ */
+@SuppressWarnings("unchecked")
+public class OSQLOrderBy {
+	private final ODatabaseRecord						database;
+	private final String[]									fields;
+	private final Object[]									projections;
+	private final boolean[]									descending;
+	private final int												limit;
+	private final int												maxInMemory;
+	private final Comparator<OEntry>				comparator;
+
+	private PriorityQueue<OEntry>						heap;
+	private List<OEntry>										entries;
+	private final List<File>								runs			= new ArrayList<File>();
+	private final List<DataInputStream>			readers		= new ArrayList<DataInputStream>();
+
+	private static class OEntry {
+		private final OIdentifiable	record;
+		private final Object[]			keys;
+
+		private OEntry(final OIdentifiable iRecord, final Object[] iKeys) {
+			record = iRecord;
+			keys = iKeys;
+		}
+	}
+
+	/**
+	 * Cursor over a sorted run used during the merge.
+	 */
+	private static class ORun {
+		private final Iterator<OEntry>	iterator;
+		private OEntry									current;
+
+		private ORun(final Iterator<OEntry> iIterator) {
+			iterator = iIterator;
+			current = iterator.hasNext() ? iterator.next() : null;
+		}
+
+		private OEntry next() {
+			final OEntry e = current;
+			current = iterator.hasNext() ? iterator.next() : null;
+			return e;
+		}
+	}
+
+	/**
+	 * Creates a new collector.
+	 * 
+	 * @param iDatabase
+	 *          Current database, used to rebuild the spilled records
+	 * @param iOrderedFields
+	 *          Pairs of field name and ordering (ASC or DESC)
+	 * @param iProjections
+	 *          Projections of the query by alias, or null if none
+	 * @param iLimit
+	 *          Maximum number of records to return, -1 means no limit
+	 */
+	public OSQLOrderBy(final ODatabaseRecord iDatabase, final List<OPair<String, String>> iOrderedFields,
+			final Map<String, Object> iProjections, final int iLimit) {
+		database = iDatabase;
+		limit = iLimit;
+		maxInMemory = OGlobalConfiguration.QUERY_ORDERBY_MAX_IN_MEMORY.getValueAsInteger();
+
+		fields = new String[iOrderedFields.size()];
+		projections = new Object[fields.length];
+		descending = new boolean[fields.length];
+		for (int i = 0; i < fields.length; ++i) {
+			final OPair<String, String> field = iOrderedFields.get(i);
+			fields[i] = field.getKey();
+			projections[i] = iProjections != null ? iProjections.get(field.getKey()) : null;
+			descending[i] = OCommandExecutorSQLSelect.KEYWORD_DESC.equals(field.getValue());
+		}
+
+		comparator = new Comparator<OEntry>() {
+			public int compare(final OEntry iEntry1, final OEntry iEntry2) {
+				return compareKeys(iEntry1.keys, iEntry2.keys);
+			}
+		};
+
+		if (limit > 0)
+			// THE WORST CANDIDATE STAYS ON TOP TO BE REPLACED
+			heap = new PriorityQueue<OEntry>(Math.min(limit, 1024) + 1, Collections.reverseOrder(comparator));
+		else
+			entries = new ArrayList<OEntry>();
+	}
+
+	/**
+	 * Adds a record. The record is copied only if it's a candidate to be returned, since the browsing can reuse the same instance.
+	 */
+	public void add(final OIdentifiable iRecord) {
+		final Object[] keys = extractKeys(iRecord);
+
+		if (heap != null) {
+			if (heap.size() >= limit) {
+				if (compareKeys(keys, heap.peek().keys) >= 0)
+					// NOT BETTER THAN THE WORST CANDIDATE: DISCARD IT
+					return;
+				heap.poll();
+			}
+			heap.offer(new OEntry(copy(iRecord), keys));
+
+		} else {
+			entries.add(new OEntry(copy(iRecord), keys));
+			if (maxInMemory > 0 && entries.size() >= maxInMemory)
+				spill();
+		}
+	}
+
+	/**
+	 * Returns the records in the requested order. The temporary files, if any, are read lazily during the browsing: call
+	 * {@link #close()} at the end.
+	 */
+	public Iterator<OIdentifiable> iterator() {
+		final Iterator<OEntry> result;
+
+		if (heap != null) {
+			final List<OEntry> sorted = new ArrayList<OEntry>(heap);
+			heap = null;
+			Collections.sort(sorted, comparator);
+			result = sorted.iterator();
+
+		} else {
+			Collections.sort(entries, comparator);
+
+			if (runs.isEmpty())
+				result = entries.iterator();
+			else
+				result = merge();
+		}
+
+		return new Iterator<OIdentifiable>() {
+			public boolean hasNext() {
+				return result.hasNext();
+			}
+
+			public OIdentifiable next() {
+				return result.next().record;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException("remove");
+			}
+		};
+	}
+
+	/**
+	 * Closes and deletes the temporary files.
+	 */
+	public void close() {
+		for (DataInputStream in : readers)
+			try {
+				in.close();
+			} catch (IOException e) {
+			}
+		readers.clear();
+
+		for (File f : runs)
+			if (!f.delete())
+				OLogManager.instance().warn(this, "Can't delete the temporary file %s", f);
+		runs.clear();
+
+		entries = null;
+		heap = null;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	private Object[] extractKeys(final OIdentifiable iRecord) {
+		final ODocument doc = (ODocument) iRecord.getRecord();
+
+		final Object[] keys = new Object[fields.length];
+		for (int i = 0; i < fields.length; ++i) {
+			if (projections[i] instanceof OSQLFilterItemField)
+				keys[i] = ((OSQLFilterItemField) projections[i]).getValue(doc);
+			else if (projections[i] instanceof OSQLFunctionRuntime)
+				keys[i] = ((OSQLFunctionRuntime) projections[i]).execute(doc);
+			else if (projections[i] != null)
+				keys[i] = projections[i];
+			else
+				keys[i] = doc.field(fields[i]);
+		}
+		return keys;
+	}
+
+	private int compareKeys(final Object[] iKeys1, final Object[] iKeys2) {
+		int result;
+		for (int i = 0; i < fields.length; ++i) {
+			final Object value1 = iKeys1[i];
+			final Object value2 = iKeys2[i];
+
+			if (value1 == value2)
+				continue;
+
+			if (value1 == null)
+				result = -1;
+			else if (value2 == null)
+				result = 1;
+			else {
+				if (!(value1 instanceof Comparable<?>))
+					throw new IllegalArgumentException("Can't sort documents because the field '" + fields[i] + "' is not comparable");
+
+				result = ((Comparable<Object>) value1).compareTo(value2);
+			}
+
+			if (result != 0)
+				return descending[i] ? -result : result;
+
+			// CONTINUE WITH THE NEXT FIELD
+		}
+		return 0;
+	}
+
+	private OIdentifiable copy(final OIdentifiable iRecord) {
+		return iRecord instanceof ORecord<?> ? ((ORecord<?>) iRecord).copy() : iRecord.getIdentity().copy();
+	}
+
+	/**
+	 * Sorts the records in memory and writes them as a new run in a temporary file.
+	 */
+	private void spill() {
+		final long timer = OProfiler.getInstance().startChrono();
+
+		Collections.sort(entries, comparator);
+
+		File file = null;
+		try {
+			file = File.createTempFile("orient-orderby-", ".tmp");
+			runs.add(file);
+
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+			try {
+				for (OEntry e : entries)
+					writeRecord(out, e.record);
+			} finally {
+				out.close();
+			}
+
+		} catch (IOException e) {
+			throw new OCommandExecutionException("Error on spilling the ORDER BY result set to the temporary file " + file, e);
+		} finally {
+			OProfiler.getInstance().stopChrono("Query.orderBy.spill", timer);
+		}
+
+		OProfiler.getInstance().updateCounter("Query.orderBy.spilledRecords", entries.size());
+		entries.clear();
+	}
+
+	private Iterator<OEntry> merge() {
+		final PriorityQueue<ORun> queue = new PriorityQueue<ORun>(runs.size() + 1, new Comparator<ORun>() {
+			public int compare(final ORun iRun1, final ORun iRun2) {
+				return comparator.compare(iRun1.current, iRun2.current);
+			}
+		});
+
+		for (File f : runs) {
+			final ORun run = new ORun(readRun(f));
+			if (run.current != null)
+				queue.offer(run);
+		}
+
+		// THE LAST RUN IS STILL IN MEMORY
+		final ORun memoryRun = new ORun(entries.iterator());
+		if (memoryRun.current != null)
+			queue.offer(memoryRun);
+
+		return new Iterator<OEntry>() {
+			public boolean hasNext() {
+				return !queue.isEmpty();
+			}
+
+			public OEntry next() {
+				final ORun run = queue.poll();
+				if (run == null)
+					throw new NoSuchElementException();
+
+				final OEntry e = run.next();
+				if (run.current != null)
+					queue.offer(run);
+				return e;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException("remove");
+			}
+		};
+	}
+
+	private Iterator<OEntry> readRun(final File iFile) {
+		final DataInputStream in;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(iFile), 65536));
+		} catch (IOException e) {
+			throw new OCommandExecutionException("Error on reading the ORDER BY temporary file " + iFile, e);
+		}
+		readers.add(in);
+
+		return new Iterator<OEntry>() {
+			private OEntry	next	= read();
+
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			public OEntry next() {
+				if (next == null)
+					throw new NoSuchElementException();
+
+				final OEntry e = next;
+				next = read();
+				return e;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException("remove");
+			}
+
+			private OEntry read() {
+				try {
+					final OIdentifiable record = readRecord(in);
+					return new OEntry(record, extractKeys(record));
+				} catch (EOFException e) {
+					return null;
+				} catch (IOException e) {
+					throw new OCommandExecutionException("Error on reading the ORDER BY temporary file " + iFile, e);
+				}
+			}
+		};
+	}
+
+	private void writeRecord(final DataOutputStream iOut, final OIdentifiable iRecord) throws IOException {
+		final ORecordId rid = (ORecordId) iRecord.getIdentity();
+
+		if (iRecord instanceof ORecordInternal<?>) {
+			final ORecordInternal<?> record = (ORecordInternal<?>) iRecord;
+			final byte[] stream = record.toStream();
+
+			iOut.writeBoolean(true);
+			iOut.writeByte(record.getRecordType());
+			iOut.writeInt(rid.clusterId);
+			iOut.writeLong(rid.clusterPosition);
+			iOut.writeInt(record.getVersion());
+			iOut.writeInt(stream.length);
+			iOut.write(stream);
+		} else {
+			// RID ONLY
+			iOut.writeBoolean(false);
+			iOut.writeInt(rid.clusterId);
+			iOut.writeLong(rid.clusterPosition);
+		}
+	}
+
+	private OIdentifiable readRecord(final DataInputStream iIn) throws IOException {
+		if (!iIn.readBoolean())
+			return new ORecordId(iIn.readInt(), iIn.readLong());
+
+		final byte recordType = iIn.readByte();
+		final ORecordId rid = new ORecordId(iIn.readInt(), iIn.readLong());
+		final int version = iIn.readInt();
+		final byte[] stream = new byte[iIn.readInt()];
+		iIn.readFully(stream);
+
+		final ORecordInternal<?> record = Orient.instance().getRecordFactoryManager().newInstance(database, recordType);
+		record.fill(database, rid, version, stream, false);
+		return record;
+	}
+}
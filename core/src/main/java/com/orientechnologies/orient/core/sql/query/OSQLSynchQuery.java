@@ -31,6 +31,7 @@ import com.orientechnologies.orient.core.command.OCommandResultListener;
 @SuppressWarnings({ "unchecked", "serial" })
 public class OSQLSynchQuery<T extends Object> extends OSQLAsynchQuery<T> implements OCommandResultListener {
 	protected final List<T>	result	= new ArrayList<T>();
+	protected List<T>				lastResult;
 
 	public OSQLSynchQuery() {
 		resultListener = this;
@@ -49,6 +50,7 @@ public class OSQLSynchQuery<T extends Object> extends OSQLAsynchQuery<T> impleme
 	@Override
 	public void reset() {
 		result.clear();
+		lastResult = null;
 	}
 
 	public boolean result(final Object iRecord) {
@@ -61,15 +63,18 @@ public class OSQLSynchQuery<T extends Object> extends OSQLAsynchQuery<T> impleme
 
 	@Override
 	public List<T> run(Object... iArgs) {
-		if (!result.isEmpty()) {
+		if (lastResult != null && !lastResult.isEmpty()) {
 			// HANDLE PAGINATION AUTOMATICALLY BY MOVING THE PAGE RANGE
-			beginRange.copyFrom(database.getRecordByUserObject(result.get(result.size() - 1), true).getIdentity());
+			beginRange.copyFrom(database.getRecordByUserObject(lastResult.get(lastResult.size() - 1), true).getIdentity());
 			beginRange.clusterPosition++;
 			result.clear();
 		}
 
-		super.run(iArgs);
-		return result;
+		final List<T> storageResult = super.run(iArgs);
+
+		// REMOTE QUERIES EXECUTED THROUGH A SERVER-SIDE CURSOR RETURN A LIST THAT FETCHES THE RECORDS WHILE IT'S BROWSED
+		lastResult = storageResult != null ? storageResult : result;
+		return lastResult;
 	}
 
 	public Object getResult() {
@@ -17,6 +17,7 @@ package com.orientechnologies.orient.core.storage;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -77,6 +78,13 @@ public interface OStorage extends OSharedContainer {
 
 	public ORawBuffer readRecord(ODatabaseRecord iDatabase, ORecordId iRid, String iFetchPlan);
 
+	/**
+	 * Reads multiple records at once. Remote storages load them with a single request.
+	 * 
+	 * @return The buffers in the same order of the requested RIDs, with null for the records not found
+	 */
+	public List<ORawBuffer> readRecords(ODatabaseRecord iDatabase, List<ORecordId> iRids, String iFetchPlan);
+
 	public int updateRecord(ORecordId iRecordId, byte[] iContent, final int iVersion, final byte iRecordType);
 
 	public boolean deleteRecord(ORecordId iRecordId, final int iVersion);
@@ -15,6 +15,8 @@
  */
 package com.orientechnologies.orient.core.storage;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.orientechnologies.common.concur.resource.OCloseable;
@@ -24,6 +26,8 @@ import com.orientechnologies.common.concur.resource.OSharedResourceAdaptiveExter
 import com.orientechnologies.orient.core.cache.OLevel2RecordCache;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.config.OStorageConfiguration;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 
 public abstract class OStorageAbstract extends OSharedContainerImpl implements OStorage {
@@ -145,6 +149,13 @@ public abstract class OStorageAbstract extends OSharedContainerImpl implements O
 		return lock;
 	}
 
+	public List<ORawBuffer> readRecords(final ODatabaseRecord iDatabase, final List<ORecordId> iRids, final String iFetchPlan) {
+		final List<ORawBuffer> result = new ArrayList<ORawBuffer>(iRids.size());
+		for (ORecordId rid : iRids)
+			result.add(readRecord(iDatabase, rid, iFetchPlan));
+		return result;
+	}
+
 	public long countRecords() {
 		long tot = 0;
 
@@ -16,6 +16,16 @@
 package com.orientechnologies.orient.core.storage;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.orientechnologies.common.concur.lock.OLockManager;
 import com.orientechnologies.common.exception.OException;
@@ -26,9 +36,15 @@ import com.orientechnologies.orient.core.command.OCommandExecutor;
 import com.orientechnologies.orient.core.command.OCommandManager;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.ORecordElement;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
 import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.hook.ORecordHook.TYPE;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.record.ORecordInternal;
@@ -44,10 +60,13 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
 public abstract class OStorageEmbedded extends OStorageAbstract {
 	protected final OLockManager<ORID, Runnable>	lockManager;
 
+	private static ExecutorService								parallelBrowseExecutor;
+
 	public OStorageEmbedded(final String iName, final String iFilePath, final String iMode) {
 		super(iName, iFilePath, iMode);
 
-		lockManager = new OLockManager<ORID, Runnable>(OGlobalConfiguration.STORAGE_LOCK_TIMEOUT.getValueAsInteger());
+		lockManager = new OLockManager<ORID, Runnable>(OGlobalConfiguration.STORAGE_LOCK_TIMEOUT.getValueAsInteger(),
+				OGlobalConfiguration.STORAGE_LOCK_CONCURRENCY.getValueAsInteger());
 	}
 
 	protected abstract ORawBuffer readRecord(final OCluster iClusterSegment, final ORecordId iRid, boolean iAtomicLock);
@@ -146,7 +165,13 @@ public abstract class OStorageEmbedded extends OStorageAbstract {
 
 				rid.clusterPosition = positionInPhyCluster;
 
-				record = database.load(rid);
+				// SEARCH THE RECORD IN THE CURRENT TRANSACTION AND IN THE CACHE WITHOUT LOADING IT: THE OTHERS ARE READ IN THE REUSED
+				// INSTANCE, SO THE FIELDS ARE UNMARSHALLED ONLY IF ACCESSED AND A NEW RECORD IS CREATED ONLY IF THE LISTENER KEEPS IT
+				record = database.getTransaction().getRecord(rid);
+				if (record == null)
+					record = database.getLevel1Cache().findRecord(rid);
+				if (record != null && record.getInternalStatus() == ORecordElement.STATUS.NOT_LOADED)
+					record = null;
 
 				if (record != null && record.getRecordType() != ODocument.RECORD_TYPE)
 					// WRONG RECORD TYPE: JUMP IT
@@ -175,8 +200,12 @@ public abstract class OStorageEmbedded extends OStorageAbstract {
 
 						ioRecord.setVersion(recordBuffer.version);
 						ioRecord.setIdentity(cluster.getId(), positionInPhyCluster);
+						database.callbackHooks(TYPE.BEFORE_READ, ioRecord);
 						ioRecord.fromStream(recordBuffer.buffer);
+						database.callbackHooks(TYPE.AFTER_READ, ioRecord);
 						recordToCheck = ioRecord;
+
+						OProfiler.getInstance().updateCounter("OStorageLocal.foreach.uncachedRecords", +1);
 					} else
 						// GET THE CACHED RECORD
 						recordToCheck = record;
@@ -202,6 +231,178 @@ public abstract class OStorageEmbedded extends OStorageAbstract {
 		return ioRecord;
 	}
 
+	/**
+	 * Browses the clusters in parallel. Every cluster is split in partitions of contiguous positions that are read by a shared pool
+	 * of threads: each partition loads its own record instances and checks them against iFilter. The records accepted are passed to
+	 * iListener by the caller thread in the same order of a sequential browsing. Up to iParallelism partitions are processed at the
+	 * same time. When iListener returns false the pending partitions are cancelled.<br/>
+	 * <br/>
+	 * The records are read directly from the storage bypassing the database caches, so this must be never used inside a transaction.
+	 * Since database instances are not thread-safe, every partition opens its own database instance against this storage, without
+	 * security because the caller has already been authorized to read the clusters. The records are bound to iDatabase before being
+	 * passed to iListener. While in the worker threads the documents don't load their links.
+	 * 
+	 * @param iClusterIds
+	 *          Clusters to browse
+	 * @param iFilter
+	 *          Filter executed by the worker threads. Must be thread-safe and use only the database instance of the record
+	 * @param iListener
+	 *          Listener called by the caller thread for every record accepted by the filter
+	 * @param iDatabase
+	 *          Database instance of the caller to bind to the records
+	 * @param iParallelism
+	 *          Maximum number of partitions processed at the same time
+	 */
+	public void browseParallel(final int[] iClusterIds, final ORecordBrowsingListener iFilter,
+			final ORecordBrowsingListener iListener, final ODatabaseRecord iDatabase, final int iParallelism) {
+		checkOpeness();
+
+		final long timer = OProfiler.getInstance().startChrono();
+
+		final List<OParallelBrowseTask> partitions = new ArrayList<OParallelBrowseTask>();
+		final AtomicBoolean interrupted = new AtomicBoolean(false);
+		final List<Future<List<ORecordInternal<?>>>> results = new ArrayList<Future<List<ORecordInternal<?>>>>();
+
+		try {
+			// SPLIT THE CLUSTERS IN PARTITIONS
+			final int partitionSize = OGlobalConfiguration.QUERY_PARALLEL_SCAN_PARTITION_SIZE.getValueAsInteger();
+			for (int clusterId : iClusterIds) {
+				final OCluster cluster = getClusterById(clusterId);
+				final long lastPosition = cluster.getLastEntryPosition();
+				for (long begin = 0; begin <= lastPosition; begin += partitionSize)
+					partitions.add(new OParallelBrowseTask(cluster, begin, Math.min(begin + partitionSize - 1, lastPosition), iFilter,
+							iDatabase.getURL(), interrupted));
+			}
+
+			final ExecutorService executor = getParallelBrowseExecutor();
+
+			for (int i = 0; i < partitions.size(); ++i) {
+				// KEEP UP TO iParallelism PARTITIONS IN PROGRESS
+				while (results.size() < partitions.size() && results.size() < i + iParallelism)
+					results.add(executor.submit(partitions.get(results.size())));
+
+				final List<ORecordInternal<?>> records;
+				try {
+					records = results.get(i).get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new OStorageException("Parallel browsing of clusters has been interrupted");
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof OCommandExecutionException)
+						// PASS THROUGH
+						throw (OCommandExecutionException) e.getCause();
+					throw new OStorageException("Error on parallel browsing of clusters", e.getCause());
+				}
+
+				for (ORecordInternal<?> record : records) {
+					// THE DATABASE INSTANCE OF THE WORKER HAS BEEN ALREADY CLOSED
+					record.setDatabase(iDatabase);
+					if (record instanceof ODocument)
+						((ODocument) record).setLazyLoad(true);
+
+					if (!iListener.foreach(record))
+						// LISTENER HAS INTERRUPTED THE EXECUTION
+						return;
+				}
+			}
+		} catch (IOException e) {
+
+			OLogManager.instance().error(this, "Error on browsing elements of clusters in parallel", e);
+
+		} finally {
+			// STOP THE PARTITIONS STILL IN PROGRESS
+			interrupted.set(true);
+			for (Future<List<ORecordInternal<?>>> f : results)
+				f.cancel(false);
+
+			OProfiler.getInstance().updateCounter("OStorageEmbedded.browseParallel.partitions", results.size());
+			OProfiler.getInstance().stopChrono("OStorageEmbedded.browseParallel", timer);
+		}
+	}
+
+	private static synchronized ExecutorService getParallelBrowseExecutor() {
+		if (parallelBrowseExecutor == null)
+			parallelBrowseExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				private final AtomicInteger	counter	= new AtomicInteger();
+
+				public Thread newThread(final Runnable r) {
+					final Thread t = new Thread(r, "OrientDB ParallelBrowse-" + counter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		return parallelBrowseExecutor;
+	}
+
+	/**
+	 * Reads a range of positions of a cluster, collecting the records accepted by the filter.
+	 */
+	private class OParallelBrowseTask implements Callable<List<ORecordInternal<?>>> {
+		private final OCluster								cluster;
+		private final long										beginRange;
+		private final long										endRange;
+		private final ORecordBrowsingListener	filter;
+		private final String									databaseURL;
+		private final AtomicBoolean						interrupted;
+
+		public OParallelBrowseTask(final OCluster iCluster, final long iBeginRange, final long iEndRange,
+				final ORecordBrowsingListener iFilter, final String iDatabaseURL, final AtomicBoolean iInterrupted) {
+			cluster = iCluster;
+			beginRange = iBeginRange;
+			endRange = iEndRange;
+			filter = iFilter;
+			databaseURL = iDatabaseURL;
+			interrupted = iInterrupted;
+		}
+
+		public List<ORecordInternal<?>> call() throws Exception {
+			final List<ORecordInternal<?>> result = new ArrayList<ORecordInternal<?>>();
+
+			if (interrupted.get())
+				return result;
+
+			// OPEN A PRIVATE DATABASE INSTANCE: THE STORAGE IS SHARED AND ALREADY OPEN, SO THIS ONLY ADDS A USER TO IT
+			final ODatabaseDocumentTx database = new ODatabaseDocumentTx(databaseURL);
+			database.setProperty(ODatabase.OPTIONS.SECURITY.toString(), Boolean.FALSE);
+			database.open(null, null);
+			try {
+				ORawBuffer recordBuffer;
+				ORecordInternal<?> record;
+
+				for (long position = beginRange; position <= endRange && !interrupted.get(); ++position) {
+					final ORecordId rid = new ORecordId(cluster.getId(), position);
+
+					try {
+						recordBuffer = readRecord(cluster, rid, true);
+					} catch (ORecordNotFoundException e) {
+						// THE CLUSTER HAS BEEN TRUNCATED IN THE MEANWHILE
+						break;
+					}
+
+					if (recordBuffer == null || recordBuffer.recordType != ODocument.RECORD_TYPE)
+						// DELETED OR WRONG RECORD TYPE: JUMP IT
+						continue;
+
+					record = Orient.instance().getRecordFactoryManager().newInstance(database, recordBuffer.recordType);
+					record.setVersion(recordBuffer.version);
+					record.setIdentity(rid.clusterId, rid.clusterPosition);
+					record.fromStream(recordBuffer.buffer);
+
+					// AVOID TO LOAD THE LINKED RECORDS FROM THIS THREAD
+					((ODocument) record).setLazyLoad(false);
+
+					if (filter.foreach(record))
+						result.add(record);
+				}
+			} finally {
+				database.close();
+				ODatabaseRecordThreadLocal.INSTANCE.remove();
+			}
+
+			return result;
+		}
+	}
+
 	/**
 	 * Check if the storage is open. If it's closed an exception is raised.
 	 */
@@ -36,15 +36,20 @@ import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
  * 
  * Header structure:<br/>
  * <br/>
- * +-----------+--------------+---------------+---------------+<br/>
- * | FILE SIZE | FILLED UP TO | SOFTLY CLOSED | SECURITY CODE |<br/>
- * | 4 bytes . | 4 bytes .... | 1 byte ...... | 32 bytes .... |<br/>
- * +-----------+--------------+---------------+---------------+<br/>
+ * +-----------+--------------+---------------+---------------+-----------+--------------+<br/>
+ * | FILE SIZE | FILLED UP TO | SOFTLY CLOSED | SECURITY CODE | FILE SIZE | FILLED UP TO |<br/>
+ * | 4 bytes . | 4 bytes .... | 1 byte ...... | 32 bytes .... | 8 bytes . | 8 bytes .... |<br/>
+ * +-----------+--------------+---------------+---------------+-----------+--------------+<br/>
  * = 1024 bytes<br/>
  * <br/>
+ * The 8 bytes sizes at offset 48 and 56 allow files bigger than 2Gb. The 4 bytes ones are still written, limited to 2Gb, and read
+ * only when the 8 bytes ones are 0 as in the files created by the previous releases.<br/>
+ * <br/>
  */
 public abstract class OFile {
 	protected static final int	SOFTLY_CLOSED_OFFSET		= 8;
+	protected static final int	SIZE_64_OFFSET					= 48;
+	protected static final int	FILLED_UP_TO_64_OFFSET	= 56;
 
 	private FileLock						fileLock;
 
@@ -53,9 +58,9 @@ public abstract class OFile {
 	protected FileChannel				channel;
 
 	protected int								incrementSize						= DEFAULT_INCREMENT_SIZE;
-	protected int								maxSize;
-	protected int								size;																						// PART OF HEADER (4 bytes)
-	protected int								filledUpTo;																			// PART OF HEADER (4 bytes)
+	protected long							maxSize;
+	protected long							size;																						// PART OF HEADER (4+8 bytes)
+	protected long							filledUpTo;																			// PART OF HEADER (4+8 bytes)
 	protected byte[]						securityCode						= new byte[32];					// PART OF HEADER (32 bytes)
 	protected String						mode;
 
@@ -112,11 +117,11 @@ public abstract class OFile {
 		if (!osFile.exists() || osFile.length() == 0)
 			throw new FileNotFoundException("File: " + osFile.getAbsolutePath());
 
-		openChannel((int) osFile.length());
+		openChannel(osFile.length());
 
 		OLogManager.instance().debug(this, "Checking file integrity of " + osFile.getName() + "...");
 
-		final int fileSize = size;
+		final long fileSize = size;
 		readHeader();
 
 		if (filledUpTo > 0 && filledUpTo > size) {
@@ -215,7 +220,7 @@ public abstract class OFile {
 		}
 	}
 
-	public void changeSize(final int iSize) {
+	public void changeSize(final long iSize) {
 
 		if (OLogManager.instance().isDebugEnabled())
 			OLogManager.instance().debug(this, "Changing file size to " + iSize + " bytes. " + toString());
@@ -233,7 +238,7 @@ public abstract class OFile {
 	 * @param iSize
 	 * @throws IOException
 	 */
-	public void removeTail(int iSize) throws IOException {
+	public void removeTail(long iSize) throws IOException {
 		if (filledUpTo < iSize)
 			iSize = 0;
 
@@ -247,7 +252,7 @@ public abstract class OFile {
 	 * @param iSize
 	 * @throws IOException
 	 */
-	public void shrink(final int iSize) throws IOException {
+	public void shrink(final long iSize) throws IOException {
 		if (iSize > filledUpTo)
 			return;
 
@@ -257,8 +262,8 @@ public abstract class OFile {
 		writeHeader();
 	}
 
-	public int allocateSpace(final int iSize) throws IOException {
-		final int offset = filledUpTo;
+	public long allocateSpace(final int iSize) throws IOException {
+		final long offset = filledUpTo;
 
 		if (getFreeSpace() < iSize) {
 			if (maxSize > 0 && maxSize - size < iSize)
@@ -266,8 +271,8 @@ public abstract class OFile {
 						+ OFileUtils.getSizeAsString(maxSize) + ") was reached! " + toString());
 
 			// MAKE ROOM
-			int newFileSize = size;
-			int stepSizeInBytes = incrementSize > 0 ? incrementSize : -1 * size / 100 * incrementSize;
+			long newFileSize = size;
+			long stepSizeInBytes = incrementSize > 0 ? incrementSize : -1 * size / 100 * incrementSize;
 
 			// FIND THE BEST SIZE TO ALLOCATE (BASED ON INCREMENT-SIZE)
 			while (newFileSize - filledUpTo <= iSize) {
@@ -295,15 +300,15 @@ public abstract class OFile {
 		return iOffset;// + HEADER_SIZE;
 	}
 
-	public int getFreeSpace() {
+	public long getFreeSpace() {
 		return size - filledUpTo;
 	}
 
-	public int getFileSize() {
+	public long getFileSize() {
 		return size;
 	}
 
-	public int getFilledUpTo() {
+	public long getFilledUpTo() {
 		return filledUpTo;
 	}
 
@@ -338,12 +343,19 @@ public abstract class OFile {
 		return osFile;
 	}
 
+	/**
+	 * Returns the size to write in the legacy 4 bytes fields of the header.
+	 */
+	protected static int toLegacySize(final long iSize) {
+		return (int) Math.min(iSize, Integer.MAX_VALUE);
+	}
+
 	protected void init(final String iFileName, final String iMode) throws IOException {
 		mode = iMode;
 		osFile = new File(iFileName);
 	}
 
-	protected void openChannel(final int iNewSize) throws IOException {
+	protected void openChannel(final long iNewSize) throws IOException {
 		OLogManager.instance().debug(this, "[OFile.openChannel] Opening channel for file: " + osFile);
 
 		for (int i = 0; i < OPEN_RETRY_MAX; ++i)
@@ -372,11 +384,11 @@ public abstract class OFile {
 		size = maxSize > 0 && iNewSize > maxSize ? maxSize : iNewSize;
 	}
 
-	public int getMaxSize() {
+	public long getMaxSize() {
 		return maxSize;
 	}
 
-	public void setMaxSize(int maxSize) {
+	public void setMaxSize(long maxSize) {
 		this.maxSize = maxSize;
 	}
 
@@ -23,19 +23,18 @@ import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.OConstants;
 
 /**
- * Need to be synchronized by the external. Multiple Reader, Single Writer.<br/>
+ * Need to be synchronized by the external. Multiple Readers, and multiple Writers as long as they write different regions of the
+ * file while nobody changes its size.<br/>
  * Header structure:<br/>
  * <br/>
- * +-----------+--------------+---------------+---------------+<br/>
- * | FILE SIZE | FILLED UP TO | SOFTLY CLOSED | SECURITY CODE |<br/>
- * | 8 bytes . | 8 bytes .... | 1 byte ...... | 32 bytes .... |<br/>
- * +-----------+--------------+---------------+---------------+<br/>
+ * +-----------+--------------+---------------+---------------+-----------+--------------+<br/>
+ * | FILE SIZE | FILLED UP TO | SOFTLY CLOSED | SECURITY CODE | FILE SIZE | FILLED UP TO |<br/>
+ * | 4 bytes . | 4 bytes .... | 1 byte ...... | 32 bytes .... | 8 bytes . | 8 bytes .... |<br/>
+ * +-----------+--------------+---------------+---------------+-----------+--------------+<br/>
  * = 1024 bytes<br/>
  * <br/>
  */
 public class OFileClassic extends OFile {
-	protected ByteBuffer internalWriteBuffer = getBuffer(OConstants.SIZE_LONG);
-
 	public OFileClassic(String iFileName, String iMode) throws IOException {
 		super(iFileName, iMode);
 	}
@@ -43,9 +42,6 @@ public class OFileClassic extends OFile {
 	@Override
 	public void close() throws IOException {
 		setSoftlyClosed(true);
-		if (internalWriteBuffer != null)
-			internalWriteBuffer = null;
-
 		super.close();
 	}
 
@@ -122,7 +118,7 @@ public class OFileClassic extends OFile {
 	}
 
 	@Override
-	public void changeSize(int iSize) {
+	public void changeSize(long iSize) {
 		super.changeSize(iSize);
 		try {
 			channel.force(false);
@@ -150,14 +146,26 @@ public class OFileClassic extends OFile {
 		size = readData(0, OConstants.SIZE_INT).getInt();
 		filledUpTo = readData(OConstants.SIZE_INT, OConstants.SIZE_INT)
 				.getInt();
+
+		final long size64 = readData(SIZE_64_OFFSET, OConstants.SIZE_LONG).getLong();
+		if (size64 > 0) {
+			// 64 BITS HEADER
+			size = size64;
+			filledUpTo = readData(FILLED_UP_TO_64_OFFSET, OConstants.SIZE_LONG).getLong();
+		}
 	}
 
 	@Override
 	protected void writeHeader() throws IOException {
 		ByteBuffer buffer = getWriteBuffer(OConstants.SIZE_INT * 2);
-		buffer.putInt(size);
-		buffer.putInt(filledUpTo);
+		buffer.putInt(toLegacySize(size));
+		buffer.putInt(toLegacySize(filledUpTo));
 		writeData(buffer, 0);
+
+		buffer = getWriteBuffer(OConstants.SIZE_LONG * 2);
+		buffer.putLong(size);
+		buffer.putLong(filledUpTo);
+		writeData(buffer, SIZE_64_OFFSET);
 	}
 
 	@Override
@@ -203,10 +211,7 @@ public class OFileClassic extends OFile {
 	}
 
 	private ByteBuffer getWriteBuffer(final int iLenght) {
-		if (iLenght <= OConstants.SIZE_LONG)
-			// RECYCLE WRITE BYTE BUFFER SINCE WRITES ARE SYNCHRONIZED
-			return (ByteBuffer) internalWriteBuffer.rewind();
-
+		// NEVER SHARE THE WRITE BUFFER: WRITES AGAINST DIFFERENT REGIONS CAN BE CONCURRENT
 		return getBuffer(iLenght);
 	}
 }
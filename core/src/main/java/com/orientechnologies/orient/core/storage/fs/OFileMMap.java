@@ -35,10 +35,10 @@ import com.orientechnologies.orient.core.storage.fs.OMMapManager.OPERATION_TYPE;
  * executed against the channel directly without Memory Mapping.<br/>
  * Header structure:<br/>
  * <br/>
- * +-----------+--------------+---------------+---------------+<br/>
- * | FILE SIZE | FILLED UP TO | SOFTLY CLOSED | SECURITY CODE |<br/>
- * | 8 bytes . | 8 bytes .... | 1 byte ...... | 32 bytes .... |<br/>
- * +-----------+--------------+---------------+---------------+<br/>
+ * +-----------+--------------+---------------+---------------+-----------+--------------+<br/>
+ * | FILE SIZE | FILLED UP TO | SOFTLY CLOSED | SECURITY CODE | FILE SIZE | FILLED UP TO |<br/>
+ * | 4 bytes . | 4 bytes .... | 1 byte ...... | 32 bytes .... | 8 bytes . | 8 bytes .... |<br/>
+ * +-----------+--------------+---------------+---------------+-----------+--------------+<br/>
  * = 1024 bytes<br/>
  * <br/>
  */
@@ -63,10 +63,13 @@ public class OFileMMap extends OFile {
 
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, iLenght, OPERATION_TYPE.READ, strategy);
 		if (entry != null) {
-			// MMAP READ
-			synchronized (entry.buffer) {
-				entry.buffer.position((int) (iOffset - entry.beginOffset));
-				entry.buffer.get(iDestBuffer, 0, iLenght);
+			// MMAP READ: USE A DUPLICATE TO NOT SHARE THE POSITION WITH THE OTHER THREADS
+			try {
+				final ByteBuffer buffer = entry.buffer.duplicate();
+				buffer.position((int) (iOffset - entry.beginOffset));
+				buffer.get(iDestBuffer, 0, iLenght);
+			} finally {
+				OMMapManager.release(entry);
 			}
 		} else {
 			// DIRECT READ
@@ -84,8 +87,10 @@ public class OFileMMap extends OFile {
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OConstants.SIZE_INT, OPERATION_TYPE.READ, strategy);
 		if (entry != null) {
 			// MMAP READ
-			synchronized (entry.buffer) {
+			try {
 				return entry.buffer.getInt((int) (iOffset - entry.beginOffset));
+			} finally {
+				OMMapManager.release(entry);
 			}
 		} else {
 			// DIRECT READ
@@ -104,8 +109,10 @@ public class OFileMMap extends OFile {
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OConstants.SIZE_LONG, OPERATION_TYPE.READ, strategy);
 		if (entry != null) {
 			// MMAP READ
-			synchronized (entry.buffer) {
+			try {
 				return entry.buffer.getLong((int) (iOffset - entry.beginOffset));
+			} finally {
+				OMMapManager.release(entry);
 			}
 		} else {
 			// DIRECT READ
@@ -124,8 +131,10 @@ public class OFileMMap extends OFile {
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OConstants.SIZE_SHORT, OPERATION_TYPE.READ, strategy);
 		if (entry != null) {
 			// MMAP READ
-			synchronized (entry.buffer) {
+			try {
 				return entry.buffer.getShort((int) (iOffset - entry.beginOffset));
+			} finally {
+				OMMapManager.release(entry);
 			}
 		} else {
 			// DIRECT READ
@@ -144,8 +153,10 @@ public class OFileMMap extends OFile {
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OConstants.SIZE_BYTE, OPERATION_TYPE.READ, strategy);
 		if (entry != null) {
 			// MMAP READ
-			synchronized (entry.buffer) {
+			try {
 				return entry.buffer.get((int) (iOffset - entry.beginOffset));
+			} finally {
+				OMMapManager.release(entry);
 			}
 		} else {
 			// DIRECT READ
@@ -164,8 +175,10 @@ public class OFileMMap extends OFile {
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OConstants.SIZE_INT, OPERATION_TYPE.WRITE, strategy);
 		if (entry != null) {
 			// MMAP WRITE
-			synchronized (entry.buffer) {
+			try {
 				entry.buffer.putInt((int) (iOffset - entry.beginOffset), iValue);
+			} finally {
+				OMMapManager.release(entry);
 			}
 		} else {
 			// DIRECT WRITE
@@ -183,8 +196,10 @@ public class OFileMMap extends OFile {
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OConstants.SIZE_LONG, OPERATION_TYPE.WRITE, strategy);
 		if (entry != null) {
 			// MMAP WRITE
-			synchronized (entry.buffer) {
+			try {
 				entry.buffer.putLong((int) (iOffset - entry.beginOffset), iValue);
+			} finally {
+				OMMapManager.release(entry);
 			}
 		} else {
 			// DIRECT WRITE
@@ -202,8 +217,10 @@ public class OFileMMap extends OFile {
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OConstants.SIZE_SHORT, OPERATION_TYPE.WRITE, strategy);
 		if (entry != null) {
 			// MMAP WRITE
-			synchronized (entry.buffer) {
+			try {
 				entry.buffer.putShort((int) (iOffset - entry.beginOffset), iValue);
+			} finally {
+				OMMapManager.release(entry);
 			}
 		} else {
 			// DIRECT WRITE
@@ -221,8 +238,10 @@ public class OFileMMap extends OFile {
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OConstants.SIZE_BYTE, OPERATION_TYPE.WRITE, strategy);
 		if (entry != null) {
 			// MMAP WRITE
-			synchronized (entry.buffer) {
+			try {
 				entry.buffer.put((int) (iOffset - entry.beginOffset), iValue);
+			} finally {
+				OMMapManager.release(entry);
 			}
 		} else {
 			// DIRECT WRITE
@@ -244,10 +263,13 @@ public class OFileMMap extends OFile {
 		try {
 			final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, iSourceBuffer.length, OPERATION_TYPE.WRITE, strategy);
 			if (entry != null) {
-				// MMAP WRITE
-				synchronized (entry.buffer) {
-					entry.buffer.position((int) (iOffset - entry.beginOffset));
-					entry.buffer.put(iSourceBuffer);
+				// MMAP WRITE: USE A DUPLICATE TO NOT SHARE THE POSITION WITH THE OTHER THREADS
+				try {
+					final ByteBuffer buffer = entry.buffer.duplicate();
+					buffer.position((int) (iOffset - entry.beginOffset));
+					buffer.put(iSourceBuffer);
+				} finally {
+					OMMapManager.release(entry);
 				}
 			} else {
 				// DIRECT WRITE
@@ -265,7 +287,7 @@ public class OFileMMap extends OFile {
 	}
 
 	@Override
-	public void changeSize(final int iSize) {
+	public void changeSize(final long iSize) {
 		super.changeSize(iSize);
 		size = iSize;
 	}
@@ -285,6 +307,13 @@ public class OFileMMap extends OFile {
 		headerBuffer.rewind();
 		size = headerBuffer.getInt();
 		filledUpTo = headerBuffer.getInt();
+
+		final long size64 = headerBuffer.getLong(SIZE_64_OFFSET);
+		if (size64 > 0) {
+			// 64 BITS HEADER
+			size = size64;
+			filledUpTo = headerBuffer.getLong(FILLED_UP_TO_64_OFFSET);
+		}
 		// for (int i = 0; i < securityCode.length; ++i)
 		// securityCode[i] = buffer.get();
 		//
@@ -307,8 +336,10 @@ public class OFileMMap extends OFile {
 	@Override
 	protected void writeHeader() {
 		headerBuffer.rewind();
-		headerBuffer.putInt(size);
-		headerBuffer.putInt(filledUpTo);
+		headerBuffer.putInt(toLegacySize(size));
+		headerBuffer.putInt(toLegacySize(filledUpTo));
+		headerBuffer.putLong(SIZE_64_OFFSET, size);
+		headerBuffer.putLong(FILLED_UP_TO_64_OFFSET, filledUpTo);
 		//
 		// StringBuilder check = new StringBuilder();
 		// check.append('X');
@@ -371,7 +402,7 @@ public class OFileMMap extends OFile {
 	}
 
 	@Override
-	protected void openChannel(final int iNewSize) throws IOException {
+	protected void openChannel(final long iNewSize) throws IOException {
 		super.openChannel(iNewSize);
 		headerBuffer = channel.map(mode.equals("r") ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
 	}
@@ -18,6 +18,7 @@ package com.orientechnologies.orient.core.storage.fs;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.MappedByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.orientechnologies.common.log.OLogManager;
 
@@ -30,6 +31,12 @@ public class OMMapBufferEntry implements Comparable<OMMapBufferEntry> {
 	long							counter;
 	boolean						pin;
 
+	// USED BY OMMapBufferPoolConcurrent
+	volatile boolean	referenced;
+	volatile boolean	dirty;
+	int								clockPosition	= -1;
+	final AtomicInteger	usages				= new AtomicInteger();
+
 	static {
 		// GET SUN JDK METHOD TO CLEAN MMAP BUFFERS
 		try {
@@ -85,7 +92,34 @@ public class OMMapBufferEntry implements Comparable<OMMapBufferEntry> {
 		counter = 0;
 	}
 
+	/**
+	 * Increments the usage counter unless the entry has been already evicted.
+	 * 
+	 * @return true if the entry can be used, otherwise false
+	 */
+	boolean acquire() {
+		for (;;) {
+			final int current = usages.get();
+			if (current < 0)
+				// EVICTED
+				return false;
+			if (usages.compareAndSet(current, current + 1))
+				return true;
+		}
+	}
+
+	void release() {
+		usages.decrementAndGet();
+	}
+
+	/**
+	 * Marks the entry as evicted only if nobody is using it.
+	 */
+	boolean evict() {
+		return usages.compareAndSet(0, -1);
+	}
+
 	public int compareTo(final OMMapBufferEntry iOther) {
-		return (int) (beginOffset - iOther.beginOffset);
+		return beginOffset < iOther.beginOffset ? -1 : beginOffset == iOther.beginOffset ? 0 : 1;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.fs;
+
+import java.io.IOException;
+
+import com.orientechnologies.orient.core.storage.fs.OMMapManager.ALLOC_STRATEGY;
+import com.orientechnologies.orient.core.storage.fs.OMMapManager.OPERATION_TYPE;
+
+/**
+ * Pool of memory mapped blocks used by {@link OMMapManager}. Every block returned by
+ * {@link #request(OFileMMap, long, int, boolean, OPERATION_TYPE, ALLOC_STRATEGY)} must be given back with
+ * {@link #release(OMMapBufferEntry)} once the caller has finished to access it.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public interface OMMapBufferPool {
+	/**
+	 * Requests a mmap buffer to use.
+	 * 
+	 * @return The mmap buffer entry if found, or null if the caller must access to the file through the channel.
+	 */
+	public OMMapBufferEntry request(OFileMMap iFile, long iBeginOffset, int iSize, boolean iForce, OPERATION_TYPE iOperationType,
+			ALLOC_STRATEGY iStrategy);
+
+	/**
+	 * Releases an entry previously returned by the request() method.
+	 */
+	public void release(OMMapBufferEntry iEntry);
+
+	/**
+	 * Flushes away all the buffers of closed files. This frees the memory.
+	 */
+	public void flush();
+
+	/**
+	 * Forces to the disk all the memory mapped blocks of a file, keeping them in memory.
+	 */
+	public void flushFile(OFile iFile);
+
+	/**
+	 * Removes all the memory mapped blocks of a file.
+	 */
+	public void removeFile(OFile iFile) throws IOException;
+
+	/**
+	 * Closes all the memory mapped blocks.
+	 */
+	public void shutdown();
+
+	public int getBlocks();
+
+	public long getTotalMemory();
+
+	public int getOverlappedBlocks();
+
+	public int getOverlappedBlocks(OFile iFile);
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.fs;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.orientechnologies.common.io.OIOException;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.storage.fs.OMMapManager.ALLOC_STRATEGY;
+import com.orientechnologies.orient.core.storage.fs.OMMapManager.OPERATION_TYPE;
+
+/**
+ * Concurrent buffer pool. Every file is split in blocks of "file.mmap.blockSize" bytes aligned to the block size and kept in a
+ * per-file table indexed by offset / block size. Lookups don't lock: a hit only increments the usage counter of the entry, so
+ * readers never block each other. Blocks are mapped under the lock of their file and evicted using the CLOCK policy, skipping the
+ * entries in use. Requests across two blocks return null to let the caller access to the file through the channel.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public class OMMapBufferPoolConcurrent implements OMMapBufferPool {
+	private final ConcurrentHashMap<OFileMMap, OFileBlocks>	files				= new ConcurrentHashMap<OFileMMap, OFileBlocks>();
+	private final AtomicLong																totalMemory	= new AtomicLong();
+	private final List<OMMapBufferEntry>										clock				= new ArrayList<OMMapBufferEntry>();
+	private int																							clockHand		= 0;
+
+	/**
+	 * Block table of a file. Written only under its own monitor, read without locks.
+	 */
+	private static class OFileBlocks {
+		private final int																				blockSize;
+		private volatile AtomicReferenceArray<OMMapBufferEntry>	blocks	= new AtomicReferenceArray<OMMapBufferEntry>(16);
+
+		public OFileBlocks(final int iBlockSize) {
+			blockSize = iBlockSize;
+		}
+
+		public OMMapBufferEntry get(final int iIndex) {
+			final AtomicReferenceArray<OMMapBufferEntry> table = blocks;
+			return iIndex < table.length() ? table.get(iIndex) : null;
+		}
+
+		public void set(final int iIndex, final OMMapBufferEntry iEntry) {
+			AtomicReferenceArray<OMMapBufferEntry> table = blocks;
+			if (iIndex >= table.length()) {
+				// GROW THE TABLE SKIPPING THE EVICTED ENTRIES
+				final AtomicReferenceArray<OMMapBufferEntry> newTable = new AtomicReferenceArray<OMMapBufferEntry>(Math.max(iIndex + 1,
+						table.length() * 2));
+				for (int i = 0; i < table.length(); ++i) {
+					final OMMapBufferEntry e = table.get(i);
+					if (e != null && e.usages.get() > -1)
+						newTable.set(i, e);
+				}
+				blocks = table = newTable;
+			}
+			table.set(iIndex, iEntry);
+		}
+
+		public void remove(final int iIndex, final OMMapBufferEntry iEntry) {
+			final AtomicReferenceArray<OMMapBufferEntry> table = blocks;
+			if (iIndex < table.length())
+				table.compareAndSet(iIndex, iEntry, null);
+		}
+
+		public int getIndex(final long iOffset) {
+			return (int) (iOffset / blockSize);
+		}
+	}
+
+	/**
+	 * Requests a mmap buffer to use. The block containing the requested range is mapped if not yet in memory. The iForce parameter
+	 * is ignored since blocks have always the configured size, except the last one of the file.
+	 * 
+	 * @return The mmap buffer entry, or null if the range spans two blocks or if the pool is full and the strategy doesn't allow to
+	 *         free it
+	 */
+	public OMMapBufferEntry request(final OFileMMap iFile, final long iBeginOffset, final int iSize, final boolean iForce,
+			final OPERATION_TYPE iOperationType, final ALLOC_STRATEGY iStrategy) {
+		if (iStrategy == ALLOC_STRATEGY.MMAP_NEVER)
+			return null;
+
+		final OFileBlocks fileBlocks = getFileBlocks(iFile);
+		final int index = fileBlocks.getIndex(iBeginOffset);
+
+		if (fileBlocks.getIndex(iBeginOffset + iSize - 1) != index) {
+			// THE RANGE IS ACROSS TWO BLOCKS: RETURN NULL TO LET TO THE CALLER TO EXECUTE A DIRECT ACCESS WITHOUT MMAP
+			OProfiler.getInstance().updateCounter("OMMapManager.spannedPageUsingChannel", 1);
+			return null;
+		}
+
+		OMMapBufferEntry entry = acquire(fileBlocks.get(index), iBeginOffset, iSize, iOperationType);
+		if (entry != null)
+			return entry;
+
+		if (iStrategy == ALLOC_STRATEGY.MMAP_ALWAYS || iOperationType == OPERATION_TYPE.WRITE
+				&& iStrategy != ALLOC_STRATEGY.MMAP_ONLY_AVAIL_POOL)
+			// FREE LESS-USED BUFFERS BEFORE TO LOCK THE FILE TO AVOID TO BLOCK THE OTHER THREADS WHILE FLUSHING
+			while (totalMemory.get() + fileBlocks.blockSize > OMMapManager.getMaxMemory())
+				if (!evict())
+					break;
+
+		synchronized (fileBlocks) {
+			// CHECK AGAIN: ANOTHER THREAD COULD HAVE MAPPED IT IN THE MEANWHILE
+			final OMMapBufferEntry previous = fileBlocks.get(index);
+			entry = acquire(previous, iBeginOffset, iSize, iOperationType);
+			if (entry != null)
+				return entry;
+
+			final long blockBeginOffset = (long) index * fileBlocks.blockSize;
+			final int bufferSize = (int) Math.min(fileBlocks.blockSize, iFile.getFileSize() - blockBeginOffset);
+
+			if (iBeginOffset + iSize > blockBeginOffset + bufferSize)
+				throw new IllegalArgumentException("Invalid range requested for file " + iFile + ". Requested " + iSize
+						+ " bytes from the address " + iBeginOffset + " while the total file size is " + iFile.getFileSize());
+
+			if (totalMemory.get() + bufferSize > OMMapManager.getMaxMemory()
+					&& (iStrategy == ALLOC_STRATEGY.MMAP_ONLY_AVAIL_POOL || iOperationType == OPERATION_TYPE.READ
+							&& iStrategy == ALLOC_STRATEGY.MMAP_WRITE_ALWAYS_READ_IF_AVAIL_POOL)) {
+				OProfiler.getInstance().updateCounter("OMMapManager.usedChannel", 1);
+				return null;
+			}
+
+			if (previous != null && previous.evict())
+				// THE FILE HAS GROWN: DISCARD THE SHORTER BLOCK
+				unmap(previous);
+
+			do {
+				// FREE LESS-USED BUFFERS UNTIL THE MEMORY IS DOWN THE CONFIGURED MAX LIMIT. IF ALL THE BLOCKS ARE IN USE GO OVER IT
+				while (totalMemory.get() + bufferSize > OMMapManager.getMaxMemory())
+					if (!evict())
+						break;
+
+				// LOAD THE PAGE
+				try {
+					entry = OMMapManager.mapBuffer(iFile, blockBeginOffset, bufferSize);
+				} catch (IllegalArgumentException e) {
+					throw e;
+				} catch (Exception e) {
+					// REDUCE MAX MEMORY TO FORCE EMPTY BUFFERS
+					OMMapManager.setMaxMemory(OMMapManager.getMaxMemory() * 90 / 100);
+					OLogManager.instance().warn(OMMapManager.class, "Memory mapping error, try to reduce max memory to %d and retry...", e,
+							OMMapManager.getMaxMemory());
+				}
+			} while (entry == null && OMMapManager.getMaxMemory() > OMMapManager.MIN_MEMORY);
+
+			if (entry == null)
+				throw new OIOException("You can't access to the file portion " + iBeginOffset + "-" + iBeginOffset + iSize + " bytes");
+
+			entry.acquire();
+			entry.referenced = true;
+			entry.dirty = iOperationType == OPERATION_TYPE.WRITE;
+
+			synchronized (clock) {
+				entry.clockPosition = clock.size();
+				clock.add(entry);
+				totalMemory.addAndGet(bufferSize);
+			}
+
+			fileBlocks.set(index, entry);
+		}
+
+		return entry;
+	}
+
+	public void release(final OMMapBufferEntry iEntry) {
+		iEntry.release();
+	}
+
+	public void flush() {
+		final List<OMMapBufferEntry> removed = new ArrayList<OMMapBufferEntry>();
+
+		synchronized (clock) {
+			// BROWSE BACKWARD SINCE THE REMOVAL MOVES THE LAST ENTRY IN PLACE OF THE REMOVED ONE
+			for (int i = clock.size() - 1; i > -1; --i) {
+				final OMMapBufferEntry entry = clock.get(i);
+				if (entry.file != null && entry.file.isClosed()) {
+					removeFromClock(entry);
+					removed.add(entry);
+				}
+			}
+		}
+
+		for (Iterator<OFileMMap> it = files.keySet().iterator(); it.hasNext();)
+			if (it.next().isClosed())
+				it.remove();
+
+		for (OMMapBufferEntry entry : removed) {
+			OMMapManager.commitBuffer(entry);
+			entry.close();
+		}
+	}
+
+	public void flushFile(final OFile iFile) {
+		for (OMMapBufferEntry entry : getEntries(iFile, false))
+			commitIfDirty(entry);
+	}
+
+	public void removeFile(final OFile iFile) {
+		files.remove(iFile);
+
+		for (OMMapBufferEntry entry : getEntries(iFile, true))
+			entry.close();
+	}
+
+	public void shutdown() {
+		final List<OMMapBufferEntry> entries;
+		synchronized (clock) {
+			entries = new ArrayList<OMMapBufferEntry>(clock);
+			for (OMMapBufferEntry entry : entries)
+				entry.clockPosition = -1;
+			clock.clear();
+			clockHand = 0;
+			totalMemory.set(0);
+		}
+		files.clear();
+
+		for (OMMapBufferEntry entry : entries)
+			entry.close();
+	}
+
+	public int getBlocks() {
+		synchronized (clock) {
+			return clock.size();
+		}
+	}
+
+	public long getTotalMemory() {
+		return totalMemory.get();
+	}
+
+	/**
+	 * Blocks are aligned to the block size, so they never overlap.
+	 */
+	public int getOverlappedBlocks() {
+		return 0;
+	}
+
+	public int getOverlappedBlocks(final OFile iFile) {
+		return 0;
+	}
+
+	private OFileBlocks getFileBlocks(final OFileMMap iFile) {
+		OFileBlocks fileBlocks = files.get(iFile);
+		if (fileBlocks == null) {
+			fileBlocks = new OFileBlocks(OMMapManager.getBlockSize());
+			final OFileBlocks previous = files.putIfAbsent(iFile, fileBlocks);
+			if (previous != null)
+				fileBlocks = previous;
+		}
+		return fileBlocks;
+	}
+
+	private OMMapBufferEntry acquire(final OMMapBufferEntry iEntry, final long iBeginOffset, final int iSize,
+			final OPERATION_TYPE iOperationType) {
+		if (iEntry == null || iBeginOffset + iSize > iEntry.beginOffset + iEntry.size || !iEntry.acquire())
+			return null;
+
+		// FOUND: USE IT. CHECK THE FLAGS BEFORE TO WRITE THEM TO AVOID TO INVALIDATE THE CPU CACHES AT EVERY ACCESS
+		if (!iEntry.referenced)
+			iEntry.referenced = true;
+		if (iOperationType == OPERATION_TYPE.WRITE && !iEntry.dirty)
+			iEntry.dirty = true;
+		OProfiler.getInstance().updateCounter("OMMapManager.reusedPage", 1);
+		return iEntry;
+	}
+
+	/**
+	 * Moves the clock hand until an entry not recently referenced and not in use is found, then unmaps it.
+	 * 
+	 * @return true if an entry has been evicted, false if all the entries are in use
+	 */
+	private boolean evict() {
+		OMMapBufferEntry victim = null;
+
+		synchronized (clock) {
+			// TWO ROUNDS AT MAXIMUM: THE FIRST ONE CLEARS THE REFERENCED FLAGS
+			for (int i = clock.size() * 2; i > 0 && victim == null; --i) {
+				if (clockHand >= clock.size())
+					clockHand = 0;
+
+				final OMMapBufferEntry entry = clock.get(clockHand);
+				if (entry.referenced)
+					entry.referenced = false;
+				else if (entry.evict()) {
+					victim = entry;
+					break;
+				}
+
+				clockHand++;
+			}
+		}
+
+		if (victim == null)
+			return false;
+
+		unmap(victim);
+		OProfiler.getInstance().updateCounter("OMMapManager.evictedPage", 1);
+		return true;
+	}
+
+	/**
+	 * Removes an evicted entry from the pool and forces its content to the disk if changed. The buffer is freed by the GC since other
+	 * threads could still hold the entry reference without using it.
+	 */
+	private void unmap(final OMMapBufferEntry iEntry) {
+		synchronized (clock) {
+			removeFromClock(iEntry);
+		}
+
+		final OFileMMap file = iEntry.file;
+		if (file != null) {
+			final OFileBlocks fileBlocks = files.get(file);
+			if (fileBlocks != null)
+				fileBlocks.remove(fileBlocks.getIndex(iEntry.beginOffset), iEntry);
+		}
+
+		commitIfDirty(iEntry);
+	}
+
+	private void commitIfDirty(final OMMapBufferEntry iEntry) {
+		if (iEntry.dirty) {
+			iEntry.dirty = false;
+			OMMapManager.commitBuffer(iEntry);
+		}
+	}
+
+	/**
+	 * Removes the entry in O(1) by moving the last one in its place. Must be called while holding the clock monitor.
+	 */
+	private void removeFromClock(final OMMapBufferEntry iEntry) {
+		final int position = iEntry.clockPosition;
+		if (position < 0)
+			// ALREADY REMOVED
+			return;
+
+		final OMMapBufferEntry last = clock.remove(clock.size() - 1);
+		if (last != iEntry) {
+			clock.set(position, last);
+			last.clockPosition = position;
+		}
+		iEntry.clockPosition = -1;
+		totalMemory.addAndGet(-iEntry.size);
+	}
+
+	/**
+	 * Returns the entries of a file, optionally removing them from the pool.
+	 */
+	private List<OMMapBufferEntry> getEntries(final OFile iFile, final boolean iRemove) {
+		final List<OMMapBufferEntry> entries = new ArrayList<OMMapBufferEntry>();
+
+		synchronized (clock) {
+			for (int i = clock.size() - 1; i > -1; --i) {
+				final OMMapBufferEntry entry = clock.get(i);
+				if (entry.file == iFile) {
+					if (iRemove)
+						removeFromClock(entry);
+					entries.add(entry);
+				}
+			}
+		}
+		return entries;
+	}
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.fs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.orientechnologies.common.io.OIOException;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.storage.fs.OMMapManager.ALLOC_STRATEGY;
+import com.orientechnologies.orient.core.storage.fs.OMMapManager.OPERATION_TYPE;
+import com.orientechnologies.orient.core.storage.fs.OMMapManager.OVERLAP_STRATEGY;
+
+/**
+ * Legacy buffer pool: blocks of variable size are kept in a global list sorted by usage and in a per-file list sorted by offset.
+ * Every access is serialized on the pool monitor.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public class OMMapBufferPoolLRU implements OMMapBufferPool {
+	private long																			totalMemory;
+	private List<OMMapBufferEntry>									bufferPoolLRU			= new ArrayList<OMMapBufferEntry>();
+	private Map<OFileMMap, List<OMMapBufferEntry>>	bufferPoolPerFile	= new HashMap<OFileMMap, List<OMMapBufferEntry>>();
+
+	/**
+	 * Requests a mmap buffer to use.
+	 * 
+	 * @param iFile
+	 *          MMap file
+	 * @param iBeginOffset
+	 *          Begin offset
+	 * @param iSize
+	 *          Portion size requested
+	 * @param iForce
+	 *          Tells if the size is mandatory or can be rounded to the next segment
+	 * @param iOperationType
+	 *          READ or WRITE
+	 * @param iStrategy
+	 * @return The mmap buffer entry if found, or null if the operation is READ and the buffer pool is full.
+	 */
+	public synchronized OMMapBufferEntry request(final OFileMMap iFile, final long iBeginOffset, final int iSize,
+			final boolean iForce, final OPERATION_TYPE iOperationType, final ALLOC_STRATEGY iStrategy) {
+
+		if (iStrategy == ALLOC_STRATEGY.MMAP_NEVER)
+			return null;
+
+		OMMapBufferEntry entry = searchBetweenLastBlocks(iFile, iBeginOffset, iSize);
+		if (entry != null)
+			return entry;
+
+		// SEARCH THE REQUESTED RANGE IN THE CACHED BUFFERS
+		List<OMMapBufferEntry> fileEntries = bufferPoolPerFile.get(iFile);
+		if (fileEntries == null) {
+			fileEntries = new ArrayList<OMMapBufferEntry>();
+			bufferPoolPerFile.put(iFile, fileEntries);
+		}
+
+		int position = searchEntry(fileEntries, iBeginOffset, iSize);
+		if (position > -1)
+			// FOUND !!!
+			return fileEntries.get(position);
+
+		int p = (position + 2) * -1;
+
+		// CHECK IF THERE IS A BUFFER THAT OVERLAPS
+		if (!allocIfOverlaps(iBeginOffset, iSize, fileEntries, p)) {
+			OProfiler.getInstance().updateCounter("OMMapManager.usedChannel", 1);
+			return null;
+		}
+
+		int bufferSize = computeBestEntrySize(iFile, iBeginOffset, iSize, iForce, fileEntries, p);
+
+		if (totalMemory + bufferSize > OMMapManager.getMaxMemory()
+				&& (iStrategy == ALLOC_STRATEGY.MMAP_ONLY_AVAIL_POOL || iOperationType == OPERATION_TYPE.READ
+						&& iStrategy == ALLOC_STRATEGY.MMAP_WRITE_ALWAYS_READ_IF_AVAIL_POOL)) {
+			OProfiler.getInstance().updateCounter("OMMapManager.usedChannel", 1);
+			return null;
+		}
+
+		entry = null;
+		// FREE LESS-USED BUFFERS UNTIL THE FREE-MEMORY IS DOWN THE CONFIGURED MAX LIMIT
+		do {
+			if (totalMemory + bufferSize > OMMapManager.getMaxMemory())
+				freeResources();
+
+			// RECOMPUTE THE POSITION AFTER REMOVING
+			fileEntries = bufferPoolPerFile.get(iFile);
+			position = searchEntry(fileEntries, iBeginOffset, iSize);
+			if (position > -1)
+				// FOUND: THIS IS PRETTY STRANGE SINCE IT WASN'T FOUND!
+				return fileEntries.get(position);
+
+			// LOAD THE PAGE
+			try {
+				entry = OMMapManager.mapBuffer(iFile, iBeginOffset, bufferSize);
+			} catch (IllegalArgumentException e) {
+				throw e;
+			} catch (Exception e) {
+				// REDUCE MAX MEMORY TO FORCE EMPTY BUFFERS
+				OMMapManager.setMaxMemory(OMMapManager.getMaxMemory() * 90 / 100);
+				OLogManager.instance().warn(OMMapManager.class, "Memory mapping error, try to reduce max memory to %d and retry...", e,
+						OMMapManager.getMaxMemory());
+			}
+		} while (entry == null && OMMapManager.getMaxMemory() > OMMapManager.MIN_MEMORY);
+
+		if (entry == null)
+			throw new OIOException("You can't access to the file portion " + iBeginOffset + "-" + iBeginOffset + iSize + " bytes");
+
+		totalMemory += bufferSize;
+		bufferPoolLRU.add(entry);
+
+		p = (position + 2) * -1;
+		if (p < 0)
+			p = 0;
+
+		if (fileEntries == null) {
+			// IN CASE THE CLEAN HAS REMOVED THE LIST
+			fileEntries = new ArrayList<OMMapBufferEntry>();
+			bufferPoolPerFile.put(iFile, fileEntries);
+		}
+
+		fileEntries.add(p, entry);
+
+		return entry;
+	}
+
+	private void freeResources() {
+		final long memoryThreshold = (long) (OMMapManager.getMaxMemory() * 0.75);
+
+		if (OLogManager.instance().isDebugEnabled())
+			OLogManager.instance().debug(null, "Free mmmap blocks, at least %d MB...", (totalMemory - memoryThreshold) / 1000000);
+
+		// SORT AS LRU, FIRST = MOST USED
+		Collections.sort(bufferPoolLRU, new Comparator<OMMapBufferEntry>() {
+			public int compare(final OMMapBufferEntry o1, final OMMapBufferEntry o2) {
+				return (int) (o1.counter - o2.counter);
+			}
+		});
+
+		// REMOVE THE LESS USED ENTRY AND UPDATE THE TOTAL MEMORY
+		for (Iterator<OMMapBufferEntry> it = bufferPoolLRU.iterator(); it.hasNext();) {
+			final OMMapBufferEntry entry = it.next();
+			if (!entry.pin) {
+				// REMOVE FROM COLLECTIONS
+				removeEntry(it, entry);
+
+				if (totalMemory < memoryThreshold)
+					break;
+			}
+		}
+	}
+
+	private OMMapBufferEntry searchBetweenLastBlocks(final OFileMMap iFile, final long iBeginOffset, final int iSize) {
+		if (bufferPoolLRU.size() > 0) {
+			// SEARCH IF IT'S BETWEEN THE LAST 5 BLOCK USED: THIS IS THE COMMON CASE ON MASSIVE INSERTION
+			final int min = Math.max(bufferPoolLRU.size() - 5, -1);
+			for (int i = bufferPoolLRU.size() - 1; i > min; --i) {
+				final OMMapBufferEntry e = bufferPoolLRU.get(i);
+
+				if (e.file == iFile && iBeginOffset >= e.beginOffset && iBeginOffset + iSize <= e.beginOffset + e.size) {
+					// FOUND: USE IT
+					OProfiler.getInstance().updateCounter("OMMapManager.reusedPageBetweenLast", 1);
+					e.counter++;
+					return e;
+				}
+			}
+		}
+		return null;
+	}
+
+	public synchronized void flush() {
+		OMMapBufferEntry entry;
+		for (Iterator<OMMapBufferEntry> it = bufferPoolLRU.iterator(); it.hasNext();) {
+			entry = it.next();
+			if (entry.file != null && entry.file.isClosed()) {
+				removeEntry(it, entry);
+				entry.close();
+			}
+		}
+	}
+
+	public synchronized void flushFile(final OFile iFile) {
+		final List<OMMapBufferEntry> entries = bufferPoolPerFile.get(iFile);
+		if (entries != null)
+			for (OMMapBufferEntry entry : entries)
+				OMMapManager.commitBuffer(entry);
+	}
+
+	/**
+	 * Frees the mmap entry from the memory
+	 */
+	private boolean removeEntry(final Iterator<OMMapBufferEntry> it, final OMMapBufferEntry entry) {
+		if (OMMapManager.commitBuffer(entry)) {
+			// COMMITTED: REMOVE IT
+			it.remove();
+			final List<OMMapBufferEntry> file = bufferPoolPerFile.get(entry.file);
+			if (file != null) {
+				file.remove(entry);
+				if (file.isEmpty())
+					bufferPoolPerFile.remove(entry.file);
+			}
+			entry.buffer = null;
+
+			totalMemory -= entry.size;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the file.
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void removeFile(final OFile file) throws IOException {
+		final List<OMMapBufferEntry> entries = bufferPoolPerFile.remove(file);
+		if (entries != null) {
+			for (OMMapBufferEntry entry : entries) {
+				bufferPoolLRU.remove(entry);
+				entry.close();
+			}
+			entries.clear();
+		}
+	}
+
+	public void release(final OMMapBufferEntry iEntry) {
+		// ENTRIES ARE NEVER UNMAPPED WHILE IN USE: NOTHING TO DO
+	}
+
+	public synchronized void shutdown() {
+		for (OMMapBufferEntry entry : new ArrayList<OMMapBufferEntry>(bufferPoolLRU)) {
+			entry.close();
+		}
+		bufferPoolLRU.clear();
+		bufferPoolPerFile.clear();
+		totalMemory = 0;
+	}
+
+	public synchronized int getBlocks() {
+		return bufferPoolLRU.size();
+	}
+
+	public long getTotalMemory() {
+		return totalMemory;
+	}
+
+	public synchronized int getOverlappedBlocks() {
+		int count = 0;
+		for (OFile f : bufferPoolPerFile.keySet()) {
+			count += getOverlappedBlocks(f);
+		}
+		return count;
+	}
+
+	public synchronized int getOverlappedBlocks(final OFile iFile) {
+		int count = 0;
+
+		final List<OMMapBufferEntry> blocks = bufferPoolPerFile.get(iFile);
+		long lastPos = -1;
+		for (OMMapBufferEntry block : blocks) {
+			if (lastPos > -1 && lastPos > block.beginOffset) {
+				OLogManager.instance().warn(null, "Found overlapped block for file %s at position %d. Previous offset+size was %d", iFile,
+						block.beginOffset, lastPos);
+				count++;
+			}
+
+			lastPos = block.beginOffset + block.size;
+		}
+		return count;
+	}
+
+	/**
+	 * Search for a buffer in the ordered list.
+	 * 
+	 * @param fileEntries
+	 * @param iBeginOffset
+	 * @param iSize
+	 * @return negative number means not found. The position to insert is the (return value +1)*-1. Zero or positive number is the
+	 *         found position.
+	 */
+	private int searchEntry(final List<OMMapBufferEntry> fileEntries, final long iBeginOffset, final int iSize) {
+		if (fileEntries == null || fileEntries.size() == 0)
+			return -1;
+
+		int high = fileEntries.size() - 1;
+		if (high < 0)
+			// NOT FOUND
+			return -1;
+
+		int low = 0;
+		int mid = -1;
+
+		// BINARY SEARCH
+		OMMapBufferEntry e;
+
+		while (low <= high) {
+			mid = (low + high) >>> 1;
+			e = fileEntries.get(mid);
+
+			if (iBeginOffset >= e.beginOffset && iBeginOffset + iSize <= e.beginOffset + e.size) {
+				// FOUND: USE IT
+				OProfiler.getInstance().updateCounter("OMMapManager.reusedPage", 1);
+				e.counter++;
+				return mid;
+			}
+
+			if (low == high) {
+				if (iBeginOffset > e.beginOffset)
+					// NEXT POSITION
+					low++;
+
+				// NOT FOUND
+				return (low + 2) * -1;
+			}
+
+			if (iBeginOffset >= e.beginOffset)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+
+		// NOT FOUND
+		return mid;
+	}
+
+	private boolean allocIfOverlaps(final long iBeginOffset, final int iSize, final List<OMMapBufferEntry> fileEntries,
+			final int p) {
+		if (OMMapManager.getOverlapStrategy() == OVERLAP_STRATEGY.OVERLAP)
+			return true;
+
+		boolean overlaps = false;
+		OMMapBufferEntry entry = null;
+		if (p > 0) {
+			// CHECK LOWER OFFSET
+			entry = fileEntries.get(p - 1);
+			overlaps = entry.beginOffset <= iBeginOffset && entry.beginOffset + entry.size >= iBeginOffset;
+		}
+
+		if (!overlaps && p < fileEntries.size() - 1) {
+			// CHECK HIGHER OFFSET
+			entry = fileEntries.get(p);
+			overlaps = iBeginOffset + iSize >= entry.beginOffset;
+		}
+
+		if (overlaps) {
+			// READ NOT IN BUFFER POOL: RETURN NULL TO LET TO THE CALLER TO EXECUTE A DIRECT READ WITHOUT MMAP
+			OProfiler.getInstance().updateCounter("OMMapManager.overlappedPageUsingChannel", 1);
+			if (OMMapManager.getOverlapStrategy() == OVERLAP_STRATEGY.NO_OVERLAP_FLUSH_AND_USE_CHANNEL)
+				OMMapManager.commitBuffer(entry);
+			return false;
+		}
+
+		return true;
+	}
+
+	private int computeBestEntrySize(final OFileMMap iFile, final long iBeginOffset, final int iSize, final boolean iForce,
+			List<OMMapBufferEntry> fileEntries, int p) {
+		int bufferSize;
+		if (p > -1 && p < fileEntries.size()) {
+			// GET NEXT ENTRY AS SIZE LIMIT
+			bufferSize = (int) Math.min(fileEntries.get(p).beginOffset - iBeginOffset, Integer.MAX_VALUE);
+			if (bufferSize < iSize)
+				// ROUND TO THE BUFFER SIZE
+				bufferSize = iSize;
+
+			if (bufferSize < OMMapManager.getBlockSize())
+				bufferSize = OMMapManager.getBlockSize();
+		} else {
+			// ROUND TO THE BUFFER SIZE
+			bufferSize = iForce ? iSize : iSize < OMMapManager.getBlockSize() ? OMMapManager.getBlockSize() : iSize;
+
+			if (iBeginOffset + bufferSize > iFile.getFileSize())
+				// REQUESTED BUFFER IS TOO LARGE: GET AS MAXIMUM AS POSSIBLE
+				bufferSize = (int) (iFile.getFileSize() - iBeginOffset);
+		}
+
+		if (bufferSize <= 0)
+			throw new IllegalArgumentException("Invalid range requested for file " + iFile + ". Requested " + iSize
+					+ " bytes from the address " + iBeginOffset + " while the total file size is " + iFile.getFileSize());
+
+		return bufferSize;
+	}
+}
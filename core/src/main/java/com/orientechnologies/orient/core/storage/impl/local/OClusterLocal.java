@@ -155,6 +155,19 @@ public class OClusterLocal extends OMultiFileSegment implements OCluster {
 		}
 	}
 
+	@Override
+	public void force() {
+		acquireSharedLock();
+		try {
+
+			super.force();
+			holeSegment.force();
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
 	public void set(ATTRIBUTES iAttribute, Object iValue) throws IOException {
 		if (iAttribute == null)
 			throw new IllegalArgumentException("attribute is null");
@@ -410,6 +423,57 @@ public class OClusterLocal extends OMultiFileSegment implements OCluster {
 		}
 	}
 
+	/**
+	 * Makes sure the logical position exists, allocating the missing entries as holes, and removes it from the holes if it was
+	 * deleted. Used by the recovery of the redo log to replay the creation of a record in the same position it had.
+	 * 
+	 * @throws IOException
+	 */
+	public void restorePhysicalPosition(final long iPosition) throws IOException {
+		final long position = iPosition * RECORD_SIZE;
+
+		acquireExclusiveLock();
+		try {
+
+			if (position >= getFilledUpTo()) {
+				long offset;
+				do {
+					// ALLOCATE A NEW EMPTY ENTRY
+					final long[] pos = allocateSpace(RECORD_SIZE);
+					offset = getAbsolutePosition(pos);
+
+					final OFile file = files[(int) pos[0]];
+					long p = pos[1];
+
+					file.writeShort(p, (short) -1);
+					file.writeLong(p += OConstants.SIZE_SHORT, -1);
+					file.writeByte(p += OConstants.SIZE_LONG, (byte) 0);
+					file.writeInt(p += OConstants.SIZE_BYTE, -1);
+
+					if (offset < position)
+						// ENTRY IN THE MIDDLE: LEAVE IT AS A HOLE
+						holeSegment.pushPosition(offset);
+
+				} while (offset < position);
+			} else
+				// IF IT WAS DELETED IT'S NOT A HOLE ANYMORE
+				holeSegment.removeEntryWithPosition(position);
+
+			if (iPosition < beginOffsetData || beginOffsetData == -1) {
+				beginOffsetData = iPosition;
+				files[0].writeHeaderLong(0, beginOffsetData);
+			}
+
+			if (endOffsetData > -1 && iPosition > endOffsetData) {
+				endOffsetData = iPosition;
+				files[0].writeHeaderLong(OConstants.SIZE_LONG, endOffsetData);
+			}
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
 	public long getFirstEntryPosition() throws IOException {
 		acquireSharedLock();
 		try {
@@ -25,6 +25,10 @@ public class ODataHoleInfo implements Comparable<ODataHoleInfo> {
 	public long	dataOffset;
 	public int	holeOffset;
 
+	// LINKS OF THE SIZE-CLASS LIST THE HOLE BELONGS TO
+	ODataHoleInfo	nextInClass;
+	ODataHoleInfo	previousInClass;
+
 	public ODataHoleInfo() {
 	}
 
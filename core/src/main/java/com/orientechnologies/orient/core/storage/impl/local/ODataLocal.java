@@ -57,6 +57,8 @@ public class ODataLocal extends OMultiFileSegment {
 	private final String						PROFILER_UPDATE_NOT_REUSED;
 	private final String						PROFILER_MOVE_RECORD;
 	private final String						PROFILER_HOLE_HANDLE;
+	private final String						PROFILER_COMPACT_MOVED;
+	private final String						PROFILER_COMPACT_RECLAIMED;
 
 	public ODataLocal(final OStorageLocal iStorage, final OStorageDataConfiguration iConfig, final int iId) throws IOException {
 		super(iStorage, iConfig, DEF_EXTENSION, 0);
@@ -76,6 +78,8 @@ public class ODataLocal extends OMultiFileSegment {
 		PROFILER_UPDATE_REUSED_PARTIAL = "storage." + storage.getName() + ".data.update.reusedPartial";
 		PROFILER_UPDATE_NOT_REUSED = "storage." + storage.getName() + ".data.update.notReused";
 		PROFILER_MOVE_RECORD = "storage." + storage.getName() + ".data.move";
+		PROFILER_COMPACT_MOVED = "storage." + storage.getName() + ".data.compact.movedBytes";
+		PROFILER_COMPACT_RECLAIMED = "storage." + storage.getName() + ".data.compact.reclaimedBytes";
 	}
 
 	@Override
@@ -117,6 +121,19 @@ public class ODataLocal extends OMultiFileSegment {
 		}
 	}
 
+	@Override
+	public void force() {
+		acquireSharedLock();
+		try {
+
+			super.force();
+			holeSegment.force();
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
 	/**
 	 * Add the record content in file.
 	 * 
@@ -130,16 +147,24 @@ public class ODataLocal extends OMultiFileSegment {
 			// AVOID UNUSEFUL CREATION OF EMPTY RECORD: IT WILL BE CREATED AT FIRST UPDATE
 			return -1;
 
+		final long[] newFilePosition;
+
 		acquireExclusiveLock();
 		try {
-			final int recordSize = iContent.length + RECORD_FIX_SIZE;
+			newFilePosition = getFreeSpace(iContent.length + RECORD_FIX_SIZE);
 
-			final long[] newFilePosition = getFreeSpace(recordSize);
+			// DOWNGRADE THE LOCK: THE SPACE IS RESERVED, SO OTHER RECORDS CAN BE ADDED WHILE THIS IS WRITTEN
+			acquireSharedLock();
+		} finally {
+			releaseExclusiveLock();
+		}
+
+		try {
 			writeRecord(newFilePosition, iRid.clusterId, iRid.clusterPosition, iContent);
 			return getAbsolutePosition(newFilePosition);
 
 		} finally {
-			releaseExclusiveLock();
+			releaseSharedLock();
 		}
 	}
 
@@ -359,14 +384,16 @@ public class ODataLocal extends OMultiFileSegment {
 
 			long[] pos = getRelativePosition(iRecordOffset);
 			final OFile file = files[(int) pos[0]];
+			final long fileStart = iRecordOffset - pos[1];
 
 			final ODataHoleInfo closestHole = getCloserHole(iRecordOffset, iRecordSize, file, pos);
 
 			OProfiler.getInstance().stopChrono(PROFILER_HOLE_FIND_CLOSER, timer);
 
+			ODataHoleInfo hole = closestHole;
 			if (closestHole == null)
 				// CREATE A NEW ONE
-				holeSegment.createHole(iRecordOffset, holeSize);
+				hole = holeSegment.createHole(iRecordOffset, holeSize);
 			else if (closestHole.dataOffset + closestHole.size == iRecordOffset) {
 				// IT'S CONSECUTIVE TO ANOTHER HOLE AT THE LEFT: UPDATE LAST ONE
 				holeSize += closestHole.size;
@@ -459,6 +486,11 @@ public class ODataLocal extends OMultiFileSegment {
 				holeSegment.updateHole(closestHole, holePositionOffset, holeSize);
 			}
 
+			// COALESCE WITH THE ADJACENT HOLES OF THE SAME FILE
+			hole = holeSegment.coalesce(hole, fileStart, fileStart + file.getFilledUpTo());
+			holePositionOffset = hole.dataOffset;
+			holeSize = hole.size;
+
 			// WRITE NEGATIVE RECORD SIZE TO MARK AS DELETED
 			pos = getRelativePosition(holePositionOffset);
 			files[(int) pos[0]].writeInt(pos[1], holeSize * -1);
@@ -470,6 +502,81 @@ public class ODataLocal extends OMultiFileSegment {
 		}
 	}
 
+	/**
+	 * Executes one step of the online compaction. Takes the first hole of the segment and slides it toward the end of its file by
+	 * moving the following records on the left, merging the holes found on the way. When the hole reaches the end of the file, the
+	 * file is shrunk and the hole removed. The caller must hold the storage's exclusive lock since the cluster's physical positions
+	 * are updated too.
+	 * 
+	 * @param iMaxBytesToMove
+	 *          Maximum bytes of records to move in this step
+	 * @return The bytes moved plus the bytes reclaimed, 0 if there is nothing to compact
+	 * @throws IOException
+	 */
+	public long compact(final int iMaxBytesToMove) throws IOException {
+		acquireExclusiveLock();
+		try {
+			final ODataHoleInfo hole = holeSegment.getFirstHole();
+			if (hole == null)
+				// NOTHING TO COMPACT
+				return 0;
+
+			final long[] pos = getRelativePosition(hole.dataOffset);
+			final OFile file = files[(int) pos[0]];
+			final long fileEnd = hole.dataOffset - pos[1] + file.getFilledUpTo();
+
+			long moveTo = hole.dataOffset;
+			long moveFrom = hole.dataOffset + hole.size;
+			int moved = 0;
+
+			while (moveFrom < fileEnd) {
+				final ODataHoleInfo nextHole = holeSegment.getHoleAt(moveFrom);
+				if (nextHole != null) {
+					// MERGE THE NEXT HOLE WITH THE CURRENT ONE
+					moveFrom += nextHole.size;
+					holeSegment.deleteHole(nextHole.holeOffset);
+					continue;
+				}
+
+				if (moved >= iMaxBytesToMove)
+					break;
+
+				final int sizeMoved = moveRecord(moveFrom, moveTo);
+				if (sizeMoved < 0)
+					throw new OStorageException("Found corrupted hole at position " + moveFrom + " during the compaction of data segment '"
+							+ name + "'");
+
+				moveFrom += sizeMoved;
+				moveTo += sizeMoved;
+				moved += sizeMoved;
+			}
+
+			OProfiler.getInstance().updateCounter(PROFILER_COMPACT_MOVED, moved);
+
+			if (moveFrom >= fileEnd) {
+				// THE HOLE REACHED THE END OF THE FILE: REMOVE IT AND CUT THE TAIL
+				final long reclaimed = fileEnd - moveTo;
+				file.shrink(moveTo - hole.dataOffset + pos[1]);
+				holeSegment.deleteHole(hole.holeOffset);
+
+				OProfiler.getInstance().updateCounter(PROFILER_COMPACT_RECLAIMED, reclaimed);
+				return moved + reclaimed;
+			}
+
+			final int holeSize = (int) (moveFrom - moveTo);
+			holeSegment.updateHole(hole, moveTo, holeSize);
+
+			// WRITE NEGATIVE RECORD SIZE TO MARK AS DELETED
+			final long[] holePos = getRelativePosition(moveTo);
+			files[(int) holePos[0]].writeInt(holePos[1], holeSize * -1);
+
+			return moved;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
 	private ODataHoleInfo getCloserHole(final long iRecordOffset, final int iRecordSize, final OFile file, final long[] pos) {
 		if (holeSegment.getHoles() == 0)
 			return null;
@@ -19,17 +19,24 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.TreeMap;
 
-import com.orientechnologies.common.collection.OMVRBTreeMemory;
 import com.orientechnologies.common.profiler.OProfiler;
 import com.orientechnologies.orient.core.OConstants;
 import com.orientechnologies.orient.core.config.OStorageFileConfiguration;
 import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 
 /**
  * Handles the holes inside data segments. Exists only 1 hole segment per data-segment even if multiple data-files are configured.
  * The synchronization is in charge to the ODataSegment instance. The holes are kept in memory for a fast access to it.<br/>
  * <br/>
+ * The free space is segregated in size classes: one class per size for the holes smaller than 512 bytes, then power-of-two
+ * classes. Every class keeps a linked list of its holes and a bitmap tells the classes not empty, so finding a hole for a record
+ * costs a constant number of steps whatever the number of holes is. The holes
+ * are also indexed by position to coalesce the adjacent ones. The hole file is loaded in memory at the first access, in one read,
+ * so opening the storage doesn't depend by the number of holes.<br/>
+ * <br/>
  * Record structure:<br/>
  * <br/>
  * +----------------------+----------------------+<br/>
@@ -41,20 +48,25 @@ import com.orientechnologies.orient.core.exception.OStorageException;
 public class ODataLocalHole extends OSingleFileSegment {
 	private static final int																		DEF_START_SIZE			= 262144;
 	private static final int																		RECORD_SIZE					= 12;
-	private int																									maxHoleSize					= -1;
+	private static final int																		EXACT_SIZE_CLASSES	= 512;
+	private static final int																		SIZE_CLASSES				= EXACT_SIZE_CLASSES + 32 - 9;
+	private static final int																		CLASS_SCAN_LIMIT		= 8;
 
+	private volatile boolean																		loaded;
 	private final List<Integer>																	freeHoles						= new ArrayList<Integer>();
 	private final static ODataHoleInfo													cursor							= new ODataHoleInfo();
 
 	private final List<ODataHoleInfo>														availableHolesList	= new ArrayList<ODataHoleInfo>();
-	private final OMVRBTreeMemory<ODataHoleInfo, ODataHoleInfo>	availableHolesBySize;
-	private final OMVRBTreeMemory<ODataHoleInfo, ODataHoleInfo>	availableHolesByPosition;
+	private final ODataHoleInfo[]																availableHolesBySize	= new ODataHoleInfo[SIZE_CLASSES];
+	private final long[]																				usedSizeClasses			= new long[(SIZE_CLASSES + 63) / 64];
+	private final TreeMap<ODataHoleInfo, ODataHoleInfo>					availableHolesByPosition;
 
 	private final String																				PROFILER_DATA_RECYCLED_COMPLETE;
 	private final String																				PROFILER_DATA_RECYCLED_PARTIAL;
 	private final String																				PROFILER_DATA_RECYCLED_NOTFOUND;
 	private final String																				PROFILER_DATA_HOLE_CREATE;
 	private final String																				PROFILER_DATA_HOLE_UPDATE;
+	private final String																				PROFILER_DATA_HOLE_LOAD;
 
 	public ODataLocalHole(final OStorageLocal iStorage, final OStorageFileConfiguration iConfig) throws IOException {
 		super(iStorage, iConfig);
@@ -64,9 +76,9 @@ public class ODataLocalHole extends OSingleFileSegment {
 		PROFILER_DATA_RECYCLED_NOTFOUND = "storage." + storage.getName() + ".data.recycled.notFound";
 		PROFILER_DATA_HOLE_CREATE = "storage." + storage.getName() + ".data.createHole";
 		PROFILER_DATA_HOLE_UPDATE = "storage." + storage.getName() + ".data.updateHole";
+		PROFILER_DATA_HOLE_LOAD = "storage." + storage.getName() + ".data.loadHoles";
 
-		availableHolesBySize = new OMVRBTreeMemory<ODataHoleInfo, ODataHoleInfo>(512, 0.7f);
-		availableHolesByPosition = new OMVRBTreeMemory<ODataHoleInfo, ODataHoleInfo>(new Comparator<ODataHoleInfo>() {
+		availableHolesByPosition = new TreeMap<ODataHoleInfo, ODataHoleInfo>(new Comparator<ODataHoleInfo>() {
 			public int compare(final ODataHoleInfo o1, final ODataHoleInfo o2) {
 				if (o1.dataOffset == o2.dataOffset)
 					return 0;
@@ -81,29 +93,34 @@ public class ODataLocalHole extends OSingleFileSegment {
 	@Override
 	public boolean open() throws IOException {
 		final boolean status = super.open();
-		loadHolesInMemory();
+		// THE HOLES WILL BE LOADED AT FIRST USAGE
+		loaded = false;
 		return status;
 	}
 
 	@Override
 	public void create(final int iStartSize) throws IOException {
 		super.create(iStartSize > -1 ? iStartSize : DEF_START_SIZE);
+		loaded = false;
 	}
 
 	/**
 	 * Appends the hole to the end of the segment.
 	 * 
+	 * @return The hole created
 	 * @throws IOException
 	 */
-	public void createHole(final long iRecordOffset, final int iRecordSize) throws IOException {
+	public ODataHoleInfo createHole(final long iRecordOffset, final int iRecordSize) throws IOException {
+		checkLoaded();
+
 		final long timer = OProfiler.getInstance().startChrono();
 
 		// IN MEMORY
 		final int recycledPosition;
 		final ODataHoleInfo hole;
 		if (freeHoles.size() > 0) {
-			// RECYCLE THE FIRST FREE HOLE
-			recycledPosition = freeHoles.remove(0);
+			// RECYCLE THE LAST FREE HOLE
+			recycledPosition = freeHoles.remove(freeHoles.size() - 1);
 			hole = availableHolesList.get(recycledPosition);
 			hole.dataOffset = iRecordOffset;
 			hole.size = iRecordSize;
@@ -115,21 +132,22 @@ public class ODataLocalHole extends OSingleFileSegment {
 			file.allocateSpace(RECORD_SIZE);
 		}
 
-		availableHolesBySize.put(hole, hole);
+		addToSizeClass(hole);
 		availableHolesByPosition.put(hole, hole);
 
-		if (maxHoleSize < iRecordSize)
-			maxHoleSize = iRecordSize;
-
 		// TO FILE
 		final long p = recycledPosition * RECORD_SIZE;
 		file.writeLong(p, iRecordOffset);
 		file.writeInt(p + OConstants.SIZE_LONG, iRecordSize);
 
 		OProfiler.getInstance().stopChrono(PROFILER_DATA_HOLE_CREATE, timer);
+
+		return hole;
 	}
 
 	public ODataHoleInfo getCloserHole(final long iHolePosition, final int iHoleSize, final long iLowerRange, final long iHigherRange) {
+		checkLoaded();
+
 		cursor.dataOffset = iHolePosition;
 		ODataHoleInfo lowerHole = availableHolesByPosition.lowerKey(cursor);
 
@@ -164,25 +182,30 @@ public class ODataLocalHole extends OSingleFileSegment {
 	}
 
 	/**
-	 * Returns the first available hole (at least iRecordSize length) to be reused.
+	 * Returns the first available hole (at least iRecordSize length) to be reused. Looks for a hole of the same size in the size
+	 * class of the record, otherwise takes a part of a hole of the smallest class with enough space also for another record.
 	 * 
-	 * @return
+	 * @return The offset of the space to use or -1 if no hole can be reused
 	 * 
 	 * @throws IOException
 	 */
 	public long popFirstAvailableHole(final int iRecordSize) throws IOException {
-		if (maxHoleSize > -1 && iRecordSize + ODataLocal.RECORD_FIX_SIZE + 50 > maxHoleSize)
-			// DON'T BROWSE: NO ONE HOLE WITH THIS SIZE IS AVAILABLE
+		checkLoaded();
+
+		if (availableHolesByPosition.size() == 0)
+			// NO HOLES
 			return -1;
 
 		final long timer = OProfiler.getInstance().startChrono();
 
-		if (availableHolesBySize.size() > 0) {
-			cursor.size = iRecordSize;
+		final int minPartialSize = iRecordSize + ODataLocal.RECORD_FIX_SIZE + 50;
 
-			// SEARCH THE HOLE WITH THE SAME SIZE
-			ODataHoleInfo hole = availableHolesBySize.get(cursor);
-			if (hole != null && hole.size == iRecordSize) {
+		// SEARCH THE HOLE WITH THE SAME SIZE IN ITS CLASS
+		final int sizeClass = getSizeClass(iRecordSize);
+		ODataHoleInfo partialHole = null;
+		ODataHoleInfo hole = availableHolesBySize[sizeClass];
+		for (int i = 0; hole != null && i < CLASS_SCAN_LIMIT; ++i, hole = hole.nextInClass) {
+			if (hole.size == iRecordSize) {
 				// PERFECT MATCH: DELETE THE HOLE
 				OProfiler.getInstance().stopChrono(PROFILER_DATA_RECYCLED_COMPLETE, timer);
 				final long pos = hole.dataOffset;
@@ -190,15 +213,29 @@ public class ODataLocalHole extends OSingleFileSegment {
 				return pos;
 			}
 
-			// TRY WITH THE BIGGEST HOLE
-			hole = availableHolesBySize.lastKey();
-			if (hole.size > iRecordSize + ODataLocal.RECORD_FIX_SIZE + 50) {
-				// GOOD MATCH SINCE THE HOLE IS BIG ENOUGH ALSO FOR ANOTHER RECORD: UPDATE THE HOLE WITH THE DIFFERENCE
-				final long pos = hole.dataOffset;
-				OProfiler.getInstance().stopChrono(PROFILER_DATA_RECYCLED_PARTIAL, timer);
-				updateHole(hole, hole.dataOffset + iRecordSize, hole.size - iRecordSize);
-				return pos;
-			}
+			if (partialHole == null && hole.size > minPartialSize)
+				partialHole = hole;
+		}
+
+		// BROWSE THE BIGGER CLASSES NOT EMPTY: ALL THEIR HOLES ARE BIGGER THAN THE RECORD
+		int c = getNextUsedSizeClass(Math.max(sizeClass + 1, getSizeClass(minPartialSize)));
+		while (c > -1 && partialHole == null) {
+			hole = availableHolesBySize[c];
+			for (int i = 0; hole != null && i < CLASS_SCAN_LIMIT; ++i, hole = hole.nextInClass)
+				if (hole.size > minPartialSize) {
+					partialHole = hole;
+					break;
+				}
+
+			c = getNextUsedSizeClass(c + 1);
+		}
+
+		if (partialHole != null) {
+			// GOOD MATCH SINCE THE HOLE IS BIG ENOUGH ALSO FOR ANOTHER RECORD: UPDATE THE HOLE WITH THE DIFFERENCE
+			final long pos = partialHole.dataOffset;
+			OProfiler.getInstance().stopChrono(PROFILER_DATA_RECYCLED_PARTIAL, timer);
+			updateHole(partialHole, partialHole.dataOffset + iRecordSize, partialHole.size - iRecordSize);
+			return pos;
 		}
 
 		OProfiler.getInstance().stopChrono(PROFILER_DATA_RECYCLED_NOTFOUND, timer);
@@ -207,12 +244,13 @@ public class ODataLocalHole extends OSingleFileSegment {
 	}
 
 	/**
-	 * Fills the holes information into OPhysicalPosition object given as parameter.
+	 * Returns the hole at the position received.
 	 * 
-	 * @return true, if it's a valid hole, otherwise false
-	 * @throws IOException
+	 * @return The hole if it's valid, otherwise null
 	 */
 	public ODataHoleInfo getHole(final int iPosition) {
+		checkLoaded();
+
 		final ODataHoleInfo hole = availableHolesList.get(iPosition);
 		if (hole.dataOffset == -1)
 			return null;
@@ -222,24 +260,21 @@ public class ODataLocalHole extends OSingleFileSegment {
 	/**
 	 * Update hole data
 	 * 
-	 * @param iUpdateFromMemory
-	 * 
 	 * @throws IOException
 	 */
 	public void updateHole(final ODataHoleInfo iHole, final long iNewDataOffset, final int iNewRecordSize) throws IOException {
+		checkLoaded();
+
 		final long timer = OProfiler.getInstance().startChrono();
 
 		final boolean offsetChanged = iNewDataOffset != iHole.dataOffset;
 		final boolean sizeChanged = iNewRecordSize != iHole.size;
 
-		if (maxHoleSize < iNewRecordSize)
-			maxHoleSize = iNewRecordSize;
-
 		// IN MEMORY
 		if (offsetChanged)
 			availableHolesByPosition.remove(iHole);
 		if (sizeChanged)
-			availableHolesBySize.remove(iHole);
+			removeFromSizeClass(iHole);
 
 		if (offsetChanged)
 			iHole.dataOffset = iNewDataOffset;
@@ -249,7 +284,7 @@ public class ODataLocalHole extends OSingleFileSegment {
 		if (offsetChanged)
 			availableHolesByPosition.put(iHole, iHole);
 		if (sizeChanged)
-			availableHolesBySize.put(iHole, iHole);
+			addToSizeClass(iHole);
 
 		// TO FILE
 		final long holePosition = iHole.holeOffset * RECORD_SIZE;
@@ -264,14 +299,14 @@ public class ODataLocalHole extends OSingleFileSegment {
 	/**
 	 * Delete the hole
 	 * 
-	 * @param iRemoveAlsoFromMemory
-	 * 
 	 * @throws IOException
 	 */
 	public void deleteHole(int iHolePosition) throws IOException {
+		checkLoaded();
+
 		// IN MEMORY
 		final ODataHoleInfo hole = availableHolesList.get(iHolePosition);
-		availableHolesBySize.remove(hole);
+		removeFromSizeClass(hole);
 		availableHolesByPosition.remove(hole);
 
 		hole.dataOffset = -1;
@@ -282,16 +317,169 @@ public class ODataLocalHole extends OSingleFileSegment {
 		file.writeLong(iHolePosition, -1);
 	}
 
+	/**
+	 * Merges the hole with the holes adjacent on the left and on the right, if any, inside the range received.
+	 * 
+	 * @param iHole
+	 *          Hole to coalesce
+	 * @param iLowerRange
+	 *          Lowest offset the merged hole can start from
+	 * @param iHigherRange
+	 *          Highest offset the merged hole can end to
+	 * @return The hole resulting by the merge, or the same hole received if no adjacent holes were found
+	 * @throws IOException
+	 */
+	public ODataHoleInfo coalesce(ODataHoleInfo iHole, final long iLowerRange, final long iHigherRange) throws IOException {
+		checkLoaded();
+
+		final long holeEnd = iHole.dataOffset + iHole.size;
+		if (holeEnd < iHigherRange) {
+			final ODataHoleInfo right = getHoleAt(holeEnd);
+			if (right != null && right != iHole) {
+				final int rightSize = right.size;
+				deleteHole(right.holeOffset);
+				updateHole(iHole, iHole.dataOffset, iHole.size + rightSize);
+			}
+		}
+
+		if (iHole.dataOffset > iLowerRange) {
+			cursor.dataOffset = iHole.dataOffset;
+			final ODataHoleInfo left = availableHolesByPosition.lowerKey(cursor);
+			if (left != null && left.dataOffset >= iLowerRange && left.dataOffset + left.size == iHole.dataOffset) {
+				final int size = iHole.size;
+				deleteHole(iHole.holeOffset);
+				updateHole(left, left.dataOffset, left.size + size);
+				iHole = left;
+			}
+		}
+
+		return iHole;
+	}
+
 	public int getHoles() {
-		return (file.getFilledUpTo() / RECORD_SIZE);
+		return (int) (file.getFilledUpTo() / RECORD_SIZE);
+	}
+
+	/**
+	 * Returns the hole with the lowest data offset.
+	 * 
+	 * @return The first hole or null if no holes are available
+	 */
+	public ODataHoleInfo getFirstHole() {
+		checkLoaded();
+
+		if (availableHolesByPosition.size() == 0)
+			return null;
+		return availableHolesByPosition.firstKey();
+	}
+
+	/**
+	 * Returns the hole starting exactly at the data offset received.
+	 * 
+	 * @return The hole or null if no hole starts at this offset
+	 */
+	public ODataHoleInfo getHoleAt(final long iDataOffset) {
+		checkLoaded();
+
+		final ODataHoleInfo key = new ODataHoleInfo();
+		key.dataOffset = iDataOffset;
+		return availableHolesByPosition.get(key);
+	}
+
+	/**
+	 * Returns the size class of a hole: the size itself for the small holes, otherwise the position of the highest bit set of its
+	 * size.
+	 */
+	private static int getSizeClass(final int iSize) {
+		if (iSize < EXACT_SIZE_CLASSES)
+			return iSize;
+		return EXACT_SIZE_CLASSES + 31 - Integer.numberOfLeadingZeros(iSize) - 9;
+	}
+
+	/**
+	 * Returns the first size class not empty starting from the class received.
+	 * 
+	 * @return The size class or -1 if all the following classes are empty
+	 */
+	private int getNextUsedSizeClass(final int iFromClass) {
+		if (iFromClass >= SIZE_CLASSES)
+			return -1;
+
+		int word = iFromClass >> 6;
+		long bits = usedSizeClasses[word] & (-1l << (iFromClass & 63));
+		while (bits == 0) {
+			if (++word >= usedSizeClasses.length)
+				return -1;
+			bits = usedSizeClasses[word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(bits);
+	}
+
+	private void addToSizeClass(final ODataHoleInfo iHole) {
+		final int sizeClass = getSizeClass(iHole.size);
+
+		iHole.previousInClass = null;
+		iHole.nextInClass = availableHolesBySize[sizeClass];
+		if (iHole.nextInClass != null)
+			iHole.nextInClass.previousInClass = iHole;
+		availableHolesBySize[sizeClass] = iHole;
+
+		usedSizeClasses[sizeClass >> 6] |= 1l << sizeClass;
+	}
+
+	private void removeFromSizeClass(final ODataHoleInfo iHole) {
+		final int sizeClass = getSizeClass(iHole.size);
+
+		if (iHole.previousInClass != null)
+			iHole.previousInClass.nextInClass = iHole.nextInClass;
+		else
+			availableHolesBySize[sizeClass] = iHole.nextInClass;
+
+		if (iHole.nextInClass != null)
+			iHole.nextInClass.previousInClass = iHole.previousInClass;
+
+		iHole.nextInClass = null;
+		iHole.previousInClass = null;
+
+		if (availableHolesBySize[sizeClass] == null)
+			usedSizeClasses[sizeClass >> 6] &= ~(1l << sizeClass);
+	}
+
+	private void checkLoaded() {
+		if (!loaded)
+			synchronized (this) {
+				if (!loaded) {
+					try {
+						loadHolesInMemory();
+					} catch (IOException e) {
+						throw new OStorageException("Error on loading the holes of file " + file.getOsFile().getName(), e);
+					}
+					loaded = true;
+				}
+			}
 	}
 
 	private void loadHolesInMemory() throws IOException {
+		final long timer = OProfiler.getInstance().startChrono();
+
+		freeHoles.clear();
+		availableHolesList.clear();
+		availableHolesByPosition.clear();
+		for (int i = 0; i < SIZE_CLASSES; ++i)
+			availableHolesBySize[i] = null;
+		for (int i = 0; i < usedSizeClasses.length; ++i)
+			usedSizeClasses[i] = 0;
+
 		final int holes = getHoles();
 
+		// READ ALL THE HOLES AT ONCE
+		final byte[] buffer = new byte[holes * RECORD_SIZE];
+		if (buffer.length > 0)
+			file.read(0, buffer, buffer.length);
+
 		for (int pos = 0; pos < holes; ++pos) {
-			final long dataOffset = file.readLong(pos * RECORD_SIZE);
-			final int recordSize = file.readInt(pos * RECORD_SIZE + OConstants.SIZE_LONG);
+			final long dataOffset = OBinaryProtocol.bytes2long(buffer, pos * RECORD_SIZE);
+			final int recordSize = OBinaryProtocol.bytes2int(buffer, pos * RECORD_SIZE + OConstants.SIZE_LONG);
 
 			final ODataHoleInfo hole = new ODataHoleInfo(recordSize, dataOffset, pos);
 
@@ -300,12 +488,11 @@ public class ODataLocalHole extends OSingleFileSegment {
 			if (dataOffset == -1)
 				freeHoles.add(pos);
 			else {
-				availableHolesBySize.put(hole, hole);
+				addToSizeClass(hole);
 				availableHolesByPosition.put(hole, hole);
-
-				if (maxHoleSize < recordSize)
-					maxHoleSize = recordSize;
 			}
 		}
+
+		OProfiler.getInstance().stopChrono(PROFILER_DATA_HOLE_LOAD, timer);
 	}
 }
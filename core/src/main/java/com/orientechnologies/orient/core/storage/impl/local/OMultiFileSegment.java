@@ -25,6 +25,7 @@ import com.orientechnologies.orient.core.exception.ODatabaseException;
 import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.storage.fs.OFile;
 import com.orientechnologies.orient.core.storage.fs.OFileFactory;
+import com.orientechnologies.orient.core.storage.fs.OMMapManager;
 
 public class OMultiFileSegment extends OSegment {
 	protected OStorageSegmentConfiguration	config;
@@ -35,7 +36,7 @@ public class OMultiFileSegment extends OSegment {
 	@SuppressWarnings("unused")
 	private final String										defrag;
 	private int															fileStartSize;
-	private int															fileMaxSize;
+	private long														fileMaxSize;
 	private final int												fileIncrementSize;
 
 	public OMultiFileSegment(final OStorageLocal iStorage, final OStorageSegmentConfiguration iConfig, final String iFileExtension,
@@ -48,7 +49,7 @@ public class OMultiFileSegment extends OSegment {
 		defrag = iConfig.defrag;
 		maxSize = OFileUtils.getSizeAsNumber(iConfig.maxSize);
 		fileStartSize = (int) OFileUtils.getSizeAsNumber(iConfig.fileStartSize);
-		fileMaxSize = (int) OFileUtils.getSizeAsNumber(iConfig.fileMaxSize);
+		fileMaxSize = OFileUtils.getSizeAsNumber(iConfig.fileMaxSize);
 		fileIncrementSize = (int) OFileUtils.getSizeAsNumber(iConfig.fileIncrementSize);
 
 		if (iRoundMaxSize > 0)
@@ -56,7 +57,7 @@ public class OMultiFileSegment extends OSegment {
 			fileMaxSize = (fileMaxSize / iRoundMaxSize) * iRoundMaxSize;
 
 		// INSTANTIATE ALL THE FILES
-		int perFileMaxSize;
+		long perFileMaxSize;
 
 		if (iConfig.infoFiles.length == 0) {
 			// EMPTY FILE: CREATE THE FIRST FILE BY DEFAULT
@@ -173,6 +174,24 @@ public class OMultiFileSegment extends OSegment {
 		}
 	}
 
+	/**
+	 * Forces all the content of the files to the disk, including the memory mapped blocks not yet written.
+	 */
+	public void force() {
+		acquireSharedLock();
+		try {
+			for (OFile file : files) {
+				if (file != null && file.isOpen()) {
+					file.synch();
+					OMMapManager.flushFile(file);
+				}
+			}
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
 	public long getFilledUpTo() {
 		acquireSharedLock();
 		try {
@@ -258,11 +277,7 @@ public class OMultiFileSegment extends OSegment {
 	 * @return
 	 */
 	protected long getAbsolutePosition(final long[] iFilePosition) {
-		long position = 0;
-		for (int i = 0; i < iFilePosition[0]; ++i) {
-			position += fileMaxSize;
-		}
-		return position + iFilePosition[1];
+		return iFilePosition[0] * fileMaxSize + iFilePosition[1];
 	}
 
 	protected long[] getRelativePosition(final long iPosition) {
@@ -275,7 +290,7 @@ public class OMultiFileSegment extends OSegment {
 			throw new ODatabaseException("Record position #" + iPosition + " was bound to file #" + fileNum
 					+ " that is out of limit (files range 0-" + (files.length - 1) + ")");
 
-		final int fileRec = (int) (iPosition % fileMaxSize);
+		final long fileRec = iPosition % fileMaxSize;
 
 		if (fileRec >= files[fileNum].getFilledUpTo())
 			throw new ODatabaseException("Record position #" + iPosition + " was bound to file #" + fileNum + " but the position #"
@@ -289,7 +304,7 @@ public class OMultiFileSegment extends OSegment {
 
 		final OFile file = OFileFactory.create(type, storage.getStoragePath() + "/" + name + "." + num + fileExtension,
 				storage.getMode());
-		file.setMaxSize((int) OFileUtils.getSizeAsNumber(config.root.fileTemplate.fileMaxSize));
+		file.setMaxSize(OFileUtils.getSizeAsNumber(config.root.fileTemplate.fileMaxSize));
 		file.create(fileStartSize);
 		files[num] = file;
 
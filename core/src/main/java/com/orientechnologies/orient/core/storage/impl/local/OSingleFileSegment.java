@@ -37,7 +37,7 @@ public class OSingleFileSegment extends OSharedResourceAdaptive {
 		config = iConfig;
 		storage = iStorage;
 		file = OFileFactory.create(iConfig.type, iStorage.getVariableParser().resolveVariables(iConfig.path), iStorage.getMode());
-		file.setMaxSize((int) OFileUtils.getSizeAsNumber(iConfig.maxSize));
+		file.setMaxSize(OFileUtils.getSizeAsNumber(iConfig.maxSize));
 		file.setIncrementSize((int) OFileUtils.getSizeAsNumber(iConfig.incrementSize));
 	}
 
@@ -102,6 +102,22 @@ public class OSingleFileSegment extends OSharedResourceAdaptive {
 		}
 	}
 
+	/**
+	 * Forces all the content of the file to the disk, including the memory mapped blocks not yet written.
+	 */
+	public void force() {
+		acquireSharedLock();
+		try {
+			if (file != null && file.isOpen()) {
+				file.synch();
+				OMMapManager.flushFile(file);
+			}
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
 	public long getSize() {
 		return file.getFileSize();
 	}
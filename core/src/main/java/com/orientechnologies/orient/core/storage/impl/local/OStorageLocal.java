@@ -19,6 +19,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -34,6 +35,7 @@ import com.orientechnologies.common.profiler.OProfiler;
 import com.orientechnologies.common.profiler.OProfiler.OProfilerHookValue;
 import com.orientechnologies.common.util.OArrays;
 import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.cache.OOffHeapRecordCache;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.config.OStorageClusterConfiguration;
 import com.orientechnologies.orient.core.config.OStorageConfiguration;
@@ -56,6 +58,7 @@ import com.orientechnologies.orient.core.storage.ORawBuffer;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 import com.orientechnologies.orient.core.storage.fs.OMMapManager;
+import com.orientechnologies.orient.core.storage.impl.local.OWriteAheadLog.OWriteAheadLogEntry;
 import com.orientechnologies.orient.core.storage.impl.memory.OClusterMemory;
 import com.orientechnologies.orient.core.tx.OTransaction;
 
@@ -69,13 +72,20 @@ public class OStorageLocal extends OStorageEmbedded {
 	private ODataLocal[]									dataSegments				= new ODataLocal[0];
 
 	private final OStorageLocalTxExecuter	txManager;
+	private final OStorageLocalGroupCommit	groupCommit;
+	private final OWriteAheadLog					redoLog;
+	private final OOffHeapRecordCache			offHeapCache;
+	private OStorageLocalCompactor				compactor;
+	private volatile OStorageLocalCheckpointer	checkpointer;
+	// SET WHEN THE FLUSH OF A GROUP COMMIT FAILS: WRITES ARE REFUSED UNTIL THE STORAGE IS REOPENED AND RECOVERED FROM THE LOGS
+	private volatile OStorageException		failure;
 	private String												storagePath;
 	private final OStorageVariableParser	variableParser;
 	private int														defaultClusterId		= -1;
 
 	private OStorageConfigurationSegment	configurationSegment;
 
-	private static String[]								ALL_FILE_EXTENSIONS	= { "ocf", ".och", ".ocl", ".oda", ".odh", ".otx" };
+	private static String[]								ALL_FILE_EXTENSIONS	= { "ocf", ".och", ".ocl", ".oda", ".odh", ".otx", ".owl" };
 	private final String									PROFILER_CREATE_RECORD;
 	private final String									PROFILER_READ_RECORD;
 	private final String									PROFILER_UPDATE_RECORD;
@@ -97,6 +107,11 @@ public class OStorageLocal extends OStorageEmbedded {
 		variableParser = new OStorageVariableParser(storagePath);
 		configuration = new OStorageConfigurationSegment(this, storagePath);
 		txManager = new OStorageLocalTxExecuter(this, configuration.txSegment);
+		groupCommit = new OStorageLocalGroupCommit(this);
+		redoLog = OGlobalConfiguration.TX_REDO_LOG.getValueAsBoolean() ? new OWriteAheadLog(this) : null;
+
+		final long offHeapCacheSize = OGlobalConfiguration.CACHE_OFFHEAP_SIZE.getValueAsLong();
+		offHeapCache = offHeapCacheSize > 0 ? new OOffHeapRecordCache("storage." + name, offHeapCacheSize) : null;
 
 		PROFILER_CREATE_RECORD = "storage." + name + ".createRecord";
 		PROFILER_READ_RECORD = "storage." + name + ".readRecord";
@@ -115,17 +130,19 @@ public class OStorageLocal extends OStorageEmbedded {
 		lock.acquireExclusiveLock();
 		try {
 
+			// COUNT EVERY DATABASE INSTANCE, EVEN WHEN THE STORAGE IS REUSED, SINCE EVERY ONE REMOVES ITSELF ON CLOSE
+			addUser();
+
 			if (status != STATUS.CLOSED)
 				// ALREADY OPENED: THIS IS THE CASE WHEN A STORAGE INSTANCE IS
 				// REUSED
 				return;
 
-			addUser();
-
 			if (!exists())
 				throw new OStorageException("Can't open the storage '" + name + "' because it not exists in path: " + url);
 
 			status = STATUS.OPEN;
+			failure = null;
 
 			// OPEN BASIC SEGMENTS
 			int pos;
@@ -191,6 +208,15 @@ public class OStorageLocal extends OStorageEmbedded {
 
 			txManager.open();
 
+			if (redoLog != null) {
+				// REPLAY THE COMMITTED TXS NOT YET CHECKPOINTED, IF ANY
+				redoLog.open();
+				checkpoint();
+			}
+
+			startCompactor();
+			startCheckpointer();
+
 		} catch (Exception e) {
 			close(true);
 			throw new OStorageException("Can't open local storage: " + url + ", with mode=" + mode, e);
@@ -236,6 +262,12 @@ public class OStorageLocal extends OStorageEmbedded {
 			configuration.create();
 
 			txManager.create();
+
+			if (redoLog != null)
+				redoLog.create();
+
+			startCompactor();
+			startCheckpointer();
 		} catch (OStorageException e) {
 			close();
 			throw e;
@@ -273,6 +305,20 @@ public class OStorageLocal extends OStorageEmbedded {
 
 			status = STATUS.CLOSING;
 
+			if (compactor != null) {
+				compactor.sendShutdown();
+				compactor = null;
+			}
+
+			if (checkpointer != null) {
+				checkpointer.sendShutdown();
+				checkpointer = null;
+			}
+
+			if (redoLog != null && redoLog.isOpen() && failure == null)
+				// AFTER A FAILURE THE REDO LOG IS KEPT TO BE REPLAYED AT THE NEXT OPEN
+				checkpoint();
+
 			saveVersion();
 
 			for (OCluster cluster : clusters)
@@ -287,10 +333,16 @@ public class OStorageLocal extends OStorageEmbedded {
 
 			txManager.close();
 
+			if (redoLog != null)
+				redoLog.close();
+
 			configuration.close();
 
 			level2Cache.shutdown();
 
+			if (offHeapCache != null)
+				offHeapCache.clear();
+
 			OMMapManager.flush();
 
 			super.close(iForce);
@@ -495,6 +547,8 @@ public class OStorageLocal extends OStorageEmbedded {
 				return false;
 
 			getLevel2Cache().freeCluster(iClusterId);
+			if (offHeapCache != null)
+				offHeapCache.freeCluster(iClusterId);
 
 			cluster.delete();
 
@@ -581,6 +635,7 @@ public class OStorageLocal extends OStorageEmbedded {
 
 	public long createRecord(final ORecordId iRid, final byte[] iContent, final byte iRecordType) {
 		checkOpeness();
+		checkFailure();
 
 		iRid.clusterPosition = createRecord(getClusterById(iRid.clusterId), iContent, iRecordType);
 		return iRid.clusterPosition;
@@ -593,11 +648,13 @@ public class OStorageLocal extends OStorageEmbedded {
 
 	public int updateRecord(final ORecordId iRid, final byte[] iContent, final int iVersion, final byte iRecordType) {
 		checkOpeness();
+		checkFailure();
 		return updateRecord(getClusterById(iRid.clusterId), iRid, iContent, iVersion, iRecordType);
 	}
 
 	public boolean deleteRecord(final ORecordId iRid, final int iVersion) {
 		checkOpeness();
+		checkFailure();
 		return deleteRecord(getClusterById(iRid.clusterId), iRid, iVersion);
 	}
 
@@ -663,14 +720,33 @@ public class OStorageLocal extends OStorageEmbedded {
 	}
 
 	public void commit(final OTransaction iTx) {
+		final boolean useGroupCommit = OGlobalConfiguration.TX_COMMIT_GROUP.getValueAsBoolean();
+
+		if (useGroupCommit)
+			// LET THE LEADER OF THE CURRENT BATCH KNOW THIS TX IS ARRIVING
+			groupCommit.begin();
+
+		boolean written = false;
 		lock.acquireExclusiveLock();
 		try {
+			checkFailure();
 
 			try {
-				txManager.commitAllPendingRecords(iTx);
+				final List<OWriteAheadLogEntry> redoEntries = redoLog != null ? new ArrayList<OWriteAheadLogEntry>() : null;
+
+				txManager.commitAllPendingRecords(iTx, redoEntries);
 
 				incrementVersion();
-				if (OGlobalConfiguration.TX_COMMIT_SYNCH.getValueAsBoolean())
+
+				if (redoLog != null) {
+					redoLog.logTransaction(iTx.getId(), redoEntries);
+					if (!useGroupCommit) {
+						// THE REDO LOG IS THE ONLY FILE TO FORCE TO MAKE THE TX DURABLE
+						if (OGlobalConfiguration.TX_COMMIT_SYNCH.getValueAsBoolean())
+							redoLog.force();
+						checkpointIfNeeded();
+					}
+				} else if (!useGroupCommit && OGlobalConfiguration.TX_COMMIT_SYNCH.getValueAsBoolean())
 					synch();
 
 			} catch (RuntimeException e) {
@@ -683,15 +759,164 @@ public class OStorageLocal extends OStorageEmbedded {
 				throw new OException(e);
 			}
 
+			if (!useGroupCommit)
+				try {
+					txManager.clearLogEntries(iTx);
+				} catch (Exception e) {
+					// XXX WHAT CAN WE DO HERE ? ROLLBACK IS NOT POSSIBLE
+					// IF WE THROW EXCEPTION, A ROLLBACK WILL BE DONE AT DB LEVEL BUT NOT AT STORAGE LEVEL
+					OLogManager.instance().error(this, "Clear tx log entries failed", e);
+				}
+
+			written = true;
+		} finally {
+			lock.releaseExclusiveLock();
+
+			if (useGroupCommit && !written)
+				groupCommit.cancel();
+		}
+
+		if (useGroupCommit)
+			// WAIT FOR THE FLUSH OF THE BATCH OUTSIDE THE LOCK TO LET OTHER TXS TO WRITE THEIR RECORDS IN THE MEANWHILE
+			groupCommit.commit(iTx);
+	}
+
+	/**
+	 * Makes durable a batch of transactions already written by {@link #commit(OTransaction)}: forces the storage once (if
+	 * tx.commit.synch is true) and clears the TX log entries of all the transactions in one pass. Called by the group commit.<br/>
+	 * <br/>
+	 * If the flush fails the transactions can't be rolled back anymore, because the lock was released after writing them and other
+	 * transactions could have changed the same records in the meanwhile. The storage is marked as failed and refuses any further
+	 * write: the pending transactions are recovered from the logs at the next open.
+	 */
+	protected void flushCommittedTransactions(final List<OTransaction> iTxs) {
+		lock.acquireExclusiveLock();
+		try {
+			checkFailure();
+
+			if (OGlobalConfiguration.TX_COMMIT_SYNCH.getValueAsBoolean())
+				try {
+					if (redoLog != null)
+						redoLog.force();
+					else
+						synch();
+				} catch (Exception e) {
+					failure = new OStorageException("Error on flushing the committed transactions of storage " + name
+							+ ": the storage must be reopened to recover them", e);
+					OLogManager.instance().error(this, "Error on flushing the committed transactions: storage %s is now in failed state", e,
+							name);
+					throw failure;
+				}
+
+			final Set<Integer> txIds = new HashSet<Integer>();
+			for (OTransaction tx : iTxs)
+				txIds.add(tx.getId());
+
 			try {
-				txManager.clearLogEntries(iTx);
+				txManager.clearLogEntries(txIds);
 			} catch (Exception e) {
-				// XXX WHAT CAN WE DO HERE ? ROLLBACK IS NOT POSSIBLE
-				// IF WE THROW EXCEPTION, A ROLLBACK WILL BE DONE AT DB LEVEL BUT NOT AT STORAGE LEVEL
+				// SEE commit(): ROLLBACK IS NOT POSSIBLE AT THIS POINT
 				OLogManager.instance().error(this, "Clear tx log entries failed", e);
 			}
+
+			if (redoLog != null)
+				checkpointIfNeeded();
+		} finally {
+			lock.releaseExclusiveLock();
+		}
+	}
+
+	/**
+	 * Forces all the data and cluster segments to the disk, including the memory mapped blocks, then empties the redo log since all
+	 * the transactions logged there are now stored in the segments.
+	 */
+	public void checkpoint() {
+		if (redoLog == null)
+			return;
+
+		final long timer = OProfiler.getInstance().startChrono();
+
+		lock.acquireExclusiveLock();
+		try {
+			saveVersion();
+
+			for (OCluster cluster : clusters)
+				if (cluster != null && cluster instanceof OClusterLocal)
+					((OClusterLocal) cluster).force();
+
+			for (ODataLocal data : dataSegments)
+				if (data != null)
+					data.force();
+
+			redoLog.checkpoint();
+
+		} catch (IOException e) {
+			throw new OStorageException("Error on checkpoint", e);
+
 		} finally {
 			lock.releaseExclusiveLock();
+
+			OProfiler.getInstance().stopChrono("storage." + name + ".checkpoint", timer);
+		}
+	}
+
+	/**
+	 * Checkpoint executed by the background checkpointer. The segments are forced first without holding the storage lock, so reads
+	 * and writes go on during the slow part. Then {@link #checkpoint()} forces again under the exclusive lock only the pages changed
+	 * in the meanwhile and empties the redo log.
+	 */
+	protected void backgroundCheckpoint() {
+		if (status != STATUS.OPEN || failure != null)
+			return;
+
+		final long timer = OProfiler.getInstance().startChrono();
+		try {
+			// EACH SEGMENT IS FORCED UNDER ITS OWN LOCK AND SKIPS THE FILES CLOSED IN THE MEANWHILE
+			for (OCluster cluster : clusters)
+				if (cluster != null && cluster instanceof OClusterLocal)
+					((OClusterLocal) cluster).force();
+
+			for (ODataLocal data : dataSegments)
+				if (data != null)
+					data.force();
+
+		} catch (Exception e) {
+			// THE SEGMENTS ARE FORCED AGAIN BY THE CHECKPOINT BELOW
+			OLogManager.instance().debug(this, "Error on forcing the segments of storage %s before the checkpoint", e, name);
+		} finally {
+			OProfiler.getInstance().stopChrono("storage." + name + ".checkpoint.background", timer);
+		}
+
+		lock.acquireExclusiveLock();
+		try {
+			if (status == STATUS.OPEN && failure == null)
+				checkpoint();
+		} catch (Exception e) {
+			OLogManager.instance().error(this, "Error on checkpoint of storage %s", e, name);
+		} finally {
+			lock.releaseExclusiveLock();
+		}
+	}
+
+	/**
+	 * Throws the error of the last failed flush, if any, to avoid writing on a storage that must be recovered.
+	 */
+	private void checkFailure() {
+		if (failure != null)
+			throw new OStorageException("Storage " + name + " is in failed state and must be reopened", failure);
+	}
+
+	/**
+	 * Requests a checkpoint to the background checkpointer once the redo log is bigger than tx.redoLog.checkpointSize. The caller
+	 * doesn't wait for it.
+	 */
+	private void checkpointIfNeeded() {
+		try {
+			final OStorageLocalCheckpointer currentCheckpointer = checkpointer;
+			if (currentCheckpointer != null && redoLog.getSize() >= OGlobalConfiguration.TX_REDO_LOG_CHECKPOINT_SIZE.getValueAsLong())
+				currentCheckpointer.requestCheckpoint();
+		} catch (IOException e) {
+			OLogManager.instance().error(this, "Error on checking the size of the redo log", e);
 		}
 	}
 
@@ -733,6 +958,58 @@ public class OStorageLocal extends OStorageEmbedded {
 		}
 	}
 
+	/**
+	 * Executes a step of the online compaction of the data segments, moving at most iMaxBytesToMove bytes of records. The step
+	 * holds the exclusive lock, so concurrent reads and writes are executed between two steps.
+	 * 
+	 * @param iMaxBytesToMove
+	 *          Maximum bytes of records to move
+	 * @return The bytes moved plus the bytes reclaimed, 0 if there was nothing to compact
+	 */
+	public long compact(final int iMaxBytesToMove) {
+		final long timer = OProfiler.getInstance().startChrono();
+
+		lock.acquireExclusiveLock();
+		try {
+			if (status != STATUS.OPEN)
+				return 0;
+
+			long total = 0;
+			for (ODataLocal data : dataSegments) {
+				if (data != null)
+					total += data.compact(iMaxBytesToMove);
+
+				if (total >= iMaxBytesToMove)
+					break;
+			}
+			return total;
+
+		} catch (IOException e) {
+			throw new OStorageException("Error on compaction of storage: " + name, e);
+
+		} finally {
+			lock.releaseExclusiveLock();
+
+			OProfiler.getInstance().stopChrono("storage." + name + ".compact", timer);
+		}
+	}
+
+	private void startCompactor() {
+		if (!OGlobalConfiguration.STORAGE_COMPACTION_ENABLED.getValueAsBoolean() || compactor != null)
+			return;
+
+		compactor = new OStorageLocalCompactor(this);
+		compactor.start();
+	}
+
+	private void startCheckpointer() {
+		if (redoLog == null || checkpointer != null)
+			return;
+
+		checkpointer = new OStorageLocalCheckpointer(this);
+		checkpointer.start();
+	}
+
 	/**
 	 * Returns the list of holes as pair of position & ODataHoleInfo
 	 * 
@@ -1025,14 +1302,15 @@ public class OStorageLocal extends OStorageEmbedded {
 		lock.acquireSharedLock();
 		try {
 
-			lockManager.acquireLock(Thread.currentThread(), ORecordId.EMPTY_RECORD_ID, LOCK.EXCLUSIVE);
-			try {
+			final int dataSegment = getDataSegmentForRecord(iClusterSegment, iContent);
+			final ODataLocal data = getDataSegment(dataSegment);
 
-				final int dataSegment = getDataSegmentForRecord(iClusterSegment, iContent);
-				final ODataLocal data = getDataSegment(dataSegment);
+			// THE CLUSTER AND THE DATA SEGMENT RESERVE THE SPACE UNDER THEIR OWN LOCKS: LOCK ONLY THE NEW RECORD UNTIL IT'S COMPLETE
+			final ORecordId rid = new ORecordId(iClusterSegment.getId());
+			rid.clusterPosition = iClusterSegment.addPhysicalPosition(-1, -1, iRecordType);
 
-				final ORecordId rid = new ORecordId(iClusterSegment.getId());
-				rid.clusterPosition = iClusterSegment.addPhysicalPosition(-1, -1, iRecordType);
+			lockManager.acquireLock(Thread.currentThread(), rid, LOCK.EXCLUSIVE);
+			try {
 
 				final long dataOffset = data.addRecord(rid, iContent);
 
@@ -1040,12 +1318,14 @@ public class OStorageLocal extends OStorageEmbedded {
 				// DATA
 				iClusterSegment.setPhysicalPosition(rid.clusterPosition, dataSegment, dataOffset, iRecordType, 0);
 
+				logRecord(iClusterSegment, OWriteAheadLog.OPERATION_CREATE, rid, 0, iRecordType, iContent);
+
 				incrementVersion();
 
 				return rid.clusterPosition;
 
 			} finally {
-				lockManager.releaseLock(Thread.currentThread(), ORecordId.EMPTY_RECORD_ID, LOCK.EXCLUSIVE);
+				lockManager.releaseLock(Thread.currentThread(), rid, LOCK.EXCLUSIVE);
 			}
 		} catch (IOException e) {
 
@@ -1093,8 +1373,19 @@ public class OStorageLocal extends OStorageEmbedded {
 					// DELETED
 					return null;
 
+				if (offHeapCache != null) {
+					final ORawBuffer cached = offHeapCache.getRecord(iRid, ppos);
+					if (cached != null)
+						return cached;
+				}
+
 				final ODataLocal data = getDataSegment(ppos.dataSegment);
-				return new ORawBuffer(data.getRecord(ppos.dataPosition), ppos.version, ppos.type);
+				final ORawBuffer buffer = new ORawBuffer(data.getRecord(ppos.dataPosition), ppos.version, ppos.type);
+
+				if (offHeapCache != null)
+					offHeapCache.updateRecord(iRid, ppos, buffer.buffer);
+
+				return buffer;
 
 			} finally {
 				lockManager.releaseLock(Thread.currentThread(), iRid, LOCK.SHARED);
@@ -1153,6 +1444,8 @@ public class OStorageLocal extends OStorageEmbedded {
 					iClusterSegment.setPhysicalPosition(iRid.clusterPosition, ppos.dataSegment, newDataSegmentOffset, iRecordType,
 							ppos.version);
 
+				logRecord(iClusterSegment, OWriteAheadLog.OPERATION_UPDATE, iRid, ppos.version, iRecordType, iContent);
+
 				incrementVersion();
 
 				return ppos.version;
@@ -1201,6 +1494,10 @@ public class OStorageLocal extends OStorageEmbedded {
 				if (ppos.dataPosition > -1)
 					getDataSegment(ppos.dataSegment).deleteRecord(ppos.dataPosition);
 
+				freeOffHeapRecord(iRid);
+
+				logRecord(iClusterSegment, OWriteAheadLog.OPERATION_DELETE, iRid, ppos.version, ppos.type, null);
+
 				incrementVersion();
 
 				return true;
@@ -1221,6 +1518,35 @@ public class OStorageLocal extends OStorageEmbedded {
 		return false;
 	}
 
+	/**
+	 * Appends to the redo log, if enabled, a write executed outside a transaction. Without it the replay of a transaction logged
+	 * before could overwrite a newer update of the same record, resurrect a deleted record or delete a record created in a reused
+	 * position. Must be called under the lock of the record to keep the log in the same order of the writes.
+	 */
+	private void logRecord(final OCluster iClusterSegment, final byte iOperation, final ORecordId iRid, final int iVersion,
+			final byte iRecordType, final byte[] iContent) throws IOException {
+		if (redoLog == null || !redoLog.isOpen() || !(iClusterSegment instanceof OClusterLocal))
+			// NO LOG OR NOT YET OPENED (STORAGE CREATION)
+			return;
+
+		// NO TX: USE -1 AS TX ID. THE ENTRY AND ITS COMMIT ARE WRITTEN TOGETHER SO THEY CAN'T BE MIXED WITH OTHER ENTRIES
+		redoLog.logTransaction(-1, Collections.singletonList(new OWriteAheadLogEntry(iOperation, iRid, iVersion, iRecordType, iContent)));
+		checkpointIfNeeded();
+	}
+
+	/**
+	 * Removes a deleted record from the off-heap cache, if enabled. Must be called on every delete since the cluster position can be
+	 * reused by a new record.
+	 */
+	void freeOffHeapRecord(final ORID iRid) {
+		if (offHeapCache != null)
+			offHeapCache.freeRecord(iRid);
+	}
+
+	public OOffHeapRecordCache getOffHeapCache() {
+		return offHeapCache;
+	}
+
 	/***
 	 * Save the version number to disk
 	 * 
@@ -0,0 +1,61 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local;
+
+import com.orientechnologies.common.thread.OSoftThread;
+import com.orientechnologies.orient.core.Orient;
+
+/**
+ * Background checkpoint of a local storage with the redo log enabled. Commits crossing tx.redoLog.checkpointSize only request the
+ * checkpoint and go on: this thread forces the segments without holding the storage lock, then completes the checkpoint under the
+ * exclusive lock, where only the pages written in the meanwhile are still to force.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public class OStorageLocalCheckpointer extends OSoftThread {
+	private final OStorageLocal	storage;
+	private boolean							requested;
+
+	public OStorageLocalCheckpointer(final OStorageLocal iStorage) {
+		super(Orient.getThreadGroup(), "OrientDB " + iStorage.getName() + " checkpointer");
+		storage = iStorage;
+	}
+
+	/**
+	 * Wakes up the thread to execute a checkpoint. Requests received while a checkpoint is running are merged in the next one.
+	 */
+	public synchronized void requestCheckpoint() {
+		requested = true;
+		notify();
+	}
+
+	@Override
+	protected void execute() throws Exception {
+		synchronized (this) {
+			try {
+				while (!requested)
+					wait();
+			} catch (InterruptedException e) {
+				// SHUTDOWN
+				return;
+			}
+			requested = false;
+		}
+
+		storage.backgroundCheckpoint();
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local;
+
+import com.orientechnologies.common.thread.OPollerThread;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+
+/**
+ * Background compactor of the data segments of a local storage. Every storage.compaction.interval ms it executes a step moving at
+ * most storage.compaction.stepSize bytes of records. Each step holds the storage's exclusive lock only for its own duration, so
+ * reads and writes keep going between the steps.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public class OStorageLocalCompactor extends OPollerThread {
+	private final OStorageLocal	storage;
+	private final int						stepSize;
+
+	public OStorageLocalCompactor(final OStorageLocal iStorage) {
+		super(OGlobalConfiguration.STORAGE_COMPACTION_INTERVAL.getValueAsInteger(), Orient.getThreadGroup(), "OrientDB "
+				+ iStorage.getName() + " compactor");
+		storage = iStorage;
+		stepSize = OGlobalConfiguration.STORAGE_COMPACTION_STEP_SIZE.getValueAsInteger();
+	}
+
+	@Override
+	protected void execute() throws Exception {
+		storage.compact(stepSize);
+	}
+}
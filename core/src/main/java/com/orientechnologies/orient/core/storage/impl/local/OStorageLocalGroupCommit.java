@@ -0,0 +1,188 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.tx.OTransaction;
+
+/**
+ * Group commit of transactions against a local storage. Once the records of a transaction have been written, the committer thread
+ * enqueues it here and waits. The first waiting thread becomes the leader: it collects the transactions arrived in the meanwhile
+ * (up to tx.commit.group.maxSize or tx.commit.group.maxWait ms), then forces the storage once and clears the TX log entries of
+ * the whole batch in a single pass. All the threads of the batch are released together.<br/>
+ * <br/>
+ * The leader waits only while other transactions are known to be arriving, namely they called {@link #begin()} but are still
+ * writing their records: a single committer is flushed at once.<br/>
+ * <br/>
+ * No dedicated thread is used: the leader is always one of the committing threads.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public class OStorageLocalGroupCommit {
+	private final OStorageLocal				storage;
+	private final String							PROFILER_BATCH_SIZE;
+	private final String							PROFILER_BATCHES;
+	private final String							PROFILER_FLUSH;
+
+	private List<OGroupCommitEntry>		pending		= new ArrayList<OGroupCommitEntry>();
+	private boolean										flushing	= false;
+	private int												arriving	= 0;
+
+	private static class OGroupCommitEntry {
+		private final OTransaction	tx;
+		private boolean							done				= false;
+		private boolean							interrupted	= false;
+		private RuntimeException		error;
+
+		public OGroupCommitEntry(final OTransaction iTx) {
+			tx = iTx;
+		}
+	}
+
+	public OStorageLocalGroupCommit(final OStorageLocal iStorage) {
+		storage = iStorage;
+
+		PROFILER_BATCH_SIZE = "storage." + storage.getName() + ".groupCommit.batchSize";
+		PROFILER_BATCHES = "storage." + storage.getName() + ".groupCommit.batches";
+		PROFILER_FLUSH = "storage." + storage.getName() + ".groupCommit.flush";
+	}
+
+	/**
+	 * Announces a transaction that is going to write its records and then to call {@link #commit(OTransaction)}. If the records
+	 * can't be written {@link #cancel()} must be called instead.
+	 */
+	public synchronized void begin() {
+		arriving++;
+	}
+
+	/**
+	 * Withdraws a transaction announced by {@link #begin()} that will not call {@link #commit(OTransaction)}.
+	 */
+	public synchronized void cancel() {
+		arriving--;
+		notifyAll();
+	}
+
+	/**
+	 * Enqueues the transaction and waits until a flush covering it has been executed. The records of the transaction must have
+	 * already been written by the caller after calling {@link #begin()}.<br/>
+	 * <br/>
+	 * The wait can't be interrupted, since the records are already written and will be flushed anyway: the interrupted status of the
+	 * thread is restored once the flush is done.
+	 *
+	 * @param iTx
+	 *          Transaction to make durable
+	 */
+	public void commit(final OTransaction iTx) {
+		final OGroupCommitEntry entry = new OGroupCommitEntry(iTx);
+
+		List<OGroupCommitEntry> batch = null;
+
+		synchronized (this) {
+			arriving--;
+			pending.add(entry);
+			notifyAll();
+
+			while (!entry.done) {
+				if (!flushing) {
+					// BECOME THE LEADER OF THE NEXT BATCH
+					flushing = true;
+					batch = collectBatch(entry);
+					break;
+				}
+
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					// KEEP WAITING: THE RECORDS ARE ALREADY WRITTEN AND THE ENTRY WILL BE FLUSHED BY THE CURRENT LEADER
+					entry.interrupted = true;
+				}
+			}
+		}
+
+		if (batch != null)
+			flushBatch(batch);
+
+		if (entry.interrupted)
+			// RESTORE THE INTERRUPTED STATUS ONLY NOW TO AVOID TO BREAK THE FLUSH OF THE FILES
+			Thread.currentThread().interrupt();
+
+		if (entry.error != null)
+			throw entry.error;
+	}
+
+	/**
+	 * Waits for the batch to fill up to the maximum size or the maximum wait time as long as other transactions are arriving, then
+	 * takes all the pending entries. Must be called while holding the monitor.
+	 *
+	 * @param iLeader
+	 *          Entry of the leader thread, marked as interrupted if the wait is interrupted
+	 */
+	private List<OGroupCommitEntry> collectBatch(final OGroupCommitEntry iLeader) {
+		final int maxSize = OGlobalConfiguration.TX_COMMIT_GROUP_MAX_SIZE.getValueAsInteger();
+		final long maxWait = OGlobalConfiguration.TX_COMMIT_GROUP_MAX_WAIT.getValueAsLong();
+
+		final long deadline = System.currentTimeMillis() + maxWait;
+		long remaining = maxWait;
+		while (arriving > 0 && pending.size() < maxSize && remaining > 0) {
+			try {
+				wait(remaining);
+			} catch (InterruptedException e) {
+				// STOP WAITING AND FLUSH WHAT HAS BEEN COLLECTED SO FAR
+				iLeader.interrupted = true;
+				break;
+			}
+			remaining = deadline - System.currentTimeMillis();
+		}
+
+		final List<OGroupCommitEntry> batch = pending;
+		pending = new ArrayList<OGroupCommitEntry>();
+		return batch;
+	}
+
+	private void flushBatch(final List<OGroupCommitEntry> iBatch) {
+		final long timer = OProfiler.getInstance().startChrono();
+
+		final List<OTransaction> txs = new ArrayList<OTransaction>(iBatch.size());
+		for (OGroupCommitEntry e : iBatch)
+			txs.add(e.tx);
+
+		RuntimeException error = null;
+		try {
+			storage.flushCommittedTransactions(txs);
+		} catch (RuntimeException e) {
+			error = e;
+		} finally {
+			OProfiler.getInstance().stopChrono(PROFILER_FLUSH, timer);
+			OProfiler.getInstance().updateStat(PROFILER_BATCH_SIZE, iBatch.size());
+			OProfiler.getInstance().updateCounter(PROFILER_BATCHES, +1);
+
+			synchronized (this) {
+				for (OGroupCommitEntry e : iBatch) {
+					e.error = error;
+					e.done = true;
+				}
+				flushing = false;
+				notifyAll();
+			}
+		}
+	}
+}
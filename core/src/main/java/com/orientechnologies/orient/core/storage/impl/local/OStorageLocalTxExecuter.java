@@ -18,6 +18,7 @@ package com.orientechnologies.orient.core.storage.impl.local;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.config.OStorageTxConfiguration;
@@ -28,6 +29,7 @@ import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.OPhysicalPosition;
 import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.local.OWriteAheadLog.OWriteAheadLogEntry;
 import com.orientechnologies.orient.core.tx.OTransaction;
 import com.orientechnologies.orient.core.tx.OTransactionAbstract;
 import com.orientechnologies.orient.core.tx.OTransactionRecordEntry;
@@ -171,6 +173,8 @@ public class OStorageLocalTxExecuter {
 			// EXCLUSIVE LOCK
 			iClusterSegment.removePhysicalPosition(iPosition, ppos);
 
+			storage.freeOffHeapRecord(new ORecordId(iClusterSegment.getId(), iPosition));
+
 		} catch (IOException e) {
 
 			OLogManager.instance().error(this, "Error on deleting entry #" + iPosition + " in log segment: " + iClusterSegment, e,
@@ -182,7 +186,15 @@ public class OStorageLocalTxExecuter {
 		return txSegment;
 	}
 
-	public void commitAllPendingRecords(final OTransaction iTx) throws IOException {
+	/**
+	 * Commits all the records of the transaction.
+	 * 
+	 * @param iTx
+	 *          Transaction to commit
+	 * @param iRedoEntries
+	 *          If not null collects the after-images of the changed records to be written in the redo log
+	 */
+	public void commitAllPendingRecords(final OTransaction iTx, final List<OWriteAheadLogEntry> iRedoEntries) throws IOException {
 		// COPY ALL THE ENTRIES IN SEPARATE COLLECTION SINCE DURING THE COMMIT PHASE SOME NEW ENTRIES COULD BE CREATED AND
 		// CONCURRENT-EXCEPTION MAY OCCURS
 		final List<OTransactionRecordEntry> tmpEntries = new ArrayList<OTransactionRecordEntry>();
@@ -196,7 +208,7 @@ public class OStorageLocalTxExecuter {
 			if (tmpEntries.size() > 0) {
 				for (OTransactionRecordEntry txEntry : tmpEntries)
 					// COMMIT ALL THE SINGLE ENTRIES ONE BY ONE
-					commitEntry(iTx, txEntry, iTx.isUsingLog());
+					commitEntry(iTx, txEntry, iTx.isUsingLog(), iRedoEntries);
 			}
 		}
 
@@ -209,7 +221,13 @@ public class OStorageLocalTxExecuter {
 		txSegment.clearLogEntries(iTx.getId());
 	}
 
-	private void commitEntry(final OTransaction iTx, final OTransactionRecordEntry txEntry, final boolean iUseLog) throws IOException {
+	public void clearLogEntries(final Set<Integer> iTxIds) throws IOException {
+		// CLEAR ALL TEMPORARY RECORDS OF MULTIPLE TRANSACTIONS
+		txSegment.clearLogEntries(iTxIds);
+	}
+
+	private void commitEntry(final OTransaction iTx, final OTransactionRecordEntry txEntry, final boolean iUseLog,
+			final List<OWriteAheadLogEntry> iRedoEntries) throws IOException {
 
 		if (txEntry.status != OTransactionRecordEntry.DELETED && !txEntry.getRecord().isDirty())
 			return;
@@ -250,6 +268,10 @@ public class OStorageLocalTxExecuter {
 				else
 					iTx.getDatabase().getStorage().createRecord(rid, stream, txEntry.getRecord().getRecordType());
 
+				if (iRedoEntries != null)
+					iRedoEntries.add(new OWriteAheadLogEntry(OWriteAheadLog.OPERATION_CREATE, rid, 0, txEntry.getRecord().getRecordType(),
+							stream));
+
 				iTx.getDatabase().callbackHooks(ORecordHook.TYPE.AFTER_CREATE, txEntry.getRecord());
 			} else {
 				if (iUseLog)
@@ -261,6 +283,10 @@ public class OStorageLocalTxExecuter {
 					txEntry.getRecord().setVersion(
 							iTx.getDatabase().getStorage()
 									.updateRecord(rid, stream, txEntry.getRecord().getVersion(), txEntry.getRecord().getRecordType()));
+
+				if (iRedoEntries != null)
+					iRedoEntries.add(new OWriteAheadLogEntry(OWriteAheadLog.OPERATION_UPDATE, rid, txEntry.getRecord().getVersion(), txEntry
+							.getRecord().getRecordType(), stream));
 			}
 			break;
 		}
@@ -275,6 +301,10 @@ public class OStorageLocalTxExecuter {
 			txEntry.getRecord().setVersion(
 					updateRecord(iTx.getId(), cluster, rid, stream, txEntry.getRecord().getVersion(), txEntry.getRecord().getRecordType()));
 
+			if (iRedoEntries != null)
+				iRedoEntries.add(new OWriteAheadLogEntry(OWriteAheadLog.OPERATION_UPDATE, rid, txEntry.getRecord().getVersion(), txEntry
+						.getRecord().getRecordType(), stream));
+
 			iTx.getDatabase().callbackHooks(ORecordHook.TYPE.AFTER_UPDATE, txEntry.getRecord());
 			break;
 		}
@@ -284,6 +314,10 @@ public class OStorageLocalTxExecuter {
 
 			deleteRecord(iTx.getId(), cluster, rid.clusterPosition, txEntry.getRecord().getVersion());
 
+			if (iRedoEntries != null)
+				iRedoEntries.add(new OWriteAheadLogEntry(OWriteAheadLog.OPERATION_DELETE, rid, txEntry.getRecord().getVersion(), txEntry
+						.getRecord().getRecordType(), null));
+
 			iTx.getDatabase().callbackHooks(ORecordHook.TYPE.AFTER_DELETE, txEntry.getRecord());
 		}
 			break;
@@ -69,7 +69,7 @@ public class OTxSegment extends OSingleFileSegment {
 			super.open();
 
 			// CHECK FOR PENDING TRANSACTION ENTRIES TO RECOVER
-			int size = (file.getFilledUpTo() / RECORD_SIZE);
+			int size = (int) (file.getFilledUpTo() / RECORD_SIZE);
 
 			if (size == 0)
 				return true;
@@ -102,7 +102,7 @@ public class OTxSegment extends OSingleFileSegment {
 			final long iDataOffset, final int iRecordVersion) throws IOException {
 		acquireExclusiveLock();
 		try {
-			int offset = file.allocateSpace(RECORD_SIZE);
+			long offset = file.allocateSpace(RECORD_SIZE);
 
 			file.writeByte(offset, STATUS_COMMITTING);
 			offset += OConstants.SIZE_BYTE;
@@ -137,17 +137,30 @@ public class OTxSegment extends OSingleFileSegment {
 	/**
 	 * Clear all the transaction entries by setting the status to STATUS_CLEARING
 	 * 
-	 * @param iReqId
-	 *          The id of requester
 	 * @param iTxId
 	 *          The id of transaction
 	 * 
 	 * @throws IOException
 	 */
 	public void clearLogEntries(final int iTxId) throws IOException {
+		final Set<Integer> txIds = new HashSet<Integer>();
+		txIds.add(iTxId);
+		clearLogEntries(txIds);
+	}
+
+	/**
+	 * Clear all the entries of multiple transactions in one pass by setting the status to STATUS_FREE. The tx log file is synched
+	 * only once at the end. Used by the group commit to finalize a whole batch of transactions.
+	 * 
+	 * @param iTxIds
+	 *          The ids of transactions
+	 * 
+	 * @throws IOException
+	 */
+	public void clearLogEntries(final Set<Integer> iTxIds) throws IOException {
 		acquireExclusiveLock();
 		try {
-			int size = (file.getFilledUpTo() / RECORD_SIZE);
+			int size = (int) (file.getFilledUpTo() / RECORD_SIZE);
 			byte status;
 			int txId;
 			int offset;
@@ -169,7 +182,7 @@ public class OTxSegment extends OSingleFileSegment {
 					// READ THE TX-ID
 					txId = file.readInt(offset);
 
-					if (txId == iTxId) {
+					if (iTxIds.contains(txId)) {
 						// TX ID FOUND
 						offset += OConstants.SIZE_INT;
 
@@ -196,7 +209,7 @@ public class OTxSegment extends OSingleFileSegment {
 			}
 
 			// SHRINK THE FILE TO THE LAST GOOD POSITION. USE THE COUNTER OF PREVIOUS CYCLE TO DETERMINE THE NUMBER OF RECORDS FREED FOR
-			// THIS TX
+			// THESE TXS
 			int lastRecord = size - 1;
 
 			for (int i = size - 1; i > -1 && recordFreed > 0; --i) {
@@ -208,7 +221,7 @@ public class OTxSegment extends OSingleFileSegment {
 
 				txId = file.readInt(offset);
 
-				if (txId != iTxId)
+				if (!iTxIds.contains(txId))
 					// NO MY TX, EXIT
 					break;
 
@@ -218,8 +231,6 @@ public class OTxSegment extends OSingleFileSegment {
 
 			if (lastRecord > -1)
 				file.shrink(lastRecord * RECORD_SIZE);
-			
-//			truncate();
 
 			synchTx();
 
@@ -231,7 +242,7 @@ public class OTxSegment extends OSingleFileSegment {
 	public int getTotalLogCount() {
 		acquireSharedLock();
 		try {
-			return (file.getFilledUpTo() / RECORD_SIZE);
+			return (int) (file.getFilledUpTo() / RECORD_SIZE);
 		} finally {
 			releaseSharedLock();
 		}
@@ -278,7 +289,7 @@ public class OTxSegment extends OSingleFileSegment {
 		final Set<Integer> txToRecover = new HashSet<Integer>();
 		final Set<Integer> txToNotRecover = new HashSet<Integer>();
 
-		int size = file.getFilledUpTo() / RECORD_SIZE;
+		int size = (int) (file.getFilledUpTo() / RECORD_SIZE);
 		for (int i = 0; i < size; ++i) {
 			int offset = i * RECORD_SIZE;
 
@@ -320,7 +331,7 @@ public class OTxSegment extends OSingleFileSegment {
 	 * @throws IOException
 	 */
 	public void movedRecord(final int iDataSegmentId, final long iSourcePosition, final long iDestinationPosition) throws IOException {
-		final int size = (file.getFilledUpTo() / RECORD_SIZE);
+		final int size = (int) (file.getFilledUpTo() / RECORD_SIZE);
 		for (int i = 0; i < size; ++i) {
 			int offset = i * RECORD_SIZE;
 
@@ -364,7 +375,7 @@ public class OTxSegment extends OSingleFileSegment {
 		int recordsRecovered = 0;
 		final ORecordId rid = new ORecordId();
 
-		final int size = (file.getFilledUpTo() / RECORD_SIZE);
+		final int size = (int) (file.getFilledUpTo() / RECORD_SIZE);
 		for (int i = 0; i < size; ++i) {
 			int offset = i * RECORD_SIZE;
 
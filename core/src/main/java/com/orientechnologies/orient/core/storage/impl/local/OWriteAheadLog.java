@@ -0,0 +1,403 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.OConstants;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.storage.OCluster;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+
+/**
+ * Append-only redo log of committed transactions. At commit time the after-image of every record changed by the transaction is
+ * appended followed by a COMMIT entry, so the only file to force to make the transaction durable is this one. Data and cluster
+ * segments are flushed lazily at checkpoint time: a checkpoint synchronizes the storage and then empties the log. On open all the
+ * committed transactions found in the log are replayed against the storage. Entries of transactions without the COMMIT entry are
+ * ignored: their partial changes are rolled back by the OTxSegment recovery.<br/>
+ * <br/>
+ * Writes executed outside a transaction are logged too, each one as a transaction of a single entry (not forced), so the log holds
+ * the whole history of the records since the last checkpoint. Only the last after-image of each record is replayed. The
+ * after-image is always rewritten, without looking at the version in the cluster, so replaying the same log more times gives the
+ * same result.<br/>
+ * <br/>
+ * File structure:<br/>
+ * <code>
+ * +----------------+-----------+-----------+-----+<br/>
+ * | CHECKPOINT LSN | ENTRY ... | ENTRY ... | ... |<br/>
+ * | 8 bytes ...... | ......... | ......... | ... |<br/>
+ * +----------------+-----------+-----------+-----+<br/>
+ * </code><br/>
+ * Entry structure:<br/>
+ * <code>
+ * +---------+--------+---------+---------+----------------+-------------+---------+-----------+---------+<br/>
+ * | SIZE .. | OPERAT | TX ID . | CLUSTER | CLUSTER OFFSET | RECORD TYPE | VERSION | CONTENT . | CRC ... |<br/>
+ * | 4 bytes | 1 byte | 4 bytes | 2 bytes | 8 bytes ...... | 1 byte .... | 4 bytes | SIZE bytes | 4 bytes |<br/>
+ * +---------+--------+---------+---------+----------------+-------------+---------+-----------+---------+<br/>
+ * = 28 bytes + content
+ * </code><br/>
+ * The LSN of an entry is the checkpoint LSN plus the offset of the entry in the file.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public class OWriteAheadLog {
+	public static final String	DEF_EXTENSION				= ".owl";
+
+	public static final byte		OPERATION_CREATE		= 0;
+	public static final byte		OPERATION_DELETE		= 1;
+	public static final byte		OPERATION_UPDATE		= 2;
+	public static final byte		OPERATION_COMMIT		= 3;
+
+	private static final int		HEADER_SIZE					= OConstants.SIZE_LONG;
+	private static final int		ENTRY_HEADER_SIZE		= 24;
+	private static final int		ENTRY_FOOTER_SIZE		= OConstants.SIZE_INT;
+
+	private final OStorageLocal	storage;
+	private final File					osFile;
+	private RandomAccessFile		accessFile;
+	private FileChannel					channel;
+	private long								checkpointLSN;
+	private long								lastForcedPosition	= HEADER_SIZE;
+	private final String				PROFILER_FORCE;
+
+	public static class OWriteAheadLogEntry {
+		public final byte				operation;
+		public final ORecordId	rid;
+		public final int				version;
+		public final byte				recordType;
+		public final byte[]			content;
+
+		public OWriteAheadLogEntry(final byte iOperation, final ORecordId iRid, final int iVersion, final byte iRecordType,
+				final byte[] iContent) {
+			operation = iOperation;
+			rid = new ORecordId(iRid);
+			version = iVersion;
+			recordType = iRecordType;
+			content = iContent;
+		}
+	}
+
+	public OWriteAheadLog(final OStorageLocal iStorage) {
+		storage = iStorage;
+		osFile = new File(iStorage.getStoragePath() + "/redo" + DEF_EXTENSION);
+		PROFILER_FORCE = "storage." + iStorage.getName() + ".redoLog.force";
+	}
+
+	public void create() throws IOException {
+		openChannel();
+		channel.truncate(0);
+		checkpointLSN = 0;
+		writeCheckpointLSN();
+	}
+
+	/**
+	 * Opens the log, creating it if it doesn't exist (databases created before the redo log was enabled), and replays all the
+	 * committed transactions found.
+	 */
+	public void open() throws IOException {
+		if (!osFile.exists() || osFile.length() < HEADER_SIZE) {
+			create();
+			return;
+		}
+
+		openChannel();
+
+		final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+		channel.read(buffer, 0);
+		buffer.rewind();
+		checkpointLSN = buffer.getLong();
+
+		lastForcedPosition = channel.size();
+
+		recover();
+	}
+
+	public void close() throws IOException {
+		if (channel != null) {
+			channel.force(true);
+			channel.close();
+			channel = null;
+		}
+
+		if (accessFile != null) {
+			accessFile.close();
+			accessFile = null;
+		}
+	}
+
+	public void delete() throws IOException {
+		close();
+		if (osFile.exists())
+			osFile.delete();
+	}
+
+	/**
+	 * Appends all the entries of a transaction followed by the COMMIT entry with a single sequential write. The log is not forced:
+	 * call {@link #force()} to make the transaction durable.
+	 *
+	 * @return The LSN of the COMMIT entry
+	 */
+	public synchronized long logTransaction(final int iTxId, final List<OWriteAheadLogEntry> iEntries) throws IOException {
+		int size = 0;
+		for (OWriteAheadLogEntry e : iEntries)
+			size += ENTRY_HEADER_SIZE + ENTRY_FOOTER_SIZE + (e.content != null ? e.content.length : 0);
+		size += ENTRY_HEADER_SIZE + ENTRY_FOOTER_SIZE;
+
+		final ByteBuffer buffer = ByteBuffer.allocate(size);
+		final CRC32 crc = new CRC32();
+
+		for (OWriteAheadLogEntry e : iEntries)
+			writeEntry(buffer, crc, e.operation, iTxId, e.rid.clusterId, e.rid.clusterPosition, e.recordType, e.version, e.content);
+
+		final int commitOffset = buffer.position();
+		writeEntry(buffer, crc, OPERATION_COMMIT, iTxId, -1, -1, (byte) 0, 0, null);
+
+		buffer.flip();
+
+		final long position = channel.size();
+		while (buffer.hasRemaining())
+			channel.write(buffer, position + buffer.position());
+
+		return checkpointLSN + position + commitOffset;
+	}
+
+	/**
+	 * Forces the log to the disk. Does nothing if no entries have been appended since the last force.
+	 */
+	public synchronized void force() throws IOException {
+		final long size = channel.size();
+		if (size == lastForcedPosition)
+			return;
+
+		final long timer = OProfiler.getInstance().startChrono();
+		try {
+			channel.force(false);
+			lastForcedPosition = size;
+		} finally {
+			OProfiler.getInstance().stopChrono(PROFILER_FORCE, timer);
+		}
+	}
+
+	/**
+	 * Empties the log. Must be called only after the storage has been synchronized.
+	 */
+	public synchronized void checkpoint() throws IOException {
+		checkpointLSN += channel.size() - HEADER_SIZE;
+		channel.truncate(HEADER_SIZE);
+		writeCheckpointLSN();
+		channel.force(true);
+		lastForcedPosition = HEADER_SIZE;
+	}
+
+	public boolean isOpen() {
+		return channel != null;
+	}
+
+	public long getSize() throws IOException {
+		return channel.size() - HEADER_SIZE;
+	}
+
+	public long getCheckpointLSN() {
+		return checkpointLSN;
+	}
+
+	public long getLastLSN() throws IOException {
+		return checkpointLSN + channel.size();
+	}
+
+	/**
+	 * Replays the committed transactions found in the log. Since entries are after-images, only the last one of each record is
+	 * applied: this avoids to resurrect records deleted by a following transaction.
+	 */
+	private void recover() throws IOException {
+		final long fileSize = channel.size();
+		if (fileSize <= HEADER_SIZE)
+			return;
+
+		OLogManager.instance().info(this, "Found %d bytes in redo log %s. Replaying committed transactions...",
+				fileSize - HEADER_SIZE, osFile);
+
+		final Map<Integer, List<OWriteAheadLogEntry>> pending = new LinkedHashMap<Integer, List<OWriteAheadLogEntry>>();
+		final Map<ORecordId, OWriteAheadLogEntry> lastImages = new LinkedHashMap<ORecordId, OWriteAheadLogEntry>();
+
+		final ByteBuffer header = ByteBuffer.allocate(ENTRY_HEADER_SIZE);
+		final CRC32 crc = new CRC32();
+
+		int recoveredTxs = 0;
+		int recoveredRecords = 0;
+
+		long position = HEADER_SIZE;
+		while (position + ENTRY_HEADER_SIZE + ENTRY_FOOTER_SIZE <= fileSize) {
+			header.clear();
+			channel.read(header, position);
+			header.flip();
+
+			final int contentSize = header.getInt();
+			if (contentSize < -1 || position + ENTRY_HEADER_SIZE + Math.max(contentSize, 0) + ENTRY_FOOTER_SIZE > fileSize)
+				// TRUNCATED ENTRY: THE WRITE WAS INTERRUPTED BY THE CRASH
+				break;
+
+			final ByteBuffer entry = ByteBuffer.allocate(ENTRY_HEADER_SIZE + Math.max(contentSize, 0) + ENTRY_FOOTER_SIZE);
+			channel.read(entry, position);
+			entry.flip();
+
+			crc.reset();
+			crc.update(entry.array(), 0, entry.limit() - ENTRY_FOOTER_SIZE);
+			if ((int) crc.getValue() != entry.getInt(entry.limit() - ENTRY_FOOTER_SIZE))
+				// CORRUPTED ENTRY: STOP HERE
+				break;
+
+			entry.position(OConstants.SIZE_INT);
+			final byte operation = entry.get();
+			final int txId = entry.getInt();
+			final int clusterId = entry.getShort();
+			final long clusterPosition = entry.getLong();
+			final byte recordType = entry.get();
+			final int version = entry.getInt();
+
+			final byte[] content;
+			if (contentSize > -1) {
+				content = new byte[contentSize];
+				entry.get(content);
+			} else
+				content = null;
+
+			position += entry.limit();
+
+			if (operation == OPERATION_COMMIT) {
+				final List<OWriteAheadLogEntry> txEntries = pending.remove(txId);
+				if (txEntries != null) {
+					for (OWriteAheadLogEntry e : txEntries) {
+						lastImages.remove(e.rid);
+						lastImages.put(e.rid, e);
+					}
+
+					recoveredTxs++;
+					recoveredRecords += txEntries.size();
+				}
+			} else {
+				List<OWriteAheadLogEntry> txEntries = pending.get(txId);
+				if (txEntries == null) {
+					txEntries = new ArrayList<OWriteAheadLogEntry>();
+					pending.put(txId, txEntries);
+				}
+				txEntries.add(new OWriteAheadLogEntry(operation, new ORecordId(clusterId, clusterPosition), version, recordType, content));
+			}
+		}
+
+		if (position < fileSize)
+			OLogManager.instance().warn(this, "Redo log %s is truncated at offset %d of %d: ignored the remaining bytes", osFile,
+					position, fileSize);
+
+		for (OWriteAheadLogEntry e : lastImages.values())
+			replayEntry(e);
+
+		if (pending.size() > 0)
+			OLogManager.instance().info(this, "Ignored %d not committed transactions found in redo log", pending.size());
+
+		OLogManager.instance().info(this, "Redo log recovering successfully completed: replayed %d transactions, %d records",
+				recoveredTxs, recoveredRecords);
+	}
+
+	private void replayEntry(final OWriteAheadLogEntry iEntry) throws IOException {
+		final OCluster c = storage.getClusterById(iEntry.rid.clusterId);
+		if (!(c instanceof OClusterLocal))
+			// ONLY LOCAL CLUSTER ARE INVOLVED IN TX
+			return;
+
+		final OClusterLocal cluster = (OClusterLocal) c;
+
+		final OPhysicalPosition ppos = new OPhysicalPosition();
+		final boolean exists = iEntry.rid.clusterPosition <= cluster.getLastEntryPosition();
+		if (exists)
+			cluster.getPhysicalPosition(iEntry.rid.clusterPosition, ppos);
+
+		final boolean valid = exists && storage.checkForRecordValidity(ppos);
+
+		switch (iEntry.operation) {
+		case OPERATION_CREATE:
+		case OPERATION_UPDATE:
+			// ALWAYS REWRITE THE AFTER-IMAGE: CREATE ENTRIES ARE LOGGED WITH VERSION 0 SO THE VERSION CAN'T TELL IF THE RECORD IS UP TO DATE
+			if (!valid)
+				cluster.restorePhysicalPosition(iEntry.rid.clusterPosition);
+
+			final int dataSegmentId = valid ? ppos.dataSegment : 0;
+			final ODataLocal data = storage.getDataSegment(dataSegmentId);
+
+			final long dataOffset = iEntry.content != null ? data.addRecord(iEntry.rid, iEntry.content) : -1;
+
+			// POINT TO THE NEW CONTENT BEFORE FREEING THE OLD ONE: THE DEFRAG OF THE HOLE COULD MOVE THE NEW CONTENT
+			cluster.setPhysicalPosition(iEntry.rid.clusterPosition, dataSegmentId, dataOffset, iEntry.recordType, iEntry.version);
+
+			if (valid && ppos.dataPosition > -1)
+				storage.getDataSegment(ppos.dataSegment).deleteRecord(ppos.dataPosition);
+			break;
+
+		case OPERATION_DELETE:
+			if (!valid)
+				// ALREADY DELETED
+				return;
+
+			cluster.removePhysicalPosition(iEntry.rid.clusterPosition, ppos);
+			if (ppos.dataPosition > -1)
+				storage.getDataSegment(ppos.dataSegment).deleteRecord(ppos.dataPosition);
+			break;
+		}
+	}
+
+	private void writeEntry(final ByteBuffer iBuffer, final CRC32 iCrc, final byte iOperation, final int iTxId, final int iClusterId,
+			final long iClusterPosition, final byte iRecordType, final int iVersion, final byte[] iContent) {
+		final int begin = iBuffer.position();
+
+		iBuffer.putInt(iContent != null ? iContent.length : -1);
+		iBuffer.put(iOperation);
+		iBuffer.putInt(iTxId);
+		iBuffer.putShort((short) iClusterId);
+		iBuffer.putLong(iClusterPosition);
+		iBuffer.put(iRecordType);
+		iBuffer.putInt(iVersion);
+		if (iContent != null)
+			iBuffer.put(iContent);
+
+		iCrc.reset();
+		iCrc.update(iBuffer.array(), begin, iBuffer.position() - begin);
+		iBuffer.putInt((int) iCrc.getValue());
+	}
+
+	private void writeCheckpointLSN() throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+		buffer.putLong(checkpointLSN);
+		buffer.flip();
+		channel.write(buffer, 0);
+	}
+
+	private void openChannel() throws IOException {
+		accessFile = new RandomAccessFile(osFile, storage.getMode());
+		channel = accessFile.getChannel();
+	}
+}
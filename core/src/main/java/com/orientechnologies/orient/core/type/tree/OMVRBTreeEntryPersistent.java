@@ -97,11 +97,12 @@ public abstract class OMVRBTreeEntryPersistent<K, V> extends OMVRBTreeEntry<K, V
 
 	public ORecordBytesLazy										record;
 
-	protected OMVRBTreeEntryPersistent<K, V>	parent;
+	// VOLATILE TO SAFELY PUBLISH THE NODES LAZY LOADED BY CONCURRENT READERS
+	protected volatile OMVRBTreeEntryPersistent<K, V>	parent;
 
-	protected OMVRBTreeEntryPersistent<K, V>	left;
+	protected volatile OMVRBTreeEntryPersistent<K, V>	left;
 
-	protected OMVRBTreeEntryPersistent<K, V>	right;
+	protected volatile OMVRBTreeEntryPersistent<K, V>	right;
 
 	protected OMemoryInputStream							inStream	= new OMemoryInputStream();
 
@@ -404,29 +405,35 @@ public abstract class OMVRBTreeEntryPersistent<K, V> extends OMVRBTreeEntry<K, V
 			return null;
 
 		if (parent == null && parentRid.isValid()) {
-			try {
-				// System.out.println("Node " + record.getIdentity() + " is loading PARENT node " + parentRid + "...");
-
-				// LAZY LOADING OF THE PARENT NODE
-				parent = pTree.loadEntry(null, parentRid);
-
-				checkEntryStructure();
-
-				if (parent != null) {
-					// TRY TO ASSIGN IT FOLLOWING THE RID
-					if (parent.leftRid.isValid() && parent.leftRid.equals(record.getIdentity()))
-						parent.left = this;
-					else if (parent.rightRid.isValid() && parent.rightRid.equals(record.getIdentity()))
-						parent.right = this;
-					else {
-						OLogManager.instance().error(this, "getParent: Can't assign node %s to parent. Nodes parent-left=%s, parent-right=%s",
-								parentRid, parent.leftRid, parent.rightRid);
+			synchronized (pTree) {
+				if (parent == null)
+					try {
+						// System.out.println("Node " + record.getIdentity() + " is loading PARENT node " + parentRid + "...");
+
+						// LAZY LOADING OF THE PARENT NODE
+						final OMVRBTreeEntryPersistent<K, V> loaded = pTree.loadEntry(null, parentRid);
+
+						if (loaded != null) {
+							// TRY TO ASSIGN IT FOLLOWING THE RID
+							if (loaded.leftRid.isValid() && loaded.leftRid.equals(record.getIdentity()))
+								loaded.left = this;
+							else if (loaded.rightRid.isValid() && loaded.rightRid.equals(record.getIdentity()))
+								loaded.right = this;
+							else {
+								OLogManager.instance().error(this,
+										"getParent: Can't assign node %s to parent. Nodes parent-left=%s, parent-right=%s", parentRid, loaded.leftRid,
+										loaded.rightRid);
+							}
+						}
+
+						parent = loaded;
+
+						checkEntryStructure();
+
+					} catch (IOException e) {
+						OLogManager.instance().error(this, "getParent: Can't load the tree. The tree could be invalid.", e,
+								ODatabaseException.class);
 					}
-				}
-
-			} catch (IOException e) {
-				OLogManager.instance().error(this, "getParent: Can't load the tree. The tree could be invalid.", e,
-						ODatabaseException.class);
 			}
 		}
 		return parent;
@@ -459,16 +466,20 @@ public abstract class OMVRBTreeEntryPersistent<K, V> extends OMVRBTreeEntry<K, V
 	@Override
 	public OMVRBTreeEntry<K, V> getLeft() {
 		if (left == null && leftRid != null && leftRid.isValid()) {
-			try {
-				// System.out.println("Node " + record.getIdentity() + " is loading LEFT node " + leftRid + "...");
+			synchronized (pTree) {
+				if (left == null)
+					try {
+						// System.out.println("Node " + record.getIdentity() + " is loading LEFT node " + leftRid + "...");
 
-				// LAZY LOADING OF THE LEFT LEAF
-				left = pTree.loadEntry(this, leftRid);
+						// LAZY LOADING OF THE LEFT LEAF
+						left = pTree.loadEntry(this, leftRid);
 
-				checkEntryStructure();
+						checkEntryStructure();
 
-			} catch (IOException e) {
-				OLogManager.instance().error(this, "getLeft: Can't load the tree. The tree could be invalid.", e, ODatabaseException.class);
+					} catch (IOException e) {
+						OLogManager.instance().error(this, "getLeft: Can't load the tree. The tree could be invalid.", e,
+								ODatabaseException.class);
+					}
 			}
 		}
 		return left;
@@ -494,14 +505,18 @@ public abstract class OMVRBTreeEntryPersistent<K, V> extends OMVRBTreeEntry<K, V
 	@Override
 	public OMVRBTreeEntry<K, V> getRight() {
 		if (right == null && rightRid != null && rightRid.isValid()) {
-			// LAZY LOADING OF THE RIGHT LEAF
-			try {
-				right = pTree.loadEntry(this, rightRid);
+			synchronized (pTree) {
+				if (right == null)
+					// LAZY LOADING OF THE RIGHT LEAF
+					try {
+						right = pTree.loadEntry(this, rightRid);
 
-				checkEntryStructure();
+						checkEntryStructure();
 
-			} catch (IOException e) {
-				OLogManager.instance().error(this, "getRight: Can't load tree. The tree could be invalid.", e, ODatabaseException.class);
+					} catch (IOException e) {
+						OLogManager.instance().error(this, "getRight: Can't load tree. The tree could be invalid.", e,
+								ODatabaseException.class);
+					}
 			}
 		}
 		return right;
@@ -628,41 +643,46 @@ public abstract class OMVRBTreeEntryPersistent<K, V> extends OMVRBTreeEntry<K, V
 	}
 
 	/**
-	 * Return the key. Keys are lazy loaded.
+	 * Return the key. Keys are lazy loaded. Concurrent readers could unmarshall the same key twice: both get an equal instance and
+	 * the last one is kept.
 	 * 
 	 * @param iIndex
 	 * @return
 	 */
 	@Override
 	public K getKeyAt(final int iIndex) {
-		if (keys[iIndex] == null)
+		K key = keys[iIndex];
+		if (key == null)
 			try {
 				OProfiler.getInstance().updateCounter("OMVRBTreeEntryP.unserializeKey", 1);
 
-				keys[iIndex] = (K) keyFromStream(iIndex);
+				key = (K) keyFromStream(iIndex);
+				keys[iIndex] = key;
 			} catch (IOException e) {
 
 				OLogManager.instance().error(this, "Can't lazy load the key #" + iIndex + " in tree node " + this, e,
 						OSerializationException.class);
 			}
 
-		return keys[iIndex];
+		return key;
 	}
 
 	@Override
 	protected V getValueAt(final int iIndex) {
-		if (values[iIndex] == null)
+		V value = values[iIndex];
+		if (value == null)
 			try {
 				OProfiler.getInstance().updateCounter("OMVRBTreeEntryP.unserializeValue", 1);
 
-				values[iIndex] = (V) valueFromStream(iIndex);
+				value = (V) valueFromStream(iIndex);
+				values[iIndex] = value;
 			} catch (IOException e) {
 
 				OLogManager.instance().error(this, "Can't lazy load the value #" + iIndex + " in tree node " + this, e,
 						OSerializationException.class);
 			}
 
-		return values[iIndex];
+		return value;
 	}
 
 	/**
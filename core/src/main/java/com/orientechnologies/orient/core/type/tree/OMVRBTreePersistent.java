@@ -115,9 +115,11 @@ public abstract class OMVRBTreePersistent<K, V> extends OMVRBTree<K, V> implemen
 	public abstract OMVRBTreePersistent<K, V> save() throws IOException;
 
 	/**
-	 * Lazy loads a node.
+	 * Lazy loads a node. It's synchronized on the tree since concurrent readers (see {@link #getConcurrent(Object)}) can load nodes
+	 * at the same time: the cache of nodes, the entry-points and the links between nodes are updated only while holding the tree's
+	 * monitor.
 	 */
-	protected OMVRBTreeEntryPersistent<K, V> loadEntry(final OMVRBTreeEntryPersistent<K, V> iParent, final ORID iRecordId)
+	protected synchronized OMVRBTreeEntryPersistent<K, V> loadEntry(final OMVRBTreeEntryPersistent<K, V> iParent, final ORID iRecordId)
 			throws IOException {
 		checkForOptimization();
 
@@ -747,7 +749,7 @@ public abstract class OMVRBTreePersistent<K, V> extends OMVRBTree<K, V> implemen
 	 * returned.
 	 */
 	@Override
-	protected OMVRBTreeEntry<K, V> getBestEntryPoint(final K iKey) {
+	protected synchronized OMVRBTreeEntry<K, V> getBestEntryPoint(final K iKey) {
 		if (!entryPoints.isEmpty()) {
 			// SEARCHES EXACT OR BIGGER ENTRY
 			Entry<K, OMVRBTreeEntryPersistent<K, V>> closerNode = entryPoints.floorEntry(iKey);
@@ -786,7 +788,7 @@ public abstract class OMVRBTreePersistent<K, V> extends OMVRBTree<K, V> implemen
 	 * empty.
 	 */
 	@Override
-	protected OMVRBTreeEntry<K, V> getFirstEntry() {
+	protected synchronized OMVRBTreeEntry<K, V> getFirstEntry() {
 		if (!entryPoints.isEmpty()) {
 			// FIND THE FIRST ELEMENT STARTING FROM THE FIRST ENTRY-POINT IN MEMORY
 			final Map.Entry<K, OMVRBTreeEntryPersistent<K, V>> entry = entryPoints.firstEntry();
@@ -817,7 +819,7 @@ public abstract class OMVRBTreePersistent<K, V> extends OMVRBTree<K, V> implemen
 	 * empty.
 	 */
 	@Override
-	protected OMVRBTreeEntry<K, V> getLastEntry() {
+	protected synchronized OMVRBTreeEntry<K, V> getLastEntry() {
 		if (!entryPoints.isEmpty()) {
 			// FIND THE LAST ELEMENT STARTING FROM THE FIRST ENTRY-POINT IN MEMORY
 			final Map.Entry<K, OMVRBTreeEntryPersistent<K, V>> entry = entryPoints.lastEntry();
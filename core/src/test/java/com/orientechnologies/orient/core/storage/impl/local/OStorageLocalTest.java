@@ -1,12 +1,23 @@
 package com.orientechnologies.orient.core.storage.impl.local;
 
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.orientechnologies.orient.core.OConstants;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
 
 @Test
 public class OStorageLocalTest {
@@ -70,6 +81,283 @@ public class OStorageLocalTest {
 		System.out.println("Delete OK!");
 	}
 
+	public void compaction() {
+		String dbPath = getDatabasePath();
+
+		File dbDir = new File(dbPath);
+		delTree(dbDir);
+		ODatabaseDocumentTx db = new ODatabaseDocumentTx("local:" + dbPath);
+		db.create();
+
+		final ORID[] rids = new ORID[1000];
+		for (int i = 0; i < rids.length; ++i)
+			rids[i] = new ODocument(db).field("id", i).field("text", "compaction test record number " + i).save().getIdentity();
+
+		// DELETE HALF OF THE RECORDS TO FILL THE DATA SEGMENT WITH HOLES
+		for (int i = 0; i < rids.length; i += 2)
+			db.load(rids[i]).delete();
+
+		final OStorageLocal storage = (OStorageLocal) db.getStorage();
+		final ODataLocal data = storage.getDataSegment(0);
+		final long filledBefore = data.getFilledUpTo();
+		Assert.assertTrue(data.getHoles() > 0);
+
+		while (storage.compact(4096) > 0)
+			;
+
+		Assert.assertTrue(data.getFilledUpTo() < filledBefore);
+		Assert.assertTrue(data.getHolesList().isEmpty());
+
+		db.getLevel1Cache().invalidate();
+		db.getStorage().getLevel2Cache().clear();
+		for (int i = 1; i < rids.length; i += 2) {
+			final ODocument doc = db.load(rids[i]);
+			Assert.assertEquals(doc.field("id"), i);
+			Assert.assertEquals(doc.field("text"), "compaction test record number " + i);
+		}
+
+		db.delete();
+	}
+
+	public void holesReuse() {
+		OGlobalConfiguration.STORAGE_KEEP_OPEN.setValue(false);
+		final int defragDistance = OGlobalConfiguration.FILE_DEFRAG_HOLE_MAX_DISTANCE.getValueAsInteger();
+		OGlobalConfiguration.FILE_DEFRAG_HOLE_MAX_DISTANCE.setValue(1);
+
+		try {
+			String dbPath = getDatabasePath();
+
+			File dbDir = new File(dbPath);
+			delTree(dbDir);
+			ODatabaseDocumentTx db = new ODatabaseDocumentTx("local:" + dbPath);
+			db.create();
+
+			final ORID[] rids = new ORID[1000];
+			for (int i = 0; i < rids.length; ++i)
+				rids[i] = new ODocument(db).field("text", "hole " + (i % 10)).save().getIdentity();
+
+			for (int i = 0; i < rids.length; i += 2)
+				db.load(rids[i]).delete();
+
+			final long holes = ((OStorageLocal) db.getStorage()).getDataSegment(0).getHolesList().size();
+			Assert.assertTrue(holes > 0);
+			db.close();
+
+			// REOPEN TO RELOAD THE HOLES FROM THE FILE
+			db = new ODatabaseDocumentTx("local:" + dbPath).open("admin", "admin");
+			final ODataLocal data = ((OStorageLocal) db.getStorage()).getDataSegment(0);
+			Assert.assertEquals(data.getHolesList().size(), holes);
+
+			final long filledBefore = data.getFilledUpTo();
+			for (int i = 0; i < rids.length; i += 2)
+				new ODocument(db).field("text", "hole " + (i % 10)).save();
+
+			// ALL THE RECORDS HAVE BEEN WRITTEN IN THE HOLES WITH THE SAME SIZE
+			Assert.assertEquals(data.getFilledUpTo(), filledBefore);
+
+			db.delete();
+		} finally {
+			OGlobalConfiguration.FILE_DEFRAG_HOLE_MAX_DISTANCE.setValue(defragDistance);
+		}
+	}
+
+	public void concurrentCreation() throws Exception {
+		String dbPath = getDatabasePath();
+
+		File dbDir = new File(dbPath);
+		delTree(dbDir);
+		final String url = "local:" + dbPath;
+		ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+		db.create();
+		db.getMetadata().getSchema().createClass("A");
+		db.getMetadata().getSchema().createClass("B");
+		db.getMetadata().getSchema().save();
+
+		// TWO THREADS PER CLUSTER TO INSERT AGAINST DIFFERENT CLUSTERS AND THE SAME CLUSTER IN PARALLEL
+		final int recordsPerThread = 2000;
+		final ORID[][] rids = new ORID[4][recordsPerThread];
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+		final Thread[] threads = new Thread[rids.length];
+		for (int t = 0; t < threads.length; ++t) {
+			final int threadId = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					final ODatabaseDocumentTx threadDb = new ODatabaseDocumentTx(url).open("admin", "admin");
+					try {
+						for (int i = 0; i < recordsPerThread; ++i)
+							rids[threadId][i] = new ODocument(threadDb, threadId % 2 == 0 ? "A" : "B").field("thread", threadId)
+									.field("id", i).save().getIdentity();
+					} catch (Throwable e) {
+						errors.add(e);
+					} finally {
+						threadDb.close();
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread t : threads)
+			t.join();
+
+		Assert.assertTrue(errors.isEmpty(), errors.toString());
+		Assert.assertEquals(db.countClass("A"), recordsPerThread * 2);
+		Assert.assertEquals(db.countClass("B"), recordsPerThread * 2);
+
+		db.getLevel1Cache().invalidate();
+		db.getStorage().getLevel2Cache().clear();
+		for (int t = 0; t < rids.length; ++t)
+			for (int i = 0; i < recordsPerThread; ++i) {
+				final ODocument doc = db.load(rids[t][i]);
+				Assert.assertEquals(doc.field("thread"), t);
+				Assert.assertEquals(doc.field("id"), i);
+			}
+
+		db.delete();
+	}
+
+	public void redoLogReplay() throws Exception {
+		OGlobalConfiguration.STORAGE_KEEP_OPEN.setValue(false);
+		final boolean redoLog = OGlobalConfiguration.TX_REDO_LOG.getValueAsBoolean();
+		OGlobalConfiguration.TX_REDO_LOG.setValue(true);
+
+		try {
+			String dbPath = getDatabasePath();
+
+			File dbDir = new File(dbPath);
+			delTree(dbDir);
+			ODatabaseDocumentTx db = new ODatabaseDocumentTx("local:" + dbPath);
+			db.create();
+
+			final ORecordId rid = (ORecordId) new ODocument(db).field("text", "before").save().getIdentity().copy();
+			final byte[] afterImage = new ODocument(db).field("text", "after").toStream();
+			final OStorageLocal storage = (OStorageLocal) db.getStorage();
+			db.close();
+
+			// SIMULATE A CRASH AFTER FORCING THE LOG: THE CREATE IS LOGGED WITH VERSION 0 AS THE RECORD IN THE CLUSTER
+			final OWriteAheadLog log = new OWriteAheadLog(storage);
+			log.open();
+			log.logTransaction(1, Collections.singletonList(new OWriteAheadLog.OWriteAheadLogEntry(OWriteAheadLog.OPERATION_CREATE, rid, 0,
+					ODocument.RECORD_TYPE, afterImage)));
+			log.close();
+
+			db = new ODatabaseDocumentTx("local:" + dbPath).open("admin", "admin");
+			final ODocument doc = db.load(rid);
+			Assert.assertEquals(doc.field("text"), "after");
+
+			db.delete();
+		} finally {
+			OGlobalConfiguration.TX_REDO_LOG.setValue(redoLog);
+		}
+	}
+
+	public void redoLogReplayWithNonTxWrites() throws Exception {
+		OGlobalConfiguration.STORAGE_KEEP_OPEN.setValue(false);
+		final boolean redoLog = OGlobalConfiguration.TX_REDO_LOG.getValueAsBoolean();
+		OGlobalConfiguration.TX_REDO_LOG.setValue(true);
+
+		try {
+			String dbPath = getDatabasePath();
+
+			File dbDir = new File(dbPath);
+			delTree(dbDir);
+			ODatabaseDocumentTx db = new ODatabaseDocumentTx("local:" + dbPath);
+			db.create();
+
+			db.begin();
+			final ODocument updated = new ODocument(db).field("text", "tx");
+			updated.save();
+			final ODocument deleted = new ODocument(db).field("text", "tx");
+			deleted.save();
+			final ODocument reused = new ODocument(db).field("text", "tx");
+			reused.save();
+			db.commit();
+
+			// NON-TX WRITES ON THE SAME RIDS
+			updated.field("text", "non-tx").save();
+			deleted.delete();
+
+			db.begin();
+			reused.delete();
+			db.commit();
+
+			// THE NEW RECORD TAKES THE POSITION OF THE ONE JUST DELETED IN TX
+			final ODocument created = new ODocument(db).field("text", "non-tx");
+			created.save();
+
+			final ORID updatedRid = updated.getIdentity().copy();
+			final ORID deletedRid = deleted.getIdentity().copy();
+			final ORID createdRid = created.getIdentity().copy();
+			Assert.assertEquals(createdRid, reused.getIdentity());
+
+			// SIMULATE A CRASH: PUT BACK THE LOG AS IT WAS BEFORE THE CHECKPOINT EXECUTED BY THE CLOSE
+			final File logFile = new File(((OStorageLocal) db.getStorage()).getStoragePath() + "/redo" + OWriteAheadLog.DEF_EXTENSION);
+			final byte[] log = readFile(logFile);
+			db.close();
+			writeFile(logFile, log);
+
+			db = new ODatabaseDocumentTx("local:" + dbPath).open("admin", "admin");
+			Assert.assertEquals(((ODocument) db.load(updatedRid)).field("text"), "non-tx");
+			Assert.assertNull(db.load(deletedRid));
+			Assert.assertEquals(((ODocument) db.load(createdRid)).field("text"), "non-tx");
+
+			db.delete();
+		} finally {
+			OGlobalConfiguration.TX_REDO_LOG.setValue(redoLog);
+		}
+	}
+
+	public void redoLogBackgroundCheckpoint() throws Exception {
+		final boolean redoLog = OGlobalConfiguration.TX_REDO_LOG.getValueAsBoolean();
+		final long checkpointSize = OGlobalConfiguration.TX_REDO_LOG_CHECKPOINT_SIZE.getValueAsLong();
+		OGlobalConfiguration.TX_REDO_LOG.setValue(true);
+		OGlobalConfiguration.TX_REDO_LOG_CHECKPOINT_SIZE.setValue(1l);
+
+		try {
+			String dbPath = getDatabasePath();
+
+			File dbDir = new File(dbPath);
+			delTree(dbDir);
+			ODatabaseDocumentTx db = new ODatabaseDocumentTx("local:" + dbPath);
+			db.create();
+
+			db.begin();
+			new ODocument(db).field("text", "checkpoint").save();
+			db.commit();
+
+			// THE COMMIT ONLY REQUESTS THE CHECKPOINT: WAIT FOR THE CHECKPOINTER TO EMPTY THE LOG
+			final File logFile = new File(((OStorageLocal) db.getStorage()).getStoragePath() + "/redo" + OWriteAheadLog.DEF_EXTENSION);
+			for (int i = 0; i < 100 && logFile.length() > OConstants.SIZE_LONG; ++i)
+				Thread.sleep(50);
+			Assert.assertEquals(logFile.length(), OConstants.SIZE_LONG);
+
+			db.delete();
+		} finally {
+			OGlobalConfiguration.TX_REDO_LOG.setValue(redoLog);
+			OGlobalConfiguration.TX_REDO_LOG_CHECKPOINT_SIZE.setValue(checkpointSize);
+		}
+	}
+
+	private byte[] readFile(final File iFile) throws IOException {
+		final byte[] content = new byte[(int) iFile.length()];
+		final DataInputStream in = new DataInputStream(new FileInputStream(iFile));
+		try {
+			in.readFully(content);
+		} finally {
+			in.close();
+		}
+		return content;
+	}
+
+	private void writeFile(final File iFile, final byte[] iContent) throws IOException {
+		final FileOutputStream out = new FileOutputStream(iFile);
+		try {
+			out.write(iContent);
+		} finally {
+			out.close();
+		}
+	}
+
 	private boolean delTree(File directory) {
 		if (directory.exists()) {
 			File[] files = directory.listFiles();
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
 
 import com.orientechnologies.common.concur.resource.OSharedResourceExternalTimeout;
 import com.orientechnologies.orient.core.config.OContextConfiguration;
@@ -38,6 +39,17 @@ public abstract class OChannel extends OSharedResourceExternalTimeout {
 		socketBufferSize = iConfig.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_BUFFER_SIZE);
 	}
 
+	/**
+	 * Returns the stream to write to the socket. Sockets accepted by a NIO server socket are written through their channel, since they
+	 * can be switched in non-blocking mode while waiting for the next request.
+	 */
+	protected OutputStream getSocketOutputStream() throws IOException {
+		final SocketChannel socketChannel = socket.getChannel();
+		if (socketChannel != null)
+			return new OSocketChannelOutputStream(socketChannel);
+		return socket.getOutputStream();
+	}
+
 	public void flush() throws IOException {
 		outStream.flush();
 	}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.enterprise.channel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Output stream writing directly on a socket channel. Unlike the stream returned by the socket adaptor, it works also while the
+ * channel is in non-blocking mode, by retrying the write until all the bytes have been sent. This is the case of the connections
+ * parked in a NIO selector waiting for the next request, that could receive pushed data in the meanwhile.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public class OSocketChannelOutputStream extends OutputStream {
+	private final SocketChannel	channel;
+	private final byte[]				single	= new byte[1];
+
+	public OSocketChannelOutputStream(final SocketChannel iChannel) {
+		channel = iChannel;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		single[0] = (byte) b;
+		write(single, 0, 1);
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+		while (buffer.hasRemaining()) {
+			if (channel.write(buffer) == 0)
+				// NON-BLOCKING CHANNEL WITH THE SEND BUFFER FULL: WAIT FOR THE PEER TO CONSUME IT
+				Thread.yield();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -17,20 +17,31 @@ package com.orientechnologies.orient.enterprise.channel.binary;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 import com.orientechnologies.orient.core.config.OContextConfiguration;
 
 /**
- * Implementation that supports multiple client requests.
+ * Implementation that supports multiple client requests. Requests are pipelined: the write lock is held only while a request is
+ * written, so other threads can send their requests while the previous responses are still pending. The server sends the
+ * responses in the same order of the requests. The first waiting thread that finds the channel free reads the header of the next
+ * response and, if it belongs to another requester, wakes it up and waits again. In this way the response is parsed directly by
+ * the thread that sent the request without being buffered.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  * 
  */
 public class OChannelBinaryAsynch extends OChannelBinary {
-	private final ReentrantLock	lockRead		= new ReentrantLock();
-	private final ReentrantLock	lockWrite		= new ReentrantLock();
-	private boolean							channelRead	= false;
+	private static final long		RESPONSE_WAIT_TIMEOUT	= 1000;
+
+	private final ReentrantLock	lockRead							= new ReentrantLock();
+	private final Condition			responseAvailable			= lockRead.newCondition();
+	private final ReentrantLock	lockWrite							= new ReentrantLock();
+	private final AtomicInteger	pendingResponses			= new AtomicInteger();
+	private boolean							channelRead						= false;
 	private byte								currentStatus;
 	private int									currentTxId;
 
@@ -42,43 +53,48 @@ public class OChannelBinaryAsynch extends OChannelBinary {
 		lockWrite.lock();
 	}
 
+	/**
+	 * Flushes the request and releases the write lock, so other requests can be sent before the response is received.
+	 */
 	public void endRequest() throws IOException {
-		out.flush();
-		lockWrite.unlock();
+		try {
+			out.flush();
+			pendingResponses.incrementAndGet();
+		} finally {
+			lockWrite.unlock();
+		}
 	}
 
 	public int beginResponse(final int iRequesterId) throws IOException {
-		// WAIT FOR THE RESPONSE
-		do {
-			lockRead.lock();
-
-			if (!channelRead) {
-				channelRead = true;
-
-				try {
+		lockRead.lock();
+		try {
+			// WAIT FOR THE RESPONSE
+			while (true) {
+				if (!channelRead) {
+					// THE CHANNEL IS FREE: READ THE HEADER OF THE NEXT RESPONSE
 					currentStatus = readByte();
 					currentTxId = readInt();
-
-				} catch (IOException e) {
-					// UNLOCK THE RESOURCE AND PROPAGATES THE EXCEPTION
-					lockRead.unlock();
-					throw e;
+					channelRead = true;
 				}
-			}
 
-			if (currentTxId == iRequesterId)
-				// IT'S FOR ME
-				break;
+				if (currentTxId == iRequesterId)
+					// IT'S FOR ME
+					break;
 
-			lockRead.unlock();
-
-			synchronized (this) {
-				try {
-					wait(1000);
-				} catch (InterruptedException e) {
-				}
+				// WAKE UP THE OWNER OF THE RESPONSE AND WAIT FOR THE NEXT ONE
+				responseAvailable.signalAll();
+				responseAvailable.await(RESPONSE_WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
 			}
-		} while (true);
+		} catch (IOException e) {
+			// UNLOCK THE RESOURCE AND PROPAGATES THE EXCEPTION
+			responseAvailable.signalAll();
+			lockRead.unlock();
+			throw e;
+		} catch (InterruptedException e) {
+			lockRead.unlock();
+			Thread.currentThread().interrupt();
+			throw new ONetworkProtocolException("Interrupted while waiting for the response of requester " + iRequesterId);
+		}
 
 		handleStatus(currentStatus, currentTxId);
 
@@ -86,13 +102,25 @@ public class OChannelBinaryAsynch extends OChannelBinary {
 	}
 
 	public void endResponse() {
+		if (!lockRead.isHeldByCurrentThread())
+			// THE LOCK HAS BEEN ALREADY RELEASED BY beginResponse() ON ERROR
+			return;
+
+		if (channelRead && currentStatus != OChannelBinaryProtocol.PUSH_DATA)
+			pendingResponses.decrementAndGet();
+
 		channelRead = false;
+
+		// WAKE UP ALL THE WAITING THREADS: THE FIRST ONE WILL READ THE NEXT RESPONSE
+		responseAvailable.signalAll();
 		lockRead.unlock();
+	}
 
-		// WAKE UP ALL THE WAITING THREADS
-		synchronized (this) {
-			notifyAll();
-		}
+	/**
+	 * Returns the number of requests sent and whose response hasn't been read yet.
+	 */
+	public int getPendingResponses() {
+		return pendingResponses.get();
 	}
 
 	public ReentrantLock getLockRead() {
@@ -105,11 +133,15 @@ public class OChannelBinaryAsynch extends OChannelBinary {
 
 	@Override
 	public void close() {
-		synchronized (this) {
-			notifyAll();
-		}
-
 		super.close();
+
+		// WAKE UP THE WAITING THREADS TO LET THEM RECEIVE THE ERROR
+		if (lockRead.tryLock())
+			try {
+				responseAvailable.signalAll();
+			} finally {
+				lockRead.unlock();
+			}
 	}
 
 	@Override
@@ -121,4 +153,4 @@ public class OChannelBinaryAsynch extends OChannelBinary {
 			lockRead.unlock();
 		}
 	}
-}
\ No newline at end of file
+}
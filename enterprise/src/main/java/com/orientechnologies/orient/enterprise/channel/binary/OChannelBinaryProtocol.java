@@ -48,9 +48,12 @@ public class OChannelBinaryProtocol {
 	public static final byte	REQUEST_RECORD_CREATE					= 31;
 	public static final byte	REQUEST_RECORD_UPDATE					= 32;
 	public static final byte	REQUEST_RECORD_DELETE					= 33;
+	public static final byte	REQUEST_RECORD_LOAD_MULTI			= 34; // SINCE 1.0rc6
 
 	public static final byte	REQUEST_COUNT									= 40;
 	public static final byte	REQUEST_COMMAND								= 41;
+	public static final byte	REQUEST_CURSOR_FETCH					= 42; // SINCE 1.0rc6
+	public static final byte	REQUEST_CURSOR_CLOSE					= 43; // SINCE 1.0rc6
 
 	public static final byte	REQUEST_TX_COMMIT							= 60;
 
@@ -69,7 +72,7 @@ public class OChannelBinaryProtocol {
 	// CONSTANTS
 	public static final short	RECORD_NULL										= -2;
 	public static final short	RECORD_RID										= -3;
-	public static final int		CURRENT_PROTOCOL_VERSION			= 5;	// SENT AS SHORT AS FIRST PACKET AFTER SOCKET CONNECTION
+	public static final int		CURRENT_PROTOCOL_VERSION			= 6;	// SENT AS SHORT AS FIRST PACKET AFTER SOCKET CONNECTION
 
 	public static void checkProtocolVersion(final OChannelBinary iNetwork) throws IOException {
 		// SEND PROTOCOL VERSION
@@ -45,7 +45,7 @@ public class OChannelBinaryServer extends OChannelBinary {
 		super(iSocket, iConfig);
 
 		inStream = new BufferedInputStream(socket.getInputStream(), socketBufferSize);
-		outStream = new BufferedOutputStream(socket.getOutputStream(), socketBufferSize);
+		outStream = new BufferedOutputStream(getSocketOutputStream(), socketBufferSize);
 
 		out = new DataOutputStream(outStream);
 		in = new DataInputStream(inStream);
@@ -32,6 +32,6 @@ public class OChannelTextServer extends OChannelText {
 		socket.setReceiveBufferSize(socketBufferSize);
 
 		inStream = new BufferedInputStream(socket.getInputStream(), socketBufferSize);
-		outStream = new BufferedOutputStream(socket.getOutputStream(), socketBufferSize);
+		outStream = new BufferedOutputStream(getSocketOutputStream(), socketBufferSize);
 	}
 }
@@ -20,43 +20,46 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-import javax.script.ScriptContext;
-import javax.script.ScriptEngine;
+import javax.script.Bindings;
 import javax.script.ScriptException;
+import javax.script.SimpleBindings;
 
 import com.orientechnologies.orient.core.command.OCommandExecutor;
 import com.orientechnologies.orient.core.command.OCommandExecutorAbstract;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.tinkerpop.blueprints.pgm.impls.orientdb.OrientGraph;
-import com.tinkerpop.gremlin.jsr223.GremlinScriptEngine;
 import com.tinkerpop.gremlin.pipes.GremlinPipeline;
 
 /**
- * Executes a GREMLIN command.
+ * Executes a GREMLIN command. Engines, graphs and compiled scripts are shared through {@link OGremlinHelper}.
  * 
  * @author Luca Garulli
  */
 public class OCommandGremlinExecutor extends OCommandExecutorAbstract {
 
-	private ScriptEngine	engine;
-	private OrientGraph		graph;
+	private String	url;
 
 	@SuppressWarnings("unchecked")
 	@Override
 	public <RET extends OCommandExecutor> RET parse(OCommandRequestText iRequest) {
-		engine = new GremlinScriptEngine();
-		graph = new OrientGraph(iRequest.getDatabase().getURL());
+		url = iRequest.getDatabase().getURL();
 		text = iRequest.getText();
-
-		engine.getBindings(ScriptContext.ENGINE_SCOPE).put("g", graph);
 		return (RET) this;
 	}
 
 	@Override
 	public Object execute(Map<Object, Object> iArgs) {
+		final OGremlinHelper helper = OGremlinHelper.instance();
+		final ODatabaseRecord currentDatabase = ODatabaseRecordThreadLocal.INSTANCE.get();
+		final OrientGraph graph = helper.acquireGraph(url);
 		try {
-			final Object result = engine.eval(text);
+			final Bindings bindings = new SimpleBindings();
+			bindings.put("g", graph);
+
+			final Object result = helper.eval(text, bindings);
 
 			if (result instanceof GremlinPipeline) {
 				final List<Object> coll = new ArrayList<Object>();
@@ -71,7 +74,8 @@ public class OCommandGremlinExecutor extends OCommandExecutorAbstract {
 		} catch (ScriptException e) {
 			throw new OCommandExecutionException("Error on executing GREMLIN command: " + text, e);
 		} finally {
-			graph.shutdown();
+			helper.releaseGraph(graph);
+			ODatabaseRecordThreadLocal.INSTANCE.set(currentDatabase);
 		}
 	}
 }
@@ -0,0 +1,241 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.graph.gremlin;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+import com.orientechnologies.common.concur.resource.OResourcePool;
+import com.orientechnologies.common.concur.resource.OResourcePoolListener;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.exception.OConfigurationException;
+import com.tinkerpop.blueprints.pgm.impls.orientdb.OrientGraph;
+import com.tinkerpop.gremlin.Imports;
+import com.tinkerpop.gremlin.jsr223.GremlinScriptEngineFactory;
+
+/**
+ * Shared resources to execute GREMLIN scripts: a pool of script engines, each one with its cache of the compiled scripts keyed by
+ * the script text, and a pool of OrientGraph wrappers per database. Creating a Gremlin engine and compiling a script are expensive
+ * operations, so the SQL function and the command executor borrow them from here instead to create them at every call. A compiled
+ * script is evaluated only by the thread that holds the engine that compiled it, because it runs against the state of that engine.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public class OGremlinHelper {
+	private static OGremlinHelper																instance;
+
+	private static int																					maxPool							= 50;
+	private static int																					maxCachedScripts		= 500;
+	private static long																					maxWait							= 30000;
+
+	private final String																				imports;
+	private final OResourcePool<String, ScriptEngine>						enginePool;
+	private final Map<String, OResourcePool<String, OrientGraph>>	graphPools					= new HashMap<String, OResourcePool<String, OrientGraph>>();
+	private final Map<ScriptEngine, Map<String, CompiledScript>>	compiledScripts			= new IdentityHashMap<ScriptEngine, Map<String, CompiledScript>>();
+
+	public OGremlinHelper() {
+		// THE ENGINE PREPENDS THE GREMLIN IMPORTS ONLY ON eval(): COMPILED SCRIPTS NEED THEM EXPLICITLY
+		final StringBuilder buffer = new StringBuilder();
+		for (String imp : Imports.getImports()) {
+			buffer.append("import ");
+			buffer.append(imp);
+			buffer.append('\n');
+		}
+		imports = buffer.toString();
+
+		enginePool = new OResourcePool<String, ScriptEngine>(maxPool, new OResourcePoolListener<String, ScriptEngine>() {
+			public ScriptEngine createNewResource(final String iKey, final Object... iAdditionalArgs) {
+				try {
+					return new GremlinScriptEngineFactory().getScriptEngine();
+				} catch (Throwable e) {
+					throw new OConfigurationException("Error on loading Gremlin engine", e);
+				}
+			}
+
+			public ScriptEngine reuseResource(final String iKey, final Object[] iAdditionalArgs, final ScriptEngine iValue) {
+				return iValue;
+			}
+		});
+	}
+
+	/**
+	 * Returns the compiled version of the script for the engine passed. Scripts are compiled only the first time, then they are
+	 * taken from the cache of the engine. The compiled script must be evaluated only while the engine is held by the caller. If the
+	 * engine doesn't support the compilation null is returned and the caller has to evaluate the script text.
+	 * 
+	 * @param iEngine
+	 *          Engine acquired by {@link #acquireEngine()}
+	 * @param iText
+	 *          Script text
+	 * @return The compiled script if supported by the engine, otherwise null
+	 */
+	public CompiledScript compile(final ScriptEngine iEngine, final String iText) throws ScriptException {
+		if (!(iEngine instanceof Compilable))
+			return null;
+
+		// THE CACHE IS ACCESSED ONLY BY THE THREAD THAT HOLDS THE ENGINE
+		final Map<String, CompiledScript> engineScripts = getCompiledScripts(iEngine);
+
+		CompiledScript script = engineScripts.get(iText);
+		if (script != null) {
+			OProfiler.getInstance().updateCounter("gremlin.compiledScripts.hit", +1);
+			return script;
+		}
+
+		OProfiler.getInstance().updateCounter("gremlin.compiledScripts.miss", +1);
+
+		final long timer = OProfiler.getInstance().startChrono();
+		script = ((Compilable) iEngine).compile(imports + iText);
+		OProfiler.getInstance().stopChrono("gremlin.compile", timer);
+
+		engineScripts.put(iText, script);
+		return script;
+	}
+
+	/**
+	 * Executes the script binding the passed variables. The compiled script is used if available.
+	 */
+	public Object eval(final String iText, final Bindings iBindings) throws ScriptException {
+		final ScriptEngine engine = acquireEngine();
+		try {
+			final CompiledScript script = compile(engine, iText);
+			if (script != null)
+				return script.eval(iBindings);
+
+			return engine.eval(iText, iBindings);
+		} finally {
+			releaseEngine(engine);
+		}
+	}
+
+	public ScriptEngine acquireEngine() {
+		return enginePool.getResource(null, maxWait);
+	}
+
+	public void releaseEngine(final ScriptEngine iEngine) {
+		enginePool.returnResource(iEngine);
+	}
+
+	/**
+	 * Returns a graph wrapper against the database with the URL received. The graph must be released by calling
+	 * {@link #releaseGraph(OrientGraph)}. Note that the graph database becomes the current database of the thread, so the caller
+	 * has to restore the previous one when finished.
+	 */
+	public OrientGraph acquireGraph(final String iURL) {
+		return getGraphPool(iURL).getResource(iURL, maxWait);
+	}
+
+	public void releaseGraph(final OrientGraph iGraph) {
+		// FREE THE RECORDS LOADED BY THE CALLER: THEY WOULD BE STALE FOR THE NEXT ONE
+		iGraph.getRawGraph().getLevel1Cache().invalidate();
+		getGraphPool(iGraph.getRawGraph().getURL()).returnResource(iGraph);
+	}
+
+	/**
+	 * Closes all the graphs currently in the pools and clears the compiled scripts.
+	 */
+	public void shutdown() {
+		synchronized (graphPools) {
+			for (OResourcePool<String, OrientGraph> pool : graphPools.values())
+				for (OrientGraph graph : pool.getResources())
+					graph.shutdown();
+			graphPools.clear();
+		}
+
+		synchronized (compiledScripts) {
+			compiledScripts.clear();
+		}
+	}
+
+	private Map<String, CompiledScript> getCompiledScripts(final ScriptEngine iEngine) {
+		synchronized (compiledScripts) {
+			Map<String, CompiledScript> engineScripts = compiledScripts.get(iEngine);
+			if (engineScripts == null) {
+				engineScripts = new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+					private static final long	serialVersionUID	= 1L;
+
+					@Override
+					protected boolean removeEldestEntry(final Entry<String, CompiledScript> iEldest) {
+						return size() > maxCachedScripts;
+					}
+				};
+				compiledScripts.put(iEngine, engineScripts);
+			}
+			return engineScripts;
+		}
+	}
+
+	private OResourcePool<String, OrientGraph> getGraphPool(final String iURL) {
+		synchronized (graphPools) {
+			OResourcePool<String, OrientGraph> pool = graphPools.get(iURL);
+			if (pool == null) {
+				pool = new OResourcePool<String, OrientGraph>(maxPool, new OResourcePoolListener<String, OrientGraph>() {
+					public OrientGraph createNewResource(final String iKey, final Object... iAdditionalArgs) {
+						return new OrientGraph(iKey);
+					}
+
+					public OrientGraph reuseResource(final String iKey, final Object[] iAdditionalArgs, final OrientGraph iValue) {
+						ODatabaseRecordThreadLocal.INSTANCE.set(iValue.getRawGraph());
+						// RECORDS CHANGED IN THE MEANWHILE BY OTHER DATABASES WOULD BE READ FROM THE CACHE
+						iValue.getRawGraph().getLevel1Cache().invalidate();
+						return iValue;
+					}
+				});
+				graphPools.put(iURL, pool);
+			}
+			return pool;
+		}
+	}
+
+	public static synchronized OGremlinHelper instance() {
+		if (instance == null)
+			instance = new OGremlinHelper();
+		return instance;
+	}
+
+	public static int getMaxPool() {
+		return maxPool;
+	}
+
+	/**
+	 * Sets the maximum number of engines and of graphs per database. Must be called before the first call to {@link #instance()}.
+	 */
+	public static void setMaxPool(final int iMaxPool) {
+		maxPool = iMaxPool;
+	}
+
+	public static int getMaxCachedScripts() {
+		return maxCachedScripts;
+	}
+
+	/**
+	 * Sets the maximum number of compiled scripts cached by every engine.
+	 */
+	public static void setMaxCachedScripts(final int iMaxCachedScripts) {
+		maxCachedScripts = iMaxCachedScripts;
+	}
+}
@@ -19,13 +19,14 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
-import javax.script.ScriptContext;
-import javax.script.ScriptEngine;
+import javax.script.Bindings;
 import javax.script.ScriptException;
+import javax.script.SimpleBindings;
 
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.graph.OGraphDatabase;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
-import com.orientechnologies.orient.core.exception.OConfigurationException;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.functions.OSQLFunctionAbstract;
@@ -33,11 +34,11 @@ import com.tinkerpop.blueprints.pgm.impls.orientdb.OrientEdge;
 import com.tinkerpop.blueprints.pgm.impls.orientdb.OrientElement;
 import com.tinkerpop.blueprints.pgm.impls.orientdb.OrientGraph;
 import com.tinkerpop.blueprints.pgm.impls.orientdb.OrientVertex;
-import com.tinkerpop.gremlin.jsr223.GremlinScriptEngine;
 import com.tinkerpop.gremlin.pipes.GremlinPipeline;
 
 /**
- * Executes a GREMLIN expression as function of SQL engine.
+ * Executes a GREMLIN expression as function of SQL engine. The expression is compiled only once and the bindings are reused
+ * across the records of the query.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  * 
@@ -47,9 +48,7 @@ public class OSQLFunctionGremlin extends OSQLFunctionAbstract {
 
 	private List<Object>				result;
 
-	private OrientGraph					graph	= null;
-
-	private ScriptEngine				engine;
+	private Bindings						bindings;
 
 	public OSQLFunctionGremlin() {
 		super(NAME, 1, 1);
@@ -62,35 +61,40 @@ public class OSQLFunctionGremlin extends OSQLFunctionAbstract {
 
 		final ODocument document = (ODocument) iCurrentRecord;
 
-		if (engine == null) {
-			try {
-				engine = new GremlinScriptEngine();
-			} catch (Throwable e) {
-				throw new OConfigurationException("Error on loading Gremlin engine", e);
-			}
-
-			// TODO THIS COULD BE IMPROVED BY CREATING A ORIENT-GRAPH POOL (LIKE WITH OTHER DB TYPES) INSTEAD TO CREATE IT PER QUERY
-			graph = new OrientGraph(iCurrentRecord.getDatabase().getURL());
-			engine.getBindings(ScriptContext.ENGINE_SCOPE).put("g", graph);
+		final OGremlinHelper helper = OGremlinHelper.instance();
+		final ODatabaseRecord currentDatabase = ODatabaseRecordThreadLocal.INSTANCE.get();
+		final OrientGraph graph = helper.acquireGraph(document.getDatabase().getURL());
+		try {
+			return execute(helper, graph, document, (String) iParameters[0]);
+		} finally {
+			helper.releaseGraph(graph);
+			ODatabaseRecordThreadLocal.INSTANCE.set(currentDatabase);
 		}
+	}
 
+	private Object execute(final OGremlinHelper iHelper, final OrientGraph iGraph, final ODocument iDocument, final String iText) {
 		final OrientElement graphElement;
 
-		if (document.getSchemaClass().isSubClassOf(OGraphDatabase.VERTEX_CLASS_NAME))
+		if (iDocument.getSchemaClass().isSubClassOf(OGraphDatabase.VERTEX_CLASS_NAME))
 			// VERTEX TYPE
-			graphElement = new OrientVertex(graph, document);
-		else if (document.getSchemaClass().isSubClassOf(OGraphDatabase.EDGE_CLASS_NAME))
+			graphElement = new OrientVertex(iGraph, iDocument);
+		else if (iDocument.getSchemaClass().isSubClassOf(OGraphDatabase.EDGE_CLASS_NAME))
 			// EDGE TYPE
-			graphElement = new OrientEdge(graph, document);
+			graphElement = new OrientEdge(iGraph, iDocument);
 		else
 			// UNKNOWN CLASS: IGNORE IT
 			return null;
 
-		engine.getBindings(ScriptContext.ENGINE_SCOPE).put("current", graphElement);
+		if (bindings == null)
+			bindings = new SimpleBindings();
+
+		// REUSE THE SAME BINDINGS FOR ALL THE RECORDS: THE POOLED GRAPH COULD BE A DIFFERENT ONE AT EVERY CALL
+		bindings.put("g", iGraph);
+		bindings.put("current", graphElement);
 
 		final Object scriptResult;
 		try {
-			scriptResult = engine.eval((String) iParameters[0]);
+			scriptResult = iHelper.eval(iText, bindings);
 		} catch (ScriptException e) {
 			return new OCommandExecutionException("Error on execution of the GREMLIN function", e);
 		}
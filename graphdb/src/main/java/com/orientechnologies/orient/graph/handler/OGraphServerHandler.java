@@ -5,6 +5,7 @@ import com.orientechnologies.orient.core.command.OCommandManager;
 import com.orientechnologies.orient.core.sql.OSQLEngine;
 import com.orientechnologies.orient.graph.gremlin.OCommandGremlin;
 import com.orientechnologies.orient.graph.gremlin.OCommandGremlinExecutor;
+import com.orientechnologies.orient.graph.gremlin.OGremlinHelper;
 import com.orientechnologies.orient.graph.gremlin.OSQLFunctionGremlin;
 import com.orientechnologies.orient.server.OServer;
 import com.orientechnologies.orient.server.config.OServerParameterConfiguration;
@@ -21,6 +22,11 @@ public class OGraphServerHandler extends OServerHandlerAbstract {
 		OSQLEngine.getInstance().registerFunction(OSQLFunctionGremlin.NAME, OSQLFunctionGremlin.class);
 	}
 
+	@Override
+	public void shutdown() {
+		OGremlinHelper.instance().shutdown();
+	}
+
 	@Override
 	public String getName() {
 		return "graph";
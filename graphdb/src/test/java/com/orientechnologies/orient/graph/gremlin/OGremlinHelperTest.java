@@ -0,0 +1,110 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.graph.gremlin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.script.Bindings;
+import javax.script.SimpleBindings;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.graph.OGraphDatabase;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.tinkerpop.blueprints.pgm.impls.orientdb.OrientGraph;
+
+/**
+ * Test class for the shared Gremlin resources: pooled graphs must not return stale records and compiled scripts must be usable by
+ * more threads at the same time.
+ */
+@Test
+public class OGremlinHelperTest {
+	private static final String	URL	= "memory:gremlinHelperTest";
+
+	private OGraphDatabase			database;
+
+	@BeforeClass
+	public void setUp() {
+		database = new OGraphDatabase(URL).create();
+	}
+
+	@AfterClass
+	public void tearDown() {
+		OGremlinHelper.instance().shutdown();
+		ODatabaseRecordThreadLocal.INSTANCE.set(database);
+		database.delete();
+	}
+
+	public void pooledGraphReadsChanges() {
+		final ORID rid = database.createVertex().field("name", "before").save().getIdentity();
+
+		final OGremlinHelper helper = OGremlinHelper.instance();
+		Assert.assertEquals(readName(helper, rid), "before");
+
+		// UPDATE THE RECORD WHILE THE GRAPH IS IN THE POOL
+		ODatabaseRecordThreadLocal.INSTANCE.set(database);
+		final ODocument vertex = database.load(rid);
+		vertex.field("name", "after").save();
+
+		Assert.assertEquals(readName(helper, rid), "after");
+	}
+
+	public void concurrentEvaluation() throws Exception {
+		final OGremlinHelper helper = OGremlinHelper.instance();
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+
+		final Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; ++t) {
+			final int threadId = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < 200; ++i) {
+							final Bindings bindings = new SimpleBindings();
+							bindings.put("x", threadId * 1000 + i);
+							Assert.assertEquals(helper.eval("x * 2", bindings), (threadId * 1000 + i) * 2);
+						}
+					} catch (Throwable e) {
+						errors.add(e);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread t : threads)
+			t.join();
+
+		Assert.assertTrue(errors.isEmpty(), errors.toString());
+	}
+
+	private Object readName(final OGremlinHelper iHelper, final ORID iRid) {
+		final OrientGraph graph = iHelper.acquireGraph(URL);
+		try {
+			final ODocument vertex = graph.getRawGraph().load(iRid);
+			return vertex.field("name");
+		} finally {
+			iHelper.releaseGraph(graph);
+		}
+	}
+}
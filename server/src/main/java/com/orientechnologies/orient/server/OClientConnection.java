@@ -18,8 +18,13 @@ package com.orientechnologies.orient.server;
 import java.io.IOException;
 import java.net.Socket;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
+import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.raw.ODatabaseRaw;
 import com.orientechnologies.orient.core.record.ORecordInternal;
@@ -32,6 +37,8 @@ public class OClientConnection {
 	public ODatabaseDocumentTx			database;
 	public ODatabaseRaw							rawDatabase;
 	public List<ORecordInternal<?>>	records2Push	= new ArrayList<ORecordInternal<?>>();
+	private Map<Integer, OServerCommandCursor>	cursors				= new HashMap<Integer, OServerCommandCursor>();
+	private int																	cursorSerial	= 0;
 
 	public OClientConnection(final int iId, final Socket iSocket, final ONetworkProtocol iProtocol) throws IOException {
 		this.id = iId;
@@ -40,10 +47,73 @@ public class OClientConnection {
 	}
 
 	public void close() {
+		closeCursors();
+
 		if (database != null)
 			database.close();
 	}
 
+	/**
+	 * Opens a new server-side cursor against the database of the connection. No record is fetched until the first call to
+	 * OServerCommandCursor.fetch().
+	 */
+	public synchronized OServerCommandCursor openCursor(final OCommandRequestText iCommand) {
+		final OServerCommandCursor cursor = new OServerCommandCursor(++cursorSerial, database, iCommand);
+		cursors.put(cursor.getId(), cursor);
+		return cursor;
+	}
+
+	public synchronized OServerCommandCursor getCursor(final int iCursorId) {
+		return cursors.get(iCursorId);
+	}
+
+	public void closeCursor(final int iCursorId) {
+		final OServerCommandCursor cursor;
+		synchronized (this) {
+			cursor = cursors.remove(iCursorId);
+		}
+
+		if (cursor != null)
+			cursor.close();
+	}
+
+	/**
+	 * Closes the cursors not used by the client for more than network.binary.cursorTimeout ms. It's called by the thread that serves
+	 * the requests of the connection, so the closing never runs concurrently with other operations against the database.
+	 */
+	public void closeExpiredCursors() {
+		final List<OServerCommandCursor> expired;
+		synchronized (this) {
+			if (cursors.isEmpty())
+				return;
+
+			final long timeout = OGlobalConfiguration.NETWORK_BINARY_CURSOR_TIMEOUT.getValueAsLong();
+
+			expired = new ArrayList<OServerCommandCursor>();
+			for (Iterator<OServerCommandCursor> it = cursors.values().iterator(); it.hasNext();) {
+				final OServerCommandCursor cursor = it.next();
+				if (cursor.isExpired(timeout)) {
+					it.remove();
+					expired.add(cursor);
+				}
+			}
+		}
+
+		for (OServerCommandCursor cursor : expired)
+			cursor.close();
+	}
+
+	protected void closeCursors() {
+		final List<OServerCommandCursor> toClose;
+		synchronized (this) {
+			toClose = new ArrayList<OServerCommandCursor>(cursors.values());
+			cursors.clear();
+		}
+
+		for (OServerCommandCursor cursor : toClose)
+			cursor.close();
+	}
+
 	@Override
 	public String toString() {
 		return "OClientConnection [id=" + id + ", source="
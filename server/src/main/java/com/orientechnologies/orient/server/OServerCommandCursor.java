@@ -0,0 +1,201 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.command.OCommandRequestInternal;
+import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+
+/**
+ * Server-side cursor over the results of a query executed by a remote client. The query runs in a dedicated producer thread that
+ * stops every time a page of records is complete and resumes only when the client asks for the next page, so the records are never
+ * collected all together in memory. The producer and the thread that serves the client requests never run at the same time, so
+ * the database of the connection is never used concurrently.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public class OServerCommandCursor implements OCommandResultListener, Runnable {
+	private final int										id;
+	private final ODatabaseDocumentTx		database;
+	private final OCommandRequestText		command;
+	private final Thread								producer;
+	private List<OIdentifiable>					page;
+	private int													pageSize;
+	private boolean											producing	= false;
+	private boolean											finished	= false;
+	private boolean											closed		= false;
+	private boolean											listened	= false;
+	private Throwable										error;
+	private long												lastAccess;
+
+	public OServerCommandCursor(final int iId, final ODatabaseDocumentTx iDatabase, final OCommandRequestText iCommand) {
+		id = iId;
+		database = iDatabase;
+		command = iCommand;
+		lastAccess = System.currentTimeMillis();
+
+		producer = new Thread(Orient.getThreadGroup(), this, "OrientDB cursor " + iId + ": " + iCommand.getText());
+		producer.setDaemon(true);
+		producer.start();
+	}
+
+	/**
+	 * Resumes the execution of the query until iSize more records are available or the query is finished.
+	 * 
+	 * @param iSize
+	 *          Maximum number of records to return
+	 * @return The next records of the result set. An empty list means that the cursor is exhausted
+	 */
+	public synchronized List<OIdentifiable> fetch(final int iSize) throws InterruptedException {
+		if (finished || closed)
+			return Collections.emptyList();
+
+		page = new ArrayList<OIdentifiable>(iSize);
+		pageSize = iSize;
+		producing = true;
+		notifyAll();
+
+		while (producing)
+			wait();
+
+		lastAccess = System.currentTimeMillis();
+
+		final List<OIdentifiable> result = page;
+		page = null;
+
+		if (error != null) {
+			if (error instanceof RuntimeException)
+				throw (RuntimeException) error;
+			throw new OCommandExecutionException("Error on executing command: " + command, error);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Closes the cursor interrupting the query. Waits until the producer thread has stopped to use the database.
+	 */
+	public synchronized void close() {
+		closed = true;
+		notifyAll();
+
+		while (!finished)
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+	}
+
+	/**
+	 * Returns true if the cursor hasn't been used by the client for more than iTimeout ms.
+	 */
+	public synchronized boolean isExpired(final long iTimeout) {
+		return !producing && System.currentTimeMillis() - lastAccess > iTimeout;
+	}
+
+	public synchronized boolean isFinished() {
+		return finished;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public OCommandRequestText getCommand() {
+		return command;
+	}
+
+	public void run() {
+		ODatabaseRecordThreadLocal.INSTANCE.set(database);
+
+		try {
+			if (waitForNextFetch()) {
+				command.setResultListener(this);
+				final Object result = ((OCommandRequestInternal) database.command(command)).execute();
+
+				if (!listened && result != null) {
+					// THE COMMAND DOESN'T USE THE LISTENER: PAGE THE RESULT
+					if (result instanceof Collection<?>) {
+						for (Object o : (Collection<?>) result)
+							if (!result(o))
+								break;
+					} else
+						result(result);
+				}
+			}
+		} catch (Throwable t) {
+			error = t;
+		} finally {
+			synchronized (this) {
+				finished = true;
+				producing = false;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Called by the producer thread for every record of the result set.
+	 */
+	public synchronized boolean result(final Object iRecord) {
+		listened = true;
+
+		if (closed)
+			return false;
+
+		if (!(iRecord instanceof OIdentifiable))
+			throw new OCommandExecutionException("Cursors support only records as results, found: " + iRecord);
+
+		page.add((OIdentifiable) iRecord);
+
+		if (page.size() >= pageSize) {
+			// PAGE COMPLETE: HAND IT OVER AND WAIT FOR THE NEXT REQUEST
+			producing = false;
+			notifyAll();
+			return waitForNextFetch();
+		}
+		return true;
+	}
+
+	/**
+	 * Parks the producer thread until the client asks for the next page.
+	 * 
+	 * @return false if the cursor has been closed in the meanwhile
+	 */
+	private synchronized boolean waitForNextFetch() {
+		while (!producing && !closed)
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		return !closed;
+	}
+}
@@ -23,6 +23,7 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.channels.ServerSocketChannel;
 
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.config.OContextConfiguration;
@@ -45,6 +46,7 @@ public class OServerNetworkListener extends Thread {
 	private int																socketBufferSize;
 	private OContextConfiguration							configuration;
 	private OServer														server;
+	private OServerNetworkSelector						selector;
 
 	@SuppressWarnings("unchecked")
 	public OServerNetworkListener(final OServer iServer, final String iHostName, final String iHostPortRange,
@@ -55,10 +57,18 @@ public class OServerNetworkListener extends Thread {
 		if (iProtocol == null)
 			throw new IllegalArgumentException("Can't start listener: protocol not found");
 
+		readParameters(iServer.getContextConfiguration(), iParameters);
+
 		listen(iHostName, iHostPortRange, iProtocolName);
 		protocolType = iProtocol;
 
-		readParameters(iServer.getContextConfiguration(), iParameters);
+		if (configuration.getValueAsBoolean(OGlobalConfiguration.NETWORK_SELECTOR_ENABLED))
+			try {
+				selector = new OServerNetworkSelector(iProtocolName,
+						configuration.getValueAsInteger(OGlobalConfiguration.NETWORK_SELECTOR_WORKERS));
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Can't open the selector for the " + iProtocolName + " listener", e);
+			}
 
 		if (iCommands != null) {
 			// CREATE COMMANDS
@@ -79,6 +89,8 @@ public class OServerNetworkListener extends Thread {
 
 	public void shutdown() {
 		this.active = false;
+		if (selector != null)
+			selector.shutdown();
 		if (serverSocket != null)
 			try {
 				serverSocket.close();
@@ -98,7 +110,12 @@ public class OServerNetworkListener extends Thread {
 		for (int port : ports) {
 			inboundAddr = new InetSocketAddress(iHostName, port);
 			try {
-				serverSocket = new java.net.ServerSocket(port, 0, InetAddress.getByName(iHostName));
+				if (configuration.getValueAsBoolean(OGlobalConfiguration.NETWORK_SELECTOR_ENABLED)) {
+					// ACCEPTED SOCKETS MUST HAVE A CHANNEL TO BE REGISTERED IN THE SELECTOR
+					serverSocket = ServerSocketChannel.open().socket();
+					serverSocket.bind(new InetSocketAddress(InetAddress.getByName(iHostName), port));
+				} else
+					serverSocket = new java.net.ServerSocket(port, 0, InetAddress.getByName(iHostName));
 
 				if (serverSocket.isBound()) {
 					OLogManager.instance().info(this,
@@ -144,6 +161,8 @@ public class OServerNetworkListener extends Thread {
 					// CREATE A NEW PROTOCOL INSTANCE
 					protocol = protocolType.newInstance();
 
+					protocol.setSelector(selector);
+
 					// CREATE THE CLIENT CONNECTION
 					connection = OClientConnectionManager.instance().connect(socket, protocol);
 
@@ -0,0 +1,194 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
+
+/**
+ * Waits for the requests of the idle connections of a listener using a NIO selector, so no thread is kept blocked per connection.
+ * When a connection becomes readable it's removed from the selector and handed to a bounded pool of worker threads: the worker
+ * switches the channel back to blocking mode and executes the requests through the protocol, then parks the connection again.<br/>
+ * <br/>
+ * The binary and HTTP protocols aren't framed, so a request can't be decoded before knowing the command: the worker reads it
+ * directly from the socket with the usual protocol code.
+ * 
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ * 
+ */
+public class OServerNetworkSelector extends Thread {
+	private final Selector										selector;
+	private final ThreadPoolExecutor					workers;
+	private final Queue<ONetworkProtocol>			toRegister	= new ConcurrentLinkedQueue<ONetworkProtocol>();
+	private volatile boolean									active			= true;
+
+	public OServerNetworkSelector(final String iName, final int iMaxWorkers) throws IOException {
+		super(Orient.getThreadGroup(), "OrientDB " + iName + " selector");
+		setDaemon(true);
+
+		selector = Selector.open();
+
+		final AtomicInteger serial = new AtomicInteger();
+		workers = new ThreadPoolExecutor(iMaxWorkers, iMaxWorkers, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					public Thread newThread(final Runnable r) {
+						final Thread t = new Thread(Orient.getThreadGroup(), r, "OrientDB " + iName + " worker " + serial.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		workers.allowCoreThreadTimeOut(true);
+
+		start();
+	}
+
+	/**
+	 * Parks the connection in the selector until the next request arrives. The channel is switched in non-blocking mode immediately,
+	 * while the registration is made by the selector thread.
+	 */
+	public void register(final ONetworkProtocol iProtocol) throws IOException {
+		iProtocol.getChannel().socket.getChannel().configureBlocking(false);
+		toRegister.offer(iProtocol);
+		selector.wakeup();
+	}
+
+	public void shutdown() {
+		active = false;
+		selector.wakeup();
+		workers.shutdown();
+	}
+
+	@Override
+	public void run() {
+		final List<ONetworkProtocol> ready = new ArrayList<ONetworkProtocol>();
+
+		try {
+			while (active) {
+				registerPending();
+
+				if (selector.selectedKeys().isEmpty())
+					selector.select();
+
+				registerPending();
+
+				for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext();) {
+					final SelectionKey key = it.next();
+					it.remove();
+					key.cancel();
+					ready.add((ONetworkProtocol) key.attachment());
+				}
+
+				if (ready.isEmpty())
+					continue;
+
+				// DEREGISTER THE CANCELLED KEYS TO LET THE WORKERS SWITCH THEIR CHANNELS BACK TO BLOCKING MODE
+				selector.selectNow();
+
+				for (ONetworkProtocol p : ready)
+					workers.execute(new OServerNetworkSelectorTask(p));
+				ready.clear();
+
+				OProfiler.getInstance().updateStat("OServerNetworkSelector.pendingRequests", workers.getQueue().size());
+			}
+		} catch (ClosedSelectorException e) {
+		} catch (Throwable t) {
+			if (active)
+				OLogManager.instance().error(this, "Error on waiting for the client requests", t);
+		} finally {
+			active = false;
+			closeAll();
+			try {
+				selector.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	private void registerPending() {
+		ONetworkProtocol p;
+		while ((p = toRegister.poll()) != null) {
+			try {
+				p.getChannel().socket.getChannel().register(selector, SelectionKey.OP_READ, p);
+			} catch (Exception e) {
+				// CONNECTION CLOSED IN THE MEANWHILE
+				closeConnection(p);
+			}
+		}
+	}
+
+	private void closeAll() {
+		ONetworkProtocol p;
+		while ((p = toRegister.poll()) != null)
+			closeConnection(p);
+
+		for (SelectionKey key : selector.keys())
+			closeConnection((ONetworkProtocol) key.attachment());
+	}
+
+	private static void closeConnection(final ONetworkProtocol iProtocol) {
+		try {
+			iProtocol.sendShutdown();
+			iProtocol.shutdown();
+		} catch (Exception e) {
+		}
+	}
+
+	/**
+	 * Executes the requests of a readable connection and parks it again in the selector if still open.
+	 */
+	private class OServerNetworkSelectorTask implements Runnable {
+		private final ONetworkProtocol	protocol;
+
+		public OServerNetworkSelectorTask(final ONetworkProtocol iProtocol) {
+			protocol = iProtocol;
+		}
+
+		public void run() {
+			final SocketChannel socketChannel = protocol.getChannel().socket.getChannel();
+			try {
+				socketChannel.configureBlocking(true);
+
+				if (protocol.executeAvailableRequests()) {
+					if (active)
+						register(protocol);
+					else
+						closeConnection(protocol);
+				}
+			} catch (Exception e) {
+				OLogManager.instance().debug(this, "Error on serving the requests of %s", e, protocol.getChannel());
+				closeConnection(protocol);
+			}
+		}
+	}
+}
@@ -23,10 +23,12 @@ import com.orientechnologies.orient.core.config.OContextConfiguration;
 import com.orientechnologies.orient.enterprise.channel.OChannel;
 import com.orientechnologies.orient.server.OClientConnection;
 import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.network.OServerNetworkSelector;
 
 public abstract class ONetworkProtocol extends OSoftThread {
 	protected ONetworkProtocolData	data	= new ONetworkProtocolData();
 	protected OServer								server;
+	protected OServerNetworkSelector	selector;
 
 	public ONetworkProtocol(ThreadGroup group, String name) {
 		super(group, name);
@@ -37,6 +39,55 @@ public abstract class ONetworkProtocol extends OSoftThread {
 
 	public abstract OChannel getChannel();
 
+	/**
+	 * Sets the selector that will wait for the requests of the connection. Must be called before config().
+	 */
+	public void setSelector(final OServerNetworkSelector iSelector) {
+		selector = iSelector;
+	}
+
+	/**
+	 * Starts to serve the connection. Without a selector the protocol runs in its own thread, otherwise the connection is parked in
+	 * the selector and its requests are executed by the selector's worker threads.
+	 */
+	protected void startServing() throws IOException {
+		if (selector == null)
+			start();
+		else {
+			startup();
+			selector.register(this);
+		}
+	}
+
+	/**
+	 * Executes the requests of the connection already received, in the current thread. Called by the selector's workers once the
+	 * connection is readable. Since the input is buffered, more requests could have been read together: they are all executed before
+	 * to return.
+	 * 
+	 * @return true if the connection is still open and can wait for the next request, otherwise false
+	 */
+	public boolean executeAvailableRequests() {
+		try {
+			do {
+				try {
+					beforeExecution();
+					execute();
+					afterExecution();
+				} catch (Throwable t) {
+					t.printStackTrace();
+				}
+			} while (isRunning() && getChannel().inStream.available() > 0);
+		} catch (IOException e) {
+			sendShutdown();
+		}
+
+		if (isRunning())
+			return true;
+
+		shutdown();
+		return false;
+	}
+
 	public void registerCommand(final Object iServerCommandInstance) {
 	}
 
@@ -19,8 +19,10 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -42,6 +44,7 @@ import com.orientechnologies.orient.core.db.record.ODatabaseRecordTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.engine.local.OEngineLocal;
 import com.orientechnologies.orient.core.engine.memory.OEngineMemory;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.ODatabaseException;
 import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
 import com.orientechnologies.orient.core.exception.OSecurityAccessException;
@@ -60,6 +63,7 @@ import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.record.impl.ORecordBytes;
 import com.orientechnologies.orient.core.serialization.serializer.record.OSerializationThreadLocal;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerDocument2Binary;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerStringAbstract;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerAnyStreamable;
 import com.orientechnologies.orient.core.storage.OCluster;
@@ -74,6 +78,7 @@ import com.orientechnologies.orient.enterprise.channel.binary.ONetworkProtocolEx
 import com.orientechnologies.orient.server.OClientConnection;
 import com.orientechnologies.orient.server.OClientConnectionManager;
 import com.orientechnologies.orient.server.OServer;
+import com.orientechnologies.orient.server.OServerCommandCursor;
 import com.orientechnologies.orient.server.OServerMain;
 import com.orientechnologies.orient.server.config.OServerUserConfiguration;
 import com.orientechnologies.orient.server.handler.OServerHandlerHelper;
@@ -111,7 +116,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 		channel.writeShort((short) OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION);
 		channel.flush();
 
-		start();
+		startServing();
 	}
 
 	@Override
@@ -138,8 +143,10 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 					connection = OClientConnectionManager.instance().connect(connection.protocol.getChannel().socket, this);
 			}
 
-			if (connection != null)
+			if (connection != null) {
 				ODatabaseRecordThreadLocal.INSTANCE.set(connection.database);
+				connection.closeExpiredCursors();
+			}
 
 			++data.totalRequests;
 
@@ -555,6 +562,56 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 			break;
 		}
 
+		case OChannelBinaryProtocol.REQUEST_RECORD_LOAD_MULTI: {
+			data.commandInfo = "Load records";
+
+			final int total = channel.readInt();
+			final List<ORecordId> rids = new ArrayList<ORecordId>(total);
+			for (int i = 0; i < total; ++i)
+				rids.add(channel.readRID());
+			final String fetchPlanString = channel.readString();
+
+			final List<ORecordInternal<?>> records = new ArrayList<ORecordInternal<?>>(total);
+			for (ORecordId rid : rids)
+				records.add(connection.database.load(rid, fetchPlanString));
+
+			final Map<String, Integer> fetchPlan = fetchPlanString.length() > 0 ? OFetchHelper.buildFetchPlan(fetchPlanString) : null;
+
+			channel.acquireExclusiveLock();
+			try {
+				sendOk(lastClientTxId);
+
+				// SEND THE RECORDS IN THE SAME ORDER OF THE REQUEST
+				final Set<ODocument> recordsToSend = new HashSet<ODocument>();
+				for (ORecordInternal<?> record : records) {
+					if (record == null)
+						channel.writeByte((byte) 0);
+					else {
+						channel.writeByte((byte) 1);
+						channel.writeBytes(record.toStream());
+						channel.writeInt(record.getVersion());
+						channel.writeByte(record.getRecordType());
+
+						if (fetchPlan != null && record instanceof ODocument)
+							fetchLinkedRecords((ODocument) record, fetchPlan, recordsToSend);
+					}
+				}
+
+				// SEND RECORDS TO LOAD IN CLIENT CACHE
+				for (ODocument doc : recordsToSend) {
+					if (doc.getIdentity().isValid()) {
+						channel.writeByte((byte) 2); // CLIENT CACHE
+						writeIdentifiable(doc);
+					}
+				}
+				channel.writeByte((byte) 0); // NO MORE RECORDS
+
+			} finally {
+				channel.releaseExclusiveLock();
+			}
+			break;
+		}
+
 		case OChannelBinaryProtocol.REQUEST_RECORD_CREATE: {
 			data.commandInfo = "Create record";
 
@@ -659,7 +716,8 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 		case OChannelBinaryProtocol.REQUEST_COMMAND: {
 			data.commandInfo = "Execute remote command";
 
-			final boolean asynch = channel.readByte() == 'a';
+			final byte mode = channel.readByte();
+			final boolean asynch = mode == 'a';
 
 			final OCommandRequestText command = (OCommandRequestText) OStreamSerializerAnyStreamable.INSTANCE.fromStream(
 					connection.database, channel.readBytes());
@@ -668,6 +726,18 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			data.commandDetail = command.getText();
 
+			if (mode == 'c') {
+				// CURSOR: SEND ONLY THE FIRST PAGE, THE OTHERS WILL BE REQUESTED BY THE CLIENT
+				final int fetchSize = channel.readInt();
+
+				if (query == null)
+					throw new OCommandExecutionException("Cursors are supported only by queries: " + command.getText());
+
+				final OServerCommandCursor cursor = connection.openCursor(command);
+				sendCursorPage(cursor, fetchSize, true);
+				break;
+			}
+
 			channel.acquireExclusiveLock();
 			try {
 				if (asynch) {
@@ -691,29 +761,8 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 								channel.writeByte((byte) 1); // ONE MORE RECORD
 								writeIdentifiable((ORecordInternal<?>) iRecord);
 
-								if (fetchPlan != null && iRecord instanceof ODocument) {
-									OFetchHelper.fetch((ODocument) iRecord, iRecord, fetchPlan, null, 0, -1, new OFetchListener() {
-										@Override
-										public int size() {
-											return recordsToSend.size();
-										}
-
-										// ADD TO THE SET OF OBJECT TO
-										// SEND
-										@Override
-										public Object fetchLinked(final ODocument iRoot, final Object iUserObject, final String iFieldName,
-												final Object iLinked) {
-											if (iLinked instanceof ODocument)
-												return recordsToSend.add((ODocument) iLinked) ? iLinked : null;
-											else if (iLinked instanceof Collection<?>)
-												return recordsToSend.addAll((Collection<? extends ODocument>) iLinked) ? iLinked : null;
-											else if (iLinked instanceof Map<?, ?>)
-												return recordsToSend.addAll(((Map<String, ? extends ODocument>) iLinked).values()) ? iLinked : null;
-											else
-												throw new IllegalArgumentException("Unrecognized type while fetching records: " + iLinked);
-										}
-									});
-								}
+								if (fetchPlan != null && iRecord instanceof ODocument)
+									fetchLinkedRecords((ODocument) iRecord, fetchPlan, recordsToSend);
 
 							} catch (IOException e) {
 								return false;
@@ -775,6 +824,36 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 			break;
 		}
 
+		case OChannelBinaryProtocol.REQUEST_CURSOR_FETCH: {
+			data.commandInfo = "Fetch from cursor";
+
+			final int cursorId = channel.readInt();
+			final int fetchSize = channel.readInt();
+
+			final OServerCommandCursor cursor = connection.getCursor(cursorId);
+			if (cursor == null)
+				throw new OCommandExecutionException("Cursor #" + cursorId + " not found: it has been closed or it's expired");
+
+			data.commandDetail = cursor.getCommand().getText();
+
+			sendCursorPage(cursor, fetchSize, false);
+			break;
+		}
+
+		case OChannelBinaryProtocol.REQUEST_CURSOR_CLOSE: {
+			data.commandInfo = "Close cursor";
+
+			connection.closeCursor(channel.readInt());
+
+			channel.acquireExclusiveLock();
+			try {
+				sendOk(lastClientTxId);
+			} finally {
+				channel.releaseExclusiveLock();
+			}
+			break;
+		}
+
 		case OChannelBinaryProtocol.REQUEST_TX_COMMIT: {
 			data.commandInfo = "Transaction commit";
 
@@ -910,8 +989,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 		OServerHandlerHelper.invokeHandlerCallbackOnClientDisconnection(connection);
 
-		if (connection.database != null)
-			connection.database.close();
+		connection.close();
 
 		OClientConnectionManager.instance().disconnect(connection.id);
 	}
@@ -958,6 +1036,82 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 		}
 	}
 
+	/**
+	 * Fetches the next page of the cursor and sends it using this format:<br/>
+	 * - 4 bytes: cursor id, only if iFirstPage is true<br/>
+	 * - for each record of the page: 1 byte with value 1 + the record<br/>
+	 * - for each record loaded by the fetch plan: 1 byte with value 2 + the record<br/>
+	 * - 1 byte: 3 if the cursor has more records, otherwise 0. Exhausted cursors are closed by the server<br/>
+	 * <br/>
+	 * The lock against the channel is acquired only to send the page, not while the records are fetched.
+	 */
+	@SuppressWarnings("unchecked")
+	private void sendCursorPage(final OServerCommandCursor iCursor, final int iFetchSize, final boolean iFirstPage)
+			throws IOException, InterruptedException {
+		final List<OIdentifiable> page;
+		try {
+			page = iCursor.fetch(iFetchSize);
+		} finally {
+			if (iCursor.isFinished())
+				connection.closeCursor(iCursor.getId());
+		}
+
+		final OQuery<?> query = (OQuery<?>) iCursor.getCommand();
+		final Map<String, Integer> fetchPlan = OFetchHelper.buildFetchPlan(query.getFetchPlan());
+		final Set<ODocument> recordsToSend = new HashSet<ODocument>();
+
+		channel.acquireExclusiveLock();
+		try {
+			sendOk(lastClientTxId);
+
+			if (iFirstPage)
+				channel.writeInt(iCursor.getId());
+
+			for (OIdentifiable o : page) {
+				channel.writeByte((byte) 1); // ONE MORE RECORD
+				writeIdentifiable(o);
+
+				if (fetchPlan != null && o instanceof ODocument)
+					fetchLinkedRecords((ODocument) o, fetchPlan, recordsToSend);
+			}
+
+			for (ODocument doc : recordsToSend) {
+				channel.writeByte((byte) 2); // CLIENT CACHE RECORD. IT ISN'T PART OF THE RESULT SET
+				writeIdentifiable(doc);
+			}
+
+			channel.writeByte((byte) (iCursor.isFinished() ? 0 : 3));
+		} finally {
+			channel.releaseExclusiveLock();
+		}
+	}
+
+	/**
+	 * Collects in iRecordsToSend the records linked by iRecord following the fetch plan.
+	 */
+	@SuppressWarnings("unchecked")
+	private void fetchLinkedRecords(final ODocument iRecord, final Map<String, Integer> iFetchPlan, final Set<ODocument> iRecordsToSend) {
+		OFetchHelper.fetch(iRecord, iRecord, iFetchPlan, null, 0, -1, new OFetchListener() {
+			@Override
+			public int size() {
+				return iRecordsToSend.size();
+			}
+
+			// ADD TO THE SET OF OBJECT TO SEND
+			@Override
+			public Object fetchLinked(final ODocument iRoot, final Object iUserObject, final String iFieldName, final Object iLinked) {
+				if (iLinked instanceof ODocument)
+					return iRecordsToSend.add((ODocument) iLinked) ? iLinked : null;
+				else if (iLinked instanceof Collection<?>)
+					return iRecordsToSend.addAll((Collection<? extends ODocument>) iLinked) ? iLinked : null;
+				else if (iLinked instanceof Map<?, ?>)
+					return iRecordsToSend.addAll(((Map<String, ? extends ODocument>) iLinked).values()) ? iLinked : null;
+				else
+					throw new IllegalArgumentException("Unrecognized type while fetching records: " + iLinked);
+			}
+		});
+	}
+
 	private void serverLogin(final String iUser, final String iPassword) {
 		if (!OServerMain.server().authenticate(iUser, iPassword, "connect"))
 			throw new OSecurityAccessException(
@@ -1011,14 +1165,15 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 		try {
 			final byte[] stream = iRecord.toStream();
 
-			// TRIM TAILING SPACES (DUE TO OVERSIZE)
+			// TRIM TAILING SPACES (DUE TO OVERSIZE). BINARY DOCUMENTS ARE SENT AS IS SINCE THE LAST BYTES ARE PART OF THE CONTENT
 			int realLength = stream.length;
-			for (int i = stream.length - 1; i > -1; --i) {
-				if (stream[i] == 32)
-					--realLength;
-				else
-					break;
-			}
+			if (!ORecordSerializerDocument2Binary.isBinary(stream))
+				for (int i = stream.length - 1; i > -1; --i) {
+					if (stream[i] == 32)
+						--realLength;
+					else
+						break;
+				}
 
 			channel.writeBytes(stream, realLength);
 		} catch (Exception e) {
@@ -81,7 +81,7 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 
 		data.caller = channel.toString();
 
-		start();
+		startServing();
 	}
 
 	public void service() throws ONetworkProtocolException, IOException {
@@ -389,6 +389,7 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 		data.commandInfo = "Listening";
 		data.commandDetail = null;
 
+		long timer = -1;
 		try {
 			channel.socket.setSoTimeout(socketTimeout);
 			data.lastCommandReceived = -1;
@@ -401,7 +402,8 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 			}
 
 			channel.socket.setSoTimeout(socketTimeout);
-			data.lastCommandReceived = OProfiler.getInstance().startChrono();
+			data.lastCommandReceived = System.currentTimeMillis();
+			timer = OProfiler.getInstance().startChrono();
 
 			requestContent.setLength(0);
 			request.isMultipart = false;
@@ -467,7 +469,7 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 			readAllContent(request);
 		} finally {
 			if (data.lastCommandReceived > -1)
-				OProfiler.getInstance().stopChrono("ONetworkProtocolHttp.execute", data.lastCommandReceived);
+				OProfiler.getInstance().stopChrono("ONetworkProtocolHttp.execute", timer);
 		}
 	}
 
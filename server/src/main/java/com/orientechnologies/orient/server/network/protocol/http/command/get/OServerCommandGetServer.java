@@ -159,6 +159,9 @@ public class OServerCommandGetServer extends OServerCommandAuthenticatedServerAb
 				writeField(json, 3, "maxElapsed", pEntry.max);
 				writeField(json, 3, "lastElapsed", pEntry.last);
 				writeField(json, 3, "totalElapsed", pEntry.total);
+				writeField(json, 3, "p50", pEntry.p50);
+				writeField(json, 3, "p99", pEntry.p99);
+				writeField(json, 3, "p999", pEntry.p999);
 				json.endObject(3);
 			}
 			json.endCollection(2, false);
@@ -175,6 +178,9 @@ public class OServerCommandGetServer extends OServerCommandAuthenticatedServerAb
 				writeField(json, 3, "maxElapsed", pEntry.max);
 				writeField(json, 3, "lastElapsed", pEntry.last);
 				writeField(json, 3, "totalElapsed", pEntry.total);
+				writeField(json, 3, "p50", pEntry.p50);
+				writeField(json, 3, "p99", pEntry.p99);
+				writeField(json, 3, "p999", pEntry.p999);
 				json.endObject(3);
 			}
 			json.endCollection(2, false);
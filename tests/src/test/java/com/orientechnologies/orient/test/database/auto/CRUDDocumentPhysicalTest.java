@@ -16,6 +16,7 @@
 package com.orientechnologies.orient.test.database.auto;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -27,6 +28,7 @@ import org.testng.Assert;
 import org.testng.annotations.Parameters;
 import org.testng.annotations.Test;
 
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentPool;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
@@ -37,6 +39,7 @@ import com.orientechnologies.orient.core.iterator.ORecordIterator;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.OBase64Utils;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerDocument2Binary;
 import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
 
 @Test(groups = { "crud", "record-vobject" }, sequential = true)
@@ -597,6 +600,47 @@ public class CRUDDocumentPhysicalTest {
 		return doc;
 	}
 
+	@Test
+	public void testBinaryFormat() {
+		database = ODatabaseDocumentPool.global().acquire(url, "admin", "admin");
+		database.open("admin", "admin");
+
+		final String format = OGlobalConfiguration.DB_DOCUMENT_FORMAT.getValueAsString();
+		OGlobalConfiguration.DB_DOCUMENT_FORMAT.setValue("binary");
+		try {
+			ODocument doc = new ODocument(database, "Profile");
+			doc.field("nick", "BinaryFormatTest");
+			doc.field("name", "Binary");
+			doc.field("counter", 123456789012l);
+			doc.field("tags", new HashSet<String>(Arrays.asList("a", "b")));
+			doc.save();
+
+			database.getLevel1Cache().clear();
+			database.getLevel2Cache().clear();
+
+			doc = database.load(doc.getIdentity());
+			Assert.assertTrue(ORecordSerializerDocument2Binary.isBinary(doc.toStream()));
+			Assert.assertEquals(doc.field("nick"), "BinaryFormatTest");
+			Assert.assertEquals(doc.field("counter"), 123456789012l);
+			Assert.assertEquals(((Collection<?>) doc.field("tags")).size(), 2);
+			Assert.assertEquals(doc.getClassName(), "Profile");
+
+			// THE RECORD IS STILL READABLE WITH THE CSV SETTING
+			OGlobalConfiguration.DB_DOCUMENT_FORMAT.setValue("csv");
+			database.getLevel1Cache().clear();
+			database.getLevel2Cache().clear();
+
+			List<ODocument> result = database.query(new OSQLSynchQuery<ODocument>("select from Profile where nick = 'BinaryFormatTest'"));
+			Assert.assertEquals(result.size(), 1);
+			Assert.assertEquals(result.get(0).field("name"), "Binary");
+
+			result.get(0).delete();
+		} finally {
+			OGlobalConfiguration.DB_DOCUMENT_FORMAT.setValue(format);
+			database.close();
+		}
+	}
+
 	public void testEncoding() {
 		String s = " \r\n\t:;,.|+*/\\=!?[]()'\"";
 
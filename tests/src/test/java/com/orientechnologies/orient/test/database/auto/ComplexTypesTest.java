@@ -28,6 +28,7 @@ import org.testng.Assert;
 import org.testng.annotations.Parameters;
 import org.testng.annotations.Test;
 
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentPool;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.id.ORID;
@@ -110,6 +111,45 @@ public class ComplexTypesTest {
 		database.close();
 	}
 
+	@Test
+	public void testLinkListPrefetch() {
+		database = ODatabaseDocumentPool.global().acquire(url, "admin", "admin");
+
+		ODocument newDoc = new ODocument();
+
+		final ArrayList<ODocument> list = new ArrayList<ODocument>();
+		newDoc.field("linkedList", list, OType.LINKLIST);
+		for (int i = 0; i < 120; ++i)
+			list.add(new ODocument(database, "Account").field("id", i));
+
+		database.save(newDoc);
+		final ORID rid = newDoc.getIdentity();
+
+		database.close();
+
+		final int prefetchSize = OGlobalConfiguration.LAZYSET_PREFETCH_SIZE.getValueAsInteger();
+		OGlobalConfiguration.LAZYSET_PREFETCH_SIZE.setValue(25);
+
+		database = ODatabaseDocumentPool.global().acquire(url, "admin", "admin");
+		try {
+			database.getLevel1Cache().invalidate();
+
+			ODocument loadedDoc = database.load(rid);
+
+			// ITERATE THE LINKS LOADING THEM IN BATCHES AGAINST REMOTE DATABASES
+			int i = 0;
+			for (ODocument d : (List<ODocument>) loadedDoc.field("linkedList")) {
+				Assert.assertTrue(d.getIdentity().isValid());
+				Assert.assertEquals(((Number) d.field("id")).intValue(), i++);
+			}
+			Assert.assertEquals(i, 120);
+
+		} finally {
+			OGlobalConfiguration.LAZYSET_PREFETCH_SIZE.setValue(prefetchSize);
+			database.close();
+		}
+	}
+
 	@Test
 	public void testEmbeddedSet() {
 		database = ODatabaseDocumentPool.global().acquire(url, "admin", "admin");
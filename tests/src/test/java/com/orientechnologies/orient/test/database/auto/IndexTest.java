@@ -979,4 +979,39 @@ public class IndexTest {
 		db.close();
 	}
 
+	public void compositeIndex() {
+		ODatabaseDocument db = new ODatabaseDocumentTx(database.getURL());
+		db.open("admin", "admin");
+
+		if (!db.getMetadata().getSchema().existsClass("CompositeIndexClass")) {
+			OClass testClass = db.getMetadata().getSchema().createClass("CompositeIndexClass");
+			testClass.createProperty("city", OType.STRING);
+			testClass.createProperty("zip", OType.INTEGER);
+			testClass.createIndex(INDEX_TYPE.NOTUNIQUE, "city", "zip");
+			db.getMetadata().getSchema().save();
+		}
+
+		for (int i = 0; i < 20; ++i)
+			new ODocument(db, "CompositeIndexClass").field("city", "City " + (i % 4)).field("zip", i).save();
+
+		// ALL THE FIELDS OF THE INDEX
+		List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+				"select from CompositeIndexClass where zip = 5 and city = 'City 1'"));
+		Assert.assertEquals(result.size(), 1);
+		Assert.assertEquals(result.get(0).field("zip"), 5);
+
+		// PREFIX OF THE INDEX
+		result = db.query(new OSQLSynchQuery<ODocument>("select from CompositeIndexClass where city = 'City 2'"));
+		Assert.assertEquals(result.size(), 5);
+		for (ODocument d : result)
+			Assert.assertEquals(d.field("city"), "City 2");
+
+		// THE INDEX MUST FOLLOW THE CHANGES
+		result.get(0).field("city", "City 3").save();
+		result = db.query(new OSQLSynchQuery<ODocument>("select from CompositeIndexClass where city = 'City 2'"));
+		Assert.assertEquals(result.size(), 4);
+
+		db.command(new OCommandSQL("delete from CompositeIndexClass")).execute();
+		db.close();
+	}
 }
@@ -18,6 +18,7 @@ package com.orientechnologies.orient.test.database.auto;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -28,6 +29,8 @@ import org.testng.Assert;
 import org.testng.annotations.Parameters;
 import org.testng.annotations.Test;
 
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.id.ORID;
@@ -35,6 +38,7 @@ import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
 import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
 
 @Test(groups = "sql-select")
@@ -674,6 +678,67 @@ public class SQLSelectTest {
 		database.close();
 	}
 
+	@Test
+	public void queryOrderByIndexedFieldAndLimit() {
+		database.open("admin", "admin");
+
+		final List<String> nicks = new ArrayList<String>();
+		final List<ODocument> profiles = database.command(new OSQLSynchQuery<ODocument>("select from Profile")).execute();
+		for (ODocument d : profiles)
+			if (d.field("nick") != null)
+				nicks.add((String) d.field("nick"));
+		Collections.sort(nicks, Collections.reverseOrder());
+
+		// PROFILE.NICK IS INDEXED: THE RECORDS ARE BROWSED BY THE INDEX IN DESCENDING ORDER
+		List<ODocument> result = database.command(new OSQLSynchQuery<ODocument>("select from Profile order by nick desc limit 3"))
+				.execute();
+
+		Assert.assertEquals(result.size(), Math.min(3, nicks.size()));
+		for (int i = 0; i < result.size(); ++i)
+			Assert.assertEquals(result.get(i).field("nick"), nicks.get(i));
+
+		database.close();
+	}
+
+	@Test
+	public void queryParallelScan() {
+		database.open("admin", "admin");
+
+		final List<ODocument> sequential = database.command(
+				new OSQLSynchQuery<ODocument>("select from Account where name is not null")).execute();
+		final List<ODocument> parallel = database.command(
+				new OSQLSynchQuery<ODocument>("select from Account where name is not null parallel 4")).execute();
+
+		// THE RECORDS ARE RETURNED IN THE SAME ORDER OF THE SEQUENTIAL SCAN
+		Assert.assertEquals(parallel.size(), sequential.size());
+		for (int i = 0; i < parallel.size(); ++i)
+			Assert.assertEquals(parallel.get(i).getIdentity(), sequential.get(i).getIdentity());
+
+		final List<ODocument> limited = database.command(
+				new OSQLSynchQuery<ODocument>("select from Account where name is not null limit 2 parallel 4")).execute();
+		Assert.assertEquals(limited.size(), Math.min(2, sequential.size()));
+
+		database.close();
+	}
+
+	@Test
+	public void queryParallelNotAKeyword() {
+		database.open("admin", "admin");
+
+		// FIELD NAMES AND STRINGS STARTING WITH THE KEYWORD ARE PART OF THE CONDITION
+		List<ODocument> result = database.command(new OSQLSynchQuery<ODocument>("select from Account where parallelism = 1"))
+				.execute();
+		Assert.assertEquals(result.size(), 0);
+
+		result = database.command(new OSQLSynchQuery<ODocument>("select from Account where name = 'parallel 4'")).execute();
+		Assert.assertEquals(result.size(), 0);
+
+		result = database.command(new OSQLSynchQuery<ODocument>("select from Account where parallelism = 1 parallel 2")).execute();
+		Assert.assertEquals(result.size(), 0);
+
+		database.close();
+	}
+
 	@Test
 	public void queryConditionAndOrderBy() {
 		database.open("admin", "admin");
@@ -914,6 +979,41 @@ public class SQLSelectTest {
 		database.close();
 	}
 
+	@Test
+	public void queryWithFetchSize() {
+		database.open("admin", "admin");
+
+		final List<ODocument> expected = database.query(new OSQLSynchQuery<ODocument>("select from Account"));
+
+		final int fetchSize = OGlobalConfiguration.NETWORK_BINARY_FETCH_SIZE.getValueAsInteger();
+		OGlobalConfiguration.NETWORK_BINARY_FETCH_SIZE.setValue(2);
+		try {
+			// REMOTE: THE RECORDS ARE FETCHED 2 AT A TIME WHILE BROWSED
+			final List<ODocument> resultset = database.query(new OSQLSynchQuery<ODocument>("select from Account"));
+
+			int i = 0;
+			for (ODocument d : resultset)
+				Assert.assertEquals(d.getIdentity(), expected.get(i++).getIdentity());
+			Assert.assertEquals(i, expected.size());
+			Assert.assertEquals(resultset.size(), expected.size());
+
+			// STOP BEFORE THE END: THE CURSOR IS CLOSED
+			final List<ODocument> partial = new ArrayList<ODocument>();
+			database.command(new OSQLAsynchQuery<ODocument>("select from Account", new OCommandResultListener() {
+				public boolean result(final Object iRecord) {
+					partial.add((ODocument) iRecord);
+					return partial.size() < 3;
+				}
+			})).execute();
+			Assert.assertEquals(partial.size(), Math.min(3, expected.size()));
+
+		} finally {
+			OGlobalConfiguration.NETWORK_BINARY_FETCH_SIZE.setValue(fetchSize);
+		}
+
+		database.close();
+	}
+
 	@Test
 	public void queryBetween() {
 		database.open("admin", "admin");
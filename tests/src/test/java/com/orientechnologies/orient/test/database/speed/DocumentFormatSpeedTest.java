@@ -0,0 +1,101 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.Date;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerDocument2Binary;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+import com.orientechnologies.orient.test.database.base.OrientMonoThreadTest;
+
+/**
+ * Compares the CSV and the binary document formats reading a single field and all the fields of the same record.
+ */
+@Test(enabled = false)
+public class DocumentFormatSpeedTest extends OrientMonoThreadTest {
+	private ODatabaseDocument	database;
+	private final ORecordId		rid	= new ORecordId(1, 0);
+	private byte[]						csv;
+	private byte[]						binary;
+	private long							csvSingle;
+	private long							binarySingle;
+	private long							csvFull;
+	private long							binaryFull;
+
+	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+		DocumentFormatSpeedTest test = new DocumentFormatSpeedTest();
+		test.data.go(test);
+	}
+
+	public DocumentFormatSpeedTest() throws InstantiationException, IllegalAccessException {
+		super(1000000);
+	}
+
+	@Override
+	public void init() {
+		database = new ODatabaseDocumentTx(System.getProperty("url")).open("admin", "admin");
+
+		final ODocument record = new ODocument(database, "Account");
+		record.field("id", 1000);
+		record.field("name", "Luca");
+		record.field("surname", "Garulli");
+		record.field("birthDate", new Date());
+		record.field("salary", 3000f);
+		record.field("location", "Rome");
+		record.field("description", "Core contributor of the project with a quite long description to parse");
+		record.field("score", 12345678901l);
+
+		csv = ORecordSerializerSchemaAware2CSV.INSTANCE.toStream(database, record, false);
+		binary = ORecordSerializerDocument2Binary.INSTANCE.toStream(database, record, false);
+
+		System.out.println("Record size: CSV " + csv.length + " bytes, binary " + binary.length + " bytes");
+	}
+
+	@Override
+	public void cycle() {
+		long timer = System.nanoTime();
+		((ODocument) new ODocument(database).fill(database, rid, 0, csv, false)).field("salary");
+		csvSingle += System.nanoTime() - timer;
+
+		timer = System.nanoTime();
+		((ODocument) new ODocument(database).fill(database, rid, 0, binary, false)).field("salary");
+		binarySingle += System.nanoTime() - timer;
+
+		timer = System.nanoTime();
+		((ODocument) new ODocument(database).fill(database, rid, 0, csv, false)).fieldValues();
+		csvFull += System.nanoTime() - timer;
+
+		timer = System.nanoTime();
+		((ODocument) new ODocument(database).fill(database, rid, 0, binary, false)).fieldValues();
+		binaryFull += System.nanoTime() - timer;
+	}
+
+	@Override
+	public void deinit() {
+		System.out.println("Single field: CSV " + csvSingle / 1000000 + "ms, binary " + binarySingle / 1000000 + "ms");
+		System.out.println("All fields: CSV " + csvFull / 1000000 + "ms, binary " + binaryFull / 1000000 + "ms");
+
+		if (database != null)
+			database.close();
+		super.deinit();
+	}
+}
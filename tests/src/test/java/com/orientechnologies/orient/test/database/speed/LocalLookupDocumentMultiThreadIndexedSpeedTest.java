@@ -0,0 +1,124 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty.INDEX_TYPE;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.test.database.base.OrientMultiThreadTest;
+import com.orientechnologies.orient.test.database.base.OrientThreadTest;
+
+/**
+ * Looks up the keys of an unique index from many threads at the same time. Run it against the same database with 1 and N threads
+ * to see how point lookups scale with the cores.
+ */
+@Test(enabled = false)
+public class LocalLookupDocumentMultiThreadIndexedSpeedTest extends OrientMultiThreadTest {
+	private static int				records;
+	private ODatabaseDocument	database;
+
+	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+		if (iArgs.length > 0)
+			System.setProperty("url", iArgs[0]);
+
+		int tot = iArgs.length > 1 ? Integer.parseInt(iArgs[1]) : 1000000;
+		int threads = iArgs.length > 2 ? Integer.parseInt(iArgs[2]) : 5;
+		records = iArgs.length > 3 ? Integer.parseInt(iArgs[3]) : 100000;
+
+		LocalLookupDocumentMultiThreadIndexedSpeedTest test = new LocalLookupDocumentMultiThreadIndexedSpeedTest(tot, threads);
+		test.data.go(test);
+	}
+
+	public LocalLookupDocumentMultiThreadIndexedSpeedTest(int tot, int threads) {
+		super(tot, threads, LookupThread.class);
+
+		OProfiler.getInstance().startRecording();
+	}
+
+	@Override
+	public void init() {
+		database = new ODatabaseDocumentTx(System.getProperty("url"));
+		if (database.exists())
+			database.delete();
+		database.create();
+
+		final OClass c = database.getMetadata().getSchema().createClass("Account");
+		c.createProperty("id", OType.INTEGER).createIndex(INDEX_TYPE.UNIQUE);
+
+		database.declareIntent(new OIntentMassiveInsert());
+
+		final ODocument record = database.newInstance();
+		for (int i = 0; i < records; ++i) {
+			record.reset();
+			record.setClassName("Account");
+			record.field("id", i);
+			record.field("name", "Luca");
+			record.field("surname", "Garulli");
+			record.save();
+		}
+
+		database.declareIntent(null);
+
+		System.out.println("\nCreated " + records + " indexed records");
+
+		OProfiler.getInstance().reset();
+	}
+
+	@Test(enabled = false)
+	public static class LookupThread extends OrientThreadTest {
+		private ODatabaseDocument	database;
+		private OIndex<?>					index;
+		private Random						random	= new Random();
+
+		@Override
+		public void init() {
+			database = new ODatabaseDocumentTx(System.getProperty("url")).open("admin", "admin");
+			index = database.getMetadata().getIndexManager().getIndex("Account.id");
+		}
+
+		public void cycle() {
+			final Object rid = index.get(random.nextInt(records));
+			Assert.assertTrue(rid instanceof OIdentifiable);
+		}
+
+		@Override
+		public void deinit() throws Exception {
+			if (database != null)
+				database.close();
+			super.deinit();
+		}
+	}
+
+	@Override
+	public void deinit() {
+		if (database != null)
+			database.close();
+
+		System.out.println(OProfiler.getInstance().dump());
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.test.SpeedTestMonoThread;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Scans the entire Account class with a selective condition and prints the bytes allocated for every scanned record. Rejected
+ * records are evaluated against the serialized content without being unmarshalled.
+ */
+@Test(enabled = false)
+public class SQLScanAllocationSpeedTest extends SpeedTestMonoThread {
+	private ODatabaseDocumentTx	database;
+	private long								scanned;
+	private long								allocated;
+
+	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+		SQLScanAllocationSpeedTest test = new SQLScanAllocationSpeedTest();
+		test.data.go(test);
+	}
+
+	public SQLScanAllocationSpeedTest() {
+		super(10);
+		database = new ODatabaseDocumentTx(System.getProperty("url")).open("admin", "admin");
+
+		System.out.println("Scanning " + database.countClass("Account") + " records");
+	}
+
+	@Override
+	public void cycle() {
+		// SCAN THE RECORDS FROM THE STORAGE, NOT FROM THE CACHE
+		database.getLevel1Cache().clear();
+		database.getLevel2Cache().clear();
+
+		final long allocatedBefore = getAllocatedBytes();
+
+		final List<ODocument> result = database.command(
+				new OSQLSynchQuery<ODocument>("select from Account where id = 100 and name = 'Luca'")).execute();
+
+		allocated += getAllocatedBytes() - allocatedBefore;
+		scanned += database.countClass("Account");
+
+		if (result.size() != 1)
+			System.out.println("Found " + result.size() + " records instead of 1");
+	}
+
+	@Override
+	public void deinit() {
+		if (allocated > 0)
+			System.out.println("Allocated bytes per scanned record: " + allocated / scanned);
+		else
+			System.out.println("Allocated bytes are not available on this JVM");
+
+		database.close();
+	}
+
+	private static long getAllocatedBytes() {
+		final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return 0;
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.internal.index;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexPostingList;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty.INDEX_TYPE;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Test class for the posting lists of not unique indexes: checks the values are split in pages, sorted and kept across reopening.
+ */
+public class PostingListTest {
+	private static final String	URL				= "local:" + System.getProperty("java.io.tmpdir") + "/orientdb/postingListTest";
+	private static final int		RECORDS		= 5000;
+	private static final int		PAGE_SIZE	= 100;
+
+	private ODatabaseDocumentTx	database;
+	private int									oldPageSize;
+
+	@BeforeClass
+	public void setUp() {
+		oldPageSize = OGlobalConfiguration.MVRBTREE_POSTING_LIST_PAGE_SIZE.getValueAsInteger();
+		OGlobalConfiguration.MVRBTREE_POSTING_LIST_PAGE_SIZE.setValue(PAGE_SIZE);
+
+		database = new ODatabaseDocumentTx(URL);
+		if (database.exists())
+			database.open("admin", "admin").delete();
+
+		database = new ODatabaseDocumentTx(URL).create();
+
+		final OClass cls = database.getMetadata().getSchema().createClass("Word");
+		cls.createProperty("name", OType.STRING).createIndex(INDEX_TYPE.NOTUNIQUE);
+		database.getMetadata().getSchema().save();
+
+		for (int i = 0; i < RECORDS; ++i)
+			new ODocument(database, "Word").field("name", i % 1000 == 0 ? "rare" : "common").save();
+	}
+
+	@AfterClass
+	public void tearDown() {
+		database.delete();
+		OGlobalConfiguration.MVRBTREE_POSTING_LIST_PAGE_SIZE.setValue(oldPageSize);
+	}
+
+	@Test
+	public void testPages() {
+		final Object values = getIndex().getInternal().get("common");
+		Assert.assertTrue(values instanceof OIndexPostingList);
+
+		final OIndexPostingList list = (OIndexPostingList) values;
+		Assert.assertEquals(list.size(), RECORDS - RECORDS / 1000);
+		Assert.assertTrue(list.getPages() >= list.size() / PAGE_SIZE);
+
+		assertSorted(list, RECORDS - RECORDS / 1000);
+		Assert.assertEquals(((Collection<?>) getIndex().getInternal().get("rare")).size(), RECORDS / 1000);
+	}
+
+	@Test(dependsOnMethods = "testPages")
+	public void testReopenAndRemove() {
+		database.close();
+		database = new ODatabaseDocumentTx(URL).open("admin", "admin");
+
+		final OIndexPostingList list = (OIndexPostingList) getIndex().getInternal().get("common");
+		assertSorted(list, RECORDS - RECORDS / 1000);
+
+		final List<ODocument> result = database.query(new OSQLSynchQuery<ODocument>("select from Word where name = 'common'"));
+		Assert.assertEquals(result.size(), RECORDS - RECORDS / 1000);
+
+		// DELETE HALF OF THE RECORDS: THE INDEX IS UPDATED AUTOMATICALLY
+		for (int i = 0; i < result.size(); i += 2) {
+			Assert.assertTrue(list.contains(result.get(i)));
+			result.get(i).delete();
+		}
+
+		final int expected = (RECORDS - RECORDS / 1000) / 2;
+		Assert.assertEquals(((Collection<?>) getIndex().getInternal().get("common")).size(), expected);
+
+		database.close();
+		database = new ODatabaseDocumentTx(URL).open("admin", "admin");
+
+		assertSorted((OIndexPostingList) getIndex().getInternal().get("common"), expected);
+		Assert.assertEquals(
+				database.query(new OSQLSynchQuery<ODocument>("select from Word where name = 'common'")).size(), expected);
+	}
+
+	@Test(dependsOnMethods = "testReopenAndRemove")
+	public void testRemovedPagesAreDeleted() {
+		final int pages = ((OIndexPostingList) getIndex().getInternal().get("common")).getPages();
+		final long indexRecords = database.countClusterElements(OStorage.CLUSTER_INDEX_NAME);
+
+		// DELETE THE FIRST HALF OF THE RECORDS: THE PAGES LEFT EMPTY MUST BE REMOVED FROM THE INDEX CLUSTER
+		final List<ODocument> result = database.query(new OSQLSynchQuery<ODocument>("select from Word where name = 'common'"));
+		for (int i = 0; i < result.size() / 2; ++i)
+			result.get(i).delete();
+
+		// THE TREE NODES ARE SAVED LAZILY: FLUSH THEM TO WRITE THE POSTING LIST AND DELETE ITS EMPTY PAGES
+		getIndex().lazySave();
+
+		final int removedPages = pages - ((OIndexPostingList) getIndex().getInternal().get("common")).getPages();
+		Assert.assertTrue(removedPages > 0);
+		Assert.assertEquals(database.countClusterElements(OStorage.CLUSTER_INDEX_NAME), indexRecords - removedPages);
+
+		// DELETE THE REST: THE KEY IS REMOVED WITH ALL ITS PAGES
+		for (int i = result.size() / 2; i < result.size(); ++i)
+			result.get(i).delete();
+		getIndex().lazySave();
+
+		Assert.assertTrue(getIndex().getInternal().get("common") == null
+				|| ((Collection<?>) getIndex().getInternal().get("common")).isEmpty());
+		Assert.assertEquals(database.countClusterElements(OStorage.CLUSTER_INDEX_NAME), indexRecords - pages);
+	}
+
+	private OIndex<?> getIndex() {
+		return database.getMetadata().getSchema().getClass("Word").getProperty("name").getIndex().getUnderlying();
+	}
+
+	private void assertSorted(final OIndexPostingList iList, final int iExpected) {
+		int count = 0;
+		ORID last = null;
+		for (Iterator<OIdentifiable> it = iList.iterator(); it.hasNext(); ++count) {
+			final ORID rid = it.next().getIdentity();
+			if (last != null)
+				Assert.assertTrue(last.compareTo(rid) < 0, "RID " + rid + " is not greater than " + last);
+			last = rid;
+		}
+		Assert.assertEquals(count, iExpected);
+	}
+}
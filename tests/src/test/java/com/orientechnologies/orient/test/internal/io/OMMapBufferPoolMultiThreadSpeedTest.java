@@ -0,0 +1,104 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.internal.io;
+
+import java.io.File;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.test.SpeedTestMultiThreads;
+import com.orientechnologies.common.test.SpeedTestThread;
+import com.orientechnologies.orient.core.OConstants;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.fs.OFileMMap;
+import com.orientechnologies.orient.core.storage.fs.OMMapManager;
+
+/**
+ * Compares the memory mapped buffer pools by reading and writing random integers from many threads against the same file. The file
+ * fits in the max memory to measure the cost of the lookups without the disk I/O.
+ */
+@Test(enabled = false)
+public class OMMapBufferPoolMultiThreadSpeedTest extends SpeedTestMultiThreads {
+	private static final String	FILE_NAME		= "C:/temp/orient-test-pool.file";
+	private static final int		FILE_SIZE		= 50000000;
+	private static final int		NUMS				= FILE_SIZE / OConstants.SIZE_INT;
+	private static final int		MAX_MEMORY	= 128000000;
+
+	private static OFileMMap		file;
+	private final int						bufferPool;
+
+	public static void main(String[] iArgs) {
+		for (int bufferPool = 0; bufferPool < 2; ++bufferPool) {
+			final OMMapBufferPoolMultiThreadSpeedTest test = new OMMapBufferPoolMultiThreadSpeedTest(bufferPool);
+			test.data.go(test);
+		}
+	}
+
+	public OMMapBufferPoolMultiThreadSpeedTest() {
+		this(1);
+	}
+
+	public OMMapBufferPoolMultiThreadSpeedTest(final int iBufferPool) {
+		super(10000000, 8, ReadWriteThread.class);
+		bufferPool = iBufferPool;
+	}
+
+	@Override
+	public void init() throws Exception {
+		OGlobalConfiguration.FILE_MMAP_BUFFER_POOL.setValue(bufferPool);
+		OGlobalConfiguration.FILE_MMAP_MAX_MEMORY.setValue(MAX_MEMORY);
+
+		// DELETE THE TEST FILE EVERY TIME
+		final File f = new File(FILE_NAME);
+		if (f.exists())
+			f.delete();
+
+		file = new OFileMMap(FILE_NAME, "rw");
+		file.create(FILE_SIZE);
+		file.allocateSpace(FILE_SIZE);
+
+		System.out.println("Testing buffer pool " + OMMapManager.getBufferPool().getClass().getSimpleName() + " with " + threads
+				+ " threads...");
+	}
+
+	@Override
+	public void deinit() throws Exception {
+		System.out.println("\nMapped blocks: " + OMMapManager.getBufferPool().getBlocks() + ", total memory: "
+				+ OMMapManager.getTotalMemory());
+		file.close();
+		OMMapManager.shutdown();
+	}
+
+	public static class ReadWriteThread extends SpeedTestThread {
+		private final Random	random	= new Random();
+
+		@Override
+		public void cycle() throws Exception {
+			// EVERY POSITION CONTAINS ITS OWN INDEX: THREADS CAN OVERWRITE EACH OTHER WITHOUT BREAKING THE CHECK
+			final int pos = random.nextInt(NUMS);
+			final long offset = (long) pos * OConstants.SIZE_INT;
+
+			if (random.nextInt(10) == 0)
+				file.writeInt(offset, pos);
+			else {
+				final int value = file.readInt(offset);
+				Assert.assertTrue(value == 0 || value == pos);
+			}
+		}
+	}
+}
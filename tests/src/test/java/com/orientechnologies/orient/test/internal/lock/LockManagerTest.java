@@ -288,4 +288,55 @@ public class LockManagerTest {
 
 		Assert.assertEquals(lockMgr.getCountCurrentLocks(), 0);
 	}
+
+	/**
+	 * Measures the throughput of shared and exclusive locks acquired by many threads against many different resources, like the
+	 * storage does with the record ids. Each round is executed after a warm up.
+	 */
+	@Test
+	public void testContention() throws Throwable {
+		final OLockManager<Integer, Runnable> manager = new OLockManager<Integer, Runnable>(5000);
+		final int resourcesCount = 100000;
+		final int operations = 200000;
+
+		for (final LOCK lockType : new LOCK[] { LOCK.SHARED, LOCK.EXCLUSIVE }) {
+			for (int round = 0; round < 2; ++round) {
+				final List<Thread> threads = new ArrayList<Thread>();
+				for (int t = 0; t < THREADS; ++t) {
+					final int seed = t;
+					threads.add(new Thread() {
+						@Override
+						public void run() {
+							try {
+								int resource = seed;
+								for (int i = 0; i < operations; ++i) {
+									resource = (resource * 31 + i) % resourcesCount;
+									manager.acquireLock(this, resource, lockType);
+									manager.releaseLock(this, resource, lockType);
+								}
+							} catch (Throwable e) {
+								exceptions.add(e);
+							}
+						}
+					});
+				}
+
+				final long start = System.nanoTime();
+				for (Thread thread : threads)
+					thread.start();
+				for (Thread thread : threads)
+					thread.join();
+				final long elapsed = System.nanoTime() - start;
+
+				if (exceptions.size() > 0)
+					throw exceptions.get(0);
+
+				if (round > 0)
+					System.out.println(lockType + " locks: " + (THREADS * (long) operations * 1000000000l / elapsed) + " ops/sec with "
+							+ THREADS + " threads");
+			}
+		}
+
+		Assert.assertEquals(manager.getCountCurrentLocks(), 0);
+	}
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.internal.network;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+/**
+ * ConnectionScalingTest.java
+ * 
+ * Like TcpClient, this test class works against a running server: it opens an increasing number of idle connections to the binary
+ * listener of an OrientDB server and measures the throughput of a fixed number of active clients at every step. Run it against
+ * the server with network.selector.enabled set to false (thread per connection) and true (NIO selector with a bounded worker
+ * pool) to compare how they scale with the connections.
+ * 
+ * Arguments: [database URL] [user] [password] [max idle connections]
+ */
+public class ConnectionScalingTest {
+	public final static String	SERVER_HOSTNAME	= "localhost";
+	public final static int			COMM_PORT				= 2424;
+	public final static int			ACTIVE_CLIENTS	= 8;
+	public final static int			LOADS						= 2000;
+
+	private final List<Socket>	idleSockets			= new ArrayList<Socket>();
+
+	public ConnectionScalingTest(final String iURL, final String iUser, final String iPassword, final int iMaxIdle)
+			throws Exception {
+		OGlobalConfiguration.CACHE_LEVEL2_ENABLED.setValue(false);
+
+		try {
+			for (int idle = 0; idle <= iMaxIdle; idle = idle == 0 ? 100 : idle * 2) {
+				final long connectTime = openIdleConnections(idle);
+				final long loadsPerSecond = runActiveClients(iURL, iUser, iPassword);
+
+				System.out.println("Idle connections: " + idleSockets.size() + " (opened in " + connectTime + "ms) - active clients: "
+						+ ACTIVE_CLIENTS + " - loads/sec: " + loadsPerSecond + " - JVM threads: " + Thread.activeCount());
+			}
+		} finally {
+			for (Socket s : idleSockets)
+				try {
+					s.close();
+				} catch (IOException e) {
+				}
+		}
+	}
+
+	/**
+	 * Opens idle connections up to the requested number. Every connection waits for the protocol version sent by the server to be
+	 * sure it has been accepted.
+	 */
+	private long openIdleConnections(final int iTotal) throws IOException {
+		final long date = System.currentTimeMillis();
+		while (idleSockets.size() < iTotal) {
+			final Socket socket = new Socket(SERVER_HOSTNAME, COMM_PORT);
+			new DataInputStream(socket.getInputStream()).readShort();
+			idleSockets.add(socket);
+		}
+		return System.currentTimeMillis() - date;
+	}
+
+	private long runActiveClients(final String iURL, final String iUser, final String iPassword) throws InterruptedException {
+		final AtomicLong loads = new AtomicLong();
+
+		final List<Thread> clients = new ArrayList<Thread>();
+		for (int i = 0; i < ACTIVE_CLIENTS; ++i)
+			clients.add(new Thread() {
+				@Override
+				public void run() {
+					final ODatabaseDocumentTx db = new ODatabaseDocumentTx(iURL).open(iUser, iPassword);
+					try {
+						final ORecordId rid = new ORecordId(0, 0);
+						for (int k = 0; k < LOADS; ++k) {
+							db.getLevel1Cache().invalidate();
+							db.load(rid);
+							loads.incrementAndGet();
+						}
+					} finally {
+						db.close();
+					}
+				}
+			});
+
+		final long date = System.currentTimeMillis();
+		for (Thread t : clients)
+			t.start();
+		for (Thread t : clients)
+			t.join();
+
+		final long elapsed = Math.max(1, System.currentTimeMillis() - date);
+		return loads.get() * 1000 / elapsed;
+	}
+
+	/**
+	 * Run this class as an application.
+	 */
+	public static void main(String[] args) throws Exception {
+		new ConnectionScalingTest(args.length > 0 ? args[0] : "remote:" + SERVER_HOSTNAME + "/demo", args.length > 1 ? args[1]
+				: "admin", args.length > 2 ? args[2] : "admin", args.length > 3 ? Integer.parseInt(args[3]) : 3200);
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.internal.profiler;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.common.profiler.OProfiler.OProfilerEntry;
+
+/**
+ * Test class for OProfiler: checks the values collected by many threads and measures the cost of the updates.
+ */
+public class ProfilerTest {
+	private static final int	THREADS	= 16;
+	private static final int	UPDATES	= 500000;
+
+	@Test
+	public void testPercentiles() {
+		final OProfiler profiler = new OProfiler("true");
+
+		for (int i = 1; i <= 10000; ++i)
+			profiler.updateStat("stat", i);
+
+		final OProfilerEntry entry = profiler.getStat("stat");
+		Assert.assertEquals(entry.items, 10000);
+		Assert.assertEquals(entry.min, 1);
+		Assert.assertEquals(entry.max, 10000);
+		Assert.assertEquals(entry.total, 10000 * 10001 / 2);
+
+		// BUCKETS HAVE A RELATIVE ERROR OF 1/16
+		Assert.assertEquals(entry.p50, 5000f, 5000f / 16);
+		Assert.assertEquals(entry.p99, 9900f, 9900f / 16);
+		Assert.assertEquals(entry.p999, 9990f, 9990f / 16);
+
+		final String metrics = profiler.dumpMetrics(true);
+		Assert.assertTrue(metrics.contains("orientdb_stat_items{name=\"stat\"} 10000\n"), metrics);
+		Assert.assertEquals(profiler.getStat("stat").items, 0);
+	}
+
+	@Test
+	public void testConcurrentUpdates() throws InterruptedException {
+		final OProfiler profiler = new OProfiler("true");
+
+		final Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < THREADS; ++t) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < UPDATES; ++i) {
+						profiler.updateCounter("counter", +1);
+						profiler.stopChrono("chrono", profiler.startChrono());
+					}
+				}
+			};
+		}
+
+		final long start = System.nanoTime();
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+		final long elapsed = System.nanoTime() - start;
+
+		System.out.println("Profiler updates: " + (THREADS * (long) UPDATES * 1000000000l / elapsed) + " counter+chrono/sec with "
+				+ THREADS + " threads");
+
+		Assert.assertEquals(profiler.getCounter("counter"), THREADS * (long) UPDATES);
+		Assert.assertEquals(profiler.getChrono("chrono").items, THREADS * (long) UPDATES);
+	}
+}
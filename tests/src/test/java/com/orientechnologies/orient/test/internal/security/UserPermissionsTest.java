@@ -0,0 +1,110 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.internal.security;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.exception.OSecurityAccessException;
+import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityResources;
+import com.orientechnologies.orient.core.metadata.security.ORole;
+
+/**
+ * Test class for the compiled permissions of the users: checks they behave as the role rules and measures the cost of the checks.
+ */
+public class UserPermissionsTest {
+	private static final String	URL				= "memory:userPermissionsTest";
+	private static final int		CHECKS		= 5000000;
+
+	private ODatabaseDocumentTx	database;
+	private int									secretId;
+	private int									userId;
+
+	@BeforeClass
+	public void setUp() {
+		database = new ODatabaseDocumentTx(URL).create();
+		secretId = database.addPhysicalCluster("secret");
+		userId = database.getClusterIdByName("ouser");
+
+		final ORole reader = database.getMetadata().getSecurity().getRole("reader");
+		reader.addRule(ODatabaseSecurityResources.CLUSTER + ".secret", ORole.PERMISSION_NONE);
+		reader.save();
+		database.close();
+
+		database = new ODatabaseDocumentTx(URL).open("reader", "reader");
+	}
+
+	@AfterClass
+	public void tearDown() {
+		database.close();
+	}
+
+	@Test
+	public void testRules() {
+		database.checkSecurity(ODatabaseSecurityResources.DATABASE, ORole.PERMISSION_READ);
+		database.checkSecurity(ODatabaseSecurityResources.CLASS, ORole.PERMISSION_READ, "Account");
+		database.checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, "ouser", "orole");
+		database.checkClusterSecurity(ORole.PERMISSION_READ, userId);
+
+		assertDenied(ODatabaseSecurityResources.DATABASE, ORole.PERMISSION_DELETE, null);
+		assertDenied(ODatabaseSecurityResources.CLASS, ORole.PERMISSION_UPDATE, "Account");
+		assertDenied(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, "secret");
+
+		try {
+			database.checkClusterSecurity(ORole.PERMISSION_READ, secretId);
+			Assert.fail("Read of cluster secret should be denied");
+		} catch (OSecurityAccessException e) {
+		}
+	}
+
+	@Test(dependsOnMethods = "testRules")
+	public void testInvalidation() {
+		final ORole role = database.getUser().getRoles().iterator().next();
+
+		role.grant(ODatabaseSecurityResources.CLUSTER + ".secret", ORole.PERMISSION_READ);
+		database.checkClusterSecurity(ORole.PERMISSION_READ, secretId);
+
+		role.revoke(ODatabaseSecurityResources.CLUSTER + ".secret", ORole.PERMISSION_READ);
+		assertDenied(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, "secret");
+	}
+
+	@Test(dependsOnMethods = "testInvalidation")
+	public void testSpeed() {
+		final long start = System.nanoTime();
+		for (int i = 0; i < CHECKS; ++i) {
+			database.checkClusterSecurity(ORole.PERMISSION_READ, userId);
+			database.checkSecurity(ODatabaseSecurityResources.CLASS, ORole.PERMISSION_READ, "Account");
+		}
+		final long elapsed = System.nanoTime() - start;
+
+		System.out.println("Security checks: " + (CHECKS * 2l * 1000000000l / elapsed) + " checks/sec");
+	}
+
+	private void assertDenied(final String iResource, final int iOperation, final String iTarget) {
+		try {
+			if (iTarget == null)
+				database.checkSecurity(iResource, iOperation);
+			else
+				database.checkSecurity(iResource, iOperation, iTarget);
+			Assert.fail("Operation " + ORole.permissionToString(iOperation) + " against " + iResource + "." + iTarget
+					+ " should be denied");
+		} catch (OSecurityAccessException e) {
+		}
+	}
+}
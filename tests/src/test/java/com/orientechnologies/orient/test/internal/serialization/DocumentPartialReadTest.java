@@ -0,0 +1,90 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.internal.serialization;
+
+import java.util.Date;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Test class for the partial read of document fields: reads the fields that need a conversion before the document has been
+ * unmarshalled.
+ */
+@Test
+public class DocumentPartialReadTest {
+	private ODatabaseDocumentTx	database;
+	private String							oldFormat;
+	private ORID								rid;
+	private ORID								linkedRid;
+
+	@BeforeClass
+	public void setUp() {
+		oldFormat = OGlobalConfiguration.DB_DOCUMENT_FORMAT.getValueAsString();
+		OGlobalConfiguration.DB_DOCUMENT_FORMAT.setValue("binary");
+
+		database = new ODatabaseDocumentTx("memory:documentPartialReadTest").create();
+		database.getMetadata().getSchema().createClass("Partial");
+		database.getMetadata().getSchema().save();
+
+		final ODocument linked = new ODocument(database, "Partial").field("name", "linked");
+		linked.save();
+		linkedRid = linked.getIdentity();
+
+		// PERSISTENT LINKS AND LONGS ARE ENCODED NATIVELY: THEY ARE READ WITHOUT UNMARSHALLING THE DOCUMENT
+		final ODocument doc = new ODocument(database, "Partial").field("name", "owner").field("link", linkedRid)
+				.field("timestamp", 1000l);
+		doc.save();
+		rid = doc.getIdentity();
+	}
+
+	@AfterClass
+	public void tearDown() {
+		database.delete();
+		OGlobalConfiguration.DB_DOCUMENT_FORMAT.setValue(oldFormat);
+	}
+
+	public void readLinkAfterPartialRead() {
+		final ODocument doc = reload();
+		Assert.assertEquals(doc.field("name"), "owner");
+
+		final Object link = doc.field("link");
+		Assert.assertTrue(link instanceof ODocument);
+		Assert.assertEquals(((ODocument) link).getIdentity(), linkedRid);
+		Assert.assertEquals(((ODocument) link).field("name"), "linked");
+	}
+
+	public void readDateAfterPartialRead() {
+		final ODocument doc = reload();
+		Assert.assertEquals(doc.field("name"), "owner");
+
+		Assert.assertEquals(doc.field("timestamp", OType.DATE), new Date(1000));
+	}
+
+	private ODocument reload() {
+		database.getLevel1Cache().invalidate();
+		database.getStorage().getLevel2Cache().clear();
+		return database.load(rid);
+	}
+}
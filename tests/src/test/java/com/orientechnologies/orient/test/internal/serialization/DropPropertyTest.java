@@ -0,0 +1,80 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.internal.serialization;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Test class for the binary documents that refer to a dropped property by id: they must be still readable after reopening the
+ * database.
+ */
+@Test
+public class DropPropertyTest {
+	private static final String	URL	= "local:" + System.getProperty("java.io.tmpdir") + "/orientdb/dropPropertyTest";
+
+	public void readAfterDropProperty() {
+		final String oldFormat = OGlobalConfiguration.DB_DOCUMENT_FORMAT.getValueAsString();
+		OGlobalConfiguration.DB_DOCUMENT_FORMAT.setValue("binary");
+
+		try {
+			ODatabaseDocumentTx database = new ODatabaseDocumentTx(URL);
+			if (database.exists())
+				database.open("admin", "admin").delete();
+
+			database = new ODatabaseDocumentTx(URL).create();
+
+			final OClass cls = database.getMetadata().getSchema().createClass("P");
+			cls.createProperty("name", OType.STRING);
+			cls.createProperty("nick", OType.STRING);
+			database.getMetadata().getSchema().save();
+
+			final ODocument doc = new ODocument(database, "P").field("name", "Jay").field("nick", "jj");
+			doc.save();
+			final ORID rid = doc.getIdentity().copy();
+
+			database.getMetadata().getSchema().getClass("P").dropProperty("nick");
+			database.close();
+
+			database = new ODatabaseDocumentTx(URL).open("admin", "admin");
+			try {
+				// PARTIAL READ
+				ODocument loaded = database.load(rid);
+				Assert.assertEquals(loaded.field("nick"), "jj");
+
+				// FULL READ
+				database.getLevel1Cache().invalidate();
+				database.getStorage().getLevel2Cache().clear();
+				loaded = database.load(rid);
+				Assert.assertEquals(loaded.fieldNames().length, 2);
+				Assert.assertEquals(loaded.field("name"), "Jay");
+				Assert.assertEquals(loaded.field("nick"), "jj");
+				Assert.assertFalse(database.getMetadata().getSchema().getClass("P").existsProperty("nick"));
+			} finally {
+				database.delete();
+			}
+		} finally {
+			OGlobalConfiguration.DB_DOCUMENT_FORMAT.setValue(oldFormat);
+		}
+	}
+}
@@ -638,6 +638,40 @@ public class OConsoleDatabaseApp extends OrientConsole implements OCommandOutput
 		browseRecords(columns, limit, it);
 	}
 
+	@ConsoleCommand(description = "Rewrite all the documents of a cluster in the requested format: 'csv' or 'binary'")
+	public void convertCluster(
+			@ConsoleParameter(name = "cluster-name", description = "The name of the cluster") final String iClusterName,
+			@ConsoleParameter(name = "format", description = "The target format: 'csv' or 'binary'") final String iFormat) {
+		checkCurrentDatabase();
+
+		if (ORecordSerializerFactory.instance().getFormat("ORecordDocument2" + iFormat) == null)
+			throw new OException("Document format '" + iFormat + "' is not supported. Use 'csv' or 'binary'");
+
+		final String previousFormat = OGlobalConfiguration.DB_DOCUMENT_FORMAT.getValueAsString();
+		OGlobalConfiguration.DB_DOCUMENT_FORMAT.setValue(iFormat);
+
+		out.println("\nConverting documents of cluster '" + iClusterName + "' in " + iFormat + " format...");
+
+		final long start = System.currentTimeMillis();
+		long converted = 0;
+		try {
+			for (Object r : currentDatabase.browseCluster(iClusterName))
+				if (r instanceof ODocument) {
+					// LOAD THE CONTENT IN A NEW INSTANCE USING THE REQUESTED FORMAT, THEN FORCE THE REWRITE
+					final ODocument doc = (ODocument) r;
+					final ODocument converter = new ODocument(currentDatabase);
+					converter.fill(currentDatabase, (ORecordId) doc.getIdentity(), doc.getVersion(), doc.toStream(), false);
+					converter.setDirty();
+					converter.save();
+					converted++;
+				}
+		} finally {
+			OGlobalConfiguration.DB_DOCUMENT_FORMAT.setValue(previousFormat);
+		}
+
+		out.printf("\nConverted %d document(s) in %f sec(s).\n", converted, (float) (System.currentTimeMillis() - start) / 1000);
+	}
+
 	@ConsoleCommand(aliases = { "display" }, description = "Display current record's attributes")
 	public void displayRecord(
 			@ConsoleParameter(name = "number", description = "The number of the record in the last result set") final String iRecordNumber) {